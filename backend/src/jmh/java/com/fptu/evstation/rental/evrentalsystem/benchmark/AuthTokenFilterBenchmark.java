@@ -0,0 +1,62 @@
+package com.fptu.evstation.rental.evrentalsystem.benchmark;
+
+import com.fptu.evstation.rental.evrentalsystem.filter.AuthTokenFilter;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AuthTokenFilterBenchmark {
+
+    private AuthTokenFilter authTokenFilter;
+    private String validHeader;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        authTokenFilter = BenchmarkContext.get().getBean(AuthTokenFilter.class);
+        validHeader = "Bearer " + BenchmarkContext.fixtures().getRenterToken();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        BenchmarkContext.close();
+    }
+
+    @Benchmark
+    public int validToken() throws Exception {
+        return filter(validHeader);
+    }
+
+    @Benchmark
+    public int invalidToken() throws Exception {
+        return filter("Bearer 00000000-0000-0000-0000-000000000000");
+    }
+
+    @Benchmark
+    public int anonymous() throws Exception {
+        return filter(null);
+    }
+
+    private int filter(String header) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/bookings/my");
+        if (header != null) {
+            request.addHeader("Authorization", header);
+        }
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        try {
+            authTokenFilter.doFilter(request, response, new MockFilterChain());
+            return response.getStatus();
+        } finally {
+            SecurityContextHolder.clearContext();
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.fptu.evstation.rental.evrentalsystem.benchmark;
+
+import com.fptu.evstation.rental.evrentalsystem.dto.ModelSearchRequest;
+import com.fptu.evstation.rental.evrentalsystem.dto.ModelWithAvailabilityResponse;
+import com.fptu.evstation.rental.evrentalsystem.service.ModelService;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AvailableModelsBenchmark {
+
+    private ModelService modelService;
+    private ModelSearchRequest unfiltered;
+    private ModelSearchRequest withTimeWindow;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        modelService = BenchmarkContext.get().getBean(ModelService.class);
+        Long stationId = BenchmarkContext.fixtures().getStationId();
+
+        unfiltered = ModelSearchRequest.builder()
+                .stationId(stationId)
+                .sortBy("createdAt")
+                .order("DESC")
+                .build();
+
+        LocalDateTime start = LocalDateTime.now().plusHours(3);
+        withTimeWindow = ModelSearchRequest.builder()
+                .stationId(stationId)
+                .startTime(start)
+                .endTime(start.plusHours(8))
+                .sortBy("price")
+                .order("ASC")
+                .build();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        BenchmarkContext.close();
+    }
+
+    @Benchmark
+    public List<ModelWithAvailabilityResponse> getAvailableModelsByStation() {
+        return modelService.getAvailableModelsByStation(unfiltered);
+    }
+
+    @Benchmark
+    public List<ModelWithAvailabilityResponse> getAvailableModelsByStationWithTimeWindow() {
+        return modelService.getAvailableModelsByStation(withTimeWindow);
+    }
+}
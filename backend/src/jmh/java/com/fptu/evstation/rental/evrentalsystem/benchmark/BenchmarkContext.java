@@ -0,0 +1,62 @@
+package com.fptu.evstation.rental.evrentalsystem.benchmark;
+
+import com.fptu.evstation.rental.evrentalsystem.EvRentalSystemApplication;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Một Spring context dùng chung cho mỗi JVM fork của JMH (H2 chế độ MSSQL, PayOS/SMTP/VietQR được stub).
+ */
+public final class BenchmarkContext {
+
+    private static ConfigurableApplicationContext context;
+    private static BenchmarkFixtures fixtures;
+
+    private BenchmarkContext() {
+    }
+
+    /**
+     * @param extraProperties chỉ có tác dụng ở lần khởi tạo context đầu tiên trong fork
+     */
+    public static synchronized ConfigurableApplicationContext get(String... extraProperties) {
+        if (context == null) {
+            redirectUploadDir();
+            context = new SpringApplicationBuilder(EvRentalSystemApplication.class, BenchmarkStubConfig.class)
+                    .properties(
+                            "server.port=0",
+                            "logging.level.root=WARN",
+                            "spring.jpa.show-sql=false")
+                    .properties(extraProperties)
+                    .run();
+            fixtures = new BenchmarkFixtures(context);
+            fixtures.seed();
+        }
+        return context;
+    }
+
+    public static synchronized BenchmarkFixtures fixtures() {
+        get();
+        return fixtures;
+    }
+
+    public static synchronized void close() {
+        if (context != null) {
+            context.close();
+            context = null;
+            fixtures = null;
+        }
+    }
+
+    private static void redirectUploadDir() {
+        try {
+            Path workDir = Files.createTempDirectory("ev-benchmark");
+            System.setProperty("user.dir", workDir.toString());
+        } catch (IOException e) {
+            throw new IllegalStateException("Không thể tạo thư mục tạm cho benchmark", e);
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.fptu.evstation.rental.evrentalsystem.benchmark;
+
+import com.fptu.evstation.rental.evrentalsystem.entity.*;
+import com.fptu.evstation.rental.evrentalsystem.repository.*;
+import com.fptu.evstation.rental.evrentalsystem.service.TokenService;
+import lombok.Getter;
+import org.springframework.context.ApplicationContext;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.Comparator;
+
+@Getter
+public class BenchmarkFixtures {
+
+    private final UserRepository userRepository;
+    private final RoleRepository roleRepository;
+    private final StationRepository stationRepository;
+    private final VehicleRepository vehicleRepository;
+    private final BookingRepository bookingRepository;
+    private final TokenService tokenService;
+    private final TransactionTemplate transactionTemplate;
+
+    private Long stationId;
+    private Long availableVehicleId;
+    private Long rentingBookingId;
+    private User renter;
+    private User staff;
+    private String renterToken;
+
+    public BenchmarkFixtures(ApplicationContext context) {
+        this.userRepository = context.getBean(UserRepository.class);
+        this.roleRepository = context.getBean(RoleRepository.class);
+        this.stationRepository = context.getBean(StationRepository.class);
+        this.vehicleRepository = context.getBean(VehicleRepository.class);
+        this.bookingRepository = context.getBean(BookingRepository.class);
+        this.tokenService = context.getBean(TokenService.class);
+        this.transactionTemplate = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+    }
+
+    public void seed() {
+        transactionTemplate.executeWithoutResult(status -> {
+            Station station = stationRepository.findByStatus(StationStatus.ACTIVE).stream()
+                    .min(Comparator.comparing(Station::getStationId))
+                    .orElseThrow();
+            stationId = station.getStationId();
+
+            Vehicle vehicle = vehicleRepository.findAll().stream()
+                    .filter(v -> v.getStation().getStationId().equals(stationId))
+                    .filter(v -> v.getBatteryLevel() >= 85 && v.getStatus() == VehicleStatus.AVAILABLE)
+                    .findFirst()
+                    .orElseThrow();
+            availableVehicleId = vehicle.getVehicleId();
+
+            Role renterRole = roleRepository.findByRoleName("EV_RENTER").orElseThrow();
+            Role staffRole = roleRepository.findByRoleName("STATION_STAFF").orElseThrow();
+
+            renter = userRepository.save(newUser("bench.renter@evolve.local", "0900000001", renterRole, null));
+            User rentingUser = userRepository.save(newUser("bench.renting@evolve.local", "0900000002", renterRole, null));
+            staff = userRepository.save(newUser("bench.staff@evolve.local", "0900000003", staffRole, station));
+
+            LocalDateTime start = LocalDateTime.now().minusHours(5);
+            Booking renting = bookingRepository.save(Booking.builder()
+                    .user(rentingUser)
+                    .station(station)
+                    .vehicle(vehicle)
+                    .startDate(start)
+                    .endDate(start.plusHours(4))
+                    .rentalDeposit(vehicle.getDepositAmount())
+                    .reservationDepositPaid(true)
+                    .rentalDepositPaid(true)
+                    .status(BookingStatus.RENTING)
+                    .build());
+            rentingBookingId = renting.getBookingId();
+
+            renterToken = tokenService.createToken(renter).getToken();
+        });
+    }
+
+    private User newUser(String email, String phone, Role role, Station station) {
+        return User.builder()
+                .email(email)
+                .phone(phone)
+                .cccd("CCCD" + phone)
+                .gplx("GPLX" + phone)
+                .password("benchmark")
+                .fullName("Benchmark " + role.getRoleName())
+                .role(role)
+                .station(station)
+                .status(AccountStatus.ACTIVE)
+                .verificationStatus(VerificationStatus.APPROVED)
+                .cancellationCount(0)
+                .build();
+    }
+}
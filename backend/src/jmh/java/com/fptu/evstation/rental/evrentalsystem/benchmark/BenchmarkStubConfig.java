@@ -0,0 +1,44 @@
+package com.fptu.evstation.rental.evrentalsystem.benchmark;
+
+import com.fptu.evstation.rental.evrentalsystem.service.util.QrCodeService;
+import org.mockito.Answers;
+import org.mockito.Mockito;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Primary;
+import org.springframework.mail.javamail.JavaMailSender;
+import vn.payos.PayOS;
+import vn.payos.model.v2.paymentRequests.CreatePaymentLinkResponse;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.when;
+
+@TestConfiguration
+public class BenchmarkStubConfig {
+
+    @Bean
+    @Primary
+    public PayOS stubPayOS() throws Exception {
+        PayOS payOS = Mockito.mock(PayOS.class, Answers.RETURNS_DEEP_STUBS);
+        CreatePaymentLinkResponse response = Mockito.mock(CreatePaymentLinkResponse.class);
+        when(response.getCheckoutUrl()).thenReturn("http://localhost/benchmark-checkout");
+        when(payOS.paymentRequests().create(any())).thenReturn(response);
+        return payOS;
+    }
+
+    @Bean
+    @Primary
+    public JavaMailSender stubMailSender() {
+        return Mockito.mock(JavaMailSender.class, Answers.RETURNS_MOCKS);
+    }
+
+    @Bean
+    @Primary
+    public QrCodeService stubQrCodeService() {
+        QrCodeService qrCodeService = Mockito.mock(QrCodeService.class);
+        when(qrCodeService.generateQrCodeBase64(anyDouble(), anyLong())).thenReturn("data:image/png;base64,");
+        return qrCodeService;
+    }
+}
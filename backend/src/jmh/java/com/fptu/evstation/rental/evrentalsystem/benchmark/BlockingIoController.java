@@ -0,0 +1,30 @@
+package com.fptu.evstation.rental.evrentalsystem.benchmark;
+
+import com.fptu.evstation.rental.evrentalsystem.repository.StationRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * Endpoint chỉ dùng cho load test: một truy vấn JDBC cộng độ trễ I/O giả lập (PayOS, SMTP, VietQR).
+ */
+@RestController
+@RequiredArgsConstructor
+@ConditionalOnProperty(prefix = "benchmark.load", name = "enabled", havingValue = "true")
+public class BlockingIoController {
+
+    private final StationRepository stationRepository;
+
+    @Value("${benchmark.load.io-latency-ms:20}")
+    private long ioLatencyMs;
+
+    @GetMapping("/api/benchmark/blocking-io")
+    public ResponseEntity<Long> blockingIo() throws InterruptedException {
+        long stations = stationRepository.count();
+        Thread.sleep(ioLatencyMs);
+        return ResponseEntity.ok(stations);
+    }
+}
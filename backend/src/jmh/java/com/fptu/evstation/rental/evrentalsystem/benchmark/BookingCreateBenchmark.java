@@ -0,0 +1,47 @@
+package com.fptu.evstation.rental.evrentalsystem.benchmark;
+
+import com.fptu.evstation.rental.evrentalsystem.dto.BookingRequest;
+import com.fptu.evstation.rental.evrentalsystem.service.BookingService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BookingCreateBenchmark {
+
+    private BookingService bookingService;
+    private BenchmarkFixtures fixtures;
+    private TransactionTemplate transactionTemplate;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        bookingService = BenchmarkContext.get().getBean(BookingService.class);
+        fixtures = BenchmarkContext.fixtures();
+        transactionTemplate = fixtures.getTransactionTemplate();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        BenchmarkContext.close();
+    }
+
+    @Benchmark
+    public Map<String, Object> createBooking() {
+        LocalDateTime start = LocalDateTime.now().plusHours(2);
+        BookingRequest req = new BookingRequest();
+        req.setVehicleId(fixtures.getAvailableVehicleId());
+        req.setStartTime(start);
+        req.setEndTime(start.plusHours(6));
+        req.setAgreedToTerms(true);
+        return RollbackSupport.inRollback(transactionTemplate,
+                () -> bookingService.createBooking(fixtures.getRenter(), req, null));
+    }
+}
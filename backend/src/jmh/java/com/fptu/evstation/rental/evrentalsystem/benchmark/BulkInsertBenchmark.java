@@ -0,0 +1,81 @@
+package com.fptu.evstation.rental.evrentalsystem.benchmark;
+
+import com.fptu.evstation.rental.evrentalsystem.entity.*;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.orm.jpa.SharedEntityManagerCreator;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * So sánh insert hàng loạt: VehicleHistory (sequence pooled + JDBC batch) với Rating (IDENTITY, mỗi persist là một round trip).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BulkInsertBenchmark {
+
+    @Param({"10", "100"})
+    private int rows;
+
+    private EntityManager entityManager;
+    private BenchmarkFixtures fixtures;
+    private TransactionTemplate transactionTemplate;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        ConfigurableApplicationContext context = BenchmarkContext.get();
+        entityManager = SharedEntityManagerCreator.createSharedEntityManager(context.getBean(EntityManagerFactory.class));
+        fixtures = BenchmarkContext.fixtures();
+        transactionTemplate = fixtures.getTransactionTemplate();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        BenchmarkContext.close();
+    }
+
+    @Benchmark
+    public int sequenceBatched() {
+        return RollbackSupport.inRollback(transactionTemplate, () -> {
+            Station station = entityManager.getReference(Station.class, fixtures.getStationId());
+            Vehicle vehicle = entityManager.getReference(Vehicle.class, fixtures.getAvailableVehicleId());
+            for (int i = 0; i < rows; i++) {
+                entityManager.persist(VehicleHistory.builder()
+                        .vehicle(vehicle)
+                        .station(station)
+                        .staff(fixtures.getStaff())
+                        .actionType(VehicleActionType.MAINTENANCE)
+                        .note("Benchmark " + i)
+                        .batteryLevel(90)
+                        .mileage(1000.0 + i)
+                        .build());
+            }
+            entityManager.flush();
+            return rows;
+        });
+    }
+
+    @Benchmark
+    public int identityBaseline() {
+        return RollbackSupport.inRollback(transactionTemplate, () -> {
+            Station station = entityManager.getReference(Station.class, fixtures.getStationId());
+            for (int i = 0; i < rows; i++) {
+                entityManager.persist(Rating.builder()
+                        .station(station)
+                        .userId(fixtures.getRenter().getUserId())
+                        .stars(5)
+                        .comment("Benchmark " + i)
+                        .build());
+            }
+            entityManager.flush();
+            return rows;
+        });
+    }
+}
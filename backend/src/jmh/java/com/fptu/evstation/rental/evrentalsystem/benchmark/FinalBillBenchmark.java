@@ -0,0 +1,56 @@
+package com.fptu.evstation.rental.evrentalsystem.benchmark;
+
+import com.fptu.evstation.rental.evrentalsystem.dto.BillResponse;
+import com.fptu.evstation.rental.evrentalsystem.dto.PenaltyCalculationRequest;
+import com.fptu.evstation.rental.evrentalsystem.entity.PenaltyFee;
+import com.fptu.evstation.rental.evrentalsystem.repository.PenaltyFeeRepository;
+import com.fptu.evstation.rental.evrentalsystem.service.PaymentService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FinalBillBenchmark {
+
+    private PaymentService paymentService;
+    private BenchmarkFixtures fixtures;
+    private TransactionTemplate transactionTemplate;
+    private PenaltyCalculationRequest request;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        ConfigurableApplicationContext context = BenchmarkContext.get();
+        paymentService = context.getBean(PaymentService.class);
+        fixtures = BenchmarkContext.fixtures();
+        transactionTemplate = fixtures.getTransactionTemplate();
+
+        List<PenaltyCalculationRequest.SelectedFee> selectedFees = context.getBean(PenaltyFeeRepository.class).findAll().stream()
+                .filter(fee -> !Boolean.TRUE.equals(fee.getIsAdjustment()))
+                .limit(2)
+                .map(PenaltyFee::getFeeId)
+                .map(feeId -> new PenaltyCalculationRequest.SelectedFee(feeId, 1))
+                .toList();
+        PenaltyCalculationRequest.CustomFee customFee =
+                new PenaltyCalculationRequest.CustomFee("Giảm giá benchmark", "Điều chỉnh thử nghiệm", -50_000.0, null);
+        request = new PenaltyCalculationRequest(selectedFees, customFee);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        BenchmarkContext.close();
+    }
+
+    @Benchmark
+    public BillResponse calculateFinalBill() {
+        return RollbackSupport.inRollback(transactionTemplate,
+                () -> paymentService.calculateFinalBill(fixtures.getStaff(), fixtures.getRentingBookingId(), request));
+    }
+}
@@ -0,0 +1,59 @@
+package com.fptu.evstation.rental.evrentalsystem.benchmark;
+
+import com.fptu.evstation.rental.evrentalsystem.entity.Model;
+import com.fptu.evstation.rental.evrentalsystem.repository.ModelRepository;
+import com.fptu.evstation.rental.evrentalsystem.service.util.ModelSearchIndex;
+import jakarta.persistence.criteria.Expression;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tìm model theo từ khóa: chỉ mục trigram trong bộ nhớ so với LIKE '%kw%' trên REPLACE(LOWER(model_name)) (cách cũ).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ModelSearchBenchmark {
+
+    @Param({"vinfast vf8", "dong co manh"})
+    private String keyword;
+
+    private ModelSearchIndex modelSearchIndex;
+    private ModelRepository modelRepository;
+    private Specification<Model> likeSpec;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        ConfigurableApplicationContext context = BenchmarkContext.get();
+        modelSearchIndex = context.getBean(ModelSearchIndex.class);
+        modelRepository = context.getBean(ModelRepository.class);
+        String keywordNoSpaces = keyword.trim().toLowerCase().replace(" ", "");
+        likeSpec = (root, query, cb) -> {
+            Expression<String> modelNameLower = cb.lower(root.get("modelName"));
+            Expression<String> modelNameNoSpaces = cb.function("REPLACE", String.class, modelNameLower, cb.literal(" "), cb.literal(""));
+            return cb.like(modelNameNoSpaces, "%" + keywordNoSpaces + "%");
+        };
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        BenchmarkContext.close();
+    }
+
+    @Benchmark
+    public List<Long> trigramIndex() {
+        return modelSearchIndex.search(keyword);
+    }
+
+    @Benchmark
+    public List<Model> likeQuery() {
+        return modelRepository.findAll(likeSpec);
+    }
+}
@@ -0,0 +1,64 @@
+package com.fptu.evstation.rental.evrentalsystem.benchmark;
+
+import com.fptu.evstation.rental.evrentalsystem.dto.BillResponse;
+import com.fptu.evstation.rental.evrentalsystem.service.util.PdfGenerationService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PdfGenerationBenchmark {
+
+    private PdfGenerationService pdfGenerationService;
+    private TransactionTemplate transactionTemplate;
+    private BillResponse bill;
+    private Path output;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        pdfGenerationService = BenchmarkContext.get().getBean(PdfGenerationService.class);
+        transactionTemplate = BenchmarkContext.fixtures().getTransactionTemplate();
+        output = Files.createTempFile("invoice-benchmark", ".pdf");
+        bill = BillResponse.builder()
+                .bookingId(BenchmarkContext.fixtures().getRentingBookingId())
+                .userName("Nguyễn Văn Benchmark")
+                .dateTime(LocalDateTime.now())
+                .actualRentalHours(5.0)
+                .baseRentalFee(250_000.0)
+                .totalPenaltyFee(400_000.0)
+                .totalDiscount(50_000.0)
+                .downpayPaid(1_500_000.0)
+                .paymentDue(0.0)
+                .refundToCustomer(900_000.0)
+                .feeItems(List.of(
+                        BillResponse.FeeItem.builder().feeName("Phí vệ sinh xe (Số lượng: 1)").amount(200_000.0).staffNote("Benchmark (Staff) đã áp dụng.").build(),
+                        BillResponse.FeeItem.builder().feeName("Phí hư hỏng nhẹ (Số lượng: 1)").amount(200_000.0).staffNote("Benchmark (Staff) đã áp dụng.").build(),
+                        BillResponse.FeeItem.builder().feeName("Giảm giá").amount(-50_000.0).adjustmentNote("Khách hàng thân thiết").build()))
+                .build();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(output);
+        BenchmarkContext.close();
+    }
+
+    @Benchmark
+    public Path generateInvoicePdf() {
+        return RollbackSupport.inRollback(transactionTemplate, () -> {
+            pdfGenerationService.generateInvoicePdf(output, bill);
+            return output;
+        });
+    }
+}
@@ -0,0 +1,18 @@
+package com.fptu.evstation.rental.evrentalsystem.benchmark;
+
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.function.Supplier;
+
+final class RollbackSupport {
+
+    private RollbackSupport() {
+    }
+
+    static <T> T inRollback(TransactionTemplate template, Supplier<T> work) {
+        return template.execute(status -> {
+            status.setRollbackOnly();
+            return work.get();
+        });
+    }
+}
@@ -0,0 +1,102 @@
+package com.fptu.evstation.rental.evrentalsystem.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Chi phí tải ảnh của một trang danh mục model qua HTTP thật: tải mới toàn bộ (trước đây, cache period 0)
+ * so với revalidate bằng ETag (URL không hash, 304). URL có hash được trình duyệt dùng thẳng từ cache, không gửi request.
+ * Counter bytes báo số byte body nhận được mỗi lần tải trang.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class UploadCachingBenchmark {
+
+    @Param({"12"})
+    private int imagesPerPage;
+
+    @Param({"150"})
+    private int imageKb;
+
+    private HttpClient client;
+    private final List<URI> imageUris = new ArrayList<>();
+    private final List<String> etags = new ArrayList<>();
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Transfer {
+        public long bytes;
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        ConfigurableApplicationContext context = BenchmarkContext.get();
+        int port = context.getEnvironment().getRequiredProperty("local.server.port", Integer.class);
+        writeImages();
+        client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        for (int i = 0; i < imagesPerPage; i++) {
+            URI uri = URI.create("http://localhost:" + port + "/uploads/models_img/Benchmark/anh_" + i + ".jpg");
+            imageUris.add(uri);
+            etags.add(client.send(HttpRequest.newBuilder(uri).build(), HttpResponse.BodyHandlers.discarding())
+                    .headers().firstValue("ETag").orElseThrow());
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        client.close();
+        BenchmarkContext.close();
+    }
+
+    @Benchmark
+    public int fullDownload(Transfer transfer) throws Exception {
+        int status = 0;
+        for (URI uri : imageUris) {
+            HttpResponse<byte[]> response = client.send(HttpRequest.newBuilder(uri).build(), HttpResponse.BodyHandlers.ofByteArray());
+            transfer.bytes += response.body().length;
+            status += response.statusCode();
+        }
+        return status;
+    }
+
+    @Benchmark
+    public int etagRevalidation(Transfer transfer) throws Exception {
+        int status = 0;
+        for (int i = 0; i < imageUris.size(); i++) {
+            HttpResponse<byte[]> response = client.send(HttpRequest.newBuilder(imageUris.get(i))
+                    .header("If-None-Match", etags.get(i))
+                    .build(), HttpResponse.BodyHandlers.ofByteArray());
+            transfer.bytes += response.body().length;
+            status += response.statusCode();
+        }
+        return status;
+    }
+
+    private void writeImages() throws IOException {
+        Path dir = Paths.get(System.getProperty("user.dir"), "uploads", "models_img", "Benchmark");
+        Files.createDirectories(dir);
+        Random random = new Random(42);
+        for (int i = 0; i < imagesPerPage; i++) {
+            byte[] content = new byte[imageKb * 1024];
+            random.nextBytes(content);
+            Files.write(dir.resolve("anh_" + i + ".jpg"), content);
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.fptu.evstation.rental.evrentalsystem.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Load test qua HTTP thật: so sánh throughput và p99 (chế độ SampleTime) giữa Tomcat thread pool mặc định (200 thread)
+ * và virtual thread khi số client đồng thời vượt quá pool. Chỉnh số client bằng -t, độ trễ I/O bằng -p ioLatencyMs.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 10)
+@Threads(400)
+@Fork(1)
+public class VirtualThreadLoadBenchmark {
+
+    @Param({"false", "true"})
+    private boolean virtualThreads;
+
+    @Param({"20"})
+    private long ioLatencyMs;
+
+    private HttpClient client;
+    private HttpRequest request;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        ConfigurableApplicationContext context = BenchmarkContext.get(
+                "spring.threads.virtual.enabled=" + virtualThreads,
+                "benchmark.load.enabled=true",
+                "benchmark.load.io-latency-ms=" + ioLatencyMs,
+                // OSIV giữ connection đến hết request (kể cả lúc chờ I/O), khi đó Hikari mới là giới hạn chứ không phải thread
+                "spring.jpa.open-in-view=false");
+        int port = context.getEnvironment().getRequiredProperty("local.server.port", Integer.class);
+        client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/benchmark/blocking-io"))
+                .header("Authorization", "Bearer " + BenchmarkContext.fixtures().getRenterToken())
+                .GET()
+                .build();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        client.close();
+        BenchmarkContext.close();
+    }
+
+    @Benchmark
+    public int blockingRequest() throws Exception {
+        return client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+    }
+}
@@ -5,7 +5,11 @@ import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpMethod;
+import org.springframework.scheduling.annotation.EnableAsync;
 import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.security.authentication.AuthenticationCredentialsNotFoundException;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
@@ -17,6 +21,8 @@ import org.springframework.web.cors.CorsConfiguration;
 import org.springframework.web.cors.CorsConfigurationSource;
 import org.springframework.web.cors.UrlBasedCorsConfigurationSource;
 import org.springframework.web.servlet.config.annotation.ResourceHandlerRegistry;
+import org.springframework.web.servlet.handler.SimpleUrlHandlerMapping;
+import org.springframework.web.servlet.resource.ResourceHttpRequestHandler;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
 import java.nio.file.Path;
@@ -26,13 +32,17 @@ import java.util.Arrays;
 @Configuration
 @EnableWebSecurity
 @EnableScheduling
+@EnableAsync
 public class AppConfig implements WebMvcConfigurer {
 
     @Autowired
     private final AuthTokenFilter authTokenFilter;
 
-    public AppConfig(AuthTokenFilter authTokenFilter) {
+    private final UploadVersionStrategy uploadVersionStrategy;
+
+    public AppConfig(AuthTokenFilter authTokenFilter, UploadVersionStrategy uploadVersionStrategy) {
         this.authTokenFilter = authTokenFilter;
+        this.uploadVersionStrategy = uploadVersionStrategy;
     }
 
     @Override
@@ -40,10 +50,22 @@ public class AppConfig implements WebMvcConfigurer {
         Path uploadsDir = Paths.get(System.getProperty("user.dir"), "uploads").toAbsolutePath();
         String uploadPath = uploadsDir.toString().replace("\\", "/") + "/";
 
+        // URL có hash nội dung (xem UploadUrlService) được cache vĩnh viễn; URL không hash phải revalidate bằng ETag/Last-Modified.
+        // Không cache kết quả resolve vì file upload có thể bị ghi đè tại chỗ (ảnh model, hóa đơn tính lại).
         registry.addResourceHandler("/uploads/**")
                 .addResourceLocations("file:" + uploadPath)
-                .setCachePeriod(0)
-                .resourceChain(true);
+                .setCacheControl(CacheControl.noCache())
+                .setEtagGenerator(uploadVersionStrategy::getResourceVersion)
+                .resourceChain(false)
+                .addResolver(new ImmutableVersionResourceResolver(uploadVersionStrategy));
+    }
+
+    @EventListener
+    public void enableUploadSendfile(ContextRefreshedEvent event) {
+        if (event.getApplicationContext().getBean("resourceHandlerMapping") instanceof SimpleUrlHandlerMapping mapping
+                && mapping.getHandlerMap().get("/uploads/**") instanceof ResourceHttpRequestHandler handler) {
+            handler.setResourceHttpMessageConverter(new SendfileResourceHttpMessageConverter());
+        }
     }
 
     @Bean
@@ -73,6 +95,8 @@ public class AppConfig implements WebMvcConfigurer {
                         .requestMatchers("/api/stations/**").permitAll()
                         .requestMatchers("/api/vehicles/**").permitAll()
                         .requestMatchers("/api/payments/webhook").permitAll()
+                        .requestMatchers(HttpMethod.POST, "/api/telemetry/ingest").permitAll()
+                        .requestMatchers("/api/telemetry/**").hasAnyAuthority("STATION_STAFF", "ADMIN")
                         .requestMatchers("/api/renter/**").hasAuthority("EV_RENTER")
                         .requestMatchers("/api/staff/**").hasAuthority("STATION_STAFF")
                         .requestMatchers("/api/admin/**").hasAuthority("ADMIN")
@@ -80,6 +104,8 @@ public class AppConfig implements WebMvcConfigurer {
                         .requestMatchers("/role").authenticated()
                         .requestMatchers("/uploads/**").permitAll()
                         .requestMatchers("/error").permitAll()
+                        .requestMatchers("/actuator/health/**").permitAll()
+                        .requestMatchers("/actuator/**").hasAuthority("ADMIN")
                         .anyRequest().authenticated()
                 );
         http.addFilterBefore(authTokenFilter, UsernamePasswordAuthenticationFilter.class);
@@ -91,7 +117,7 @@ public class AppConfig implements WebMvcConfigurer {
         CorsConfiguration configuration = new CorsConfiguration();
         configuration.setAllowedOrigins(Arrays.asList("http://localhost:5500","http://localhost:5173","http://127.0.0.1:5500","http://localhost:8080","http://localhost:3000", "http://localhost:63342","https://ev-system-rho.vercel.app"));
         configuration.setAllowedMethods(Arrays.asList("GET", "POST", "PUT", "DELETE", "OPTIONS", "PATCH"));
-        configuration.setAllowedHeaders(Arrays.asList("Authorization", "Content-Type"));
+        configuration.setAllowedHeaders(Arrays.asList("Authorization", "Content-Type", "Idempotency-Key"));
         configuration.setAllowCredentials(true);
         configuration.setMaxAge(3600L);
         UrlBasedCorsConfigurationSource source = new UrlBasedCorsConfigurationSource();
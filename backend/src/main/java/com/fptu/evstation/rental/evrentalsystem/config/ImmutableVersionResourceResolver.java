@@ -0,0 +1,126 @@
+package com.fptu.evstation.rental.evrentalsystem.config;
+
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.core.io.AbstractResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.servlet.resource.HttpResource;
+import org.springframework.web.servlet.resource.ResourceResolverChain;
+import org.springframework.web.servlet.resource.VersionResourceResolver;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.URL;
+import java.nio.channels.ReadableByteChannel;
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Phục vụ URL có hash nội dung trong tên file. Hash khớp với nội dung hiện tại thì trả kèm Cache-Control immutable 1 năm;
+ * URL không có hash vẫn được phục vụ như cũ (theo Cache-Control mặc định của handler).
+ */
+public class ImmutableVersionResourceResolver extends VersionResourceResolver {
+
+    private static final String IMMUTABLE_CACHE_CONTROL =
+            CacheControl.maxAge(Duration.ofDays(365)).cachePublic().immutable().getHeaderValue();
+
+    public ImmutableVersionResourceResolver(UploadVersionStrategy versionStrategy) {
+        addVersionStrategy(versionStrategy, "/**");
+    }
+
+    @Override
+    protected Resource resolveResourceInternal(HttpServletRequest request, String requestPath,
+                                               List<? extends Resource> locations, ResourceResolverChain chain) {
+        Resource resolved = super.resolveResourceInternal(request, requestPath, locations, chain);
+        if (resolved instanceof HttpResource versioned) {
+            return new ImmutableResource(resolved, versioned.getResponseHeaders());
+        }
+        return resolved;
+    }
+
+    private static final class ImmutableResource extends AbstractResource implements HttpResource {
+
+        private final Resource original;
+        private final HttpHeaders headers;
+
+        private ImmutableResource(Resource original, HttpHeaders versionHeaders) {
+            this.original = original;
+            this.headers = new HttpHeaders();
+            this.headers.putAll(versionHeaders);
+            this.headers.setCacheControl(IMMUTABLE_CACHE_CONTROL);
+        }
+
+        @Override
+        public HttpHeaders getResponseHeaders() {
+            return headers;
+        }
+
+        @Override
+        public boolean exists() {
+            return original.exists();
+        }
+
+        @Override
+        public boolean isReadable() {
+            return original.isReadable();
+        }
+
+        @Override
+        public boolean isFile() {
+            return original.isFile();
+        }
+
+        @Override
+        public URL getURL() throws IOException {
+            return original.getURL();
+        }
+
+        @Override
+        public URI getURI() throws IOException {
+            return original.getURI();
+        }
+
+        @Override
+        public File getFile() throws IOException {
+            return original.getFile();
+        }
+
+        @Override
+        public InputStream getInputStream() throws IOException {
+            return original.getInputStream();
+        }
+
+        @Override
+        public ReadableByteChannel readableChannel() throws IOException {
+            return original.readableChannel();
+        }
+
+        @Override
+        public long contentLength() throws IOException {
+            return original.contentLength();
+        }
+
+        @Override
+        public long lastModified() throws IOException {
+            return original.lastModified();
+        }
+
+        @Override
+        public Resource createRelative(String relativePath) throws IOException {
+            return original.createRelative(relativePath);
+        }
+
+        @Override
+        public String getFilename() {
+            return original.getFilename();
+        }
+
+        @Override
+        public String getDescription() {
+            return original.getDescription();
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.fptu.evstation.rental.evrentalsystem.config;
+
+import io.micrometer.core.annotation.Timed;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+
+/**
+ * Ghi Timer cho các method có @Timed, gắn thêm tag outcome (SUCCESS / REJECTED / ERROR).
+ * REJECTED là lỗi nghiệp vụ 4xx (ResponseStatusException), ERROR là mọi lỗi còn lại.
+ */
+@Aspect
+@Component
+@RequiredArgsConstructor
+public class OutcomeTimedAspect {
+
+    public static final String SUCCESS = "SUCCESS";
+    public static final String REJECTED = "REJECTED";
+    public static final String ERROR = "ERROR";
+
+    private final MeterRegistry meterRegistry;
+
+    @Around("execution(* *(..)) && @annotation(timed)")
+    public Object time(ProceedingJoinPoint pjp, Timed timed) throws Throwable {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String outcome = SUCCESS;
+        try {
+            Object result = pjp.proceed();
+            if (result instanceof ResponseEntity<?> response && !response.getStatusCode().is2xxSuccessful()) {
+                outcome = outcomeOf(response.getStatusCode());
+            }
+            return result;
+        } catch (ResponseStatusException e) {
+            outcome = outcomeOf(e.getStatusCode());
+            throw e;
+        } catch (Throwable e) {
+            outcome = ERROR;
+            throw e;
+        } finally {
+            sample.stop(Timer.builder(timed.value())
+                    .description(timed.description().isEmpty() ? null : timed.description())
+                    .tags(timed.extraTags())
+                    .tag("outcome", outcome)
+                    .register(meterRegistry));
+        }
+    }
+
+    private static String outcomeOf(HttpStatusCode status) {
+        return status.is4xxClientError() ? REJECTED : ERROR;
+    }
+}
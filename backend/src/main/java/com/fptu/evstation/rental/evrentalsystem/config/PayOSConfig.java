@@ -4,6 +4,7 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import vn.payos.PayOS;
+import vn.payos.core.ClientOptions;
 
 @Configuration
 public class PayOSConfig {
@@ -17,8 +18,21 @@ public class PayOSConfig {
     @Value("${PAYOS_CHECKSUM_KEY}")
     private String checksumKey;
 
+    // Timeout HTTP của SDK; không để SDK tự retry vì PayOSGateway và job thử lại link đã lo việc này
+    @Value("${payos.timeout-ms:5000}")
+    private int timeoutMs;
+
+    @Value("${payos.max-retries:0}")
+    private int maxRetries;
+
     @Bean
     public PayOS payOS() {
-        return new PayOS(clientId, apiKey, checksumKey);
+        return new PayOS(ClientOptions.builder()
+                .clientId(clientId)
+                .apiKey(apiKey)
+                .checksumKey(checksumKey)
+                .timeoutMs(timeoutMs)
+                .maxRetries(maxRetries)
+                .build());
     }
 }
\ No newline at end of file
@@ -0,0 +1,40 @@
+package com.fptu.evstation.rental.evrentalsystem.config;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+/**
+ * Đếm số câu SQL Hibernate gửi xuống DB trên thread hiện tại (chỉ khi đã gọi start()).
+ */
+public class QueryCounter implements StatementInspector {
+
+    private static final ThreadLocal<long[]> COUNT = new ThreadLocal<>();
+
+    /**
+     * Bắt đầu đếm trên thread hiện tại. Trả về false nếu đã có bộ đếm đang chạy (gọi lồng nhau).
+     */
+    public static boolean start() {
+        if (COUNT.get() != null) {
+            return false;
+        }
+        COUNT.set(new long[1]);
+        return true;
+    }
+
+    public static long current() {
+        long[] count = COUNT.get();
+        return count != null ? count[0] : 0L;
+    }
+
+    public static void stop() {
+        COUNT.remove();
+    }
+
+    @Override
+    public String inspect(String sql) {
+        long[] count = COUNT.get();
+        if (count != null) {
+            count[0]++;
+        }
+        return sql;
+    }
+}
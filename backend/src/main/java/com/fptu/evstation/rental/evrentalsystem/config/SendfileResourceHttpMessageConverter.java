@@ -0,0 +1,44 @@
+package com.fptu.evstation.rental.evrentalsystem.config;
+
+import jakarta.servlet.http.HttpServletRequest;
+import org.apache.catalina.Globals;
+import org.springframework.core.io.Resource;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.converter.ResourceHttpMessageConverter;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Giao file lớn cho Tomcat gửi bằng sendfile (zero-copy từ page cache ra socket) thay vì copy qua heap.
+ * Chỉ áp dụng khi connector hỗ trợ sendfile và trả nguyên file; request Range vẫn đi qua converter của Spring.
+ */
+public class SendfileResourceHttpMessageConverter extends ResourceHttpMessageConverter {
+
+    // Ngưỡng giống DefaultServlet của Tomcat: file nhỏ ghi thẳng nhanh hơn
+    private static final long MIN_SENDFILE_SIZE = 48 * 1024;
+
+    @Override
+    protected void writeContent(Resource resource, HttpOutputMessage outputMessage) throws IOException {
+        HttpServletRequest request = currentRequest();
+        if (request != null && Boolean.TRUE.equals(request.getAttribute(Globals.SENDFILE_SUPPORTED_ATTR)) && resource.isFile()) {
+            File file = resource.getFile();
+            long length = file.length();
+            if (length >= MIN_SENDFILE_SIZE) {
+                request.setAttribute(Globals.SENDFILE_FILENAME_ATTR, file.getAbsolutePath());
+                request.setAttribute(Globals.SENDFILE_FILE_START_ATTR, 0L);
+                request.setAttribute(Globals.SENDFILE_FILE_END_ATTR, length);
+                return;
+            }
+        }
+        super.writeContent(resource, outputMessage);
+    }
+
+    private static HttpServletRequest currentRequest() {
+        return RequestContextHolder.getRequestAttributes() instanceof ServletRequestAttributes attributes
+                ? attributes.getRequest()
+                : null;
+    }
+}
@@ -0,0 +1,488 @@
+package com.fptu.evstation.rental.evrentalsystem.config;
+
+import com.fptu.evstation.rental.evrentalsystem.entity.*;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.Setter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.DayOfWeek;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Sinh dữ liệu giả lập quy mô lớn (trạm, xe, người dùng, booking, giao dịch, lịch sử xe) bằng JDBC batch.
+ * Bật bằng datagen.enabled=true, chạy sau DataInitializer.
+ */
+@Component
+@ConditionalOnProperty(prefix = "datagen", name = "enabled", havingValue = "true")
+@Slf4j
+public class SyntheticDataGenerator {
+
+    // Trọng số giờ nhận xe trong ngày: cao điểm sáng 7-9h và chiều 17-19h
+    private static final int[] HOURLY_WEIGHTS = {
+            1, 1, 1, 1, 1, 2, 4, 9, 12, 10, 6, 5,
+            5, 5, 5, 6, 8, 11, 12, 9, 6, 4, 2, 1
+    };
+    private static final double WEEKEND_FACTOR = 1.4;
+    private static final double RESERVATION_DEPOSIT = 500_000.0;
+    // Khớp allocationSize của @SequenceGenerator trên entity (pooled optimizer)
+    private static final int SEQUENCE_INCREMENT = 50;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Value("${datagen.stations:20}")
+    private int stationCount;
+
+    @Value("${datagen.vehicles-per-station:40}")
+    private int vehiclesPerStation;
+
+    @Value("${datagen.users:20000}")
+    private int userCount;
+
+    @Value("${datagen.months:6}")
+    private int months;
+
+    @Value("${datagen.bookings-per-station-per-day:30}")
+    private int bookingsPerStationPerDay;
+
+    @Value("${datagen.batch-size:1000}")
+    private int batchSize;
+
+    @Value("${datagen.seed:42}")
+    private long seed;
+
+    private Random random;
+    private int[] hourlyCumulative;
+
+    public SyntheticDataGenerator(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    // Chạy trước các listener nạp chỉ mục trong bộ nhớ (ModelSearchIndex, ModelCatalog) để chúng thấy dữ liệu mới
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public void onReady() {
+        generate();
+    }
+
+    public void generate() {
+        random = new Random(seed);
+        hourlyCumulative = cumulative(HOURLY_WEIGHTS);
+        long started = System.currentTimeMillis();
+        log.info("Bắt đầu sinh dữ liệu giả lập: {} trạm, {} xe/trạm, {} người dùng, {} tháng, {} booking/trạm/ngày",
+                stationCount, vehiclesPerStation, userCount, months, bookingsPerStationPerDay);
+
+        List<ModelRow> models = jdbcTemplate.query(
+                "SELECT model_id, price_per_hour, vehicle_type FROM models ORDER BY model_id",
+                (rs, i) -> new ModelRow(rs.getLong(1), rs.getDouble(2), rs.getString(3)));
+        List<Long> feeIds = jdbcTemplate.queryForList(
+                "SELECT fee_id FROM penalty_fees WHERE is_adjustment = 0 ORDER BY fee_id", Long.class);
+        if (models.isEmpty()) {
+            log.warn("Chưa có model nào trong DB, bỏ qua sinh dữ liệu giả lập.");
+            return;
+        }
+        Long renterRoleId = roleId("EV_RENTER");
+        Long staffRoleId = roleId("STATION_STAFF");
+
+        List<Long> stationIds = insertStations();
+        List<VehicleRow> vehicles = insertVehicles(stationIds, models);
+        List<Long> staffIds = insertUsers(stationIds.size(), staffRoleId, stationIds, "staff");
+        List<Long> renterIds = insertUsers(userCount, renterRoleId, null, "renter");
+
+        long bookings = insertBookingHistory(stationIds, vehicles, renterIds, staffIds, feeIds);
+
+        jdbcTemplate.update("""
+                UPDATE models SET rental_count = (
+                    SELECT COUNT(*) FROM bookings b JOIN vehicles v ON b.vehicle_id = v.vehicle_id
+                    WHERE v.model_id = models.model_id AND b.status = 'COMPLETED')""");
+
+        log.info("Sinh dữ liệu giả lập hoàn tất: {} trạm, {} xe, {} người dùng, {} booking trong {} ms",
+                stationIds.size(), vehicles.size(), staffIds.size() + renterIds.size(), bookings,
+                System.currentTimeMillis() - started);
+    }
+
+    private Long roleId(String roleName) {
+        return jdbcTemplate.queryForObject("SELECT role_id FROM roles WHERE role_name = ?", Long.class, roleName);
+    }
+
+    private List<Long> insertStations() {
+        long maxId = maxId("stations", "station_id");
+        LocalDateTime now = LocalDateTime.now();
+        List<Integer> rows = range(stationCount);
+        batch("""
+                INSERT INTO stations (name, address, description, latitude, longitude, opening_hours, hotline, status, created_at, updated_at)
+                VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)""", rows, (ps, i) -> {
+            ps.setString(1, "Trạm Synthetic " + maxId + "-" + i);
+            ps.setString(2, "Số " + (i + 1) + " Đường Giả Lập, TP. Hồ Chí Minh");
+            ps.setString(3, "Trạm sinh tự động phục vụ kiểm thử tải.");
+            ps.setDouble(4, 10.70 + random.nextDouble() * 0.15);
+            ps.setDouble(5, 106.60 + random.nextDouble() * 0.15);
+            ps.setString(6, "07:00 - 22:00");
+            ps.setString(7, String.format("19009%05d", i));
+            ps.setString(8, StationStatus.ACTIVE.name());
+            ps.setTimestamp(9, Timestamp.valueOf(now));
+            ps.setTimestamp(10, Timestamp.valueOf(now));
+        });
+        return idsAfter("stations", "station_id", maxId);
+    }
+
+    private List<VehicleRow> insertVehicles(List<Long> stationIds, List<ModelRow> models) {
+        long maxId = maxId("vehicles", "vehicle_id");
+        int total = stationIds.size() * vehiclesPerStation;
+        List<VehicleRow> vehicles = new ArrayList<>(total);
+        for (int i = 0; i < total; i++) {
+            ModelRow model = models.get(random.nextInt(models.size()));
+            vehicles.add(new VehicleRow(null, stationIds.get(i / vehiclesPerStation), model));
+        }
+        LocalDateTime now = LocalDateTime.now();
+        batch("""
+                INSERT INTO vehicles (license_plate, battery_level, model_id, status, station_id, current_mileage, condition,
+                                      deposit_amount, vin_number, engine_number, manufacturing_year, created_at)
+                VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)""", range(total), (ps, i) -> {
+            VehicleRow v = vehicles.get(i);
+            String serial = String.format("%09d", maxId + i + 1);
+            ps.setString(1, "SYN-" + serial);
+            ps.setInt(2, 40 + random.nextInt(61));
+            ps.setLong(3, v.model().modelId());
+            ps.setString(4, VehicleStatus.AVAILABLE.name());
+            ps.setLong(5, v.stationId());
+            ps.setDouble(6, 500 + random.nextInt(30_000));
+            ps.setString(7, random.nextInt(10) == 0 ? VehicleCondition.MINOR_DAMAGE.name() : VehicleCondition.GOOD.name());
+            ps.setDouble(8, depositFor(v.model()));
+            ps.setString(9, "SYNVIN" + String.format("%011d", maxId + i + 1));
+            ps.setString(10, "SYNENG-" + serial);
+            ps.setInt(11, 2021 + random.nextInt(4));
+            ps.setTimestamp(12, Timestamp.valueOf(now));
+        });
+        List<Long> ids = idsAfter("vehicles", "vehicle_id", maxId);
+        List<VehicleRow> result = new ArrayList<>(ids.size());
+        for (int i = 0; i < ids.size(); i++) {
+            result.add(new VehicleRow(ids.get(i), vehicles.get(i).stationId(), vehicles.get(i).model()));
+        }
+        return result;
+    }
+
+    private List<Long> insertUsers(int count, Long roleId, List<Long> stationIds, String kind) {
+        long maxId = maxId("users", "user_id");
+        batch("""
+                INSERT INTO users (password, email, full_name, phone, cccd, gplx, verification_status, status,
+                                   cancellation_count, role_id, station_id)
+                VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)""", range(count), (ps, i) -> {
+            long serial = maxId + i + 1;
+            ps.setString(1, "123456");
+            ps.setString(2, kind + serial + "@synthetic.evolve.local");
+            ps.setString(3, "Người dùng giả lập " + serial);
+            ps.setString(4, String.format("08%08d", serial));
+            ps.setString(5, String.format("SYN%09d", serial));
+            ps.setString(6, String.format("SYNG%08d", serial));
+            ps.setString(7, VerificationStatus.APPROVED.name());
+            ps.setString(8, AccountStatus.ACTIVE.name());
+            ps.setInt(9, 0);
+            ps.setLong(10, roleId);
+            if (stationIds != null) {
+                ps.setLong(11, stationIds.get(i % stationIds.size()));
+            } else {
+                ps.setNull(11, Types.BIGINT);
+            }
+        });
+        return idsAfter("users", "user_id", maxId);
+    }
+
+    private long insertBookingHistory(List<Long> stationIds, List<VehicleRow> vehicles, List<Long> renterIds,
+                                      List<Long> staffIds, List<Long> feeIds) {
+        LocalDate firstDay = LocalDate.now().minusMonths(months);
+        LocalDate lastDay = LocalDate.now().minusDays(1);
+        long total = 0;
+
+        for (int s = 0; s < stationIds.size(); s++) {
+            Long stationId = stationIds.get(s);
+            Long staffId = staffIds.get(s % staffIds.size());
+            List<VehicleRow> fleet = vehicles.stream().filter(v -> v.stationId().equals(stationId)).toList();
+            LocalDateTime[] freeAt = new LocalDateTime[fleet.size()];
+
+            List<BookingRow> bookings = new ArrayList<>();
+            for (LocalDate day = firstDay; !day.isAfter(lastDay); day = day.plusDays(1)) {
+                boolean weekend = day.getDayOfWeek() == DayOfWeek.SATURDAY || day.getDayOfWeek() == DayOfWeek.SUNDAY;
+                int perDay = (int) Math.round(bookingsPerStationPerDay * (weekend ? WEEKEND_FACTOR : 1.0)
+                        * (0.8 + random.nextDouble() * 0.4));
+                List<LocalDateTime> starts = new ArrayList<>(perDay);
+                for (int i = 0; i < perDay; i++) {
+                    starts.add(day.atTime(peakHour(), random.nextInt(4) * 15));
+                }
+                starts.sort(null);
+                for (LocalDateTime start : starts) {
+                    int slot = freeVehicle(freeAt, start);
+                    if (slot < 0) {
+                        continue;
+                    }
+                    LocalDateTime end = start.plusHours(rentalHours());
+                    freeAt[slot] = end.plusHours(1);
+                    bookings.add(newBooking(fleet.get(slot), stationId, skewedRenter(renterIds), start, end));
+                }
+            }
+
+            insertBookings(bookings);
+            insertTransactions(bookings, staffId);
+            insertTransactionDetails(bookings, feeIds);
+            insertVehicleHistory(bookings, staffId);
+            total += bookings.size();
+            log.info("Đã sinh {} booking cho trạm {}", bookings.size(), stationId);
+        }
+        return total;
+    }
+
+    private BookingRow newBooking(VehicleRow vehicle, Long stationId, Long renterId, LocalDateTime start, LocalDateTime end) {
+        int roll = random.nextInt(100);
+        BookingStatus status = roll < 80 ? BookingStatus.COMPLETED
+                : roll < 92 ? BookingStatus.CANCELLED
+                : roll < 97 ? BookingStatus.REFUNDED
+                : BookingStatus.CANCELLED_AWAIT_REFUND;
+        double hours = Duration.between(start, end).toHours();
+        double finalFee = Math.round(vehicle.model().pricePerHour() * hours);
+        LocalDateTime createdAt = start.minusHours(1 + random.nextInt(36));
+        return new BookingRow(vehicle, stationId, renterId, start, end, status, finalFee, depositFor(vehicle.model()), createdAt);
+    }
+
+    private void insertBookings(List<BookingRow> bookings) {
+        List<Long> ids = allocateIds("bookings_seq", bookings.size());
+        for (int i = 0; i < ids.size(); i++) {
+            bookings.get(i).setBookingId(ids.get(i));
+        }
+        batch("""
+                INSERT INTO bookings (user_id, vehicle_id, station_id, start_date, end_date, reservation_deposit_paid,
+                                      rental_deposit_paid, refund, rental_deposit, final_fee, status, created_at, booking_id)
+                VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)""", bookings, (ps, b) -> {
+            boolean completed = b.getStatus() == BookingStatus.COMPLETED;
+            ps.setLong(1, b.getRenterId());
+            ps.setLong(2, b.getVehicle().vehicleId());
+            ps.setLong(3, b.getStationId());
+            ps.setTimestamp(4, Timestamp.valueOf(b.getStart()));
+            ps.setTimestamp(5, Timestamp.valueOf(b.getEnd()));
+            ps.setBoolean(6, b.getStatus() != BookingStatus.CANCELLED);
+            ps.setBoolean(7, completed);
+            if (b.getStatus() == BookingStatus.REFUNDED || b.getStatus() == BookingStatus.CANCELLED_AWAIT_REFUND) {
+                ps.setDouble(8, RESERVATION_DEPOSIT);
+            } else {
+                ps.setNull(8, Types.DOUBLE);
+            }
+            ps.setDouble(9, b.getRentalDeposit());
+            ps.setDouble(10, b.getFinalFee());
+            ps.setString(11, b.getStatus().name());
+            ps.setTimestamp(12, Timestamp.valueOf(b.getCreatedAt()));
+            ps.setLong(13, b.getBookingId());
+        });
+    }
+
+    private void insertTransactions(List<BookingRow> bookings, Long staffId) {
+        List<TransactionRow> rows = new ArrayList<>();
+        for (BookingRow b : bookings) {
+            if (b.getStatus() == BookingStatus.CANCELLED) {
+                continue;
+            }
+            rows.add(new TransactionRow(b.getBookingId(), RESERVATION_DEPOSIT, PaymentMethod.GATEWAY, b.getCreatedAt().plusMinutes(5), null,
+                    "Hệ thống tự động xác nhận cọc 500k (payOS)"));
+            if (b.getStatus() == BookingStatus.COMPLETED) {
+                rows.add(new TransactionRow(b.getBookingId(), b.getRentalDeposit(), PaymentMethod.GATEWAY, b.getStart(), staffId,
+                        "Thanh toán cọc thuê xe"));
+                double due = b.getFinalFee() - b.getRentalDeposit() - RESERVATION_DEPOSIT;
+                rows.add(new TransactionRow(b.getBookingId(), due, random.nextBoolean() ? PaymentMethod.CASH : PaymentMethod.BANK_TRANSFER,
+                        b.getEnd(), staffId, due >= 0 ? "Thanh toán hóa đơn cuối cùng" : "Hoàn tiền chênh lệch cho khách"));
+            } else if (b.getStatus() == BookingStatus.REFUNDED) {
+                rows.add(new TransactionRow(b.getBookingId(), -RESERVATION_DEPOSIT, PaymentMethod.BANK_TRANSFER, b.getStart(), staffId,
+                        "Hoàn tiền cọc giữ chỗ"));
+            }
+        }
+        Iterator<Long> ids = allocateIds("transactions_seq", rows.size()).iterator();
+        batch("""
+                INSERT INTO transactions (booking_id, amount, payment_method, transaction_date, staff_note, staff_id, transaction_id)
+                VALUES (?, ?, ?, ?, ?, ?, ?)""", rows, (ps, t) -> {
+            ps.setLong(1, t.bookingId());
+            ps.setDouble(2, t.amount());
+            ps.setString(3, t.method().name());
+            ps.setTimestamp(4, Timestamp.valueOf(t.date()));
+            ps.setString(5, t.note());
+            if (t.staffId() != null) {
+                ps.setLong(6, t.staffId());
+            } else {
+                ps.setNull(6, Types.BIGINT);
+            }
+            ps.setLong(7, ids.next());
+        });
+    }
+
+    private void insertTransactionDetails(List<BookingRow> bookings, List<Long> feeIds) {
+        if (feeIds.isEmpty()) {
+            return;
+        }
+        List<BookingRow> penalised = bookings.stream()
+                .filter(b -> b.getStatus() == BookingStatus.COMPLETED && random.nextInt(10) == 0)
+                .toList();
+        Iterator<Long> ids = allocateIds("transaction_details_seq", penalised.size()).iterator();
+        batch("""
+                INSERT INTO transaction_details (booking_id, fee_id, applied_amount, staff_note, detail_id)
+                VALUES (?, ?, ?, ?, ?)""", penalised, (ps, b) -> {
+            ps.setLong(1, b.getBookingId());
+            ps.setLong(2, feeIds.get(random.nextInt(feeIds.size())));
+            ps.setDouble(3, 200_000.0);
+            ps.setString(4, "Phí phát sinh (Số lượng: 1)");
+            ps.setLong(5, ids.next());
+        });
+    }
+
+    private void insertVehicleHistory(List<BookingRow> bookings, Long staffId) {
+        List<BookingRow> completed = bookings.stream().filter(b -> b.getStatus() == BookingStatus.COMPLETED).toList();
+        List<Integer> rows = range(completed.size() * 2);
+        Iterator<Long> ids = allocateIds("vehicle_history_seq", rows.size()).iterator();
+        batch("""
+                INSERT INTO vehicle_history (vehicle_id, staff_id, renter_id, station_id, action_type, note,
+                                             condition_before, condition_after, battery_level, mileage, action_time, history_id)
+                VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)""", rows, (ps, i) -> {
+            BookingRow b = completed.get(i / 2);
+            boolean delivery = i % 2 == 0;
+            ps.setLong(1, b.getVehicle().vehicleId());
+            ps.setLong(2, staffId);
+            ps.setLong(3, b.getRenterId());
+            ps.setLong(4, b.getStationId());
+            ps.setString(5, delivery ? VehicleActionType.DELIVERY.name() : VehicleActionType.RETURN.name());
+            ps.setString(6, delivery ? "Giao xe cho khách" : "Nhận lại xe từ khách");
+            ps.setString(7, VehicleCondition.GOOD.name());
+            ps.setString(8, VehicleCondition.GOOD.name());
+            ps.setInt(9, delivery ? 85 + random.nextInt(16) : 20 + random.nextInt(60));
+            ps.setDouble(10, 1000 + random.nextInt(30_000));
+            ps.setTimestamp(11, Timestamp.valueOf(delivery ? b.getStart() : b.getEnd()));
+            ps.setLong(12, ids.next());
+        });
+    }
+
+    private <T> void batch(String sql, List<T> rows, RowBinder<T> binder) {
+        if (rows.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(sql, rows, batchSize, binder::bind);
+    }
+
+    private long maxId(String table, String idColumn) {
+        Long max = jdbcTemplate.queryForObject("SELECT MAX(" + idColumn + ") FROM " + table, Long.class);
+        return max != null ? max : 0L;
+    }
+
+    private List<Long> idsAfter(String table, String idColumn, long afterId) {
+        return jdbcTemplate.queryForList(
+                "SELECT " + idColumn + " FROM " + table + " WHERE " + idColumn + " > ? ORDER BY " + idColumn, Long.class, afterId);
+    }
+
+    /**
+     * Cấp id theo đúng quy ước pooled của Hibernate: mỗi giá trị v của sequence giữ khối (v - 49 .. v),
+     * nên id sinh ở đây không bao giờ trùng với id do ứng dụng cấp.
+     */
+    private List<Long> allocateIds(String sequence, int count) {
+        List<Long> ids = new ArrayList<>(count);
+        while (ids.size() < count) {
+            Long hi = jdbcTemplate.queryForObject("SELECT NEXT VALUE FOR " + sequence, Long.class);
+            for (long id = Math.max(1, hi - SEQUENCE_INCREMENT + 1); id <= hi && ids.size() < count; id++) {
+                ids.add(id);
+            }
+        }
+        return ids;
+    }
+
+    private int peakHour() {
+        int pick = random.nextInt(hourlyCumulative[hourlyCumulative.length - 1]);
+        for (int h = 0; h < hourlyCumulative.length; h++) {
+            if (pick < hourlyCumulative[h]) {
+                return h;
+            }
+        }
+        return hourlyCumulative.length - 1;
+    }
+
+    private int rentalHours() {
+        int roll = random.nextInt(100);
+        if (roll < 50) return 2 + random.nextInt(5);
+        if (roll < 85) return 8 + random.nextInt(17);
+        return 24 + random.nextInt(49);
+    }
+
+    private int freeVehicle(LocalDateTime[] freeAt, LocalDateTime start) {
+        int offset = random.nextInt(freeAt.length);
+        for (int i = 0; i < freeAt.length; i++) {
+            int slot = (offset + i) % freeAt.length;
+            if (freeAt[slot] == null || !freeAt[slot].isAfter(start)) {
+                return slot;
+            }
+        }
+        return -1;
+    }
+
+    private Long skewedRenter(List<Long> renterIds) {
+        double r = random.nextDouble();
+        return renterIds.get((int) (r * r * renterIds.size()));
+    }
+
+    private double depositFor(ModelRow model) {
+        return VehicleType.MOTORBIKE.name().equals(model.vehicleType()) ? 1_000_000.0 : 5_000_000.0;
+    }
+
+    private static int[] cumulative(int[] weights) {
+        int[] result = new int[weights.length];
+        int sum = 0;
+        for (int i = 0; i < weights.length; i++) {
+            sum += weights[i];
+            result[i] = sum;
+        }
+        return result;
+    }
+
+    private static List<Integer> range(int count) {
+        List<Integer> list = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            list.add(i);
+        }
+        return list;
+    }
+
+    @FunctionalInterface
+    private interface RowBinder<T> {
+        void bind(PreparedStatement ps, T row) throws SQLException;
+    }
+
+    private record ModelRow(Long modelId, Double pricePerHour, String vehicleType) {}
+
+    private record VehicleRow(Long vehicleId, Long stationId, ModelRow model) {}
+
+    private record TransactionRow(Long bookingId, Double amount, PaymentMethod method, LocalDateTime date, Long staffId, String note) {}
+
+    @Getter
+    @RequiredArgsConstructor
+    private static final class BookingRow {
+        private final VehicleRow vehicle;
+        private final Long stationId;
+        private final Long renterId;
+        private final LocalDateTime start;
+        private final LocalDateTime end;
+        private final BookingStatus status;
+        private final double finalFee;
+        private final double rentalDeposit;
+        private final LocalDateTime createdAt;
+        @Setter
+        private Long bookingId;
+    }
+}
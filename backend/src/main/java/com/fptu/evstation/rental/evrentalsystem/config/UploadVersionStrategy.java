@@ -0,0 +1,49 @@
+package com.fptu.evstation.rental.evrentalsystem.config;
+
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Component;
+import org.springframework.util.DigestUtils;
+import org.springframework.web.servlet.resource.ContentVersionStrategy;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Version của file upload là MD5 nội dung, nhúng vào tên file (anh-3f2a...c9.jpg) để URL thay đổi khi nội dung đổi.
+ * Hash được cache theo (đường dẫn, lastModified, kích thước) nên mỗi file chỉ bị đọc lại khi bị ghi đè.
+ */
+@Component
+public class UploadVersionStrategy extends ContentVersionStrategy {
+
+    private final Map<String, FileHash> hashes = new ConcurrentHashMap<>();
+
+    @Override
+    public String getResourceVersion(Resource resource) {
+        try {
+            if (!resource.isFile()) {
+                return null;
+            }
+            File file = resource.getFile();
+            long lastModified = file.lastModified();
+            long length = file.length();
+            FileHash cached = hashes.get(file.getPath());
+            if (cached != null && cached.lastModified() == lastModified && cached.length() == length) {
+                return cached.hash();
+            }
+            String hash;
+            try (InputStream in = Files.newInputStream(file.toPath())) {
+                hash = DigestUtils.md5DigestAsHex(in);
+            }
+            hashes.put(file.getPath(), new FileHash(lastModified, length, hash));
+            return hash;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private record FileHash(long lastModified, long length, String hash) {}
+}
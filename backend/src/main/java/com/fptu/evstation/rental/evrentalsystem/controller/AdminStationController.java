@@ -8,6 +8,7 @@ import com.fptu.evstation.rental.evrentalsystem.service.*;
 import lombok.RequiredArgsConstructor;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
@@ -25,6 +26,7 @@ public class AdminStationController {
     private final StationService stationService;
     private final ModelService modelService;
     private final VehicleService vehicleService;
+    private final VehicleImportService vehicleImportService;
     private final UserService userService;
     private final UserRepository userRepository;
     private final ReportService reportService;
@@ -68,6 +70,16 @@ public class AdminStationController {
         return ResponseEntity.ok(vehicleService.createVehicle(request));
     }
 
+    @PostMapping(value = "/vehicles/import", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<VehicleImportResponse> importVehicles(@RequestParam("file") MultipartFile file) {
+        return ResponseEntity.ok(vehicleImportService.importVehicles(file));
+    }
+
+    @PostMapping(value = "/vehicles/import", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<VehicleImportResponse> importVehicles(@RequestBody List<CreateVehicleRequest> requests) {
+        return ResponseEntity.ok(vehicleImportService.importVehicles(requests));
+    }
+
     @GetMapping("/vehicles")
     public ResponseEntity<List<VehicleResponse>> getAllVehicles(
             @RequestParam(required = false) Long modelId,
@@ -249,6 +261,11 @@ public class AdminStationController {
         return ResponseEntity.ok(report);
     }
 
+    @GetMapping("/reports/archive")
+    public ResponseEntity<ArchiveStatsResponse> getArchiveStats() {
+        return ResponseEntity.ok(reportService.getArchiveStats());
+    }
+
     @GetMapping("/stations/report")
     public ResponseEntity<?> getAllStationReports() {
         List<Map<String, Object>> reports = stationService.getAllStationReports();
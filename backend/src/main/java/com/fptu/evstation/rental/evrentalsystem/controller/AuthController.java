@@ -3,7 +3,7 @@ package com.fptu.evstation.rental.evrentalsystem.controller;
 import com.fptu.evstation.rental.evrentalsystem.dto.*;
 import com.fptu.evstation.rental.evrentalsystem.entity.User;
 import com.fptu.evstation.rental.evrentalsystem.service.AuthService;
-import com.fptu.evstation.rental.evrentalsystem.service.impl.UserServiceImpl;
+import com.fptu.evstation.rental.evrentalsystem.service.UserService;
 import com.fptu.evstation.rental.evrentalsystem.service.util.EmailService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
@@ -67,9 +67,4 @@ public class AuthController {
         emailService.resetPasswordWithOtp(otp, newPassword, confirmPassword);
         return ResponseEntity.ok(Map.of("message", "Đặt lại mật khẩu thành công"));
     }
-    @PostMapping("/google")
-    public ResponseEntity<AuthResponse> loginWithGoogle(@RequestBody GoogleIdTokenRequest req) {
-        AuthResponse resp = authService.loginWithGoogle(req.getIdToken());
-        return ResponseEntity.ok(resp);
-    }
 }
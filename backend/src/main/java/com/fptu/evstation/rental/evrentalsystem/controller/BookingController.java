@@ -25,9 +25,10 @@ public class BookingController {
     @PostMapping
     public ResponseEntity<?> createBooking(
             @RequestHeader("Authorization") String authHeader,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
             @Valid @RequestBody BookingRequest req) {
         User renter = authService.validateTokenAndGetUser(authService.getTokenFromHeader(authHeader));
-        Map<String, Object> result = bookingService.createBooking(renter, req);
+        Map<String, Object> result = bookingService.createBooking(renter, req, idempotencyKey);
 
         return ResponseEntity.ok(result);
     }
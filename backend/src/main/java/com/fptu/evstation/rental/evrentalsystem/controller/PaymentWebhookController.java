@@ -1,6 +1,13 @@
 package com.fptu.evstation.rental.evrentalsystem.controller;
 
+import com.fptu.evstation.rental.evrentalsystem.entity.PaymentIntent;
+import com.fptu.evstation.rental.evrentalsystem.entity.PaymentIntentStatus;
+import com.fptu.evstation.rental.evrentalsystem.entity.PaymentIntentType;
+import com.fptu.evstation.rental.evrentalsystem.service.PaymentIntentService;
 import com.fptu.evstation.rental.evrentalsystem.service.PaymentService;
+import io.micrometer.core.annotation.Timed;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.MediaType;
@@ -17,36 +24,59 @@ import vn.payos.model.webhooks.WebhookData;
 public class PaymentWebhookController {
     private final PayOS payOS;
     private final PaymentService paymentService;
+    private final PaymentIntentService paymentIntentService;
+    private final MeterRegistry meterRegistry;
     private static final int SUFFIX_LENGTH = 4;
 
     @PostMapping(value = "/webhook", produces = MediaType.TEXT_PLAIN_VALUE)
+    @Timed("evrental.payment.webhook")
     public ResponseEntity<String> handleWebhook(@RequestBody(required = false) String rawBody) {
 
         if (rawBody == null || rawBody.isBlank()) {
             log.warn("Webhook nhận được body rỗng, có thể là test ping từ PayOS. Bỏ qua.");
-            return ResponseEntity.ok("ignored-empty-body");
+            return reply("ignored_empty_body", ResponseEntity.ok("ignored-empty-body"));
         }
 
         try {
             WebhookData verifiedData = null;
+            Timer.Sample verifySample = Timer.start(meterRegistry);
+            String verifyOutcome = "SUCCESS";
             try {
                 verifiedData = payOS.webhooks().verify(rawBody);
             } catch (Exception sigEx) {
+                verifyOutcome = "ERROR";
                 log.warn("PayOS webhook verify failed: {}", sigEx.getMessage());
+            } finally {
+                verifySample.stop(meterRegistry.timer("evrental.payos.request", "operation", "verify_webhook", "outcome", verifyOutcome));
             }
 
             if (verifiedData != null && verifiedData.getOrderCode() == 0) {
                 log.warn("Nhận được payload với orderCode = 0 (có thể là test). Bỏ qua.");
-                return ResponseEntity.ok("ignored-test-payload");
+                return reply("ignored_test_payload", ResponseEntity.ok("ignored-test-payload"));
             }
 
             if (verifiedData != null && "00".equals(verifiedData.getCode())) {
                 long orderCode = verifiedData.getOrderCode();
+
+                PaymentIntent intent = paymentIntentService.confirmPaid(orderCode);
+                if (intent != null) {
+                    Long bookingId = intent.getBooking().getBookingId();
+                    if (intent.getStatus() == PaymentIntentStatus.REFUND_REQUIRED) {
+                        // Tiền đã được ghi nhận, chờ hoàn tiền thủ công: trả 200 để PayOS không gửi lại
+                        return reply("refund_required", ResponseEntity.ok("refund-required-booking-" + bookingId));
+                    }
+                    log.info("Xử lý thành công webhook orderCode {} ({}) cho bookingId: {}", orderCode, intent.getType(), bookingId);
+                    return intent.getType() == PaymentIntentType.RESERVATION_DEPOSIT
+                            ? reply("processed_deposit", ResponseEntity.ok("processed-deposit-booking-" + bookingId))
+                            : reply("processed_rental_deposit", ResponseEntity.ok("processed-rental-booking-" + bookingId));
+                }
+
+                // orderCode tạo trước khi có bảng Payment_Intents: tách bookingId từ chính orderCode
                 String orderCodeStr = String.valueOf(orderCode);
 
                 if (orderCodeStr.length() < (SUFFIX_LENGTH + 2)) {
                     log.warn("Webhook nhận được orderCode quá ngắn: {}. Không thể xử lý.", orderCode);
-                    return ResponseEntity.ok("ignored-short-ordercode");
+                    return reply("ignored_short_ordercode", ResponseEntity.ok("ignored-short-ordercode"));
                 }
 
                 String mainPart = orderCodeStr.substring(0, orderCodeStr.length() - SUFFIX_LENGTH);
@@ -59,30 +89,35 @@ public class PaymentWebhookController {
                 if (paymentType == '1') {
                     paymentService.autoConfirmDeposit(bookingId);
                     log.info("Xử lý thành công webhook (cọc 500k) cho bookingId: {}", bookingId);
-                    return ResponseEntity.ok("processed-deposit-booking-" + bookingId);
+                    return reply("processed_deposit", ResponseEntity.ok("processed-deposit-booking-" + bookingId));
 
                 } else if (paymentType == '2') {
                     paymentService.autoConfirmRentalDeposit(bookingId);
                     log.info("Xử lý thành công webhook (cọc thuê xe) cho bookingId: {}", bookingId);
-                    return ResponseEntity.ok("processed-rental-booking-" + bookingId);
+                    return reply("processed_rental_deposit", ResponseEntity.ok("processed-rental-booking-" + bookingId));
 
                 } else {
                     log.warn("Webhook nhận được paymentType không xác định: {}. Bỏ qua.", paymentType);
-                    return ResponseEntity.ok("ignored-unknown-type");
+                    return reply("ignored_unknown_type", ResponseEntity.ok("ignored-unknown-type"));
                 }
 
             } else if (verifiedData != null) {
                 log.warn("Nhận được webhook payOS nhưng code không phải '00'. Code: {}, Desc: {}",
                         verifiedData.getCode(), verifiedData.getDesc());
-                return ResponseEntity.ok("ignored-non-success-code");
+                return reply("ignored_non_success_code", ResponseEntity.ok("ignored-non-success-code"));
             } else {
                 log.warn("Nhận được webhook nhưng không thể xác thực (verifiedData is null).");
-                return ResponseEntity.ok("ignored-verification-failed");
+                return reply("ignored_verification_failed", ResponseEntity.ok("ignored-verification-failed"));
             }
 
         } catch (Exception e) {
             log.error("Lỗi nghiêm trọng xử lý webhook payOS: {}", e.getMessage(), e);
-            return ResponseEntity.badRequest().body("processing-error: " + e.getMessage());
+            return reply("error", ResponseEntity.badRequest().body("processing-error: " + e.getMessage()));
         }
     }
+
+    private ResponseEntity<String> reply(String result, ResponseEntity<String> response) {
+        meterRegistry.counter("evrental.payment.webhook.events", "result", result).increment();
+        return response;
+    }
 }
\ No newline at end of file
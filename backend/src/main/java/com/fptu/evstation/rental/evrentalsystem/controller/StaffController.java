@@ -153,6 +153,29 @@ public class StaffController {
             @ModelAttribute PenaltyCalculationRequest request) {
 
         User staff = authService.validateTokenAndGetUser(authService.getTokenFromHeader(authHeader));
+        parseSelectedFees(selectedFeesJson, request);
+
+        BillResponse bill = paymentService.calculateFinalBill(staff, bookingId, request);
+        return ResponseEntity.ok(bill);
+    }
+
+    /**
+     * Xem trước hóa đơn (không QR, không PDF, không ghi DB); có thể gọi lại mỗi khi nhân viên đổi phí.
+     */
+    @PostMapping(value = "/bookings/{bookingId}/bill-preview", consumes = { "multipart/form-data" })
+    public ResponseEntity<BillResponse> previewFinalBill(
+            @RequestHeader("Authorization") String authHeader,
+            @PathVariable Long bookingId,
+            @RequestPart(value = "selectedFeesJson", required = false) String selectedFeesJson,
+            @ModelAttribute PenaltyCalculationRequest request) {
+
+        User staff = authService.validateTokenAndGetUser(authService.getTokenFromHeader(authHeader));
+        parseSelectedFees(selectedFeesJson, request);
+
+        return ResponseEntity.ok(paymentService.previewFinalBill(staff, bookingId, request));
+    }
+
+    private void parseSelectedFees(String selectedFeesJson, PenaltyCalculationRequest request) {
         if (selectedFeesJson != null && !selectedFeesJson.isBlank()) {
             try {
                 List<PenaltyCalculationRequest.SelectedFee> selectedFees = objectMapper.readValue(selectedFeesJson, new TypeReference<>() {});
@@ -161,9 +184,6 @@ public class StaffController {
                 throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Định dạng của selectedFees không hợp lệ.");
             }
         }
-
-        BillResponse bill = paymentService.calculateFinalBill(staff, bookingId, request);
-        return ResponseEntity.ok(bill);
     }
 
     @PostMapping(value = "/bookings/{bookingId}/confirm-payment", consumes = { "multipart/form-data" })
@@ -1,12 +1,15 @@
 package com.fptu.evstation.rental.evrentalsystem.controller;
 
+import com.fptu.evstation.rental.evrentalsystem.dto.ModelCatalogResponse;
 import com.fptu.evstation.rental.evrentalsystem.dto.ModelResponse;
 import com.fptu.evstation.rental.evrentalsystem.dto.ModelSearchRequest;
 import com.fptu.evstation.rental.evrentalsystem.dto.ModelWithAvailabilityResponse;
+import com.fptu.evstation.rental.evrentalsystem.dto.RatingPageResponse;
 import com.fptu.evstation.rental.evrentalsystem.dto.VehicleAvailabilityResponse;
 import com.fptu.evstation.rental.evrentalsystem.dto.VehicleResponse;
 import com.fptu.evstation.rental.evrentalsystem.entity.*;
 import com.fptu.evstation.rental.evrentalsystem.service.*;
+import com.fptu.evstation.rental.evrentalsystem.service.util.ModelPopularity;
 import lombok.RequiredArgsConstructor;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
@@ -47,8 +50,9 @@ public class StationController {
     public ResponseEntity<List<ModelResponse>> getModelsByStation(
             @PathVariable Long stationId,
             @RequestParam(required = false) String keyword,
-            @RequestParam(required = false) VehicleType vehicleType) {
-        return ResponseEntity.ok(modelService.getModelsByStation(stationId, keyword, vehicleType));
+            @RequestParam(required = false) VehicleType vehicleType,
+            @RequestParam(defaultValue = "ALL_TIME") ModelPopularity.Window popularity) {
+        return ResponseEntity.ok(modelService.getModelsByStation(stationId, keyword, vehicleType, popularity));
     }
 
     @GetMapping("/{stationId}/models/{modelId}/vehicles")
@@ -90,6 +94,13 @@ public class StationController {
         return ResponseEntity.ok(ratingService.getRatingsByStation(stationId));
     }
 
+    @GetMapping("/rating/{stationId}/page")
+    public ResponseEntity<RatingPageResponse> getRatingPage(@PathVariable Long stationId,
+                                                            @RequestParam(defaultValue = "0") int page,
+                                                            @RequestParam(defaultValue = "20") int size) {
+        return ResponseEntity.ok(ratingService.getRatingPage(stationId, page, size));
+    }
+
     @GetMapping("/rating/{stationId}/average")
     public ResponseEntity<Double> getAverageRating(@PathVariable Long stationId) {
         Double average = ratingService.getAverageRating(stationId);
@@ -124,6 +135,33 @@ public class StationController {
         return ResponseEntity.ok(models);
     }
 
+    @GetMapping("/{stationId}/models/catalog")
+    public ResponseEntity<ModelCatalogResponse> getModelCatalog(
+            @PathVariable Long stationId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startTime,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endTime,
+            @RequestParam(required = false) Double minPrice,
+            @RequestParam(required = false) Double maxPrice,
+            @RequestParam(required = false) Integer seatCount,
+            @RequestParam(required = false) VehicleType vehicleType,
+            @RequestParam(required = false, defaultValue = "createdAt") String sortBy,
+            @RequestParam(required = false, defaultValue = "DESC") String order) {
+
+        ModelSearchRequest searchRequest = ModelSearchRequest.builder()
+                .stationId(stationId)
+                .startTime(startTime)
+                .endTime(endTime)
+                .minPrice(minPrice)
+                .maxPrice(maxPrice)
+                .seatCount(seatCount)
+                .vehicleType(vehicleType)
+                .sortBy(sortBy)
+                .order(order)
+                .build();
+
+        return ResponseEntity.ok(modelService.getModelCatalog(searchRequest));
+    }
+
     @GetMapping("/{stationId}/models/{modelId}/available-vehicles")
     public ResponseEntity<List<VehicleAvailabilityResponse>> getAvailableVehicles(
             @PathVariable Long stationId,
@@ -0,0 +1,71 @@
+package com.fptu.evstation.rental.evrentalsystem.controller;
+
+import com.fptu.evstation.rental.evrentalsystem.dto.TelemetryIngestResponse;
+import com.fptu.evstation.rental.evrentalsystem.dto.TelemetryPointResponse;
+import com.fptu.evstation.rental.evrentalsystem.dto.TelemetryReading;
+import com.fptu.evstation.rental.evrentalsystem.service.TelemetryService;
+import io.micrometer.core.annotation.Timed;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.time.LocalDateTime;
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/telemetry")
+public class TelemetryController {
+    private final TelemetryService telemetryService;
+    private final byte[] ingestKey;
+
+    public TelemetryController(TelemetryService telemetryService,
+                               @Value("${telemetry.ingest-key:}") String ingestKey) {
+        this.telemetryService = telemetryService;
+        this.ingestKey = ingestKey.getBytes(StandardCharsets.UTF_8);
+    }
+
+    // Thiết bị trên xe không có token người dùng: xác thực bằng khóa dùng chung trong header X-Telemetry-Key
+    @PostMapping(value = "/ingest", consumes = MediaType.APPLICATION_JSON_VALUE)
+    @Timed("evrental.telemetry.ingest")
+    public ResponseEntity<TelemetryIngestResponse> ingestJson(
+            @RequestHeader(value = "X-Telemetry-Key", required = false) String key,
+            @RequestBody List<TelemetryReading> readings) {
+        checkKey(key);
+        return ResponseEntity.ok(telemetryService.ingest(readings));
+    }
+
+    @PostMapping(value = "/ingest", consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    @Timed("evrental.telemetry.ingest")
+    public ResponseEntity<TelemetryIngestResponse> ingestFrames(
+            @RequestHeader(value = "X-Telemetry-Key", required = false) String key,
+            @RequestBody byte[] body) {
+        checkKey(key);
+        return ResponseEntity.ok(telemetryService.ingest(telemetryService.decodeFrames(body)));
+    }
+
+    @GetMapping("/vehicles/{vehicleId}/latest")
+    public ResponseEntity<TelemetryPointResponse> getLatest(@PathVariable Long vehicleId) {
+        return ResponseEntity.ok(telemetryService.getLatest(vehicleId));
+    }
+
+    @GetMapping("/vehicles/{vehicleId}/series")
+    public ResponseEntity<List<TelemetryPointResponse>> getSeries(
+            @PathVariable Long vehicleId,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to) {
+        return ResponseEntity.ok(telemetryService.getSeries(vehicleId, from, to));
+    }
+
+    private void checkKey(String key) {
+        if (ingestKey.length == 0 || key == null
+                || !MessageDigest.isEqual(ingestKey, key.getBytes(StandardCharsets.UTF_8))) {
+            throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Khóa telemetry không hợp lệ");
+        }
+    }
+}
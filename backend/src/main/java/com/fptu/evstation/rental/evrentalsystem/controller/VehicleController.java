@@ -24,12 +24,6 @@ public class VehicleController {
         return ResponseEntity.ok(stats);
     }
 
-    @GetMapping("/station/{stationId}/stats")
-    public ResponseEntity<?> getVehicleStatsByStation(@PathVariable Long stationId) {
-        Map<String, Object> stats = stationService.getVehicleStatsByStation(stationId);
-        return ResponseEntity.ok(stats);
-    }
-
     @GetMapping("/{vehicleId}/availability")
     public ResponseEntity<?> checkVehicleScheduleAvailability(
             @PathVariable Long vehicleId,
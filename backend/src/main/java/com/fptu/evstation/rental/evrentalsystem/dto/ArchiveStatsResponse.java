@@ -0,0 +1,25 @@
+package com.fptu.evstation.rental.evrentalsystem.dto;
+
+import com.fptu.evstation.rental.evrentalsystem.entity.ArchiveRun;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@Builder
+public class ArchiveStatsResponse {
+    private LocalDateTime cutoff;
+    private long hotBookings;
+    private long archivedBookings;
+    private long hotTransactions;
+    private long archivedTransactions;
+    private long hotTransactionDetails;
+    private long archivedTransactionDetails;
+    private long hotVehicleHistory;
+    private long archivedVehicleHistory;
+    private List<ArchiveRun> recentRuns;
+}
@@ -8,7 +8,7 @@ import java.time.LocalDateTime;
 import java.util.List;
 
 @Data
-@Builder
+@Builder(toBuilder = true)
 public class BillResponse {
     private Long bookingId;
     private LocalDateTime dateTime;
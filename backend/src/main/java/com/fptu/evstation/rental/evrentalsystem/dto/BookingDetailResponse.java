@@ -1,6 +1,7 @@
 package com.fptu.evstation.rental.evrentalsystem.dto;
 
 import com.fptu.evstation.rental.evrentalsystem.entity.BookingStatus;
+import com.fptu.evstation.rental.evrentalsystem.entity.PaymentLinkStatus;
 import lombok.Builder;
 import lombok.Data;
 
@@ -39,4 +40,7 @@ public class BookingDetailResponse {
     private String invoicePdfPath;
     private String contractPdfPath;
     private String refundInfo;
+
+    private PaymentLinkStatus paymentLinkStatus;
+    private String paymentUrl;
 }
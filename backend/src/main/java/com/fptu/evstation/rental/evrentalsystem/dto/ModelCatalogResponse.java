@@ -0,0 +1,34 @@
+package com.fptu.evstation.rental.evrentalsystem.dto;
+
+import com.fptu.evstation.rental.evrentalsystem.entity.VehicleType;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.Map;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ModelCatalogResponse {
+    private List<ModelWithAvailabilityResponse> models;
+
+    // Số model theo từng giá trị facet, áp dụng các bộ lọc còn lại (không tính khung giờ thuê)
+    private Map<VehicleType, Integer> vehicleTypeCounts;
+    private Map<Integer, Integer> seatCountCounts;
+    private List<PriceBucketCount> priceBucketCounts;
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class PriceBucketCount {
+        private String bucket;
+        private Double minPrice;
+        private Double maxPrice;
+        private Integer count;
+    }
+}
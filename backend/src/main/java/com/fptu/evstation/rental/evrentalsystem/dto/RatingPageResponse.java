@@ -0,0 +1,38 @@
+package com.fptu.evstation.rental.evrentalsystem.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class RatingPageResponse {
+    private List<RatingItem> ratings;
+    private int page;
+    private int size;
+    private long totalElements;
+    private int totalPages;
+
+    private Double averageRating;
+    // Số đánh giá theo số sao (1-5)
+    private Map<Integer, Integer> starCounts;
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class RatingItem {
+        private Long id;
+        private Long userId;
+        private int stars;
+        private String comment;
+        private LocalDateTime createdAt;
+    }
+}
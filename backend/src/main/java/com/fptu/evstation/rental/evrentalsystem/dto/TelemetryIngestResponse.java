@@ -0,0 +1,14 @@
+package com.fptu.evstation.rental.evrentalsystem.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+@Builder
+public class TelemetryIngestResponse {
+    private int accepted;
+    private int rejected;
+    private int late;
+}
@@ -0,0 +1,16 @@
+package com.fptu.evstation.rental.evrentalsystem.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+@Data
+@AllArgsConstructor
+@Builder
+public class TelemetryPointResponse {
+    private LocalDateTime time;
+    private Integer battery;
+    private Double odometer;
+}
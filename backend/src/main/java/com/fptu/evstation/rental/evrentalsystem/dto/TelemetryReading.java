@@ -0,0 +1,20 @@
+package com.fptu.evstation.rental.evrentalsystem.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Một bản tin từ xe; timestamp là epoch millis theo đồng hồ thiết bị, odometer tính bằng km.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class TelemetryReading {
+    private Long vehicleId;
+    private long timestamp;
+    private Integer battery;
+    private Double odometer;
+}
@@ -25,6 +25,13 @@ public class UserResponse {
     private String gplxPath2;
     private String selfiePath;
 
+    // Ảnh thu nhỏ cho danh sách; các trường *Path ở trên giữ ảnh gốc để đọc số giấy tờ khi duyệt
+    private String cccdThumbnailUrl1;
+    private String cccdThumbnailUrl2;
+    private String gplxThumbnailUrl1;
+    private String gplxThumbnailUrl2;
+    private String selfieThumbnailUrl;
+
     private VerificationStatus verificationStatus;
     private String rejectionReason;
     private AccountStatus status;
@@ -0,0 +1,24 @@
+package com.fptu.evstation.rental.evrentalsystem.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@Builder
+public class VehicleImportResponse {
+    private int totalRows;
+    private int importedCount;
+    private int failedCount;
+    private List<RowError> errors;
+
+    @Data
+    @Builder
+    public static class RowError {
+        // Số thứ tự dòng dữ liệu, bắt đầu từ 1 (không tính dòng tiêu đề CSV)
+        private int row;
+        private String licensePlate;
+        private List<String> messages;
+    }
+}
@@ -0,0 +1,48 @@
+package com.fptu.evstation.rental.evrentalsystem.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Kết quả một lượt lưu trữ: số dòng đã chuyển, số booking còn lại ở bảng nóng và thời gian truy vấn mẫu trước/sau.
+ */
+@Entity
+@Table(name = "Archive_Runs")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ArchiveRun {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false)
+    private LocalDateTime startedAt;
+
+    @Column(nullable = false)
+    private LocalDateTime cutoff;
+
+    private long bookingsMoved;
+
+    private long transactionsMoved;
+
+    private long transactionDetailsMoved;
+
+    private long vehicleHistoryMoved;
+
+    private long hotBookingsBefore;
+
+    private long hotBookingsAfter;
+
+    private long probeMsBefore;
+
+    private long probeMsAfter;
+
+    private long durationMs;
+}
@@ -0,0 +1,72 @@
+package com.fptu.evstation.rental.evrentalsystem.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Booking đã kết thúc được chuyển khỏi bảng Bookings; archiveMonth (yyyyMM theo startDate) là khóa phân vùng theo tháng.
+ * Chỉ giữ ID của khách/xe/trạm, không ràng buộc khóa ngoại để dữ liệu lưu trữ không chặn việc xóa xe/người dùng.
+ */
+@Entity
+@Table(name = "Bookings_Archive",
+        indexes = @Index(name = "idx_booking_archive_month_start", columnList = "archiveMonth, startDate"))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ArchivedBooking {
+    @Id
+    private Long bookingId;
+
+    @Column(nullable = false)
+    private int archiveMonth;
+
+    @Column(name = "userId")
+    private Long userId;
+
+    @Column(name = "vehicleId")
+    private Long vehicleId;
+
+    @Column(name = "stationId")
+    private Long stationId;
+
+    @Column(nullable = false)
+    private LocalDateTime startDate;
+
+    @Column(nullable = false)
+    private LocalDateTime endDate;
+
+    private boolean reservationDepositPaid;
+
+    private boolean rentalDepositPaid;
+
+    private Double refund;
+
+    @Column(columnDefinition = "nvarchar(500)")
+    private String refundNote;
+
+    private Double rentalDeposit;
+
+    private Double finalFee;
+
+    @Enumerated(EnumType.STRING)
+    private BookingStatus status;
+
+    @Column(length = 500)
+    private String invoicePdfPath;
+
+    @Column(length = 500)
+    private String contractPdfPath;
+
+    @Column(columnDefinition = "TEXT")
+    private String checkInPhotoPaths;
+
+    private LocalDateTime createdAt;
+
+    private LocalDateTime archivedAt;
+}
@@ -0,0 +1,49 @@
+package com.fptu.evstation.rental.evrentalsystem.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Giao dịch của booking đã lưu trữ; stationId lấy từ trạm của xe lúc lưu trữ để báo cáo doanh thu không cần join.
+ */
+@Entity
+@Table(name = "Transactions_Archive",
+        indexes = @Index(name = "idx_transaction_archive_month_date", columnList = "archiveMonth, transactionDate"))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ArchivedTransaction {
+    @Id
+    private Long transactionId;
+
+    @Column(nullable = false)
+    private int archiveMonth;
+
+    @Column(nullable = false)
+    private Long bookingId;
+
+    private Long stationId;
+
+    @Column(nullable = false)
+    private Double amount;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private PaymentMethod paymentMethod;
+
+    @Column(nullable = false)
+    private LocalDateTime transactionDate;
+
+    @Column(columnDefinition = "nvarchar(500)")
+    private String staffNote;
+
+    private Long staffId;
+
+    private LocalDateTime archivedAt;
+}
@@ -0,0 +1,50 @@
+package com.fptu.evstation.rental.evrentalsystem.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Phí phạt của booking đã lưu trữ; phân vùng theo tháng tạo booking vì báo cáo lọc theo Booking.createdAt.
+ */
+@Entity
+@Table(name = "TransactionDetails_Archive",
+        indexes = @Index(name = "idx_detail_archive_month_created", columnList = "archiveMonth, bookingCreatedAt"))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ArchivedTransactionDetail {
+    @Id
+    private Long detailId;
+
+    @Column(nullable = false)
+    private int archiveMonth;
+
+    @Column(nullable = false)
+    private Long bookingId;
+
+    private Long stationId;
+
+    private LocalDateTime bookingCreatedAt;
+
+    private Long feeId;
+
+    @Column(nullable = false)
+    private Double appliedAmount;
+
+    @Column(columnDefinition = "nvarchar(500)")
+    private String staffNote;
+
+    @Column(columnDefinition = "nvarchar(500)")
+    private String adjustmentNote;
+
+    @Column(columnDefinition = "TEXT")
+    private String photoPaths;
+
+    private LocalDateTime archivedAt;
+}
@@ -0,0 +1,82 @@
+package com.fptu.evstation.rental.evrentalsystem.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Lịch sử xe cũ, cùng thuộc tính với VehicleHistory để truy vấn lịch sử dùng chung điều kiện lọc.
+ */
+@Entity
+@Table(name = "Vehicle_History_Archive",
+        indexes = @Index(name = "idx_history_archive_month_time", columnList = "archiveMonth, actionTime"))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ArchivedVehicleHistory {
+    @Id
+    private Long historyId;
+
+    @Column(nullable = false)
+    private int archiveMonth;
+
+    @Column(name = "vehicle_id")
+    private Long vehicleId;
+
+    @Column(name = "staff_id")
+    private Long staffId;
+
+    @Column(name = "renter_id")
+    private Long renterId;
+
+    @Column(name = "station_id")
+    private Long stationId;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "vehicle_id", insertable = false, updatable = false,
+            foreignKey = @ForeignKey(ConstraintMode.NO_CONSTRAINT))
+    private Vehicle vehicle;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "staff_id", insertable = false, updatable = false,
+            foreignKey = @ForeignKey(ConstraintMode.NO_CONSTRAINT))
+    private User staff;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "renter_id", insertable = false, updatable = false,
+            foreignKey = @ForeignKey(ConstraintMode.NO_CONSTRAINT))
+    private User renter;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "station_id", insertable = false, updatable = false,
+            foreignKey = @ForeignKey(ConstraintMode.NO_CONSTRAINT))
+    private Station station;
+
+    @Enumerated(EnumType.STRING)
+    private VehicleActionType actionType;
+
+    @Column(columnDefinition = "NVARCHAR(MAX)")
+    private String note;
+
+    @Column(columnDefinition = "NVARCHAR(200)")
+    private String conditionBefore;
+
+    @Column(columnDefinition = "NVARCHAR(200)")
+    private String conditionAfter;
+
+    private Integer batteryLevel;
+
+    private Double mileage;
+
+    @Column(name = "photo_paths", columnDefinition = "VARCHAR(MAX)")
+    private String photoPaths;
+
+    private LocalDateTime actionTime;
+
+    private LocalDateTime archivedAt;
+}
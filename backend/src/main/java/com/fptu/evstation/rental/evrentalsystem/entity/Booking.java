@@ -5,6 +5,7 @@ import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.ColumnDefault;
 import org.hibernate.annotations.CreationTimestamp;
 
 import java.time.LocalDateTime;
@@ -17,7 +18,8 @@ import java.time.LocalDateTime;
 @Builder
 public class Booking {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "bookings_seq")
+    @SequenceGenerator(name = "bookings_seq", sequenceName = "bookings_seq", allocationSize = 50)
     private Long bookingId;
 
     @ManyToOne(fetch = FetchType.LAZY)
@@ -65,6 +67,20 @@ public class Booking {
     @Column(columnDefinition = "TEXT")
     private String checkInPhotoPaths;
 
+    // Link PayOS của khoản cọc đang chờ (giữ chỗ khi PENDING, cọc thuê xe khi CONFIRMED), tạo sau khi commit
+    @Enumerated(EnumType.STRING)
+    @Column(length = 20)
+    private PaymentLinkStatus paymentLinkStatus;
+
+    @Column(length = 1000)
+    private String paymentUrl;
+
+    @ColumnDefault("0")
+    @Column(nullable = false)
+    private int paymentLinkAttempts;
+
+    private LocalDateTime paymentLinkAttemptAt;
+
     @CreationTimestamp
     @Column(nullable = false, updatable = false)
     private LocalDateTime createdAt;
@@ -0,0 +1,45 @@
+package com.fptu.evstation.rental.evrentalsystem.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.time.LocalDateTime;
+
+/**
+ * Idempotency-Key của yêu cầu đặt xe: gửi lại cùng key thì trả về booking đã tạo.
+ */
+@Entity
+@Table(name = "Booking_Idempotency_Keys",
+        uniqueConstraints = @UniqueConstraint(name = "uk_booking_idempotency_user_key", columnNames = {"userId", "idempotencyKey"}))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class BookingIdempotencyKey {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "userId", nullable = false)
+    private User user;
+
+    @Column(nullable = false, length = 100)
+    private String idempotencyKey;
+
+    // Xe và khung giờ của yêu cầu đầu tiên, để phát hiện key bị dùng lại cho yêu cầu khác
+    @Column(nullable = false, length = 200)
+    private String requestFingerprint;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "bookingId", nullable = false)
+    private Booking booking;
+
+    @CreationTimestamp
+    @Column(updatable = false)
+    private LocalDateTime createdAt;
+}
@@ -0,0 +1,61 @@
+package com.fptu.evstation.rental.evrentalsystem.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.OnDelete;
+import org.hibernate.annotations.OnDeleteAction;
+
+import java.time.LocalDateTime;
+
+/**
+ * Một orderCode đã gửi sang PayOS: webhook và job đối soát tra booking qua bảng này thay vì tách số từ orderCode.
+ */
+@Entity
+@Table(name = "Payment_Intents",
+        uniqueConstraints = @UniqueConstraint(name = "uk_payment_intent_order_code", columnNames = "orderCode"),
+        indexes = @Index(name = "idx_payment_intent_status_checked", columnList = "status, lastCheckedAt"))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class PaymentIntent {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false)
+    private Long orderCode;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "bookingId", nullable = false)
+    @OnDelete(action = OnDeleteAction.CASCADE)
+    private Booking booking;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 30)
+    private PaymentIntentType type;
+
+    @Column(nullable = false)
+    private Long amount;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private PaymentIntentStatus status;
+
+    @CreationTimestamp
+    @Column(updatable = false)
+    private LocalDateTime createdAt;
+
+    // Lần cuối job đối soát hỏi trạng thái link trên PayOS
+    private LocalDateTime lastCheckedAt;
+
+    private LocalDateTime paidAt;
+
+    // Lý do intent REFUND_REQUIRED không áp dụng được cho booking
+    @Column(columnDefinition = "NVARCHAR(500)")
+    private String reviewNote;
+}
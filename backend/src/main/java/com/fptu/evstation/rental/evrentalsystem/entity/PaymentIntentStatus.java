@@ -0,0 +1,7 @@
+package com.fptu.evstation.rental.evrentalsystem.entity;
+
+public enum PaymentIntentStatus {
+    PENDING, PAID, CANCELLED, EXPIRED,
+    // Đã nhận tiền nhưng không áp dụng được cho booking (ví dụ booking đã hủy): chờ hoàn tiền/xử lý thủ công
+    REFUND_REQUIRED
+}
@@ -0,0 +1,5 @@
+package com.fptu.evstation.rental.evrentalsystem.entity;
+
+public enum PaymentIntentType {
+    RESERVATION_DEPOSIT, RENTAL_DEPOSIT
+}
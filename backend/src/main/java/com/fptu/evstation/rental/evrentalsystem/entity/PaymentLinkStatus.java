@@ -0,0 +1,5 @@
+package com.fptu.evstation.rental.evrentalsystem.entity;
+
+public enum PaymentLinkStatus {
+    PENDING_LINK, READY, FAILED
+}
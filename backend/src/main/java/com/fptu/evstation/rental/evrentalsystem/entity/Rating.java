@@ -9,7 +9,7 @@ import lombok.NoArgsConstructor;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "ratings")
+@Table(name = "ratings", indexes = @Index(columnList = "station_id, createdAt"))
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
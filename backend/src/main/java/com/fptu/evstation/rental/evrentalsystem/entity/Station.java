@@ -1,11 +1,14 @@
 package com.fptu.evstation.rental.evrentalsystem.entity;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.ColumnDefault;
+import org.hibernate.annotations.DynamicUpdate;
 
 import java.time.LocalDateTime;
 
@@ -16,6 +19,8 @@ import java.time.LocalDateTime;
 @AllArgsConstructor
 @Builder
 @JsonIgnoreProperties({"hibernateLazyInitializer", "handler"})
+// Chỉ ghi cột thay đổi, để sửa thông tin trạm không ghi đè các cột đánh giá đang được cộng dồn
+@DynamicUpdate
 public class Station {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -41,6 +46,36 @@ public class Station {
     @Column
     private Double rating;
 
+    // Tổng hợp đánh giá, cộng dồn nguyên tử trong RatingRepository.addToStationAggregate
+    @ColumnDefault("0")
+    @Column(nullable = false)
+    private Integer ratingCount;
+
+    @JsonIgnore
+    @ColumnDefault("0")
+    @Column(nullable = false)
+    private Long ratingSum;
+
+    @ColumnDefault("0")
+    @Column(nullable = false)
+    private Integer oneStarCount;
+
+    @ColumnDefault("0")
+    @Column(nullable = false)
+    private Integer twoStarCount;
+
+    @ColumnDefault("0")
+    @Column(nullable = false)
+    private Integer threeStarCount;
+
+    @ColumnDefault("0")
+    @Column(nullable = false)
+    private Integer fourStarCount;
+
+    @ColumnDefault("0")
+    @Column(nullable = false)
+    private Integer fiveStarCount;
+
     @Column(length = 20)
     private String hotline;
 
@@ -55,6 +90,13 @@ public class Station {
     public void onCreate() {
         createdAt = LocalDateTime.now();
         updatedAt = LocalDateTime.now();
+        if (ratingCount == null) ratingCount = 0;
+        if (ratingSum == null) ratingSum = 0L;
+        if (oneStarCount == null) oneStarCount = 0;
+        if (twoStarCount == null) twoStarCount = 0;
+        if (threeStarCount == null) threeStarCount = 0;
+        if (fourStarCount == null) fourStarCount = 0;
+        if (fiveStarCount == null) fiveStarCount = 0;
     }
 
     @PreUpdate
@@ -0,0 +1,41 @@
+package com.fptu.evstation.rental.evrentalsystem.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Một đoạn chuỗi telemetry đã lấy mẫu của một xe (chỉ thêm, không sửa): data chứa pointCount điểm mã hóa bằng TelemetryCodec.
+ */
+@Entity
+@Table(name = "Vehicle_Telemetry_Chunks",
+        indexes = @Index(name = "idx_telemetry_chunk_vehicle_time", columnList = "vehicleId, startTime"))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class TelemetryChunk {
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "telemetry_chunks_seq")
+    @SequenceGenerator(name = "telemetry_chunks_seq", sequenceName = "telemetry_chunks_seq", allocationSize = 50)
+    private Long chunkId;
+
+    @Column(nullable = false, updatable = false)
+    private Long vehicleId;
+
+    @Column(nullable = false, updatable = false)
+    private LocalDateTime startTime;
+
+    @Column(nullable = false, updatable = false)
+    private LocalDateTime endTime;
+
+    @Column(nullable = false, updatable = false)
+    private int pointCount;
+
+    @Column(nullable = false, updatable = false, columnDefinition = "VARBINARY(MAX)")
+    private byte[] data;
+}
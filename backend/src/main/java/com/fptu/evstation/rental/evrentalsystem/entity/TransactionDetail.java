@@ -14,7 +14,8 @@ import lombok.NoArgsConstructor;
 @Builder
 public class TransactionDetail {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "transaction_details_seq")
+    @SequenceGenerator(name = "transaction_details_seq", sequenceName = "transaction_details_seq", allocationSize = 50)
     private Long detailId;
 
     @ManyToOne(fetch = FetchType.LAZY)
@@ -4,7 +4,6 @@ import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
-import org.hibernate.annotations.CreationTimestamp;
 
 import java.time.LocalDateTime;
 
@@ -16,7 +15,8 @@ import java.time.LocalDateTime;
 @Builder
 public class VehicleHistory {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "vehicle_history_seq")
+    @SequenceGenerator(name = "vehicle_history_seq", sequenceName = "vehicle_history_seq", allocationSize = 50)
     private Long historyId;
 
     @ManyToOne(fetch = FetchType.LAZY)
@@ -53,6 +53,12 @@ public class VehicleHistory {
     @Column(name = "photo_paths", columnDefinition = "VARCHAR(MAX)")
     private String photoPaths;
 
-    @CreationTimestamp
+    // Lịch sử có thể được ghi theo lô sau thời điểm xảy ra: giữ thời điểm do nơi ghi truyền vào nếu có
+    @Column(updatable = false)
     private LocalDateTime actionTime;
+
+    @PrePersist
+    public void onCreate() {
+        if (actionTime == null) actionTime = LocalDateTime.now();
+    }
 }
\ No newline at end of file
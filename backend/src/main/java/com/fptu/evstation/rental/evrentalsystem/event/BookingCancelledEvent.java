@@ -0,0 +1,6 @@
+package com.fptu.evstation.rental.evrentalsystem.event;
+
+import com.fptu.evstation.rental.evrentalsystem.entity.BookingStatus;
+
+public record BookingCancelledEvent(Long bookingId, BookingStatus from, BookingStatus to) implements BookingEvent {
+}
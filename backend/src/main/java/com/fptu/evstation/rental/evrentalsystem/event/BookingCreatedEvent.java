@@ -0,0 +1,4 @@
+package com.fptu.evstation.rental.evrentalsystem.event;
+
+public record BookingCreatedEvent(Long bookingId, Long renterId, Long vehicleId) implements BookingEvent {
+}
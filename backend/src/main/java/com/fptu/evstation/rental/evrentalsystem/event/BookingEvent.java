@@ -0,0 +1,8 @@
+package com.fptu.evstation.rental.evrentalsystem.event;
+
+/**
+ * Sự kiện trong vòng đời booking, được phát bên trong transaction và chỉ được xử lý sau khi commit.
+ */
+public interface BookingEvent {
+    Long bookingId();
+}
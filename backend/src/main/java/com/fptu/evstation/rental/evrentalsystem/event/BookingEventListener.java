@@ -0,0 +1,74 @@
+package com.fptu.evstation.rental.evrentalsystem.event;
+
+import com.fptu.evstation.rental.evrentalsystem.entity.VehicleActionType;
+import com.fptu.evstation.rental.evrentalsystem.service.InvoiceService;
+import com.fptu.evstation.rental.evrentalsystem.service.util.ModelPopularity;
+import com.fptu.evstation.rental.evrentalsystem.service.util.VehicleHistoryWriter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * Tác vụ phụ của vòng đời booking: chỉ chạy khi transaction phát sự kiện đã commit,
+ * và chạy trên DomainEventExecutor nên không kéo dài request.
+ * Riêng lịch sử giao/nhận xe được ghi ngay trước commit, trong cùng transaction với check-in/trả xe.
+ */
+@Component
+@RequiredArgsConstructor
+public class BookingEventListener {
+
+    private final DomainEventExecutor domainEventExecutor;
+    private final VehicleHistoryWriter vehicleHistoryWriter;
+    private final InvoiceService invoiceService;
+    private final ModelPopularity modelPopularity;
+    private final MeterRegistry meterRegistry;
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void countEvent(BookingEvent event) {
+        meterRegistry.counter("evrental.booking.events", "type", event.getClass().getSimpleName()).increment();
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT, fallbackExecution = true)
+    public void onCheckedIn(CheckedInEvent event) {
+        // Bản ghi DELIVERY là nguồn tình trạng xe lúc nhận khi trả xe: không được mất nếu ứng dụng dừng trước lượt ghi lô
+        vehicleHistoryWriter.append(VehicleHistoryWriter.HistoryEntry.builder()
+                .vehicleId(event.vehicleId())
+                .staffId(event.staffId())
+                .renterId(event.renterId())
+                .stationId(event.stationId())
+                .actionType(VehicleActionType.DELIVERY)
+                .note(event.note())
+                .conditionBefore(event.conditionBefore())
+                .batteryLevel(event.battery())
+                .mileage(event.mileage())
+                .photoPathsJson(event.photoPathsJson())
+                .build(), VehicleHistoryWriter.Durability.IN_TRANSACTION);
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT, fallbackExecution = true)
+    public void recordReturn(ReturnedEvent event) {
+        // Bản ghi RETURN được ModelPopularity.loadRecent đếm lại khi khởi động: ghi cùng transaction trả xe
+        vehicleHistoryWriter.append(VehicleHistoryWriter.HistoryEntry.builder()
+                .vehicleId(event.vehicleId())
+                .staffId(event.staffId())
+                .renterId(event.renterId())
+                .stationId(event.stationId())
+                .actionType(VehicleActionType.RETURN)
+                .note(event.note())
+                .conditionBefore(event.conditionBefore())
+                .conditionAfter(event.conditionAfter())
+                .batteryLevel(event.battery())
+                .mileage(event.mileage())
+                .photoPathsJson(event.photoPathsJson())
+                .build(), VehicleHistoryWriter.Durability.IN_TRANSACTION);
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onReturned(ReturnedEvent event) {
+        domainEventExecutor.submit("model_popularity", () -> modelPopularity.recordRental(event.modelId()));
+        domainEventExecutor.submit("invoice_email",
+                () -> invoiceService.renderAndSendInvoice(event.bill(), event.renterEmail(), event.renterName()));
+    }
+}
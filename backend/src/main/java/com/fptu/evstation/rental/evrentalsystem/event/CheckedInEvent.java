@@ -0,0 +1,13 @@
+package com.fptu.evstation.rental.evrentalsystem.event;
+
+public record CheckedInEvent(Long bookingId,
+                             Long vehicleId,
+                             Long staffId,
+                             Long renterId,
+                             Long stationId,
+                             String note,
+                             String conditionBefore,
+                             Integer battery,
+                             Double mileage,
+                             String photoPathsJson) implements BookingEvent {
+}
@@ -0,0 +1,6 @@
+package com.fptu.evstation.rental.evrentalsystem.event;
+
+import com.fptu.evstation.rental.evrentalsystem.entity.PaymentIntentType;
+
+public record DepositConfirmedEvent(Long bookingId, PaymentIntentType depositType, boolean viaGateway) implements BookingEvent {
+}
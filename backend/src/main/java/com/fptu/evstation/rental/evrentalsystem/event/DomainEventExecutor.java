@@ -0,0 +1,95 @@
+package com.fptu.evstation.rental.evrentalsystem.event;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Chạy các xử lý sự kiện booking trên pool riêng với hàng đợi có giới hạn.
+ * Xử lý lỗi được thử lại tối đa events.retry.max-attempts lần, giãn cách tăng dần;
+ * khi hàng đợi đầy, luồng gửi tự chạy xử lý (backpressure) thay vì bỏ sự kiện.
+ */
+@Component
+@Slf4j
+public class DomainEventExecutor {
+
+    private final ThreadPoolExecutor executor;
+    private final ScheduledExecutorService retryScheduler;
+    private final MeterRegistry meterRegistry;
+    private final int maxAttempts;
+    private final long backoffMs;
+
+    public DomainEventExecutor(MeterRegistry meterRegistry,
+                               @Value("${events.executor.threads:4}") int threads,
+                               @Value("${events.executor.queue-capacity:1000}") int queueCapacity,
+                               @Value("${events.retry.max-attempts:3}") int maxAttempts,
+                               @Value("${events.retry.backoff-ms:500}") long backoffMs) {
+        this.meterRegistry = meterRegistry;
+        this.maxAttempts = maxAttempts;
+        this.backoffMs = backoffMs;
+
+        AtomicInteger threadIndex = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> new Thread(runnable, "domain-event-" + threadIndex.incrementAndGet()),
+                (runnable, pool) -> {
+                    meterRegistry.counter("evrental.domain_event.saturated").increment();
+                    log.warn("Hàng đợi sự kiện đầy ({} phần tử), xử lý ngay trên luồng gửi.", queueCapacity);
+                    if (!pool.isShutdown()) {
+                        runnable.run();
+                    }
+                });
+        this.executor.allowCoreThreadTimeOut(true);
+        this.retryScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "domain-event-retry");
+            thread.setDaemon(true);
+            return thread;
+        });
+        Gauge.builder("evrental.domain_event.queue", executor, pool -> pool.getQueue().size())
+                .register(meterRegistry);
+    }
+
+    public void submit(String handler, Runnable action) {
+        dispatch(handler, action, 1);
+    }
+
+    private void dispatch(String handler, Runnable action, int attempt) {
+        executor.execute(() -> run(handler, action, attempt));
+    }
+
+    private void run(String handler, Runnable action, int attempt) {
+        try {
+            action.run();
+            count(handler, "SUCCESS");
+        } catch (RuntimeException e) {
+            if (attempt >= maxAttempts) {
+                count(handler, "FAILED");
+                log.error("Xử lý sự kiện {} thất bại sau {} lần thử: {}", handler, attempt, e.getMessage(), e);
+                return;
+            }
+            count(handler, "RETRY");
+            log.warn("Xử lý sự kiện {} lỗi (lần {}), sẽ thử lại: {}", handler, attempt, e.getMessage());
+            retryScheduler.schedule(() -> dispatch(handler, action, attempt + 1), backoffMs * attempt, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void count(String handler, String outcome) {
+        meterRegistry.counter("evrental.domain_event", "handler", handler, "outcome", outcome).increment();
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        retryScheduler.shutdownNow();
+        executor.shutdown();
+        if (!executor.awaitTermination(10, TimeUnit.SECONDS)) {
+            log.warn("Còn {} sự kiện chưa xử lý khi tắt ứng dụng.", executor.getQueue().size());
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package com.fptu.evstation.rental.evrentalsystem.event;
+
+import com.fptu.evstation.rental.evrentalsystem.dto.BillResponse;
+
+public record ReturnedEvent(Long bookingId,
+                            Long vehicleId,
+                            Long modelId,
+                            Long staffId,
+                            Long renterId,
+                            Long stationId,
+                            String note,
+                            String conditionBefore,
+                            String conditionAfter,
+                            Integer battery,
+                            Double mileage,
+                            String photoPathsJson,
+                            BillResponse bill,
+                            String renterEmail,
+                            String renterName) implements BookingEvent {
+}
@@ -0,0 +1,72 @@
+package com.fptu.evstation.rental.evrentalsystem.filter;
+
+import com.fptu.evstation.rental.evrentalsystem.config.QueryCounter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+@Slf4j
+public class QueryBudgetFilter extends OncePerRequestFilter {
+
+    public static final String QUERY_COUNT_ATTRIBUTE = QueryBudgetFilter.class.getName() + ".QUERY_COUNT";
+
+    private final MeterRegistry meterRegistry;
+    private final int maxQueriesPerRequest;
+
+    public QueryBudgetFilter(MeterRegistry meterRegistry,
+                             @Value("${sql.query-budget.max-per-request:25}") int maxQueriesPerRequest) {
+        this.meterRegistry = meterRegistry;
+        this.maxQueriesPerRequest = maxQueriesPerRequest;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request,
+                                    HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        boolean owner = QueryCounter.start();
+        long before = QueryCounter.current();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            long queries = QueryCounter.current() - before;
+            if (owner) {
+                QueryCounter.stop();
+            }
+            record(request, queries);
+        }
+    }
+
+    private void record(HttpServletRequest request, long queries) {
+        request.setAttribute(QUERY_COUNT_ATTRIBUTE, queries);
+
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        String uri = pattern != null ? pattern.toString() : "UNKNOWN";
+        boolean overBudget = queries > maxQueriesPerRequest;
+
+        DistributionSummary.builder("evrental.http.sql.queries")
+                .tag("method", request.getMethod())
+                .tag("uri", uri)
+                .tag("over_budget", String.valueOf(overBudget))
+                .register(meterRegistry)
+                .record(queries);
+
+        if (overBudget) {
+            log.warn("Request {} {} thực thi {} câu SQL, vượt ngân sách {} (có thể có N+1).",
+                    request.getMethod(), request.getRequestURI(), queries, maxQueriesPerRequest);
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package com.fptu.evstation.rental.evrentalsystem.repository;
+
+import com.fptu.evstation.rental.evrentalsystem.entity.ArchiveRun;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface ArchiveRunRepository extends JpaRepository<ArchiveRun, Long> {
+    List<ArchiveRun> findTop10ByOrderByStartedAtDesc();
+}
@@ -0,0 +1,27 @@
+package com.fptu.evstation.rental.evrentalsystem.repository;
+
+import com.fptu.evstation.rental.evrentalsystem.entity.ArchivedBooking;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface ArchivedBookingRepository extends JpaRepository<ArchivedBooking, Long> {
+
+    /**
+     * Giờ bắt đầu của booking lưu trữ trong khoảng; lọc archiveMonth trước để chỉ quét các phân vùng liên quan.
+     */
+    @Query("SELECT b.startDate FROM ArchivedBooking b " +
+            "WHERE b.archiveMonth BETWEEN :fromMonth AND :toMonth " +
+            "AND b.startDate BETWEEN :from AND :to " +
+            "AND (:stationId IS NULL OR b.stationId = :stationId)")
+    List<LocalDateTime> findStartDates(@Param("fromMonth") int fromMonth,
+                                       @Param("toMonth") int toMonth,
+                                       @Param("from") LocalDateTime from,
+                                       @Param("to") LocalDateTime to,
+                                       @Param("stationId") Long stationId);
+}
@@ -0,0 +1,24 @@
+package com.fptu.evstation.rental.evrentalsystem.repository;
+
+import com.fptu.evstation.rental.evrentalsystem.entity.ArchivedTransactionDetail;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface ArchivedTransactionDetailRepository extends JpaRepository<ArchivedTransactionDetail, Long> {
+
+    @Query("SELECT d FROM ArchivedTransactionDetail d " +
+            "WHERE d.archiveMonth BETWEEN :fromMonth AND :toMonth " +
+            "AND d.bookingCreatedAt BETWEEN :from AND :to " +
+            "AND (:stationId IS NULL OR d.stationId = :stationId)")
+    List<ArchivedTransactionDetail> findInRange(@Param("fromMonth") int fromMonth,
+                                                @Param("toMonth") int toMonth,
+                                                @Param("from") LocalDateTime from,
+                                                @Param("to") LocalDateTime to,
+                                                @Param("stationId") Long stationId);
+}
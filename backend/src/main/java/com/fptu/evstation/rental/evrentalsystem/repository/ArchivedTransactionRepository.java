@@ -0,0 +1,24 @@
+package com.fptu.evstation.rental.evrentalsystem.repository;
+
+import com.fptu.evstation.rental.evrentalsystem.entity.ArchivedTransaction;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface ArchivedTransactionRepository extends JpaRepository<ArchivedTransaction, Long> {
+
+    @Query("SELECT t FROM ArchivedTransaction t " +
+            "WHERE t.archiveMonth BETWEEN :fromMonth AND :toMonth " +
+            "AND t.transactionDate BETWEEN :from AND :to " +
+            "AND (:stationId IS NULL OR t.stationId = :stationId)")
+    List<ArchivedTransaction> findInRange(@Param("fromMonth") int fromMonth,
+                                          @Param("toMonth") int toMonth,
+                                          @Param("from") LocalDateTime from,
+                                          @Param("to") LocalDateTime to,
+                                          @Param("stationId") Long stationId);
+}
@@ -0,0 +1,10 @@
+package com.fptu.evstation.rental.evrentalsystem.repository;
+
+import com.fptu.evstation.rental.evrentalsystem.entity.ArchivedVehicleHistory;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface ArchivedVehicleHistoryRepository extends JpaRepository<ArchivedVehicleHistory, Long>, JpaSpecificationExecutor<ArchivedVehicleHistory> {
+}
@@ -0,0 +1,25 @@
+package com.fptu.evstation.rental.evrentalsystem.repository;
+
+import com.fptu.evstation.rental.evrentalsystem.entity.BookingIdempotencyKey;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+@Repository
+public interface BookingIdempotencyKeyRepository extends JpaRepository<BookingIdempotencyKey, Long> {
+
+    @Query("SELECT k FROM BookingIdempotencyKey k JOIN FETCH k.booking " +
+            "WHERE k.user.userId = :userId AND k.idempotencyKey = :key")
+    Optional<BookingIdempotencyKey> findByUserIdAndKey(@Param("userId") Long userId, @Param("key") String key);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM BookingIdempotencyKey k WHERE k.createdAt < :cutoff")
+    int deleteCreatedBefore(@Param("cutoff") LocalDateTime cutoff);
+}
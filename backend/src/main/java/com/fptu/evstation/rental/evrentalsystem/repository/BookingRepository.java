@@ -1,14 +1,18 @@
 package com.fptu.evstation.rental.evrentalsystem.repository;
 
 import com.fptu.evstation.rental.evrentalsystem.entity.*;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface BookingRepository extends JpaRepository<Booking, Long> {
@@ -49,6 +53,61 @@ public interface BookingRepository extends JpaRepository<Booking, Long> {
             "LEFT JOIN FETCH v.model " +
             "WHERE b.station = :station")
     List<Booking> findAllByStationWithDetails(@Param("station") Station station, Sort sort);
-  
+
+    /**
+     * Tải booking cùng khách, xe, model và trạm trong một câu để trả xe không phát sinh thêm SELECT.
+     */
+    @Query("SELECT b FROM Booking b " +
+            "JOIN FETCH b.user u " +
+            "LEFT JOIN FETCH u.role " +
+            "JOIN FETCH b.station " +
+            "LEFT JOIN FETCH b.vehicle v " +
+            "LEFT JOIN FETCH v.model " +
+            "LEFT JOIN FETCH v.station " +
+            "WHERE b.bookingId = :bookingId")
+    Optional<Booking> findByIdForCheckout(@Param("bookingId") Long bookingId);
+
     List<Booking> findAll(Sort sort);
+
+    /**
+     * Đổi trạng thái chỉ khi booking còn ở trạng thái mong đợi; trả về số dòng được cập nhật (0 hoặc 1).
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE Booking b SET b.status = :to WHERE b.bookingId = :bookingId AND b.status = :from")
+    int compareAndSetStatus(@Param("bookingId") Long bookingId,
+                            @Param("from") BookingStatus from,
+                            @Param("to") BookingStatus to);
+
+    /**
+     * Giành lượt tạo link PayOS: chỉ một luồng tăng được số lần thử từ giá trị đã đọc.
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE Booking b SET b.paymentLinkAttempts = b.paymentLinkAttempts + 1, b.paymentLinkAttemptAt = :now " +
+            "WHERE b.bookingId = :bookingId AND b.paymentLinkStatus = :pending AND b.paymentLinkAttempts = :attempts")
+    int claimPaymentLinkAttempt(@Param("bookingId") Long bookingId,
+                                @Param("attempts") int attempts,
+                                @Param("now") LocalDateTime now,
+                                @Param("pending") PaymentLinkStatus pending);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE Booking b SET b.paymentLinkStatus = :result, b.paymentUrl = :paymentUrl " +
+            "WHERE b.bookingId = :bookingId AND b.paymentLinkStatus = :pending")
+    int completePaymentLink(@Param("bookingId") Long bookingId,
+                            @Param("result") PaymentLinkStatus result,
+                            @Param("paymentUrl") String paymentUrl,
+                            @Param("pending") PaymentLinkStatus pending);
+
+    @Query("SELECT b FROM Booking b WHERE b.paymentLinkStatus = :pending " +
+            "AND b.status IN :statuses AND b.paymentLinkAttemptAt < :before " +
+            "ORDER BY b.paymentLinkAttemptAt")
+    List<Booking> findPendingPaymentLinks(@Param("pending") PaymentLinkStatus pending,
+                                          @Param("statuses") List<BookingStatus> statuses,
+                                          @Param("before") LocalDateTime before,
+                                          Limit limit);
+
+    @Query("SELECT b.status FROM Booking b WHERE b.bookingId = :bookingId")
+    Optional<BookingStatus> findStatusById(@Param("bookingId") Long bookingId);
 }
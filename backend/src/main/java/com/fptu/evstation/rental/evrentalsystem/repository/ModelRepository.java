@@ -3,9 +3,21 @@ package com.fptu.evstation.rental.evrentalsystem.repository;
 import com.fptu.evstation.rental.evrentalsystem.entity.Model;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 @Repository
 public interface ModelRepository extends JpaRepository<Model, Long>,JpaSpecificationExecutor<Model> {
     boolean existsByModelName(String modelName);
+
+    /**
+     * Cộng dồn số lượt thuê ngay trên DB (không đọc model trước), dùng khi ModelPopularity flush.
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE Model m SET m.rentalCount = COALESCE(m.rentalCount, 0) + :delta WHERE m.modelId = :modelId")
+    int addRentalCount(@Param("modelId") Long modelId, @Param("delta") long delta);
 }
\ No newline at end of file
@@ -0,0 +1,65 @@
+package com.fptu.evstation.rental.evrentalsystem.repository;
+
+import com.fptu.evstation.rental.evrentalsystem.entity.PaymentIntent;
+import com.fptu.evstation.rental.evrentalsystem.entity.PaymentIntentStatus;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface PaymentIntentRepository extends JpaRepository<PaymentIntent, Long> {
+
+    Optional<PaymentIntent> findByOrderCode(Long orderCode);
+
+    /**
+     * Intent còn PENDING đủ lâu mà chưa được đối soát gần đây, cũ nhất trước.
+     */
+    @Query("SELECT i FROM PaymentIntent i WHERE i.status = :pending " +
+            "AND i.createdAt < :createdBefore AND i.createdAt > :horizon " +
+            "AND (i.lastCheckedAt IS NULL OR i.lastCheckedAt < :checkedBefore) " +
+            "ORDER BY i.createdAt")
+    List<PaymentIntent> findStale(@Param("pending") PaymentIntentStatus pending,
+                                  @Param("createdBefore") LocalDateTime createdBefore,
+                                  @Param("horizon") LocalDateTime horizon,
+                                  @Param("checkedBefore") LocalDateTime checkedBefore,
+                                  Limit limit);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE PaymentIntent i SET i.status = :paid, i.paidAt = :now WHERE i.id = :id AND i.status <> :paid")
+    int markPaid(@Param("id") Long id, @Param("paid") PaymentIntentStatus paid, @Param("now") LocalDateTime now);
+
+    /**
+     * Ghi nhận tiền đã nhận cho intent chưa thanh toán nhưng không xác nhận được booking.
+     */
+    @Transactional
+    @Modifying
+    @Query("UPDATE PaymentIntent i SET i.status = :refundRequired, i.paidAt = :now, i.reviewNote = :note " +
+            "WHERE i.id = :id AND i.status IN :unpaid")
+    int markRefundRequired(@Param("id") Long id,
+                           @Param("unpaid") Collection<PaymentIntentStatus> unpaid,
+                           @Param("refundRequired") PaymentIntentStatus refundRequired,
+                           @Param("now") LocalDateTime now,
+                           @Param("note") String note);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE PaymentIntent i SET i.status = :to WHERE i.id IN :ids AND i.status = :from")
+    int updateStatus(@Param("ids") Collection<Long> ids,
+                     @Param("from") PaymentIntentStatus from,
+                     @Param("to") PaymentIntentStatus to);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE PaymentIntent i SET i.lastCheckedAt = :now WHERE i.id IN :ids")
+    int markChecked(@Param("ids") Collection<Long> ids, @Param("now") LocalDateTime now);
+}
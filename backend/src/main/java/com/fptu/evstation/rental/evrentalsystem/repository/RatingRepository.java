@@ -2,7 +2,9 @@ package com.fptu.evstation.rental.evrentalsystem.repository;
 
 import com.fptu.evstation.rental.evrentalsystem.entity.Rating;
 import com.fptu.evstation.rental.evrentalsystem.entity.Station;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
@@ -11,7 +13,23 @@ import java.util.List;
 public interface RatingRepository extends JpaRepository<Rating, Long> {
     List<Rating> findByStation(Station station);
 
-    @Query("SELECT AVG(r.stars) FROM Rating r WHERE r.station = :station")
-    Double findAverageStarsByStation(@Param("station") Station station);
+    List<Rating> findByStation_StationId(Long stationId, Pageable pageable);
 
-}
\ No newline at end of file
+    /**
+     * Cộng một đánh giá vào tổng hợp của trạm trong một câu UPDATE (khóa dòng), không mất cập nhật khi ghi đồng thời.
+     * Vế phải của SET đọc giá trị cũ của dòng.
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("""
+        UPDATE Station s SET
+            s.ratingSum = s.ratingSum + :stars,
+            s.ratingCount = s.ratingCount + 1,
+            s.rating = CAST(s.ratingSum + :stars AS Double) / (s.ratingCount + 1),
+            s.oneStarCount = s.oneStarCount + CASE WHEN :stars = 1 THEN 1 ELSE 0 END,
+            s.twoStarCount = s.twoStarCount + CASE WHEN :stars = 2 THEN 1 ELSE 0 END,
+            s.threeStarCount = s.threeStarCount + CASE WHEN :stars = 3 THEN 1 ELSE 0 END,
+            s.fourStarCount = s.fourStarCount + CASE WHEN :stars = 4 THEN 1 ELSE 0 END,
+            s.fiveStarCount = s.fiveStarCount + CASE WHEN :stars = 5 THEN 1 ELSE 0 END
+        WHERE s.stationId = :stationId""")
+    int addToStationAggregate(@Param("stationId") Long stationId, @Param("stars") int stars);
+}
@@ -0,0 +1,20 @@
+package com.fptu.evstation.rental.evrentalsystem.repository;
+
+import com.fptu.evstation.rental.evrentalsystem.entity.TelemetryChunk;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface TelemetryChunkRepository extends JpaRepository<TelemetryChunk, Long> {
+
+    @Query("SELECT c FROM TelemetryChunk c WHERE c.vehicleId = :vehicleId " +
+            "AND c.startTime <= :to AND c.endTime >= :from ORDER BY c.startTime")
+    List<TelemetryChunk> findOverlapping(@Param("vehicleId") Long vehicleId,
+                                         @Param("from") LocalDateTime from,
+                                         @Param("to") LocalDateTime to);
+}
@@ -2,7 +2,11 @@ package com.fptu.evstation.rental.evrentalsystem.repository;
 
 import com.fptu.evstation.rental.evrentalsystem.entity.User;
 import com.fptu.evstation.rental.evrentalsystem.entity.VerificationStatus;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -18,4 +22,11 @@ public interface UserRepository extends JpaRepository<User,Long> {
     boolean existsByGplx(String gplx);
     List<User> findByVerificationStatus(VerificationStatus status);
     List<User> findByStation_StationId(Long stationId);
+
+    /**
+     * Khóa dòng user tới hết transaction (SELECT ... FOR UPDATE), dùng làm khóa theo khách giữa nhiều node.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT u FROM User u WHERE u.userId = :userId")
+    Optional<User> lockById(@Param("userId") Long userId);
 }
@@ -6,8 +6,11 @@ import com.fptu.evstation.rental.evrentalsystem.entity.VehicleActionType;
 import com.fptu.evstation.rental.evrentalsystem.entity.VehicleHistory;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 @Repository
@@ -19,4 +22,12 @@ public interface VehicleHistoryRepository extends JpaRepository<VehicleHistory,
     VehicleHistory findFirstByVehicleAndRenterAndActionTypeOrderByActionTimeDesc(Vehicle vehicle, User user, VehicleActionType vehicleActionType);
 
     VehicleHistory findFirstByVehicleOrderByActionTimeDesc(Vehicle vehicle);
+
+    /**
+     * Số thao tác theo model và theo ngày từ thời điểm since: [modelId, ngày (LocalDate), số lượng].
+     */
+    @Query("SELECT v.model.modelId, CAST(h.actionTime AS LocalDate), COUNT(h) FROM VehicleHistory h JOIN h.vehicle v " +
+            "WHERE h.actionType = :type AND h.actionTime >= :since " +
+            "GROUP BY v.model.modelId, CAST(h.actionTime AS LocalDate)")
+    List<Object[]> countActionsByModelAndDay(@Param("type") VehicleActionType type, @Param("since") LocalDateTime since);
 }
\ No newline at end of file
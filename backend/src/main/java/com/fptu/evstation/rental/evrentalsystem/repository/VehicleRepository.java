@@ -11,6 +11,7 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -21,6 +22,15 @@ public interface VehicleRepository extends JpaRepository<Vehicle, Long>, JpaSpec
 
     boolean existsByEngineNumber(String engineNumber);
 
+    @Query("SELECT v.licensePlate FROM Vehicle v WHERE v.licensePlate IN :licensePlates")
+    List<String> findExistingLicensePlates(@Param("licensePlates") Collection<String> licensePlates);
+
+    @Query("SELECT v.vinNumber FROM Vehicle v WHERE v.vinNumber IN :vinNumbers")
+    List<String> findExistingVinNumbers(@Param("vinNumbers") Collection<String> vinNumbers);
+
+    @Query("SELECT v.engineNumber FROM Vehicle v WHERE v.engineNumber IN :engineNumbers")
+    List<String> findExistingEngineNumbers(@Param("engineNumbers") Collection<String> engineNumbers);
+
     @Query("SELECT v FROM Vehicle v WHERE v.vinNumber = :vinNumber AND v.vehicleId != :vehicleId")
     List<Vehicle> findByVinNumberExcludingId(@Param("vinNumber") String vinNumber, @Param("vehicleId") Long vehicleId);
 
@@ -45,6 +55,9 @@ public interface VehicleRepository extends JpaRepository<Vehicle, Long>, JpaSpec
     @Query("SELECT v.model.modelId FROM Vehicle v WHERE v.station = :station GROUP BY v.model.modelId")
     List<Long> findDistinctModelIdsByStation(@Param("station") Station station);
 
+    @Query("SELECT v.vehicleId, v.station.stationId, v.model.modelId FROM Vehicle v")
+    List<Object[]> findVehicleStationModelIds();
+
     @Query("SELECT v FROM Vehicle v " +
             "LEFT JOIN FETCH v.station " +
             "LEFT JOIN FETCH v.model " +
@@ -10,7 +10,7 @@ import java.util.List;
 import java.util.Map;
 
 public interface BookingService {
-    Map<String, Object> createBooking(User renter, BookingRequest req);
+    Map<String, Object> createBooking(User renter, BookingRequest req, String idempotencyKey);
     Map<String, Object> recreatePaymentLink(User renter, Long bookingId);
     Booking getBookingById(Long bookingId);
     BookingDetailResponse getBookingDetailsById(Long bookingId);
@@ -2,6 +2,7 @@ package com.fptu.evstation.rental.evrentalsystem.service;
 
 import com.fptu.evstation.rental.evrentalsystem.dto.BillResponse;
 import com.fptu.evstation.rental.evrentalsystem.dto.InvoiceSummaryResponse;
+import com.fptu.evstation.rental.evrentalsystem.entity.Booking;
 import com.fptu.evstation.rental.evrentalsystem.entity.User;
 
 import java.util.List;
@@ -9,5 +10,16 @@ import java.util.List;
 public interface InvoiceService {
     String generateAndSendInvoice(BillResponse billDetails);
     String generateInvoicePdfOnly(BillResponse billDetails);
+
+    /**
+     * Gán đường dẫn file hóa đơn cho booking (không ghi DB, không tạo file).
+     */
+    String assignInvoicePath(Booking booking);
+
+    /**
+     * Tạo file PDF tại bill.invoicePdfPath rồi gửi email; không truy cập DB nên gọi được sau khi commit.
+     * Lỗi được ném ra để nơi gọi (bus sự kiện) thử lại; tạo lại PDF là an toàn.
+     */
+    void renderAndSendInvoice(BillResponse billDetails, String toEmail, String customerName);
     List<InvoiceSummaryResponse> getAllInvoicesByStation(User staff);
 }
@@ -3,6 +3,7 @@ package com.fptu.evstation.rental.evrentalsystem.service;
 import com.fptu.evstation.rental.evrentalsystem.dto.*;
 import com.fptu.evstation.rental.evrentalsystem.entity.Model;
 import com.fptu.evstation.rental.evrentalsystem.entity.VehicleType;
+import com.fptu.evstation.rental.evrentalsystem.service.util.ModelPopularity;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.util.List;
@@ -14,6 +15,7 @@ public interface ModelService {
     ModelResponse getModelDetailsById(Long id);
     Model getModelById(Long id);
     List<ModelResponse> getAllModels(String keyword);
-    List<ModelResponse> getModelsByStation(Long stationId, String keyword, VehicleType vehicleType);
+    List<ModelResponse> getModelsByStation(Long stationId, String keyword, VehicleType vehicleType, ModelPopularity.Window popularity);
     List<ModelWithAvailabilityResponse> getAvailableModelsByStation(ModelSearchRequest searchRequest);
+    ModelCatalogResponse getModelCatalog(ModelSearchRequest searchRequest);
 }
\ No newline at end of file
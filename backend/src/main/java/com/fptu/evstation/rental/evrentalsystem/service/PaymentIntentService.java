@@ -0,0 +1,10 @@
+package com.fptu.evstation.rental.evrentalsystem.service;
+
+import com.fptu.evstation.rental.evrentalsystem.entity.Booking;
+import com.fptu.evstation.rental.evrentalsystem.entity.PaymentIntent;
+import com.fptu.evstation.rental.evrentalsystem.entity.PaymentIntentType;
+
+public interface PaymentIntentService {
+    PaymentIntent register(Booking booking, PaymentIntentType type, long orderCode, long amount);
+    PaymentIntent confirmPaid(long orderCode);
+}
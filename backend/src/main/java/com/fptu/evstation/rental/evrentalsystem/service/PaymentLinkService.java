@@ -0,0 +1,16 @@
+package com.fptu.evstation.rental.evrentalsystem.service;
+
+import com.fptu.evstation.rental.evrentalsystem.entity.Booking;
+
+public interface PaymentLinkService {
+    /**
+     * Tạo link PayOS cho booking đang PENDING_LINK, gọi ngoài transaction (sau khi booking đã commit).
+     * Trả về URL thanh toán, hoặc null nếu lần thử này thất bại hay đang có luồng khác tạo.
+     */
+    String requestLink(Booking booking);
+
+    /**
+     * Thử lại các link còn PENDING_LINK.
+     */
+    void retryPendingLinks();
+}
@@ -10,6 +10,7 @@ import com.fptu.evstation.rental.evrentalsystem.entity.User;
 import java.util.Map;
 
 public interface PaymentService {
+    BillResponse previewFinalBill(User staff, Long bookingId, PenaltyCalculationRequest req);
     BillResponse calculateFinalBill(User staff, Long bookingId, PenaltyCalculationRequest req);
     Map<String, Object> confirmFinalPayment(Long bookingId, PaymentConfirmationRequest req, User staff);
     void confirmDeposit(User staff, Long bookingId);
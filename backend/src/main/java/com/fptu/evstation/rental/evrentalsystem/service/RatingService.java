@@ -1,5 +1,6 @@
 package com.fptu.evstation.rental.evrentalsystem.service;
 
+import com.fptu.evstation.rental.evrentalsystem.dto.RatingPageResponse;
 import com.fptu.evstation.rental.evrentalsystem.entity.Rating;
 import com.fptu.evstation.rental.evrentalsystem.entity.User;
 
@@ -8,6 +9,7 @@ import java.util.List;
 public interface RatingService {
     Rating saveRating(Long stationId, int stars, String comment, User user);
     List<Rating> getRatingsByStation(Long stationId);
+    RatingPageResponse getRatingPage(Long stationId, int page, int size);
     Double getAverageRating(Long stationId);
 
-}
\ No newline at end of file
+}
@@ -1,5 +1,6 @@
 package com.fptu.evstation.rental.evrentalsystem.service;
 
+import com.fptu.evstation.rental.evrentalsystem.dto.ArchiveStatsResponse;
 import com.fptu.evstation.rental.evrentalsystem.dto.ReportResponse;
 
 import java.time.LocalDate;
@@ -7,4 +8,5 @@ import java.time.LocalDate;
 public interface ReportService {
     ReportResponse getRevenueByStation(Long stationId, LocalDate from, LocalDate to);
     ReportResponse getTotalRevenue(LocalDate from, LocalDate to);
+    ArchiveStatsResponse getArchiveStats();
 }
@@ -0,0 +1,20 @@
+package com.fptu.evstation.rental.evrentalsystem.service;
+
+import com.fptu.evstation.rental.evrentalsystem.dto.TelemetryIngestResponse;
+import com.fptu.evstation.rental.evrentalsystem.dto.TelemetryPointResponse;
+import com.fptu.evstation.rental.evrentalsystem.dto.TelemetryReading;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface TelemetryService {
+    TelemetryIngestResponse ingest(List<TelemetryReading> readings);
+
+    List<TelemetryReading> decodeFrames(byte[] body);
+
+    TelemetryPointResponse getLatest(Long vehicleId);
+
+    List<TelemetryPointResponse> getSeries(Long vehicleId, LocalDateTime from, LocalDateTime to);
+
+    void flush();
+}
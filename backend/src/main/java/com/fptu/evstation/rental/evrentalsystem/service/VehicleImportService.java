@@ -0,0 +1,13 @@
+package com.fptu.evstation.rental.evrentalsystem.service;
+
+import com.fptu.evstation.rental.evrentalsystem.dto.CreateVehicleRequest;
+import com.fptu.evstation.rental.evrentalsystem.dto.VehicleImportResponse;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.util.List;
+
+public interface VehicleImportService {
+    VehicleImportResponse importVehicles(MultipartFile file);
+
+    VehicleImportResponse importVehicles(List<CreateVehicleRequest> requests);
+}
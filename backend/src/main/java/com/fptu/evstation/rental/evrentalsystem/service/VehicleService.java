@@ -7,7 +7,6 @@ import com.fptu.evstation.rental.evrentalsystem.dto.UpdateVehicleDetailsRequest;
 import com.fptu.evstation.rental.evrentalsystem.dto.VehicleResponse;
 import com.fptu.evstation.rental.evrentalsystem.entity.Vehicle;
 import com.fptu.evstation.rental.evrentalsystem.entity.VehicleActionType;
-import com.fptu.evstation.rental.evrentalsystem.entity.VehicleHistory;
 import com.fptu.evstation.rental.evrentalsystem.entity.VehicleType;
 
 import java.time.LocalDate;
@@ -36,8 +35,6 @@ public interface VehicleService {
 
     Vehicle reportMajorDamage(User staff, Long vehicleId, ReportDamageRequest request);
 
-    VehicleHistory recordVehicleAction(Long vehicleId, Long staffId, Long renterId, Long stationId, VehicleActionType type, String note, String conditionBefore, String conditionAfter, Integer battery, Double mileage, String photoPathsJson);
-
     List<VehicleHistoryResponse> getVehicleHistory(Long stationId, LocalDate from, LocalDate to, VehicleType vehicleType, String licensePlate);
 
     List<VehicleHistoryResponse> getHistoryByVehicle(Long vehicleId);
@@ -4,21 +4,27 @@ import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fptu.evstation.rental.evrentalsystem.dto.*;
 import com.fptu.evstation.rental.evrentalsystem.entity.*;
+import com.fptu.evstation.rental.evrentalsystem.event.BookingCreatedEvent;
+import com.fptu.evstation.rental.evrentalsystem.event.CheckedInEvent;
+import com.fptu.evstation.rental.evrentalsystem.event.DepositConfirmedEvent;
 import com.fptu.evstation.rental.evrentalsystem.repository.*;
 import com.fptu.evstation.rental.evrentalsystem.service.*;
-import jakarta.transaction.Transactional;
+import com.fptu.evstation.rental.evrentalsystem.service.util.ArchiveWindow;
+import com.fptu.evstation.rental.evrentalsystem.service.util.BookingStateMachine;
+import com.fptu.evstation.rental.evrentalsystem.service.util.ImageDerivativeService;
+import com.fptu.evstation.rental.evrentalsystem.service.util.RenterAdmissionLock;
+import io.micrometer.core.annotation.Timed;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Sort;
 
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.multipart.MultipartFile;
 import org.springframework.web.server.ResponseStatusException;
-import vn.payos.PayOS;
-import vn.payos.exception.PayOSException;
-import vn.payos.model.v2.paymentRequests.CreatePaymentLinkRequest;
-import vn.payos.model.v2.paymentRequests.CreatePaymentLinkResponse;
 
 import java.io.IOException;
 import java.nio.file.Files;
@@ -42,83 +48,107 @@ public class BookingServiceImpl implements BookingService {
     private final UserRepository userRepository;
     private final PaymentService paymentService;
     private final VehicleService vehicleService;
-    private final PayOS payOS;
     private final StationService stationService;
     private final ObjectMapper objectMapper;
     private final ContractRepository contractRepository;
     private final ContractService contractService;
     private final VehicleHistoryRepository historyRepository;
-    private final Random random = new Random();
-    private final StationService stationService;
+    private final ImageDerivativeService imageDerivativeService;
+    private final BookingStateMachine bookingStateMachine;
+    private final RenterAdmissionLock renterAdmissionLock;
+    private final BookingIdempotencyKeyRepository idempotencyKeyRepository;
+    private final PaymentLinkService paymentLinkService;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ArchivedBookingRepository archivedBookingRepository;
+    private final ArchiveWindow archiveWindow;
 
     private final Path handoverPhotoDir = Paths.get(System.getProperty("user.dir"), "uploads", "handover_photos");
 
     private static final long MIN_RENTAL_HOURS = 1;
+    private static final int MAX_IDEMPOTENCY_KEY_LENGTH = 100;
+    private static final String BOOKING_CREATED_MESSAGE = "Yêu cầu đặt xe thành công. Vui lòng thanh toán cọc 500.000 VNĐ.";
+    private static final String PAYMENT_LINK_PENDING_MESSAGE = "Đã ghi nhận đơn đặt xe nhưng cổng thanh toán chưa sẵn sàng. Hệ thống đang tự thử lại; bạn cũng có thể tạo lại link thanh toán sau ít phút.";
 
     @Override
-    @Transactional
     public Map<String, Object> recreatePaymentLink(User renter, Long bookingId) {
-        Booking booking = bookingRepository.findById(bookingId)
-                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Không tìm thấy booking ID: " + bookingId));
+        Booking booking = transactionTemplate.execute(status -> {
+            Booking current = bookingRepository.findById(bookingId)
+                    .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Không tìm thấy booking ID: " + bookingId));
 
-        if (!booking.getUser().getUserId().equals(renter.getUserId())) {
-            throw new ResponseStatusException(HttpStatus.FORBIDDEN, "Bạn không có quyền truy cập booking này.");
-        }
-        if (booking.getStatus() != BookingStatus.PENDING) {
-            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
-                    "Booking này đã được thanh toán hoặc không còn trong trạng thái chờ thanh toán. Trạng thái hiện tại: " + booking.getStatus());
-        }
+            if (!current.getUser().getUserId().equals(renter.getUserId())) {
+                throw new ResponseStatusException(HttpStatus.FORBIDDEN, "Bạn không có quyền truy cập booking này.");
+            }
+            if (current.getStatus() != BookingStatus.PENDING) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                        "Booking này đã được thanh toán hoặc không còn trong trạng thái chờ thanh toán. Trạng thái hiện tại: " + current.getStatus());
+            }
+
+            LocalDateTime createdAt = current.getCreatedAt();
+            if (createdAt != null && Duration.between(createdAt, LocalDateTime.now()).toMinutes() > 30) {
+                bookingStateMachine.transition(current, BookingStatus.CANCELLED);
+                return current;
+            }
+
+            requireNewPaymentLink(current);
+            return current;
+        });
 
-        LocalDateTime createdAt = booking.getCreatedAt();
-        if (createdAt != null && Duration.between(createdAt, LocalDateTime.now()).toMinutes() > 30) {
-            booking.setStatus(BookingStatus.CANCELLED);
-            bookingRepository.save(booking);
+        if (booking.getStatus() == BookingStatus.CANCELLED) {
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
                     "Booking này đã quá hạn thanh toán (30 phút) và đã bị hủy. Vui lòng tạo booking mới.");
         }
 
-        try {
-            final String description = "Thanh toán 500K giữ xe" + bookingId;
-            final String returnUrl = "http://localhost:3000/payment-success";
-            final String cancelUrl = "http://localhost:3000/payment-failed";
-            final long amount = 500000L;
-
-            String randomSuffix = String.format("%04d", random.nextInt(10000));
-            final long orderCode = Long.parseLong("1" + bookingId + randomSuffix);
-
-            CreatePaymentLinkRequest paymentData = CreatePaymentLinkRequest.builder()
-                    .orderCode(orderCode)
-                    .amount(amount)
-                    .description(description)
-                    .returnUrl(returnUrl)
-                    .cancelUrl(cancelUrl)
-                    .build();
-            CreatePaymentLinkResponse paymentResult = payOS.paymentRequests().create(paymentData);
-
-            log.info("Đã tạo lại link thanh toán cho Booking ID: {}, User: {}", bookingId, renter.getEmail());
-
-            return Map.of(
-                    "message", "Đã tạo lại link thanh toán. Vui lòng hoàn tất thanh toán cọc 500.000 VNĐ.",
-                    "bookingId", booking.getBookingId(),
-                    "paymentUrl", paymentResult.getCheckoutUrl()
-            );
-        } catch (PayOSException e) {
-            log.error("Lỗi khi tạo lại link thanh toán payOS cho Booking ID {}: {}", bookingId, e.getMessage());
-            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Không thể tạo link thanh toán: " + e.getMessage());
-        } catch (Exception e) {
-            log.error("Lỗi hệ thống khi tạo lại link thanh toán cho Booking ID {}: {}", bookingId, e.getMessage());
-            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Lỗi hệ thống không xác định.");
-        }
+        String paymentUrl = paymentLinkService.requestLink(booking);
+        log.info("Yêu cầu tạo lại link thanh toán cho Booking ID: {}, User: {}, thành công: {}", bookingId, renter.getEmail(), paymentUrl != null);
+
+        Map<String, Object> response = paymentLinkResponse(booking.getBookingId(), paymentUrl);
+        response.put("message", paymentUrl != null
+                ? "Đã tạo lại link thanh toán. Vui lòng hoàn tất thanh toán cọc 500.000 VNĐ."
+                : PAYMENT_LINK_PENDING_MESSAGE);
+        return response;
     }
 
     @Override
-    @Transactional
-    public Map<String, Object> createBooking(User renter, BookingRequest req) {
+    @Timed("evrental.booking.create")
+    public Map<String, Object> createBooking(User renter, BookingRequest req, String idempotencyKey) {
+        // Ghi booking trong một transaction ngắn; link PayOS được tạo sau khi commit nên không giữ connection DB
+        Admission admission = transactionTemplate.execute(status -> admitBooking(renter, req, idempotencyKey));
+        Booking booking = admission.booking();
+
+        String paymentUrl = admission.replay() ? booking.getPaymentUrl() : paymentLinkService.requestLink(booking);
+        Map<String, Object> response = paymentLinkResponse(booking.getBookingId(), paymentUrl);
+        response.put("message", paymentUrl != null ? BOOKING_CREATED_MESSAGE : PAYMENT_LINK_PENDING_MESSAGE);
+        return response;
+    }
+
+    private record Admission(Booking booking, boolean replay) {}
+
+    private Admission admitBooking(User renter, BookingRequest req, String idempotencyKey) {
 
         if (renter.getStatus() != AccountStatus.ACTIVE) {
             throw new ResponseStatusException(HttpStatus.FORBIDDEN, "Tài khoản của bạn đã bị khóa. Vui lòng liên hệ trạm.");
         }
 
+        if (idempotencyKey != null && (idempotencyKey.isBlank() || idempotencyKey.length() > MAX_IDEMPOTENCY_KEY_LENGTH)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Idempotency-Key không hợp lệ (1-" + MAX_IDEMPOTENCY_KEY_LENGTH + " ký tự).");
+        }
+
+        // Các yêu cầu đặt xe của cùng một khách được xử lý lần lượt tới khi transaction kết thúc
+        renterAdmissionLock.lockUntilTransactionEnds(renter.getUserId());
+
+        String fingerprint = req.getVehicleId() + "|" + req.getStartTime() + "|" + req.getEndTime();
+        if (idempotencyKey != null) {
+            Optional<BookingIdempotencyKey> previous = idempotencyKeyRepository.findByUserIdAndKey(renter.getUserId(), idempotencyKey);
+            if (previous.isPresent()) {
+                if (!previous.get().getRequestFingerprint().equals(fingerprint)) {
+                    throw new ResponseStatusException(HttpStatus.UNPROCESSABLE_ENTITY, "Idempotency-Key này đã được dùng cho một yêu cầu đặt xe khác.");
+                }
+                log.info("Yêu cầu đặt xe lặp lại với Idempotency-Key của khách {}, trả về booking {}", renter.getUserId(), previous.get().getBooking().getBookingId());
+                return new Admission(previous.get().getBooking(), true);
+            }
+        }
+
         if (!req.isAgreedToTerms()) {
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Bạn phải đồng ý với các điều khoản và điều kiện thuê xe.");
         }
@@ -196,40 +226,37 @@ public class BookingServiceImpl implements BookingService {
                 .endDate(req.getEndTime())
                 .finalFee(totalRentalCost)
                 .status(BookingStatus.PENDING)
+                .paymentLinkStatus(PaymentLinkStatus.PENDING_LINK)
+                .paymentLinkAttemptAt(LocalDateTime.now())
                 .build();
         booking = bookingRepository.save(booking);
+        eventPublisher.publishEvent(new BookingCreatedEvent(booking.getBookingId(), renter.getUserId(), vehicle.getVehicleId()));
 
-        try {
-            final String description = "Thanh toán 500K giữ xe";
-            final String returnUrl = "http://localhost:3000/payment-success";
-            final String cancelUrl = "http://localhost:3000/payment-failed";
-            final long amount = 2000L;
-            final long bookingId = booking.getBookingId();
-
-            String randomSuffix = String.format("%04d", random.nextInt(10000));
-            final long orderCode = Long.parseLong("1" + bookingId + randomSuffix);
-
-            CreatePaymentLinkRequest paymentData = CreatePaymentLinkRequest.builder()
-                    .orderCode(orderCode)
-                    .amount(amount)
-                    .description(description)
-                    .returnUrl(returnUrl)
-                    .cancelUrl(cancelUrl)
-                    .build();
-            CreatePaymentLinkResponse paymentResult = payOS.paymentRequests().create(paymentData);
-
-            return Map.of(
-                    "message", "Yêu cầu đặt xe thành công. Vui lòng thanh toán cọc 500.000 VNĐ.",
-                    "bookingId", booking.getBookingId(),
-                    "paymentUrl", paymentResult.getCheckoutUrl()
-            );
-        } catch (PayOSException e) {
-            log.error("Lỗi khi tạo link thanh toán payOS: {}", e.getMessage());
-            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Không thể tạo link thanh toán: " + e.getMessage());
-        } catch (Exception e_general) {
-            log.error("Lỗi hệ thống: {}", e_general.getMessage());
-            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Lỗi hệ thống không xác định.");
+        if (idempotencyKey != null) {
+            idempotencyKeyRepository.save(BookingIdempotencyKey.builder()
+                    .user(renter)
+                    .idempotencyKey(idempotencyKey)
+                    .requestFingerprint(fingerprint)
+                    .booking(booking)
+                    .build());
         }
+        return new Admission(booking, false);
+    }
+
+    // Yêu cầu tạo link mới cho khoản cọc hiện tại; link được tạo sau khi transaction commit
+    private void requireNewPaymentLink(Booking booking) {
+        booking.setPaymentLinkStatus(PaymentLinkStatus.PENDING_LINK);
+        booking.setPaymentUrl(null);
+        booking.setPaymentLinkAttempts(0);
+        booking.setPaymentLinkAttemptAt(LocalDateTime.now());
+    }
+
+    private Map<String, Object> paymentLinkResponse(Long bookingId, String paymentUrl) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("bookingId", bookingId);
+        response.put("paymentUrl", paymentUrl);
+        response.put("paymentLinkStatus", paymentUrl != null ? PaymentLinkStatus.READY : PaymentLinkStatus.PENDING_LINK);
+        return response;
     }
 
     @Override
@@ -296,11 +323,13 @@ public class BookingServiceImpl implements BookingService {
                 .rentalDeposit(booking.getRentalDeposit())
                 .reservationDepositPaid(booking.isReservationDepositPaid())
                 .finalFee(booking.getFinalFee())
-                .checkInPhotoPaths(checkInPhotos)
-                .checkOutPhotoPaths(checkOutPhotos)
+                .checkInPhotoPaths(imageDerivativeService.largeUrls(checkInPhotos))
+                .checkOutPhotoPaths(imageDerivativeService.largeUrls(checkOutPhotos))
                 .invoicePdfPath(booking.getInvoicePdfPath())
                 .contractPdfPath(contractPath)
                 .refundInfo(booking.getRefundNote())
+                .paymentLinkStatus(booking.getPaymentLinkStatus())
+                .paymentUrl(booking.getPaymentUrl())
                 .build();
     }
 
@@ -410,56 +439,34 @@ public class BookingServiceImpl implements BookingService {
 
     @Override
     public Map<String, Object> initiateCheckIn(Long bookingId, User staff) {
-        Booking booking = getBookingById(bookingId);
-        if (staff.getStatus() != AccountStatus.ACTIVE) {
-            throw new ResponseStatusException(HttpStatus.FORBIDDEN, "Tài khoản nhân viên của bạn đã bị khóa.");
-        }
-        if (staff.getStation() == null) {
-            throw new ResponseStatusException(HttpStatus.FORBIDDEN, "Nhân viên chưa được gán cho trạm nào.");
-        }
-        if (!booking.getStation().getStationId().equals(staff.getStation().getStationId())) {
-            throw new ResponseStatusException(HttpStatus.FORBIDDEN, "Bạn không có quyền thao tác trên đơn hàng của trạm khác.");
-        }
-        if (booking.getStatus() != BookingStatus.CONFIRMED) {
-            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Booking này không ở trạng thái sẵn sàng để check-in.");
-        }
-
-        Vehicle vehicle = booking.getVehicle();
-        double rentalDepositAmount = vehicle.getDepositAmount();
-
-        booking.setRentalDeposit(rentalDepositAmount);
-        bookingRepository.save(booking);
-
-        try {
-            final String description = "Cọc thuê B-" + booking.getBookingId();
-            final String returnUrl = "http://localhost:3000/payment-success";
-            final String cancelUrl = "http://localhost:3000/payment-failed";
-            final long amount = (long) rentalDepositAmount;
-
-            String randomSuffix = String.format("%04d", random.nextInt(10000));
-            final long orderCode = Long.parseLong("2" + booking.getBookingId() + randomSuffix);
-
-            CreatePaymentLinkRequest paymentData = CreatePaymentLinkRequest.builder()
-                    .orderCode(orderCode)
-                    .amount(amount)
-                    .description(description)
-                    .returnUrl(returnUrl)
-                    .cancelUrl(cancelUrl)
-                    .build();
-
-            CreatePaymentLinkResponse paymentResult = payOS.paymentRequests().create(paymentData);
-
-            Map<String, Object> response = new HashMap<>();
-            response.put("message", "Đã tạo link thanh toán cọc thuê xe. Vui lòng đưa khách thanh toán.");
-            response.put("rentalDepositAmount", rentalDepositAmount);
-            response.put("paymentUrl", paymentResult.getCheckoutUrl());
-
-            return response;
+        Booking booking = transactionTemplate.execute(status -> {
+            Booking current = getBookingById(bookingId);
+            if (staff.getStatus() != AccountStatus.ACTIVE) {
+                throw new ResponseStatusException(HttpStatus.FORBIDDEN, "Tài khoản nhân viên của bạn đã bị khóa.");
+            }
+            if (staff.getStation() == null) {
+                throw new ResponseStatusException(HttpStatus.FORBIDDEN, "Nhân viên chưa được gán cho trạm nào.");
+            }
+            if (!current.getStation().getStationId().equals(staff.getStation().getStationId())) {
+                throw new ResponseStatusException(HttpStatus.FORBIDDEN, "Bạn không có quyền thao tác trên đơn hàng của trạm khác.");
+            }
+            if (current.getStatus() != BookingStatus.CONFIRMED) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Booking này không ở trạng thái sẵn sàng để check-in.");
+            }
 
-        } catch (PayOSException e) {
-            log.error("Lỗi khi tạo link thanh toán cọc thuê xe (PayOS): {}", e.getMessage());
-            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Không thể tạo link thanh toán cọc thuê xe: " + e.getMessage());
-        }
+            double rentalDepositAmount = current.getVehicle().getDepositAmount();
+            current.setRentalDeposit(rentalDepositAmount);
+            requireNewPaymentLink(current);
+            return current;
+        });
+
+        String paymentUrl = paymentLinkService.requestLink(booking);
+        Map<String, Object> response = paymentLinkResponse(booking.getBookingId(), paymentUrl);
+        response.put("message", paymentUrl != null
+                ? "Đã tạo link thanh toán cọc thuê xe. Vui lòng đưa khách thanh toán."
+                : "Chưa tạo được link thanh toán cọc thuê xe, hệ thống đang thử lại. Có thể thu cọc thủ công khi giao xe.");
+        response.put("rentalDepositAmount", booking.getRentalDeposit());
+        return response;
     }
 
     @Override
@@ -493,8 +500,7 @@ public class BookingServiceImpl implements BookingService {
         userRepository.save(renter);
 
         if (booking.getStatus() == BookingStatus.PENDING) {
-            booking.setStatus(BookingStatus.CANCELLED);
-            bookingRepository.save(booking);
+            bookingStateMachine.transitionOrThrow(booking, BookingStatus.CANCELLED);
             return "Đã hủy đơn (chưa thanh toán) thành công. " + penaltyMessage;
         }
 
@@ -517,7 +523,7 @@ public class BookingServiceImpl implements BookingService {
                     throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Vui lòng cung cấp đầy đủ thông tin tài khoản ngân hàng để nhận hoàn cọc.");
                 }
 
-                booking.setStatus(BookingStatus.CANCELLED_AWAIT_REFUND);
+                bookingStateMachine.transitionOrThrow(booking, BookingStatus.CANCELLED_AWAIT_REFUND);
                 booking.setRefund(500000.0);
                 String refundNote = String.format("Ngân hàng: %s, STK: %s, Chủ TK: %s",
                         req.getBankName(), req.getAccountNumber(), req.getAccountName());
@@ -527,8 +533,7 @@ public class BookingServiceImpl implements BookingService {
                 return "Đã hủy đơn thành công. " + penaltyMessage + " Yêu cầu hoàn cọc 500k về tài khoản (" + req.getAccountNumber() + ") đã được ghi nhận và đang chờ xử lý.";
 
             } else {
-                booking.setStatus(BookingStatus.CANCELLED);
-                bookingRepository.save(booking);
+                bookingStateMachine.transitionOrThrow(booking, BookingStatus.CANCELLED);
 
                 return "Bạn đã hủy đơn quá 12 giờ kể từ khi đặt, bạn sẽ bị mất cọc. " + penaltyMessage;
             }
@@ -589,8 +594,7 @@ public class BookingServiceImpl implements BookingService {
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Booking này không ở trạng thái chờ hoàn tiền.");
         }
 
-        booking.setStatus(BookingStatus.REFUNDED);
-        bookingRepository.save(booking);
+        bookingStateMachine.transitionOrThrow(booking, BookingStatus.REFUNDED);
 
         paymentService.createTransaction(
                 booking,
@@ -623,8 +627,7 @@ public class BookingServiceImpl implements BookingService {
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Không thể hủy booking ở trạng thái " + booking.getStatus());
         }
 
-        booking.setStatus(BookingStatus.CANCELLED);
-        bookingRepository.save(booking);
+        bookingStateMachine.transitionOrThrow(booking, BookingStatus.CANCELLED);
 
         // Set vehicle back to AVAILABLE when booking is cancelled
         Vehicle vehicle = booking.getVehicle();
@@ -635,6 +638,7 @@ public class BookingServiceImpl implements BookingService {
     }
 
     @Override
+    @Timed("evrental.booking.checkin")
     public Contract processCheckIn(Long bookingId, CheckInRequest req, User staff) {
         if (staff.getStatus() != AccountStatus.ACTIVE) {
             throw new ResponseStatusException(HttpStatus.FORBIDDEN, "Tài khoản nhân viên của bạn đã bị khóa.");
@@ -676,26 +680,29 @@ public class BookingServiceImpl implements BookingService {
                             "Vui lòng kiểm tra lại và nhập số km lớn hơn hoặc bằng số km hiện tại trên hệ thống.");
         }
 
-        vehicle.setBatteryLevel(req.getBattery());
-        vehicle.setCurrentMileage(req.getMileage());
-        vehicle.setStatus(VehicleStatus.RENTED);
-        vehicleService.saveVehicle(vehicle);
-
         if (req.getCheckInPhotos() == null || req.getCheckInPhotos().isEmpty() || req.getCheckInPhotos().get(0).isEmpty()) {
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Ảnh check-in (lúc giao xe) là bắt buộc.");
         }
 
+        if (!booking.isRentalDepositPaid() && req.getDepositPaymentMethod() == PaymentMethod.GATEWAY) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Thanh toán qua cổng PayOS chưa được xác nhận. Vui lòng đợi hoặc chọn phương thức thanh toán thủ công (Tiền mặt/Chuyển khoản).");
+        }
+
+        // Giành quyền giao xe trước khi thay đổi xe, thu cọc hay lưu ảnh
+        bookingStateMachine.transitionOrThrow(booking, BookingStatus.RENTING);
+
+        vehicle.setBatteryLevel(req.getBattery());
+        vehicle.setCurrentMileage(req.getMileage());
+        vehicle.setStatus(VehicleStatus.RENTED);
+        vehicleService.saveVehicle(vehicle);
 
         double rentalDepositAmount = booking.getVehicle().getDepositAmount();
         if (!booking.isRentalDepositPaid()) {
             log.info("Booking {} chưa trả cọc thuê xe qua PayOS. Xử lý thanh toán thủ công...", bookingId);
 
-            if (req.getDepositPaymentMethod() == PaymentMethod.GATEWAY) {
-                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Thanh toán qua cổng PayOS chưa được xác nhận. Vui lòng đợi hoặc chọn phương thức thanh toán thủ công (Tiền mặt/Chuyển khoản).");
-            }
-
             paymentService.createTransaction(booking, rentalDepositAmount, req.getDepositPaymentMethod(), staff, "Thu cọc thuê xe 2% (thủ công)");
             booking.setRentalDepositPaid(true);
+            eventPublisher.publishEvent(new DepositConfirmedEvent(bookingId, PaymentIntentType.RENTAL_DEPOSIT, false));
 
         } else {
             log.info("Booking {} đã trả cọc 2% qua PayOS. Bỏ qua tạo giao dịch 2%...", bookingId);
@@ -718,27 +725,21 @@ public class BookingServiceImpl implements BookingService {
 
         booking.setRentalDeposit(rentalDepositAmount);
         booking.setStartDate(LocalDateTime.now());
-        booking.setStatus(BookingStatus.RENTING);
         bookingRepository.save(booking);
 
+        // Hợp đồng được trả về cho nhân viên nên vẫn tạo ngay; lịch sử giao xe ghi sau khi commit
         Contract contract = contractService.generateAndSaveContract(booking, staff);
-        try {
-            vehicleService.recordVehicleAction(
-                    booking.getVehicle().getVehicleId(),
-                    staff.getUserId(),
-                    booking.getUser().getUserId(),
-                    staff.getStation().getStationId(),
-                    VehicleActionType.DELIVERY,
-                    "Nhân viên " + staff.getFullName() + " đã giao xe cho khách " + booking.getUser().getFullName(),
-                    req.getConditionBefore(),
-                    null,
-                    req.getBattery(),
-                    req.getMileage(),
-                    photoPathsJson
-            );
-        } catch (Exception e) {
-            log.warn("Không thể ghi lịch sử giao xe cho booking ID {}: {}", bookingId, e.getMessage());
-        }
+        eventPublisher.publishEvent(new CheckedInEvent(
+                bookingId,
+                vehicle.getVehicleId(),
+                staff.getUserId(),
+                booking.getUser().getUserId(),
+                staff.getStation().getStationId(),
+                "Nhân viên " + staff.getFullName() + " đã giao xe cho khách " + booking.getUser().getFullName(),
+                req.getConditionBefore(),
+                req.getBattery(),
+                req.getMileage(),
+                photoPathsJson));
         log.info("Check-in thành công cho Booking ID: {}", bookingId);
         return contract;
     }
@@ -761,13 +762,16 @@ public class BookingServiceImpl implements BookingService {
             Path filePath = bookingDir.resolve(fileName);
             file.transferTo(filePath);
 
-            return "/uploads/handover_photos/booking_" + bookingId + "/" + fileName;
+            String relativePath = "/uploads/handover_photos/booking_" + bookingId + "/" + fileName;
+            imageDerivativeService.generateAsync(relativePath);
+            return relativePath;
 
         } catch (IOException e) {
             throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Lỗi hệ thống khi lưu ảnh.");
         }
     }
 
+    @Transactional(readOnly = true)
     public Map<String, Object> getPeakHourStatistics(Long stationId, LocalDate fromDate, LocalDate toDate) {
         LocalDateTime from = (fromDate != null) ? fromDate.atStartOfDay() : LocalDate.now().minusDays(7).atStartOfDay();
         LocalDateTime to = (toDate != null) ? toDate.atTime(23, 59, 59) : LocalDate.now().atTime(23, 59, 59);
@@ -781,9 +785,15 @@ public class BookingServiceImpl implements BookingService {
             bookings = bookingRepository.findAllByStartDateBetween(from, to);
         }
 
+        List<LocalDateTime> startTimes = new ArrayList<>(bookings.stream().map(Booking::getStartDate).toList());
+        if (archiveWindow.reaches(from)) {
+            startTimes.addAll(archivedBookingRepository.findStartDates(
+                    ArchiveWindow.monthOf(from), ArchiveWindow.monthOf(to), from, to, stationId));
+        }
+
         Map<Integer, Long> countByHour = new HashMap<>();
-        for (Booking b : bookings) {
-            int hour = b.getStartDate().getHour();
+        for (LocalDateTime startTime : startTimes) {
+            int hour = startTime.getHour();
             countByHour.put(hour, countByHour.getOrDefault(hour, 0L) + 1);
         }
 
@@ -31,7 +31,6 @@ public class InvoiceServiceImpl implements InvoiceService {
 
     private final BookingRepository bookingRepository;
     private final PdfGenerationService pdfGenerationService;
-    private final Path invoiceBaseDir = Paths.get(System.getProperty("user.dir"), "uploads", "invoices");
     private final EmailService emailService;
 
     @Override
@@ -39,18 +38,11 @@ public class InvoiceServiceImpl implements InvoiceService {
     public String generateInvoicePdfOnly(BillResponse billDetails) {
         try {
             Booking booking = bookingRepository.findById(billDetails.getBookingId()).orElseThrow();
-            String renterNameNormalized = Normalizer.normalize(booking.getUser().getFullName(), Normalizer.Form.NFD)
-                    .replaceAll("\\p{InCombiningDiacriticalMarks}+", "")
-                    .replaceAll("[^a-zA-Z0-9]", "_");
-            String fileName = String.format("HoaDon_%s_Booking_%d.pdf", renterNameNormalized, booking.getBookingId());
-            Path userDir = invoiceBaseDir.resolve("user_" + booking.getUser().getUserId());
-            Files.createDirectories(userDir);
-            Path filePath = userDir.resolve(fileName);
+            String relativePath = assignInvoicePath(booking);
+            Path filePath = Paths.get(System.getProperty("user.dir"), relativePath.substring(1));
+            Files.createDirectories(filePath.getParent());
 
             pdfGenerationService.generateInvoicePdf(filePath, billDetails);
-            String relativePath = "/uploads/invoices/user_" + booking.getUser().getUserId() + "/" + fileName;
-
-            booking.setInvoicePdfPath(relativePath);
             bookingRepository.save(booking);
 
             log.info("Đã tạo file hóa đơn PDF cho Booking ID: {} tại: {}", billDetails.getBookingId(), relativePath);
@@ -61,6 +53,33 @@ public class InvoiceServiceImpl implements InvoiceService {
         }
     }
 
+    @Override
+    public String assignInvoicePath(Booking booking) {
+        String renterNameNormalized = Normalizer.normalize(booking.getUser().getFullName(), Normalizer.Form.NFD)
+                .replaceAll("\\p{InCombiningDiacriticalMarks}+", "")
+                .replaceAll("[^a-zA-Z0-9]", "_");
+        String fileName = String.format("HoaDon_%s_Booking_%d.pdf", renterNameNormalized, booking.getBookingId());
+        String relativePath = "/uploads/invoices/user_" + booking.getUser().getUserId() + "/" + fileName;
+        booking.setInvoicePdfPath(relativePath);
+        return relativePath;
+    }
+
+    @Override
+    public void renderAndSendInvoice(BillResponse billDetails, String toEmail, String customerName) {
+        try {
+            Path filePath = Paths.get(System.getProperty("user.dir"), billDetails.getInvoicePdfPath().substring(1));
+            Files.createDirectories(filePath.getParent());
+            pdfGenerationService.generateInvoicePdf(filePath, billDetails);
+            log.info("Đã tạo file hóa đơn PDF cho Booking ID: {} tại: {}", billDetails.getBookingId(), billDetails.getInvoicePdfPath());
+
+            emailService.sendInvoiceWithAttachment(toEmail, customerName, "HD" + billDetails.getBookingId(), filePath.toFile());
+            log.info("Đã gửi hóa đơn tự động cho khách hàng: {}", toEmail);
+        } catch (Exception e) {
+            log.error("Lỗi khi tạo hoặc gửi hóa đơn cho Booking ID: {}", billDetails.getBookingId(), e);
+            throw new IllegalStateException("Không thể tạo hoặc gửi hóa đơn cho Booking ID " + billDetails.getBookingId(), e);
+        }
+    }
+
     @Override
     @Transactional
     public String generateAndSendInvoice(BillResponse billDetails) {
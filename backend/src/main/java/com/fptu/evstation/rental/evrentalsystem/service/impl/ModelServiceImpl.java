@@ -7,12 +7,14 @@ import com.fptu.evstation.rental.evrentalsystem.repository.ModelRepository;
 import com.fptu.evstation.rental.evrentalsystem.repository.VehicleRepository;
 import com.fptu.evstation.rental.evrentalsystem.service.ModelService;
 import com.fptu.evstation.rental.evrentalsystem.service.StationService;
-import jakarta.persistence.criteria.Expression;
+import com.fptu.evstation.rental.evrentalsystem.service.util.ImageDerivativeService;
+import com.fptu.evstation.rental.evrentalsystem.service.util.ModelCatalog;
+import com.fptu.evstation.rental.evrentalsystem.service.util.ModelPopularity;
+import com.fptu.evstation.rental.evrentalsystem.service.util.ModelSearchIndex;
 import jakarta.persistence.criteria.Predicate;
 import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
@@ -25,7 +27,10 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.stream.Collectors;
 
 
@@ -37,6 +42,10 @@ public class ModelServiceImpl implements ModelService {
     private final VehicleRepository vehicleRepository;
     private final BookingRepository bookingRepository;
     private final StationService stationService;
+    private final ImageDerivativeService imageDerivativeService;
+    private final ModelSearchIndex modelSearchIndex;
+    private final ModelCatalog modelCatalog;
+    private final ModelPopularity modelPopularity;
     private final Path modelBaseDir = Paths.get(System.getProperty("user.dir"), "uploads", "models_img");
 
     @Override
@@ -67,7 +76,10 @@ public class ModelServiceImpl implements ModelService {
                 .imagePaths(imagePaths)
                 .build();
 
-        return modelRepository.save(model);
+        Model saved = modelRepository.save(model);
+        modelSearchIndex.index(saved);
+        modelCatalog.indexModel(saved);
+        return saved;
     }
 
     @Override
@@ -90,7 +102,10 @@ public class ModelServiceImpl implements ModelService {
         model.setUpdatedAt(LocalDateTime.now());
         model.setImagePaths(newPaths);
 
-        return modelRepository.save(model);
+        Model saved = modelRepository.save(model);
+        modelSearchIndex.index(saved);
+        modelCatalog.indexModel(saved);
+        return saved;
     }
 
     @Override
@@ -107,6 +122,8 @@ public class ModelServiceImpl implements ModelService {
                     "Không thể xóa model '" + model.getModelName() + "' vì vẫn có " + count + " xe đang sử dụng.");
         }
         modelRepository.delete(model);
+        modelSearchIndex.remove(id);
+        modelCatalog.removeModel(id);
     }
 
     @Override
@@ -116,7 +133,7 @@ public class ModelServiceImpl implements ModelService {
                         "Không tìm thấy model với ID: " + id));
 
         List<String> paths = model.getImagePaths() != null
-                ? List.of(model.getImagePaths().split(","))
+                ? imageDerivativeService.largeUrls(List.of(model.getImagePaths().split(",")))
                 : new ArrayList<>();
 
         return ModelResponse.builder()
@@ -144,19 +161,14 @@ public class ModelServiceImpl implements ModelService {
     @Override
     public List<ModelResponse> getAllModels(String keyword) {
         List<Model> models;
-        String trimmedKeyword = (keyword != null) ? keyword.trim().toLowerCase() : null;
 
-        if (trimmedKeyword == null || trimmedKeyword.isBlank()) {
+        if (keyword == null || keyword.isBlank()) {
             models = modelRepository.findAll();
-        }else {
-            Specification<Model> spec = (root, query, cb) -> {
-                String keywordNoSpaces = trimmedKeyword.replace(" ", "");
-                Expression<String> modelNameLower = cb.lower(root.get("modelName"));
-                Expression<String> modelNameNoSpaces = cb.function("REPLACE", String.class, modelNameLower, cb.literal(" "), cb.literal(""));
-
-                return cb.like(modelNameNoSpaces, "%" + keywordNoSpaces + "%");
-            };
-            models = modelRepository.findAll(spec);
+        } else {
+            List<Long> matchedIds = modelSearchIndex.search(keyword);
+            Map<Long, Model> byId = modelRepository.findAllById(matchedIds).stream()
+                    .collect(Collectors.toMap(Model::getModelId, m -> m));
+            models = matchedIds.stream().map(byId::get).filter(Objects::nonNull).toList();
         }
 
         return models.stream()
@@ -165,14 +177,19 @@ public class ModelServiceImpl implements ModelService {
     }
 
     @Override
-    public List<ModelResponse> getModelsByStation(Long stationId, String keyword, VehicleType vehicleType) {
+    public List<ModelResponse> getModelsByStation(Long stationId, String keyword, VehicleType vehicleType,
+                                                  ModelPopularity.Window popularity) {
         Station station = stationService.getStationById(stationId);
 
         if (!StationStatus.ACTIVE.equals(station.getStatus())) {
             return new ArrayList<>();
         }
 
-        List<Long> modelIds = vehicleRepository.findDistinctModelIdsByStation(station);
+        List<Long> modelIds = new ArrayList<>(vehicleRepository.findDistinctModelIdsByStation(station));
+
+        if (keyword != null && !keyword.isBlank()) {
+            modelIds.retainAll(modelSearchIndex.search(keyword));
+        }
 
         if (modelIds.isEmpty()) {
             return new ArrayList<>();
@@ -183,28 +200,24 @@ public class ModelServiceImpl implements ModelService {
 
             predicates.add(root.get("modelId").in(modelIds));
 
-            if (keyword != null && !keyword.isBlank()) {
-                String lowerKeyword = keyword.trim().toLowerCase();
-                predicates.add(cb.like(cb.lower(root.get("modelName")), "%" + lowerKeyword + "%"));
-            }
-
             if (vehicleType != null) {
                 predicates.add(cb.equal(root.get("vehicleType"), vehicleType));
             }
 
             return cb.and(predicates.toArray(new Predicate[0]));
         };
-        Sort sort = Sort.by(Sort.Direction.DESC, "rentalCount");
-        List<Model> models = modelRepository.findAll(spec, sort);
+        ModelPopularity.Window window = popularity != null ? popularity : ModelPopularity.Window.ALL_TIME;
+        List<Model> models = modelRepository.findAll(spec);
 
         return models.stream()
+                .sorted(Comparator.comparingLong((Model model) -> modelPopularity.rentals(model, window)).reversed())
                 .map(this::convertToResponse)
                 .collect(Collectors.toList());
     }
 
     private ModelResponse convertToResponse(Model model) {
         List<String> paths = (model.getImagePaths() != null && !model.getImagePaths().isBlank())
-                ? List.of(model.getImagePaths().split(","))
+                ? imageDerivativeService.thumbnailUrls(List.of(model.getImagePaths().split(",")))
                 : new ArrayList<>();
 
         return ModelResponse.builder()
@@ -220,7 +233,7 @@ public class ModelServiceImpl implements ModelService {
                 .imagePaths(paths)
                 .createdAt(model.getCreatedAt())
                 .updatedAt(model.getUpdatedAt())
-                .rentalCount(model.getRentalCount())
+                .rentalCount((int) modelPopularity.rentals(model, ModelPopularity.Window.ALL_TIME))
                 .build();
     }
 
@@ -258,6 +271,7 @@ public class ModelServiceImpl implements ModelService {
                 file.transferTo(filePathAbsolute);
                 String relativePath = "/uploads/models_img/" + modelDirName + "/" + uniqueFileName;
                 newRelativePaths.add(relativePath);
+                imageDerivativeService.generateAsync(relativePath);
 
             } catch (IOException e) {
                 System.err.println("Lỗi khi lưu file: " + uniqueFileName + ". Error: " + e.getMessage());
@@ -282,36 +296,49 @@ public class ModelServiceImpl implements ModelService {
             return new ArrayList<>();
         }
 
-        List<Long> modelIds = vehicleRepository.findDistinctModelIdsByStation(station);
-
-        if (modelIds.isEmpty()) {
-            return new ArrayList<>();
-        }
-
-        Specification<Model> spec = (root, query, cb) -> {
-            List<Predicate> predicates = new ArrayList<>();
+        ModelCatalog.Result result = modelCatalog.search(station.getStationId(), toCatalogFilter(searchRequest));
+        return toAvailabilityResponses(result.modelIds(), station, searchRequest);
+    }
 
-            predicates.add(root.get("modelId").in(modelIds));
+    @Override
+    public ModelCatalogResponse getModelCatalog(ModelSearchRequest searchRequest) {
+        Station station = stationService.getStationById(searchRequest.getStationId());
 
-            if (searchRequest.getVehicleType() != null) {
-                predicates.add(cb.equal(root.get("vehicleType"), searchRequest.getVehicleType()));
-            }
+        if (!StationStatus.ACTIVE.equals(station.getStatus())) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Không tìm thấy trạm với ID: " + searchRequest.getStationId());
+        }
 
-            if (searchRequest.getMinPrice() != null) {
-                predicates.add(cb.greaterThanOrEqualTo(root.get("pricePerHour"), searchRequest.getMinPrice()));
-            }
-            if (searchRequest.getMaxPrice() != null) {
-                predicates.add(cb.lessThanOrEqualTo(root.get("pricePerHour"), searchRequest.getMaxPrice()));
-            }
+        ModelCatalog.Result result = modelCatalog.search(station.getStationId(), toCatalogFilter(searchRequest));
+
+        List<ModelCatalogResponse.PriceBucketCount> priceBucketCounts = result.priceBucketCounts().entrySet().stream()
+                .map(e -> ModelCatalogResponse.PriceBucketCount.builder()
+                        .bucket(e.getKey().name())
+                        .minPrice(e.getKey().getMin())
+                        .maxPrice(e.getKey().getMax() == Double.MAX_VALUE ? null : e.getKey().getMax())
+                        .count(e.getValue())
+                        .build())
+                .toList();
+
+        return ModelCatalogResponse.builder()
+                .models(toAvailabilityResponses(result.modelIds(), station, searchRequest))
+                .vehicleTypeCounts(result.vehicleTypeCounts())
+                .seatCountCounts(result.seatCountCounts())
+                .priceBucketCounts(priceBucketCounts)
+                .build();
+    }
 
-            if (searchRequest.getSeatCount() != null) {
-                predicates.add(cb.equal(root.get("seatCount"), searchRequest.getSeatCount()));
-            }
+    private ModelCatalog.Filter toCatalogFilter(ModelSearchRequest searchRequest) {
+        return new ModelCatalog.Filter(searchRequest.getVehicleType(), searchRequest.getSeatCount(),
+                searchRequest.getMinPrice(), searchRequest.getMaxPrice());
+    }
 
-            return cb.and(predicates.toArray(new Predicate[0]));
-        };
+    private List<ModelWithAvailabilityResponse> toAvailabilityResponses(List<Long> modelIds, Station station,
+                                                                        ModelSearchRequest searchRequest) {
+        if (modelIds.isEmpty()) {
+            return new ArrayList<>();
+        }
 
-        List<Model> models = modelRepository.findAll(spec);
+        List<Model> models = modelRepository.findAllById(modelIds);
 
         List<ModelWithAvailabilityResponse> responses = models.stream()
                 .map(model -> convertToAvailabilityResponse(model, station, searchRequest.getStartTime(), searchRequest.getEndTime()))
@@ -351,7 +378,7 @@ public class ModelServiceImpl implements ModelService {
     private ModelWithAvailabilityResponse convertToAvailabilityResponse(Model model, Station station,
                                                                         LocalDateTime startTime, LocalDateTime endTime) {
         List<String> paths = (model.getImagePaths() != null && !model.getImagePaths().isBlank())
-                ? List.of(model.getImagePaths().split(","))
+                ? imageDerivativeService.thumbnailUrls(List.of(model.getImagePaths().split(",")))
                 : new ArrayList<>();
 
         List<VehicleStatus> excludedStatuses = List.of(VehicleStatus.UNAVAILABLE);
@@ -387,7 +414,7 @@ public class ModelServiceImpl implements ModelService {
                 .updatedAt(model.getUpdatedAt())
                 .availableVehicleCount(availableCount)
                 .totalVehicleCount(totalCount)
-                .rentalCount(model.getRentalCount())
+                .rentalCount((int) modelPopularity.rentals(model, ModelPopularity.Window.ALL_TIME))
                 .build();
     }
 }
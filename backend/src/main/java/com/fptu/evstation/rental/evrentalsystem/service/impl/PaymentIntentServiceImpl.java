@@ -0,0 +1,92 @@
+package com.fptu.evstation.rental.evrentalsystem.service.impl;
+
+import com.fptu.evstation.rental.evrentalsystem.entity.Booking;
+import com.fptu.evstation.rental.evrentalsystem.entity.PaymentIntent;
+import com.fptu.evstation.rental.evrentalsystem.entity.PaymentIntentStatus;
+import com.fptu.evstation.rental.evrentalsystem.entity.PaymentIntentType;
+import com.fptu.evstation.rental.evrentalsystem.repository.PaymentIntentRepository;
+import com.fptu.evstation.rental.evrentalsystem.service.PaymentIntentService;
+import com.fptu.evstation.rental.evrentalsystem.service.PaymentService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class PaymentIntentServiceImpl implements PaymentIntentService {
+    private static final List<PaymentIntentStatus> UNPAID =
+            List.of(PaymentIntentStatus.PENDING, PaymentIntentStatus.CANCELLED, PaymentIntentStatus.EXPIRED);
+
+    private final PaymentIntentRepository paymentIntentRepository;
+    private final PaymentService paymentService;
+    private final TransactionTemplate transactionTemplate;
+
+    @Override
+    public PaymentIntent register(Booking booking, PaymentIntentType type, long orderCode, long amount) {
+        return paymentIntentRepository.save(PaymentIntent.builder()
+                .orderCode(orderCode)
+                .booking(booking)
+                .type(type)
+                .amount(amount)
+                .status(PaymentIntentStatus.PENDING)
+                .build());
+    }
+
+    /**
+     * Ghi nhận orderCode đã thanh toán (từ webhook hoặc job đối soát) và xác nhận cọc tương ứng trong cùng transaction.
+     * Nếu booking không còn xác nhận được (đã hủy, đã chuyển trạng thái...) thì transaction đó rollback,
+     * còn khoản tiền vẫn được ghi nhận: intent chuyển sang REFUND_REQUIRED để hoàn tiền/xử lý thủ công, không thử lại.
+     * Trả về null nếu orderCode không có trong bảng intent (link tạo trước khi có bảng này).
+     */
+    @Override
+    public PaymentIntent confirmPaid(long orderCode) {
+        PaymentIntent intent = paymentIntentRepository.findByOrderCode(orderCode).orElse(null);
+        if (intent == null) {
+            return null;
+        }
+        Long bookingId = intent.getBooking().getBookingId();
+        if (intent.getStatus() == PaymentIntentStatus.REFUND_REQUIRED) {
+            log.info("OrderCode {} đã được ghi nhận chờ hoàn tiền trước đó. Bỏ qua.", orderCode);
+            return intent;
+        }
+        try {
+            boolean applied = Boolean.TRUE.equals(transactionTemplate.execute(status -> {
+                if (paymentIntentRepository.markPaid(intent.getId(), PaymentIntentStatus.PAID, LocalDateTime.now()) == 0) {
+                    return false;
+                }
+                if (intent.getType() == PaymentIntentType.RESERVATION_DEPOSIT) {
+                    paymentService.autoConfirmDeposit(bookingId);
+                } else {
+                    paymentService.autoConfirmRentalDeposit(bookingId);
+                }
+                return true;
+            }));
+            if (applied) {
+                intent.setStatus(PaymentIntentStatus.PAID);
+                log.info("Đã xác nhận thanh toán orderCode {} ({}) cho booking {}.", orderCode, intent.getType(), bookingId);
+            } else {
+                log.info("OrderCode {} đã được ghi nhận thanh toán trước đó. Bỏ qua.", orderCode);
+            }
+        } catch (ResponseStatusException e) {
+            // Booking từ chối xác nhận (lỗi nghiệp vụ). Lỗi hạ tầng vẫn ném ra để webhook/đối soát thử lại.
+            String note = "Không xác nhận được cọc cho booking " + bookingId + ": " + e.getReason();
+            if (paymentIntentRepository.markRefundRequired(intent.getId(), UNPAID,
+                    PaymentIntentStatus.REFUND_REQUIRED, LocalDateTime.now(), truncate(note)) > 0) {
+                intent.setStatus(PaymentIntentStatus.REFUND_REQUIRED);
+                intent.setReviewNote(note);
+                log.error("OrderCode {} đã thanh toán nhưng không áp dụng được, cần hoàn tiền/xử lý thủ công. {}", orderCode, note);
+            }
+        }
+        return intent;
+    }
+
+    private static String truncate(String note) {
+        return note.length() <= 500 ? note : note.substring(0, 500);
+    }
+}
@@ -0,0 +1,118 @@
+package com.fptu.evstation.rental.evrentalsystem.service.impl;
+
+import com.fptu.evstation.rental.evrentalsystem.entity.Booking;
+import com.fptu.evstation.rental.evrentalsystem.entity.BookingStatus;
+import com.fptu.evstation.rental.evrentalsystem.entity.PaymentIntentType;
+import com.fptu.evstation.rental.evrentalsystem.entity.PaymentLinkStatus;
+import com.fptu.evstation.rental.evrentalsystem.repository.BookingRepository;
+import com.fptu.evstation.rental.evrentalsystem.service.PaymentIntentService;
+import com.fptu.evstation.rental.evrentalsystem.service.PaymentLinkService;
+import com.fptu.evstation.rental.evrentalsystem.service.util.PayOSGateway;
+import io.micrometer.core.annotation.Timed;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import vn.payos.model.v2.paymentRequests.CreatePaymentLinkRequest;
+import vn.payos.model.v2.paymentRequests.CreatePaymentLinkResponse;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Random;
+
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class PaymentLinkServiceImpl implements PaymentLinkService {
+    private final BookingRepository bookingRepository;
+    private final PayOSGateway payOSGateway;
+    private final PaymentIntentService paymentIntentService;
+    private final Random random = new Random();
+
+    private static final int MAX_ATTEMPTS = 5;
+    private static final int RETRY_BATCH_SIZE = 50;
+    private static final String RETURN_URL = "http://localhost:3000/payment-success";
+    private static final String CANCEL_URL = "http://localhost:3000/payment-failed";
+
+    @Value("${payment.reservation-link-amount:500000}")
+    private long reservationAmount;
+
+    @Value("${payment.link-retry-delay-seconds:30}")
+    private long retryDelaySeconds;
+
+    @Override
+    public String requestLink(Booking booking) {
+        if (booking.getPaymentLinkStatus() != PaymentLinkStatus.PENDING_LINK) {
+            return booking.getPaymentUrl();
+        }
+        if (!payOSGateway.isCallPermitted()) {
+            // Mạch đang mở: không tính là một lần thử, job thử lại sẽ gọi khi PayOS hồi phục
+            log.warn("Cổng PayOS tạm ngắt, hoãn tạo link thanh toán cho booking {}.", booking.getBookingId());
+            return null;
+        }
+        int attempts = booking.getPaymentLinkAttempts();
+        if (bookingRepository.claimPaymentLinkAttempt(booking.getBookingId(), attempts, LocalDateTime.now(), PaymentLinkStatus.PENDING_LINK) == 0) {
+            log.info("Link thanh toán của booking {} đang được tạo bởi luồng khác hoặc đã xong.", booking.getBookingId());
+            return null;
+        }
+
+        try {
+            CreatePaymentLinkRequest request = buildRequest(booking);
+            // Lưu intent trước khi gọi PayOS: link đã tạo (kể cả khi lời gọi quá hạn) luôn đối soát được
+            paymentIntentService.register(booking,
+                    booking.getStatus() == BookingStatus.CONFIRMED ? PaymentIntentType.RENTAL_DEPOSIT : PaymentIntentType.RESERVATION_DEPOSIT,
+                    request.getOrderCode(), request.getAmount());
+            CreatePaymentLinkResponse result = payOSGateway.createPaymentLink(request);
+            bookingRepository.completePaymentLink(booking.getBookingId(), PaymentLinkStatus.READY, result.getCheckoutUrl(), PaymentLinkStatus.PENDING_LINK);
+            log.info("Đã tạo link thanh toán cho booking {} (lần thử {}).", booking.getBookingId(), attempts + 1);
+            return result.getCheckoutUrl();
+        } catch (RuntimeException e) {
+            if (attempts + 1 >= MAX_ATTEMPTS) {
+                bookingRepository.completePaymentLink(booking.getBookingId(), PaymentLinkStatus.FAILED, null, PaymentLinkStatus.PENDING_LINK);
+                log.error("Không thể tạo link thanh toán cho booking {} sau {} lần thử: {}", booking.getBookingId(), MAX_ATTEMPTS, e.getMessage());
+            } else {
+                log.warn("Tạo link thanh toán cho booking {} thất bại (lần thử {}), sẽ thử lại: {}", booking.getBookingId(), attempts + 1, e.getMessage());
+            }
+            return null;
+        }
+    }
+
+    @Override
+    @Scheduled(fixedDelayString = "${payment.link-retry-interval-ms:30000}")
+    @Timed(value = "evrental.scheduled.job", extraTags = {"job", "payment_link_retry"})
+    public void retryPendingLinks() {
+        if (!payOSGateway.isCallPermitted()) {
+            log.info("Cổng PayOS tạm ngắt, bỏ qua lượt thử lại tạo link thanh toán.");
+            return;
+        }
+        List<Booking> pending = bookingRepository.findPendingPaymentLinks(
+                PaymentLinkStatus.PENDING_LINK,
+                List.of(BookingStatus.PENDING, BookingStatus.CONFIRMED),
+                LocalDateTime.now().minusSeconds(retryDelaySeconds),
+                Limit.of(RETRY_BATCH_SIZE));
+        if (pending.isEmpty()) {
+            return;
+        }
+        log.info("Thử lại tạo link thanh toán cho {} booking.", pending.size());
+        pending.forEach(this::requestLink);
+    }
+
+    // Booking PENDING cần link cọc giữ chỗ, booking CONFIRMED cần link cọc thuê xe
+    private CreatePaymentLinkRequest buildRequest(Booking booking) {
+        boolean rentalDeposit = booking.getStatus() == BookingStatus.CONFIRMED;
+        long amount = rentalDeposit ? booking.getRentalDeposit().longValue() : reservationAmount;
+        String description = rentalDeposit ? "Cọc thuê B-" + booking.getBookingId() : "Thanh toán 500K giữ xe";
+        String randomSuffix = String.format("%04d", random.nextInt(10000));
+        long orderCode = Long.parseLong((rentalDeposit ? "2" : "1") + booking.getBookingId() + randomSuffix);
+
+        return CreatePaymentLinkRequest.builder()
+                .orderCode(orderCode)
+                .amount(amount)
+                .description(description)
+                .returnUrl(RETURN_URL)
+                .cancelUrl(CANCEL_URL)
+                .build();
+    }
+}
@@ -3,16 +3,25 @@ package com.fptu.evstation.rental.evrentalsystem.service.impl;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fptu.evstation.rental.evrentalsystem.dto.*;
 import com.fptu.evstation.rental.evrentalsystem.entity.*;
+import com.fptu.evstation.rental.evrentalsystem.event.DepositConfirmedEvent;
+import com.fptu.evstation.rental.evrentalsystem.event.ReturnedEvent;
 import com.fptu.evstation.rental.evrentalsystem.repository.*;
 import com.fptu.evstation.rental.evrentalsystem.service.InvoiceService;
 import com.fptu.evstation.rental.evrentalsystem.service.PaymentService;
 import com.fptu.evstation.rental.evrentalsystem.service.VehicleService;
+import com.fptu.evstation.rental.evrentalsystem.service.util.BillDraftCache;
+import com.fptu.evstation.rental.evrentalsystem.service.util.BookingStateMachine;
+import com.fptu.evstation.rental.evrentalsystem.service.util.ImageDerivativeService;
 import com.fptu.evstation.rental.evrentalsystem.service.util.QrCodeService;
-import jakarta.transaction.Transactional;
+import io.micrometer.core.annotation.Timed;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.springframework.web.multipart.MultipartFile;
 import org.springframework.web.server.ResponseStatusException;
 
@@ -27,6 +36,8 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
@@ -41,14 +52,37 @@ public class PaymentServiceImpl implements PaymentService {
     private final VehicleService vehicleService;
     private final QrCodeService qrCodeService;
     private final InvoiceService invoiceService;
-    private final ModelRepository modelRepository;
+    private final ImageDerivativeService imageDerivativeService;
+    private final BillDraftCache billDraftCache;
+    private final BookingStateMachine bookingStateMachine;
+    private final ApplicationEventPublisher eventPublisher;
 
-    private final Path handoverPhotoDir = Paths.get(System.getProperty("user.dir"), "uploads", "handover_photos");
-    private final Path adjustmentPhotoDir = Paths.get(System.getProperty("user.dir"), "uploads", "adjustments");
     private final ObjectMapper objectMapper;
 
-    @Transactional
+    @Override
+    @Transactional(readOnly = true)
+    @Timed("evrental.payment.bill_preview")
+    public BillResponse previewFinalBill(User staff, Long bookingId, PenaltyCalculationRequest req) {
+        return buildDraft(staff, bookingId, req).bill();
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    @Timed("evrental.payment.final_bill")
     public BillResponse calculateFinalBill(User staff, Long bookingId, PenaltyCalculationRequest req) {
+        // Bill trong draft được dùng lại khi xác nhận thanh toán nên QR chỉ gắn vào bản sao trả về
+        BillResponse bill = buildDraft(staff, bookingId, req).bill().toBuilder().build();
+        if (bill.getPaymentDue() > 0) {
+            bill.setQrCodeUrl(qrCodeService.generateQrCodeBase64(bill.getPaymentDue(), bookingId));
+        }
+        return bill;
+    }
+
+    /**
+     * Tính hóa đơn hoàn toàn trong bộ nhớ và lưu thành draft theo booking; không ghi DB, không ghi file.
+     * Chi tiết phí, ảnh phụ phí và file PDF chỉ được lưu khi xác nhận thanh toán (confirmFinalPayment).
+     */
+    private BillDraftCache.Draft buildDraft(User staff, Long bookingId, PenaltyCalculationRequest req) {
         if (staff.getStation() == null) {
             throw new ResponseStatusException(HttpStatus.FORBIDDEN, "Nhân viên chưa được gán cho trạm nào.");
         }
@@ -60,26 +94,6 @@ public class PaymentServiceImpl implements PaymentService {
         Booking booking = bookingRepository.findById(bookingId)
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Không tìm thấy Booking"));
 
-        List<TransactionDetail> oldDetails = transactionDetailRepository.findByBooking(booking);
-        for (TransactionDetail oldDetail : oldDetails) {
-            if (oldDetail.getPenaltyFee() != null &&
-                    oldDetail.getPenaltyFee().getIsAdjustment() != null &&
-                    oldDetail.getPenaltyFee().getIsAdjustment() &&
-                    oldDetail.getPhotoPaths() != null) {
-
-                try {
-                    List<String> oldPhotoPaths = objectMapper.readValue(oldDetail.getPhotoPaths(), new com.fasterxml.jackson.core.type.TypeReference<List<String>>() {});
-                    for (String oldPath : oldPhotoPaths) {
-                        if (oldPath == null || oldPath.isBlank()) continue;
-                        Path oldPhotoFile = Paths.get(System.getProperty("user.dir"), oldPath.substring(1));
-                        Files.deleteIfExists(oldPhotoFile);
-                    }
-                } catch (Exception e) {
-                    log.warn("Không thể xóa ảnh adjustment cũ cho booking {}: {}", bookingId, e.getMessage());
-                }
-            }
-        }
-
         if (!booking.getStation().getStationId().equals(staff.getStation().getStationId())) {
             throw new ResponseStatusException(HttpStatus.FORBIDDEN, "Bạn không có quyền thao tác trên đơn hàng của trạm khác.");
         }
@@ -105,34 +119,37 @@ public class PaymentServiceImpl implements PaymentService {
         }
         double finalBaseFee = Math.round(totalBaseFee + lateFee);
 
-        transactionDetailRepository.deleteByBooking(booking);
         double totalPositivePenalty = 0.0;
         double totalDiscount = 0.0;
 
+        List<BillDraftCache.FeeLine> feeLines = new ArrayList<>();
         List<BillResponse.FeeItem> feeItemsForBill = new ArrayList<>();
         if (req.getSelectedFees() != null && !req.getSelectedFees().isEmpty()) {
+            Map<Long, PenaltyFee> feeTypes = penaltyFeeRepository.findAllById(req.getSelectedFees().stream()
+                            .map(PenaltyCalculationRequest.SelectedFee::getFeeId)
+                            .toList())
+                    .stream()
+                    .collect(Collectors.toMap(PenaltyFee::getFeeId, Function.identity()));
             for (PenaltyCalculationRequest.SelectedFee selected : req.getSelectedFees()) {
-                PenaltyFee feeType = penaltyFeeRepository.findById(selected.getFeeId())
-                        .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Không tìm thấy loại phí với ID: " + selected.getFeeId()));
+                PenaltyFee feeType = feeTypes.get(selected.getFeeId());
+                if (feeType == null) {
+                    throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Không tìm thấy loại phí với ID: " + selected.getFeeId());
+                }
                 double appliedAmount = feeType.getFixedAmount() * selected.getQuantity();
                 totalPositivePenalty += appliedAmount;
 
-                TransactionDetail detail = TransactionDetail.builder()
-                        .booking(booking)
-                        .penaltyFee(feeType)
-                        .appliedAmount(appliedAmount)
-                        .staffNote(feeType.getFeeName() + " (Số lượng: " + selected.getQuantity() + ")")
-                        .build();
-                transactionDetailRepository.save(detail);
+                String staffNote = feeType.getFeeName() + " (Số lượng: " + selected.getQuantity() + ")";
+                feeLines.add(new BillDraftCache.FeeLine(feeType.getFeeId(), appliedAmount, staffNote));
 
                 feeItemsForBill.add(BillResponse.FeeItem.builder()
-                        .feeName(detail.getStaffNote())
+                        .feeName(staffNote)
                         .amount(appliedAmount)
                         .staffNote(staff.getFullName() + " (Staff) đã áp dụng.")
                         .build());
             }
         }
 
+        BillDraftCache.CustomFeeLine customFeeLine = null;
         if (req.getCustomFee() != null && req.getCustomFee().getAmount() != null && req.getCustomFee().getAmount() != 0) {
             PenaltyCalculationRequest.CustomFee custom = req.getCustomFee();
 
@@ -142,35 +159,19 @@ public class PaymentServiceImpl implements PaymentService {
                 totalPositivePenalty += custom.getAmount();
             }
 
-            List<String> photoPaths = new ArrayList<>();
-            if (req.getCustomFee().getPhotoFiles() != null && !req.getCustomFee().getPhotoFiles().isEmpty()) {
-                for (int i = 0; i < req.getCustomFee().getPhotoFiles().size(); i++) {
-                    MultipartFile photo = req.getCustomFee().getPhotoFiles().get(i);
-                    String savedPath = saveAdjustmentPhoto(photo, bookingId, i + 1);
-                    photoPaths.add(savedPath);
+            // Giữ nội dung ảnh trong draft; file tạm của multipart bị xóa khi request kết thúc
+            List<BillDraftCache.Photo> photos = new ArrayList<>();
+            if (custom.getPhotoFiles() != null) {
+                for (MultipartFile photo : custom.getPhotoFiles()) {
+                    if (photo == null || photo.isEmpty()) continue;
+                    try {
+                        photos.add(new BillDraftCache.Photo(photo.getOriginalFilename(), photo.getBytes()));
+                    } catch (IOException e) {
+                        throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Lỗi khi xử lý ảnh phạt.");
+                    }
                 }
             }
-
-            String photoPathsJson = null;
-            try {
-                photoPathsJson = objectMapper.writeValueAsString(photoPaths);
-            } catch (Exception e) {
-                throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Lỗi khi xử lý ảnh phạt.");
-            }
-
-
-            PenaltyFee adjustmentFeeType = penaltyFeeRepository.findByIsAdjustmentTrue()
-                    .orElseThrow(() -> new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Thiếu cấu hình phí tùy chỉnh trong DB."));
-
-            TransactionDetail detail = TransactionDetail.builder()
-                    .booking(booking)
-                    .penaltyFee(adjustmentFeeType)
-                    .appliedAmount(custom.getAmount())
-                    .staffNote(custom.getFeeName())
-                    .adjustmentNote(custom.getDescription())
-                    .photoPaths(photoPathsJson)
-                    .build();
-            transactionDetailRepository.save(detail);
+            customFeeLine = new BillDraftCache.CustomFeeLine(custom.getFeeName(), custom.getDescription(), custom.getAmount(), photos);
 
             feeItemsForBill.add(BillResponse.FeeItem.builder()
                     .feeName(custom.getFeeName())
@@ -190,14 +191,9 @@ public class PaymentServiceImpl implements PaymentService {
 
         double netSettlement = totalDebit - totalCredit;
 
-        booking.setFinalFee(totalDebit);
-        bookingRepository.save(booking);
-
         double paymentDue = Math.max(0, netSettlement);
         double refundToCustomer = Math.max(0, -netSettlement);
 
-        String qrCodeBase64 = (paymentDue > 0) ? qrCodeService.generateQrCodeBase64(paymentDue, bookingId) : null;
-
         BillResponse billResponse = BillResponse.builder()
                 .bookingId(bookingId)
                 .userName(booking.getUser().getFullName())
@@ -210,22 +206,84 @@ public class PaymentServiceImpl implements PaymentService {
                 .paymentDue(paymentDue)
                 .refundToCustomer(refundToCustomer)
                 .feeItems(feeItemsForBill)
-                .qrCodeUrl(qrCodeBase64)
                 .build();
 
-        try {
-            String invoicePath = invoiceService.generateInvoicePdfOnly(billResponse);
-            if (invoicePath != null) {
-                billResponse.setInvoicePdfPath(invoicePath);
-                log.info("Đã tạo file hóa đơn PDF cho Booking ID: {} tại: {}", bookingId, invoicePath);
-            } else {
-                log.warn("Không thể tạo file hóa đơn PDF cho Booking ID: {}", bookingId);
+        return billDraftCache.put(bookingId, billResponse, totalDebit, feeLines, customFeeLine);
+    }
+
+    /**
+     * Lưu draft đã được nhân viên xác nhận: thay chi tiết phí cũ của booking và phí cuối; ảnh phụ phí ghi sau khi commit.
+     */
+    private void persistDraft(Booking booking, BillDraftCache.Draft draft) {
+        List<TransactionDetail> oldDetails = transactionDetailRepository.findByBooking(booking);
+        for (TransactionDetail oldDetail : oldDetails) {
+            if (oldDetail.getPenaltyFee() != null &&
+                    oldDetail.getPenaltyFee().getIsAdjustment() != null &&
+                    oldDetail.getPenaltyFee().getIsAdjustment() &&
+                    oldDetail.getPhotoPaths() != null) {
+
+                String oldPhotoPathsJson = oldDetail.getPhotoPaths();
+                afterCommit(() -> {
+                    try {
+                        List<String> oldPhotoPaths = objectMapper.readValue(oldPhotoPathsJson, new com.fasterxml.jackson.core.type.TypeReference<List<String>>() {});
+                        for (String oldPath : oldPhotoPaths) {
+                            if (oldPath == null || oldPath.isBlank()) continue;
+                            Path oldPhotoFile = Paths.get(System.getProperty("user.dir"), oldPath.substring(1));
+                            Files.deleteIfExists(oldPhotoFile);
+                        }
+                    } catch (Exception e) {
+                        log.warn("Không thể xóa ảnh adjustment cũ cho booking {}: {}", booking.getBookingId(), e.getMessage());
+                    }
+                });
             }
-        } catch (Exception e) {
-            log.error("Lỗi khi tạo file hóa đơn PDF trong calculateFinalBill cho Booking ID: {}", bookingId, e);
         }
+        if (!oldDetails.isEmpty()) {
+            transactionDetailRepository.deleteByBooking(booking);
+        }
+
+        List<TransactionDetail> newDetails = new ArrayList<>();
+        for (BillDraftCache.FeeLine fee : draft.fees()) {
+            newDetails.add(TransactionDetail.builder()
+                    .booking(booking)
+                    .penaltyFee(penaltyFeeRepository.getReferenceById(fee.feeId()))
+                    .appliedAmount(fee.amount())
+                    .staffNote(fee.staffNote())
+                    .build());
+        }
+
+        BillDraftCache.CustomFeeLine custom = draft.customFee();
+        if (custom != null) {
+            List<String> photoPaths = new ArrayList<>();
+            for (int i = 0; i < custom.photos().size(); i++) {
+                BillDraftCache.Photo photo = custom.photos().get(i);
+                String photoPath = adjustmentPhotoPath(photo, booking.getBookingId(), i + 1);
+                photoPaths.add(photoPath);
+                afterCommit(() -> writeUpload(photo.content(), photoPath));
+            }
+
+            String photoPathsJson;
+            try {
+                photoPathsJson = objectMapper.writeValueAsString(photoPaths);
+            } catch (Exception e) {
+                throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Lỗi khi xử lý ảnh phạt.");
+            }
+
+            PenaltyFee adjustmentFeeType = penaltyFeeRepository.findByIsAdjustmentTrue()
+                    .orElseThrow(() -> new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Thiếu cấu hình phí tùy chỉnh trong DB."));
 
-        return billResponse;
+            newDetails.add(TransactionDetail.builder()
+                    .booking(booking)
+                    .penaltyFee(adjustmentFeeType)
+                    .appliedAmount(custom.amount())
+                    .staffNote(custom.feeName())
+                    .adjustmentNote(custom.description())
+                    .photoPaths(photoPathsJson)
+                    .build());
+        }
+
+        transactionDetailRepository.saveAll(newDetails);
+
+        booking.setFinalFee(draft.totalDebit());
     }
 
     @Override
@@ -256,6 +314,7 @@ public class PaymentServiceImpl implements PaymentService {
                 staff,
                 "Nhân viên xác nhận cọc giữ chỗ 500k"
         );
+        eventPublisher.publishEvent(new DepositConfirmedEvent(bookingId, PaymentIntentType.RESERVATION_DEPOSIT, false));
     }
 
     @Override
@@ -279,6 +338,7 @@ public class PaymentServiceImpl implements PaymentService {
                     null,
                     "Hệ thống tự động xác nhận cọc 500k (payOS)"
             );
+            eventPublisher.publishEvent(new DepositConfirmedEvent(bookingId, PaymentIntentType.RESERVATION_DEPOSIT, true));
         }
     }
 
@@ -313,12 +373,18 @@ public class PaymentServiceImpl implements PaymentService {
                 null,
                 "Hệ thống tự động xác nhận cọc thuê xe (payOS)"
         );
+        eventPublisher.publishEvent(new DepositConfirmedEvent(bookingId, PaymentIntentType.RENTAL_DEPOSIT, true));
 
         log.info("Hệ thống tự động xác nhận cọc thuê xe (PayOS) thành công cho Booking ID: {}", bookingId);
     }
 
+    /**
+     * Trả xe và quyết toán trong một transaction: booking, xe, model, trạm được tải bằng một câu,
+     * các tham chiếu còn lại dùng getReferenceById. Ghi ảnh, tạo PDF và gửi email chạy sau khi commit.
+     */
     @Override
     @Transactional
+    @Timed("evrental.payment.final_payment")
     public Map<String, Object> confirmFinalPayment(Long bookingId, PaymentConfirmationRequest req, User staff) {
         if (staff.getStatus() != AccountStatus.ACTIVE) {
             throw new ResponseStatusException(HttpStatus.FORBIDDEN, "Tài khoản nhân viên của bạn đã bị khóa.");
@@ -328,7 +394,7 @@ public class PaymentServiceImpl implements PaymentService {
             throw new ResponseStatusException(HttpStatus.FORBIDDEN, "Nhân viên chưa được gán cho trạm nào.");
         }
 
-        Booking booking = bookingRepository.findById(bookingId)
+        Booking booking = bookingRepository.findByIdForCheckout(bookingId)
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Không tìm thấy Booking"));
 
         if (!booking.getStation().getStationId().equals(staff.getStation().getStationId())) {
@@ -343,16 +409,22 @@ public class PaymentServiceImpl implements PaymentService {
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Đơn này không ở trạng thái chờ thanh toán.");
         }
 
-        if (req.getMileage() <= booking.getVehicle().getCurrentMileage()) {
+        BillDraftCache.Draft draft = billDraftCache.get(bookingId);
+        if (draft == null) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Chưa có hóa đơn tạm hoặc hóa đơn tạm đã hết hạn. Vui lòng tính lại hóa đơn.");
+        }
+
+        Vehicle vehicle = booking.getVehicle();
+        if (req.getMileage() <= vehicle.getCurrentMileage()) {
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
                     "Số km hiện tại bạn nhập (" + req.getMileage() + " km) không hợp lệ. " +
-                            "Số km trên hệ thống là " + booking.getVehicle().getCurrentMileage() + " km. " +
+                            "Số km trên hệ thống là " + vehicle.getCurrentMileage() + " km. " +
                             "Vui lòng kiểm tra lại và nhập số km lớn hơn số km hiện tại trên hệ thống.");
         }
 
         VehicleHistory checkInHistory = historyRepository
                 .findFirstByVehicleAndRenterAndActionTypeOrderByActionTimeDesc(
-                        booking.getVehicle(),
+                        vehicle,
                         booking.getUser(),
                         VehicleActionType.DELIVERY
                 );
@@ -368,8 +440,12 @@ public class PaymentServiceImpl implements PaymentService {
         List<String> photoPaths = new ArrayList<>();
         for (int i = 0; i < req.getConfirmPhotos().size(); i++) {
             MultipartFile photo = req.getConfirmPhotos().get(i);
-
-            photoPaths.add(saveHandoverPhoto(photo, bookingId, "checkout", i + 1));
+            String photoPath = handoverPhotoPath(photo, bookingId, "checkout", i + 1);
+            photoPaths.add(photoPath);
+            afterCommit(() -> {
+                writeUpload(photo, photoPath);
+                imageDerivativeService.generateAsync(photoPath);
+            });
         }
         String photoPathsJson = null;
         try {
@@ -379,43 +455,30 @@ public class PaymentServiceImpl implements PaymentService {
             throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Lỗi xử lý ảnh check-out.");
         }
 
-        double totalDue = booking.getFinalFee() != null ? booking.getFinalFee() : 0.0;
+        bookingStateMachine.transitionOrThrow(booking, BookingStatus.COMPLETED);
+
+        persistDraft(booking, draft);
+
+        double totalDue = draft.totalDebit();
 
         double depositPaid_2_percent = booking.getRentalDeposit() != null ? booking.getRentalDeposit() : 0.0;
         double depositPaid_500k = booking.isReservationDepositPaid() ? 500000.0 : 0.0;
         double totalDepositPaid = depositPaid_2_percent + depositPaid_500k;
 
-        Double totalDiscount = transactionDetailRepository.findTotalDiscountByBooking(booking);
-        if (totalDiscount == null) totalDiscount = 0.0;
+        double totalDiscount = draft.bill().getTotalDiscount();
 
-        double totalCredit = totalDepositPaid + Math.abs(totalDiscount);
+        double totalCredit = totalDepositPaid + totalDiscount;
 
         double netSettlement = totalDue - totalCredit;
 
-        Vehicle vehicle = booking.getVehicle();
+        // Xe và booking đang được quản lý trong persistence context, thay đổi được flush khi commit
         if (req.getBattery() != null) vehicle.setBatteryLevel(req.getBattery().intValue());
         if (req.getMileage() != null) vehicle.setCurrentMileage(req.getMileage());
         vehicle.setStatus(VehicleStatus.UNAVAILABLE);
-        vehicleService.saveVehicle(vehicle);
-
 
         double actualRefundAmount = Math.max(0, -netSettlement);
         booking.setRefund(actualRefundAmount);
-        completeBooking(booking);
-        try {
-            if (vehicle != null && vehicle.getModel() != null) {
-                Model model = vehicle.getModel();
-                Integer current = model.getRentalCount();
-                if (current == null) current = 0;
-                model.setRentalCount(current + 1);
-                modelRepository.save(model);
-                log.info("Tăng rentalCount cho model {}: {} -> {}", model.getModelName(), current, model.getRentalCount());
-            }
-        } catch (Exception e) {
 
-            log.warn("Không thể cập nhật rentalCount cho model của vehicle {}: {}",
-                    vehicle != null ? vehicle.getVehicleId() : "null", e.getMessage());
-        }
         if (netSettlement != 0) {
             String finalStaffNote;
 
@@ -439,80 +502,35 @@ public class PaymentServiceImpl implements PaymentService {
             transactionRepository.save(finalTransaction);
         }
 
-        try {
-            vehicleService.recordVehicleAction(
-                    vehicle.getVehicleId(),
-                    staff.getUserId(),
-                    booking.getUser().getUserId(),
-                    vehicle.getStation().getStationId(),
-                    VehicleActionType.RETURN,
-                    "Khách hàng " + booking.getUser().getFullName() + " đã trả xe tại trạm "
-                            + vehicle.getStation().getName(),
-                    conditionAtCheckIn,
-                    req.getConditionAfter(),
-                    req.getBattery(),
-                    req.getMileage(),
-                    photoPathsJson
-            );
-        } catch (Exception e) {
-            log.warn("Không thể ghi lịch sử trả xe cho Booking ID {}: {}", bookingId, e.getMessage());
-        }
+        // PDF chỉ được tạo một lần, từ draft đã xác nhận; đường dẫn được lưu cùng booking.
+        // Hóa đơn và sự kiện dùng bản sao riêng: nếu transaction rollback, draft trong cache vẫn nguyên vẹn
+        BillResponse bill = draft.bill().toBuilder()
+                .feeItems(new ArrayList<>(draft.bill().getFeeItems()))
+                .qrCodeUrl(null)
+                .invoicePdfPath(invoiceService.assignInvoicePath(booking))
+                .build();
+        afterCommit(() -> billDraftCache.remove(bookingId));
+
+        // Lịch sử trả xe, lượt thuê của model, PDF và email hóa đơn được xử lý sau khi commit
+        eventPublisher.publishEvent(new ReturnedEvent(
+                bookingId,
+                vehicle.getVehicleId(),
+                vehicle.getModel().getModelId(),
+                staff.getUserId(),
+                booking.getUser().getUserId(),
+                vehicle.getStation().getStationId(),
+                "Khách hàng " + booking.getUser().getFullName() + " đã trả xe tại trạm " + vehicle.getStation().getName(),
+                conditionAtCheckIn,
+                req.getConditionAfter(),
+                req.getBattery(),
+                req.getMileage(),
+                photoPathsJson,
+                bill,
+                booking.getUser().getEmail(),
+                booking.getUser().getFullName()));
 
         log.info("Nhân viên {} đã xác nhận thanh toán và hoàn tất Booking ID: {}", staff.getFullName(), bookingId);
 
-        try {
-            if (booking.getInvoicePdfPath() != null && !booking.getInvoicePdfPath().isBlank()) {
-                List<TransactionDetail> transactionDetails = transactionDetailRepository.findByBooking(booking);
-                double totalPenaltyFee = transactionDetails.stream()
-                        .filter(td -> td.getAppliedAmount() > 0)
-                        .mapToDouble(TransactionDetail::getAppliedAmount)
-                        .sum();
-
-                double baseRentalFee = totalDue - totalPenaltyFee;
-
-                List<BillResponse.FeeItem> feeItems = new ArrayList<>();
-                for (TransactionDetail td : transactionDetails) {
-                    if (td.getAppliedAmount() != 0) {
-                        String feeName = td.getStaffNote() != null ? td.getStaffNote() :
-                                (td.getPenaltyFee() != null ? td.getPenaltyFee().getFeeName() : "Phí không xác định");
-                        String staffNote = td.getAdjustmentNote() != null ? td.getAdjustmentNote() : "";
-
-                        feeItems.add(BillResponse.FeeItem.builder()
-                                .feeName(feeName)
-                                .amount(td.getAppliedAmount())
-                                .staffNote(staffNote)
-                                .adjustmentNote(td.getAdjustmentNote())
-                                .build());
-                    }
-                }
-
-                Duration actualDuration = Duration.between(booking.getStartDate(), LocalDateTime.now());
-                double actualHours = actualDuration.toMinutes() / 60.0;
-
-                BillResponse billResponse = BillResponse.builder()
-                        .bookingId(bookingId)
-                        .userName(booking.getUser().getFullName())
-                        .dateTime(LocalDateTime.now())
-                        .actualRentalHours(actualHours)
-                        .baseRentalFee(baseRentalFee)
-                        .totalPenaltyFee(totalPenaltyFee)
-                        .downpayPaid(totalDepositPaid)
-                        .totalDiscount(Math.abs(totalDiscount))
-                        .paymentDue(Math.max(0, netSettlement))
-                        .refundToCustomer(Math.max(0, -netSettlement))
-                        .feeItems(feeItems)
-                        .invoicePdfPath(booking.getInvoicePdfPath())
-                        .build();
-
-                invoiceService.generateAndSendInvoice(billResponse);
-                log.info("Hóa đơn đã được gửi qua email thành công cho Booking ID: {}", bookingId);
-            } else {
-                log.warn("Không tìm thấy file hóa đơn PDF cho Booking ID: {}. Không gửi email.", bookingId);
-            }
-        } catch (Exception e) {
-            log.error("Lỗi khi gửi hóa đơn qua email cho Booking ID {}: {}", bookingId, e.getMessage());
-        }
-
         NumberFormat nf = NumberFormat.getNumberInstance(new Locale("vi", "VN"));
         nf.setMaximumFractionDigits(0);
 
@@ -531,36 +549,56 @@ public class PaymentServiceImpl implements PaymentService {
         return Map.of("message", message);
     }
 
-    private void completeBooking(Booking booking) {
-        if (booking.getStatus() == BookingStatus.COMPLETED) {
-            return;
-        }
-        booking.setStatus(BookingStatus.COMPLETED);
-        bookingRepository.save(booking);
+    private String adjustmentPhotoPath(BillDraftCache.Photo photo, Long bookingId, int index) {
+        String fileName = String.format("adjustment-%d%s", index, extensionOf(photo.originalFilename()));
+        return "/uploads/adjustments/booking_" + bookingId + "/" + fileName;
     }
 
-    @Transactional
-    protected String saveAdjustmentPhoto(MultipartFile file, Long bookingId, int index) {
-        if (file == null || file.isEmpty()) return null;
-        try {
-            Path bookingDir = adjustmentPhotoDir.resolve("booking_" + bookingId);
-            Files.createDirectories(bookingDir);
+    private String handoverPhotoPath(MultipartFile file, Long bookingId, String type, int index) {
+        if (file == null || file.isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Ảnh bàn giao không được để trống.");
+        }
+        String fileName = String.format("%s-%d%s", type, index, extensionOf(file.getOriginalFilename()));
+        return "/uploads/handover_photos/booking_" + bookingId + "/" + fileName;
+    }
 
-            String originalFilename = file.getOriginalFilename();
-            String extension = "";
-            if (originalFilename != null && originalFilename.contains(".")) {
-                extension = originalFilename.substring(originalFilename.lastIndexOf('.'));
-            }
+    private static String extensionOf(String originalFilename) {
+        if (originalFilename != null && originalFilename.contains(".")) {
+            return originalFilename.substring(originalFilename.lastIndexOf('.'));
+        }
+        return "";
+    }
 
-            String fileName = String.format("adjustment-%d%s", index, extension);
-            Path filePath = bookingDir.resolve(fileName);
+    private void writeUpload(MultipartFile file, String relativePath) {
+        try {
+            Path filePath = Paths.get(System.getProperty("user.dir"), relativePath.substring(1));
+            Files.createDirectories(filePath.getParent());
             file.transferTo(filePath);
+        } catch (IOException e) {
+            log.error("Lỗi khi lưu ảnh {}", relativePath, e);
+        }
+    }
 
-            return "/uploads/adjustments/booking_" + bookingId + "/" + fileName;
-
+    private void writeUpload(byte[] content, String relativePath) {
+        try {
+            Path filePath = Paths.get(System.getProperty("user.dir"), relativePath.substring(1));
+            Files.createDirectories(filePath.getParent());
+            Files.write(filePath, content);
         } catch (IOException e) {
-            log.error("Lỗi khi lưu ảnh adjustment", e);
-            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Lỗi hệ thống khi lưu file ảnh.");
+            log.error("Lỗi khi lưu ảnh {}", relativePath, e);
+        }
+    }
+
+    private void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
         }
     }
 
@@ -586,11 +624,24 @@ public class PaymentServiceImpl implements PaymentService {
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Xe này vừa được người khác đặt. Vui lòng hủy booking và tạo lại.");
         }
 
+        if (!bookingStateMachine.transition(booking, BookingStatus.CONFIRMED)) {
+            BookingStatus current = bookingStateMachine.currentStatus(bookingId);
+            if (current == BookingStatus.CONFIRMED) {
+                log.warn("Booking {} vừa được xác nhận bởi luồng khác (có thể do webhook gọi lại).", bookingId);
+                return booking;
+            }
+            log.error("Booking {} đã chuyển sang {} trước khi xác nhận cọc.", bookingId, current);
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "Booking này không còn ở trạng thái chờ thanh toán cọc (hiện tại: " + current + ").");
+        }
+
         vehicle.setStatus(VehicleStatus.RESERVED);
         vehicleService.saveVehicle(vehicle);
 
+        // Cọc đã nhận (có thể do nhân viên xác nhận thủ công) thì không cần tạo link giữ chỗ nữa
+        if (booking.getPaymentLinkStatus() == PaymentLinkStatus.PENDING_LINK) {
+            booking.setPaymentLinkStatus(null);
+        }
         booking.setReservationDepositPaid(true);
-        booking.setStatus(BookingStatus.CONFIRMED);
         return bookingRepository.save(booking);
     }
 
@@ -608,28 +659,16 @@ public class PaymentServiceImpl implements PaymentService {
         transactionRepository.save(transaction);
     }
 
-    @Transactional
     public String saveHandoverPhoto(MultipartFile file, Long bookingId, String type, int index) {
-        if (file == null || file.isEmpty()) {
-            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Ảnh bàn giao không được để trống.");
-        }
+        String relativePath = handoverPhotoPath(file, bookingId, type, index);
         try {
-            Path bookingDir = handoverPhotoDir.resolve("booking_" + bookingId);
-            Files.createDirectories(bookingDir);
-
-            String originalFilename = file.getOriginalFilename();
-            String extension = "";
-            if (originalFilename != null && originalFilename.contains(".")) {
-                extension = originalFilename.substring(originalFilename.lastIndexOf('.'));
-            }
-            String fileName = String.format("%s-%d%s", type, index, extension);
-            Path filePath = bookingDir.resolve(fileName);
+            Path filePath = Paths.get(System.getProperty("user.dir"), relativePath.substring(1));
+            Files.createDirectories(filePath.getParent());
             file.transferTo(filePath);
-
-            return "/uploads/handover_photos/booking_" + bookingId + "/" + fileName;
-
         } catch (IOException e) {
             throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Lỗi hệ thống khi lưu ảnh.");
         }
+        imageDerivativeService.generateAsync(relativePath);
+        return relativePath;
     }
 }
@@ -1,5 +1,6 @@
 package com.fptu.evstation.rental.evrentalsystem.service.impl;
 
+import com.fptu.evstation.rental.evrentalsystem.dto.RatingPageResponse;
 import com.fptu.evstation.rental.evrentalsystem.entity.Rating;
 import com.fptu.evstation.rental.evrentalsystem.entity.Station;
 import com.fptu.evstation.rental.evrentalsystem.entity.User;
@@ -8,17 +9,31 @@ import com.fptu.evstation.rental.evrentalsystem.repository.RatingRepository;
 import com.fptu.evstation.rental.evrentalsystem.service.StationService;
 import com.fptu.evstation.rental.evrentalsystem.service.RatingService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 @Service
 @RequiredArgsConstructor
 public class RatingServiceImpl implements RatingService {
+    private static final int MAX_PAGE_SIZE = 100;
+
     private final RatingRepository ratingRepository;
     private final StationService stationService;
 
     @Override
+    @Transactional
     public Rating saveRating(Long stationId, int stars, String comment, User user) {
+        if (stars < 1 || stars > 5) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Số sao đánh giá phải từ 1 đến 5.");
+        }
         Station station = stationService.getStationById(stationId);
 
         Rating rating = new Rating();
@@ -27,7 +42,9 @@ public class RatingServiceImpl implements RatingService {
         rating.setComment(comment);
         rating.setUserId(user.getUserId());
 
-        return ratingRepository.save(rating);
+        Rating saved = ratingRepository.save(rating);
+        ratingRepository.addToStationAggregate(stationId, stars);
+        return saved;
     }
 
     @Override
@@ -35,10 +52,48 @@ public class RatingServiceImpl implements RatingService {
         Station station = stationService.getStationById(stationId);
         return ratingRepository.findByStation(station);
     }
+
+    @Override
+    public RatingPageResponse getRatingPage(Long stationId, int page, int size) {
+        if (page < 0 || size < 1 || size > MAX_PAGE_SIZE) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "page phải >= 0 và size phải từ 1 đến " + MAX_PAGE_SIZE + ".");
+        }
+        Station station = stationService.getStationById(stationId);
+        List<Rating> ratings = ratingRepository.findByStation_StationId(stationId,
+                PageRequest.of(page, size, Sort.by(Sort.Direction.DESC, "createdAt", "id")));
+
+        // Tổng số lấy từ tổng hợp trên trạm, không cần truy vấn COUNT
+        long total = station.getRatingCount() != null ? station.getRatingCount() : 0;
+        Map<Integer, Integer> starCounts = new LinkedHashMap<>();
+        starCounts.put(5, station.getFiveStarCount());
+        starCounts.put(4, station.getFourStarCount());
+        starCounts.put(3, station.getThreeStarCount());
+        starCounts.put(2, station.getTwoStarCount());
+        starCounts.put(1, station.getOneStarCount());
+
+        return RatingPageResponse.builder()
+                .ratings(ratings.stream()
+                        .map(r -> RatingPageResponse.RatingItem.builder()
+                                .id(r.getId())
+                                .userId(r.getUserId())
+                                .stars(r.getStars())
+                                .comment(r.getComment())
+                                .createdAt(r.getCreatedAt())
+                                .build())
+                        .toList())
+                .page(page)
+                .size(size)
+                .totalElements(total)
+                .totalPages((int) ((total + size - 1) / size))
+                .averageRating(station.getRating() != null ? station.getRating() : 0.0)
+                .starCounts(starCounts)
+                .build();
+    }
+
     @Override
     public Double getAverageRating(Long stationId) {
         Station station = stationService.getStationById(stationId);
-        Double avg = ratingRepository.findAverageStarsByStation(station);
-        return avg != null ? avg : 0.0;
+        return station.getRating() != null ? station.getRating() : 0.0;
     }
-}
\ No newline at end of file
+}
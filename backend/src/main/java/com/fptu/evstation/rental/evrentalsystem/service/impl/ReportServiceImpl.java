@@ -1,13 +1,14 @@
 package com.fptu.evstation.rental.evrentalsystem.service.impl;
 
+import com.fptu.evstation.rental.evrentalsystem.dto.ArchiveStatsResponse;
 import com.fptu.evstation.rental.evrentalsystem.dto.ReportResponse;
-import com.fptu.evstation.rental.evrentalsystem.entity.Transaction;
-import com.fptu.evstation.rental.evrentalsystem.entity.TransactionDetail;
-import com.fptu.evstation.rental.evrentalsystem.repository.TransactionDetailRepository;
-import com.fptu.evstation.rental.evrentalsystem.repository.TransactionRepository;
+import com.fptu.evstation.rental.evrentalsystem.entity.*;
+import com.fptu.evstation.rental.evrentalsystem.repository.*;
 import com.fptu.evstation.rental.evrentalsystem.service.ReportService;
+import com.fptu.evstation.rental.evrentalsystem.service.util.ArchiveWindow;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
@@ -20,8 +21,18 @@ public class ReportServiceImpl implements ReportService {
 
     private final TransactionRepository transactionRepository;
     private final TransactionDetailRepository transactionDetailRepository;
+    private final ArchivedTransactionRepository archivedTransactionRepository;
+    private final ArchivedTransactionDetailRepository archivedTransactionDetailRepository;
+    private final BookingRepository bookingRepository;
+    private final ArchivedBookingRepository archivedBookingRepository;
+    private final VehicleHistoryRepository vehicleHistoryRepository;
+    private final ArchivedVehicleHistoryRepository archivedVehicleHistoryRepository;
+    private final StationRepository stationRepository;
+    private final ArchiveRunRepository archiveRunRepository;
+    private final ArchiveWindow archiveWindow;
 
     @Override
+    @Transactional(readOnly = true)
     public ReportResponse getRevenueByStation(Long stationId, LocalDate from, LocalDate to) {
         LocalDateTime fromDateTime = from.atStartOfDay();
         LocalDateTime toDateTime = to.atTime(LocalTime.MAX);
@@ -32,19 +43,29 @@ public class ReportServiceImpl implements ReportService {
         List<TransactionDetail> penaltyDetails = transactionDetailRepository
                 .findByBooking_Vehicle_Station_StationIdAndBooking_CreatedAtBetween(stationId, fromDateTime, toDateTime);
 
+        List<ArchivedTransaction> archivedTransactions = archivedTransactions(stationId, fromDateTime, toDateTime);
+        List<ArchivedTransactionDetail> archivedDetails = archivedDetails(stationId, fromDateTime, toDateTime);
+
         double totalTransactionAmount = transactions.stream()
                 .mapToDouble(Transaction::getAmount)
-                .sum();
+                .sum()
+                + archivedTransactions.stream().mapToDouble(ArchivedTransaction::getAmount).sum();
 
         double totalPenaltyAmount = penaltyDetails.stream()
                 .mapToDouble(TransactionDetail::getAppliedAmount)
-                .sum();
+                .sum()
+                + archivedDetails.stream().mapToDouble(ArchivedTransactionDetail::getAppliedAmount).sum();
 
         double totalRevenue = totalTransactionAmount + totalPenaltyAmount;
 
-        String stationName = transactions.isEmpty()
-                ? "Không có giao dịch"
-                : transactions.get(0).getBooking().getVehicle().getStation().getName();
+        String stationName;
+        if (!transactions.isEmpty()) {
+            stationName = transactions.get(0).getBooking().getVehicle().getStation().getName();
+        } else if (!archivedTransactions.isEmpty()) {
+            stationName = stationRepository.findById(stationId).map(Station::getName).orElse("Không có giao dịch");
+        } else {
+            stationName = "Không có giao dịch";
+        }
 
         return ReportResponse.builder()
                 .stationName(stationName)
@@ -54,11 +75,12 @@ public class ReportServiceImpl implements ReportService {
                 .totalBookingRevenue(totalTransactionAmount)
                 .totalPenaltyRevenue(totalPenaltyAmount)
                 .totalRevenue(totalRevenue)
-                .totalTransactions(transactions.size())
+                .totalTransactions(transactions.size() + archivedTransactions.size())
                 .build();
     }
 
     @Override
+    @Transactional(readOnly = true)
     public ReportResponse getTotalRevenue(LocalDate from, LocalDate to) {
         LocalDateTime fromDateTime = from.atStartOfDay();
         LocalDateTime toDateTime = to.atTime(LocalTime.MAX);
@@ -69,13 +91,18 @@ public class ReportServiceImpl implements ReportService {
         List<TransactionDetail> penaltyDetails = transactionDetailRepository
                 .findByBooking_CreatedAtBetween(fromDateTime, toDateTime);
 
+        List<ArchivedTransaction> archivedTransactions = archivedTransactions(null, fromDateTime, toDateTime);
+        List<ArchivedTransactionDetail> archivedDetails = archivedDetails(null, fromDateTime, toDateTime);
+
         double totalTransactionAmount = transactions.stream()
                 .mapToDouble(Transaction::getAmount)
-                .sum();
+                .sum()
+                + archivedTransactions.stream().mapToDouble(ArchivedTransaction::getAmount).sum();
 
         double totalPenaltyAmount = penaltyDetails.stream()
                 .mapToDouble(TransactionDetail::getAppliedAmount)
-                .sum();
+                .sum()
+                + archivedDetails.stream().mapToDouble(ArchivedTransactionDetail::getAppliedAmount).sum();
 
         double totalRevenue = totalTransactionAmount + totalPenaltyAmount;
 
@@ -86,7 +113,41 @@ public class ReportServiceImpl implements ReportService {
                 .totalBookingRevenue(totalTransactionAmount)
                 .totalPenaltyRevenue(totalPenaltyAmount)
                 .totalRevenue(totalRevenue)
-                .totalTransactions(transactions.size())
+                .totalTransactions(transactions.size() + archivedTransactions.size())
+                .build();
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public ArchiveStatsResponse getArchiveStats() {
+        return ArchiveStatsResponse.builder()
+                .cutoff(archiveWindow.cutoff())
+                .hotBookings(bookingRepository.count())
+                .archivedBookings(archivedBookingRepository.count())
+                .hotTransactions(transactionRepository.count())
+                .archivedTransactions(archivedTransactionRepository.count())
+                .hotTransactionDetails(transactionDetailRepository.count())
+                .archivedTransactionDetails(archivedTransactionDetailRepository.count())
+                .hotVehicleHistory(vehicleHistoryRepository.count())
+                .archivedVehicleHistory(archivedVehicleHistoryRepository.count())
+                .recentRuns(archiveRunRepository.findTop10ByOrderByStartedAtDesc())
                 .build();
     }
+
+    // Chỉ đọc bảng lưu trữ khi khoảng báo cáo vượt qua mốc lưu trữ
+    private List<ArchivedTransaction> archivedTransactions(Long stationId, LocalDateTime from, LocalDateTime to) {
+        if (!archiveWindow.reaches(from)) {
+            return List.of();
+        }
+        return archivedTransactionRepository.findInRange(
+                ArchiveWindow.monthOf(from), ArchiveWindow.monthOf(to), from, to, stationId);
+    }
+
+    private List<ArchivedTransactionDetail> archivedDetails(Long stationId, LocalDateTime from, LocalDateTime to) {
+        if (!archiveWindow.reaches(from)) {
+            return List.of();
+        }
+        return archivedTransactionDetailRepository.findInRange(
+                ArchiveWindow.monthOf(from), ArchiveWindow.monthOf(to), from, to, stationId);
+    }
 }
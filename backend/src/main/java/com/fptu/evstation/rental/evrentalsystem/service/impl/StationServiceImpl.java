@@ -8,10 +8,10 @@ import com.fptu.evstation.rental.evrentalsystem.entity.VehicleStatus;
 import com.fptu.evstation.rental.evrentalsystem.repository.StationRepository;
 import com.fptu.evstation.rental.evrentalsystem.repository.VehicleRepository;
 import com.fptu.evstation.rental.evrentalsystem.service.StationService;
-import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.server.ResponseStatusException;
 
 import java.util.ArrayList;
@@ -92,7 +92,7 @@ public class StationServiceImpl implements StationService {
     }
 
     @Override
-    @Transactional
+    @Transactional(readOnly = true)
     public Map<String, Object> getVehicleStatsByStation(Long stationId) {
         Station station = stationRepository.findById(stationId)
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND,
@@ -126,12 +126,7 @@ public class StationServiceImpl implements StationService {
         return response;
     }
     @Override
-    @Transactional
-    public List<Map<String, Object>> getAllStationReports() {
-        List<Object[]> results = vehicleRepository.getVehicleStatsGroupedByStation();
-
-    @Override
-    @Transactional
+    @Transactional(readOnly = true)
     public List<Map<String, Object>> getAllStationReports() {
         List<Object[]> results = vehicleRepository.getVehicleStatsGroupedByStation();
 
@@ -0,0 +1,354 @@
+package com.fptu.evstation.rental.evrentalsystem.service.impl;
+
+import com.fptu.evstation.rental.evrentalsystem.dto.TelemetryIngestResponse;
+import com.fptu.evstation.rental.evrentalsystem.dto.TelemetryPointResponse;
+import com.fptu.evstation.rental.evrentalsystem.dto.TelemetryReading;
+import com.fptu.evstation.rental.evrentalsystem.entity.TelemetryChunk;
+import com.fptu.evstation.rental.evrentalsystem.repository.TelemetryChunkRepository;
+import com.fptu.evstation.rental.evrentalsystem.repository.VehicleRepository;
+import com.fptu.evstation.rental.evrentalsystem.service.TelemetryService;
+import com.fptu.evstation.rental.evrentalsystem.service.util.TelemetryCodec;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Nhận telemetry của xe với lưu lượng lớn mà không chạm DB trên đường ghi:
+ * giá trị mới nhất giữ trong bộ nhớ (pin được ghi ngược về bảng Vehicles theo lô để điều kiện đặt xe >= 85% dùng số liệu thật),
+ * chuỗi thời gian được lấy mẫu theo telemetry.bucket-seconds (giữ bản tin cuối mỗi khung)
+ * rồi ghi thành các đoạn mã hóa delta chỉ thêm vào Vehicle_Telemetry_Chunks.
+ */
+@Service
+@Slf4j
+public class TelemetryServiceImpl implements TelemetryService {
+
+    // vehicleId (8 byte) + timestamp epoch millis (8) + pin (1) + odometer km (8), big-endian
+    public static final int FRAME_BYTES = 25;
+
+    private static final ZoneId ZONE = ZoneId.systemDefault();
+
+    private final VehicleRepository vehicleRepository;
+    private final TelemetryChunkRepository chunkRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry meterRegistry;
+    private final Map<Long, VehicleState> states = new ConcurrentHashMap<>();
+
+    private final long bucketSeconds;
+    private final int chunkMaxPoints;
+    private final long chunkMaxAgeSeconds;
+    private final long maxLagSeconds;
+    private final int maxBatch;
+    private final long maxSeriesDays;
+
+    public TelemetryServiceImpl(VehicleRepository vehicleRepository,
+                                TelemetryChunkRepository chunkRepository,
+                                JdbcTemplate jdbcTemplate,
+                                TransactionTemplate transactionTemplate,
+                                MeterRegistry meterRegistry,
+                                @Value("${telemetry.bucket-seconds:300}") long bucketSeconds,
+                                @Value("${telemetry.chunk-max-points:48}") int chunkMaxPoints,
+                                @Value("${telemetry.chunk-max-age-seconds:3600}") long chunkMaxAgeSeconds,
+                                @Value("${telemetry.max-lag-seconds:86400}") long maxLagSeconds,
+                                @Value("${telemetry.max-batch:5000}") int maxBatch,
+                                @Value("${telemetry.max-series-days:31}") long maxSeriesDays) {
+        this.vehicleRepository = vehicleRepository;
+        this.chunkRepository = chunkRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.meterRegistry = meterRegistry;
+        this.bucketSeconds = bucketSeconds;
+        this.chunkMaxPoints = chunkMaxPoints;
+        this.chunkMaxAgeSeconds = chunkMaxAgeSeconds;
+        this.maxLagSeconds = maxLagSeconds;
+        this.maxBatch = maxBatch;
+        this.maxSeriesDays = maxSeriesDays;
+        Gauge.builder("evrental.telemetry.vehicles", states, Map::size).register(meterRegistry);
+    }
+
+    @Override
+    public TelemetryIngestResponse ingest(List<TelemetryReading> readings) {
+        if (readings == null || readings.isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Lô telemetry rỗng.");
+        }
+        if (readings.size() > maxBatch) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Mỗi lô tối đa " + maxBatch + " bản tin.");
+        }
+        long nowMillis = System.currentTimeMillis();
+        int accepted = 0;
+        int rejected = 0;
+        int late = 0;
+        for (TelemetryReading reading : readings) {
+            if (!isValid(reading, nowMillis)) {
+                rejected++;
+                continue;
+            }
+            VehicleState state = stateOf(reading.getVehicleId());
+            if (state == null) {
+                rejected++;
+                continue;
+            }
+            if (state.apply(reading.getTimestamp(), reading.getBattery(), Math.round(reading.getOdometer() * 10), bucketSeconds)) {
+                accepted++;
+            } else {
+                late++;
+            }
+        }
+        meterRegistry.counter("evrental.telemetry.readings", "outcome", "accepted").increment(accepted);
+        meterRegistry.counter("evrental.telemetry.readings", "outcome", "rejected").increment(rejected);
+        meterRegistry.counter("evrental.telemetry.readings", "outcome", "late").increment(late);
+        return TelemetryIngestResponse.builder().accepted(accepted).rejected(rejected).late(late).build();
+    }
+
+    @Override
+    public List<TelemetryReading> decodeFrames(byte[] body) {
+        if (body == null || body.length == 0 || body.length % FRAME_BYTES != 0) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Dữ liệu nhị phân phải gồm các khung " + FRAME_BYTES + " byte.");
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(body);
+        List<TelemetryReading> readings = new ArrayList<>(body.length / FRAME_BYTES);
+        while (buffer.hasRemaining()) {
+            readings.add(TelemetryReading.builder()
+                    .vehicleId(buffer.getLong())
+                    .timestamp(buffer.getLong())
+                    .battery(buffer.get() & 0xFF)
+                    .odometer(buffer.getDouble())
+                    .build());
+        }
+        return readings;
+    }
+
+    @Override
+    public TelemetryPointResponse getLatest(Long vehicleId) {
+        VehicleState state = states.get(vehicleId);
+        if (state == null) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Xe chưa gửi dữ liệu telemetry.");
+        }
+        synchronized (state) {
+            return toResponse(state.latestMillis / 1000, state.latestBattery, state.latestOdometer);
+        }
+    }
+
+    @Override
+    public List<TelemetryPointResponse> getSeries(Long vehicleId, LocalDateTime from, LocalDateTime to) {
+        if (from == null || to == null || !from.isBefore(to)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Khoảng thời gian không hợp lệ.");
+        }
+        if (Duration.between(from, to).toDays() > maxSeriesDays) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Chỉ xem tối đa " + maxSeriesDays + " ngày mỗi lần.");
+        }
+        if (!states.containsKey(vehicleId) && !vehicleRepository.existsById(vehicleId)) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Không tìm thấy xe");
+        }
+
+        long fromSecond = from.atZone(ZONE).toEpochSecond();
+        long toSecond = to.atZone(ZONE).toEpochSecond();
+        List<TelemetryCodec.Point> points = new ArrayList<>();
+        for (TelemetryChunk chunk : chunkRepository.findOverlapping(vehicleId, from, to)) {
+            points.addAll(TelemetryCodec.decode(chunk.getData(), chunk.getPointCount()));
+        }
+        // Các điểm chưa ghi xuống DB (đoạn đang gom và khung đang mở)
+        VehicleState state = states.get(vehicleId);
+        if (state != null) {
+            points.addAll(state.unpersisted(bucketSeconds));
+        }
+        return points.stream()
+                .filter(p -> p.epochSecond() >= fromSecond && p.epochSecond() <= toSecond)
+                .sorted(Comparator.comparingLong(TelemetryCodec.Point::epochSecond))
+                .map(p -> toResponse(p.epochSecond(), p.battery(), p.odometerTenths()))
+                .toList();
+    }
+
+    @Override
+    @Scheduled(fixedDelayString = "${telemetry.flush-interval-ms:10000}")
+    public void flush() {
+        flush(false);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush(true);
+    }
+
+    private void flush(boolean force) {
+        long nowSecond = System.currentTimeMillis() / 1000;
+        List<TelemetryChunk> chunks = new ArrayList<>();
+        Map<Long, List<TelemetryCodec.Point>> taken = new HashMap<>();
+        List<Object[]> batteryUpdates = new ArrayList<>();
+
+        states.forEach((vehicleId, state) -> {
+            synchronized (state) {
+                if (state.bucket >= 0 && (force || (state.bucket + 1) * bucketSeconds <= nowSecond)) {
+                    state.closeBucket(bucketSeconds, nowSecond);
+                }
+                if (!state.pending.isEmpty() && (force || state.pending.size() >= chunkMaxPoints
+                        || nowSecond - state.pendingSince >= chunkMaxAgeSeconds)) {
+                    List<TelemetryCodec.Point> points = new ArrayList<>(state.pending);
+                    state.pending.clear();
+                    taken.put(vehicleId, points);
+                    chunks.add(TelemetryChunk.builder()
+                            .vehicleId(vehicleId)
+                            .startTime(toLocalDateTime(points.get(0).epochSecond()))
+                            .endTime(toLocalDateTime(points.get(points.size() - 1).epochSecond()))
+                            .pointCount(points.size())
+                            .data(TelemetryCodec.encode(points))
+                            .build());
+                }
+                if (state.batteryDirty) {
+                    state.batteryDirty = false;
+                    batteryUpdates.add(new Object[]{state.latestBattery, vehicleId});
+                }
+            }
+        });
+
+        if (!chunks.isEmpty()) {
+            try {
+                transactionTemplate.executeWithoutResult(status -> chunkRepository.saveAll(chunks));
+                meterRegistry.counter("evrental.telemetry.chunk_bytes")
+                        .increment(chunks.stream().mapToInt(c -> c.getData().length).sum());
+            } catch (RuntimeException e) {
+                // Trả điểm về hàng chờ để lượt sau ghi lại
+                log.error("Ghi {} đoạn telemetry thất bại, sẽ thử lại: {}", chunks.size(), e.getMessage());
+                taken.forEach((vehicleId, points) -> {
+                    VehicleState state = states.get(vehicleId);
+                    synchronized (state) {
+                        state.pending.addAll(0, points);
+                    }
+                });
+            }
+        }
+        if (!batteryUpdates.isEmpty()) {
+            try {
+                jdbcTemplate.batchUpdate("UPDATE Vehicles SET battery_level = ? WHERE vehicle_id = ?", batteryUpdates);
+            } catch (RuntimeException e) {
+                // Đánh dấu lại để lượt sau ghi, tránh để DB giữ mức pin cũ mà kiểm tra đặt xe (>= 85%) đang đọc
+                log.error("Cập nhật pin cho {} xe thất bại, sẽ thử lại: {}", batteryUpdates.size(), e.getMessage());
+                batteryUpdates.forEach(update -> {
+                    VehicleState state = states.get((Long) update[1]);
+                    synchronized (state) {
+                        state.batteryDirty = true;
+                    }
+                });
+            }
+        }
+    }
+
+    private boolean isValid(TelemetryReading reading, long nowMillis) {
+        return reading.getVehicleId() != null
+                && reading.getBattery() != null && reading.getBattery() >= 0 && reading.getBattery() <= 100
+                && reading.getOdometer() != null && reading.getOdometer() >= 0 && Double.isFinite(reading.getOdometer())
+                // Cho phép lệch đồng hồ thiết bị tối đa 5 phút về tương lai
+                && reading.getTimestamp() <= nowMillis + 300_000
+                && reading.getTimestamp() >= nowMillis - maxLagSeconds * 1000;
+    }
+
+    // Chỉ lần đầu thấy một xe mới hỏi DB; ID không tồn tại bị từ chối
+    private VehicleState stateOf(Long vehicleId) {
+        VehicleState state = states.get(vehicleId);
+        if (state != null) {
+            return state;
+        }
+        if (!vehicleRepository.existsById(vehicleId)) {
+            return null;
+        }
+        return states.computeIfAbsent(vehicleId, id -> new VehicleState());
+    }
+
+    private static LocalDateTime toLocalDateTime(long epochSecond) {
+        return LocalDateTime.ofInstant(Instant.ofEpochSecond(epochSecond), ZONE);
+    }
+
+    private static TelemetryPointResponse toResponse(long epochSecond, int battery, long odometerTenths) {
+        return TelemetryPointResponse.builder()
+                .time(toLocalDateTime(epochSecond))
+                .battery(battery)
+                .odometer(odometerTenths / 10.0)
+                .build();
+    }
+
+    /**
+     * Trạng thái telemetry của một xe; mọi truy cập đồng bộ trên chính đối tượng.
+     */
+    private static final class VehicleState {
+        long latestMillis = Long.MIN_VALUE;
+        int latestBattery;
+        long latestOdometer;
+        boolean batteryDirty;
+
+        long bucket = -1;
+        long lastClosedBucket = -1;
+        long bucketMillis;
+        int bucketBattery;
+        long bucketOdometer;
+
+        final List<TelemetryCodec.Point> pending = new ArrayList<>();
+        long pendingSince;
+
+        /**
+         * Trả về false nếu bản tin tới quá muộn: thuộc khung đã đóng, hoặc cũ hơn khung đang mở
+         * (ví dụ bản tin gửi bù cho quãng mất kết nối sau khi khung mới đã mở).
+         */
+        synchronized boolean apply(long timestamp, int battery, long odometer, long bucketSeconds) {
+            long target = Math.floorDiv(timestamp / 1000, bucketSeconds);
+            if (target <= lastClosedBucket || (bucket >= 0 && target < bucket)) {
+                return false;
+            }
+            if (timestamp > latestMillis) {
+                if (latestMillis == Long.MIN_VALUE || battery != latestBattery) {
+                    batteryDirty = true;
+                }
+                latestMillis = timestamp;
+                latestBattery = battery;
+                latestOdometer = odometer;
+            }
+            if (target > bucket) {
+                if (bucket >= 0) {
+                    closeBucket(bucketSeconds, System.currentTimeMillis() / 1000);
+                }
+                bucket = target;
+                bucketMillis = timestamp;
+                bucketBattery = battery;
+                bucketOdometer = odometer;
+            } else if (target == bucket && timestamp >= bucketMillis) {
+                bucketMillis = timestamp;
+                bucketBattery = battery;
+                bucketOdometer = odometer;
+            }
+            return true;
+        }
+
+        void closeBucket(long bucketSeconds, long nowSecond) {
+            if (pending.isEmpty()) {
+                pendingSince = nowSecond;
+            }
+            pending.add(new TelemetryCodec.Point(bucket * bucketSeconds, bucketBattery, bucketOdometer));
+            lastClosedBucket = bucket;
+            bucket = -1;
+        }
+
+        synchronized List<TelemetryCodec.Point> unpersisted(long bucketSeconds) {
+            List<TelemetryCodec.Point> points = new ArrayList<>(pending);
+            if (bucket >= 0) {
+                points.add(new TelemetryCodec.Point(bucket * bucketSeconds, bucketBattery, bucketOdometer));
+            }
+            return points;
+        }
+    }
+}
@@ -7,6 +7,7 @@ import com.fptu.evstation.rental.evrentalsystem.service.TokenService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.server.ResponseStatusException;
 
 import java.time.LocalDateTime;
@@ -46,6 +47,7 @@ public class TokenServiceImpl implements TokenService {
     }
 
     @Override
+    @Transactional(noRollbackFor = ResponseStatusException.class)
     public User validateTokenAndGetUser(String token) {
         var tokenOpt = authTokenRepository.findByToken(token);
         if (tokenOpt.isEmpty()) {
@@ -6,6 +6,7 @@ import com.fptu.evstation.rental.evrentalsystem.repository.RoleRepository;
 import com.fptu.evstation.rental.evrentalsystem.repository.StationRepository;
 import com.fptu.evstation.rental.evrentalsystem.repository.UserRepository;
 import com.fptu.evstation.rental.evrentalsystem.service.UserService;
+import com.fptu.evstation.rental.evrentalsystem.service.util.ImageDerivativeService;
 import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -30,6 +31,7 @@ public class UserServiceImpl implements UserService {
     private final UserRepository userRepository;
     private final RoleRepository roleRepository;
     private final StationRepository stationRepository;
+    private final ImageDerivativeService imageDerivativeService;
     private final Path uploadBaseDir = Paths.get("uploads/verification");
 
     @Override
@@ -256,7 +258,9 @@ public class UserServiceImpl implements UserService {
             String finalFileName = baseFileName + extension;
             Path filePath = userDir.resolve(finalFileName);
             file.transferTo(filePath);
-            return "/uploads/verification/" + userDir.getFileName().toString() + "/" + finalFileName;
+            String relativePath = "/uploads/verification/" + userDir.getFileName().toString() + "/" + finalFileName;
+            imageDerivativeService.generateAsync(relativePath);
+            return relativePath;
         } catch (IOException e) {
             log.error("Lỗi khi lưu file: " + baseFileName, e);
             throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Lỗi hệ thống khi lưu file");
@@ -283,6 +287,11 @@ public class UserServiceImpl implements UserService {
                     .gplxPath1(user.getGplxPath1())
                     .gplxPath2(user.getGplxPath2())
                     .selfiePath(user.getSelfiePath())
+                    .cccdThumbnailUrl1(imageDerivativeService.thumbnailUrl(user.getCccdPath1()))
+                    .cccdThumbnailUrl2(imageDerivativeService.thumbnailUrl(user.getCccdPath2()))
+                    .gplxThumbnailUrl1(imageDerivativeService.thumbnailUrl(user.getGplxPath1()))
+                    .gplxThumbnailUrl2(imageDerivativeService.thumbnailUrl(user.getGplxPath2()))
+                    .selfieThumbnailUrl(imageDerivativeService.thumbnailUrl(user.getSelfiePath()))
                     .verificationStatus(user.getVerificationStatus())
                     .rejectionReason(user.getRejectionReason())
                     .status(user.getStatus())
@@ -0,0 +1,399 @@
+package com.fptu.evstation.rental.evrentalsystem.service.impl;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fptu.evstation.rental.evrentalsystem.dto.CreateVehicleRequest;
+import com.fptu.evstation.rental.evrentalsystem.dto.VehicleImportResponse;
+import com.fptu.evstation.rental.evrentalsystem.entity.Model;
+import com.fptu.evstation.rental.evrentalsystem.entity.Station;
+import com.fptu.evstation.rental.evrentalsystem.entity.VehicleCondition;
+import com.fptu.evstation.rental.evrentalsystem.entity.VehicleStatus;
+import com.fptu.evstation.rental.evrentalsystem.repository.ModelRepository;
+import com.fptu.evstation.rental.evrentalsystem.repository.StationRepository;
+import com.fptu.evstation.rental.evrentalsystem.repository.VehicleRepository;
+import com.fptu.evstation.rental.evrentalsystem.service.VehicleImportService;
+import com.fptu.evstation.rental.evrentalsystem.service.util.ModelCatalog;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.Year;
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Nhập xe hàng loạt từ CSV/JSON: kiểm tra trùng cho cả lô bằng truy vấn IN, báo lỗi theo từng dòng,
+ * các dòng hợp lệ được insert bằng JDBC batch trong một transaction.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class VehicleImportServiceImpl implements VehicleImportService {
+
+    // SQL Server giới hạn 2100 tham số mỗi câu lệnh
+    private static final int IN_CLAUSE_CHUNK = 1000;
+    private static final int INSERT_BATCH_SIZE = 500;
+    private static final List<String> REQUIRED_CSV_COLUMNS = List.of("licensePlate", "batteryLevel", "modelId", "stationId",
+            "currentMileage", "depositAmount", "vinNumber", "engineNumber", "manufacturingYear");
+
+    private final VehicleRepository vehicleRepository;
+    private final ModelRepository modelRepository;
+    private final StationRepository stationRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final Validator validator;
+    private final ObjectMapper objectMapper;
+    private final ModelCatalog modelCatalog;
+
+    @Override
+    @Transactional
+    public VehicleImportResponse importVehicles(MultipartFile file) {
+        if (file == null || file.isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "File nhập xe không được để trống.");
+        }
+        String fileName = file.getOriginalFilename() != null ? file.getOriginalFilename().toLowerCase(Locale.ROOT) : "";
+        String contentType = file.getContentType() != null ? file.getContentType() : "";
+        try {
+            if (fileName.endsWith(".json") || contentType.startsWith(MediaType.APPLICATION_JSON_VALUE)) {
+                List<CreateVehicleRequest> requests = objectMapper.readValue(file.getInputStream(), new TypeReference<>() {});
+                return importVehicles(requests);
+            }
+            if (fileName.endsWith(".csv") || contentType.startsWith("text/csv")) {
+                return importRows(parseCsv(file));
+            }
+        } catch (IOException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Không đọc được file nhập xe: " + e.getMessage());
+        }
+        throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Chỉ hỗ trợ file .csv hoặc .json.");
+    }
+
+    @Override
+    @Transactional
+    public VehicleImportResponse importVehicles(List<CreateVehicleRequest> requests) {
+        if (requests == null || requests.isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Danh sách xe cần nhập không được để trống.");
+        }
+        List<ImportRow> rows = new ArrayList<>(requests.size());
+        for (int i = 0; i < requests.size(); i++) {
+            CreateVehicleRequest request = requests.get(i) != null ? requests.get(i) : new CreateVehicleRequest();
+            rows.add(new ImportRow(i + 1, request));
+        }
+        return importRows(rows);
+    }
+
+    private VehicleImportResponse importRows(List<ImportRow> rows) {
+        Map<Long, Model> models = modelRepository.findAllById(distinct(rows, r -> r.request.getModelId())).stream()
+                .collect(Collectors.toMap(Model::getModelId, Function.identity()));
+        Map<Long, Station> stations = stationRepository.findAllById(distinct(rows, r -> r.request.getStationId())).stream()
+                .collect(Collectors.toMap(Station::getStationId, Function.identity()));
+
+        Set<String> existingPlates = findExisting(distinct(rows, r -> trimToNull(r.request.getLicensePlate())),
+                vehicleRepository::findExistingLicensePlates);
+        Set<String> existingVins = findExisting(distinct(rows, r -> trimToNull(r.request.getVinNumber())),
+                vehicleRepository::findExistingVinNumbers);
+        Set<String> existingEngines = findExisting(distinct(rows, r -> trimToNull(r.request.getEngineNumber())),
+                vehicleRepository::findExistingEngineNumbers);
+
+        Map<String, Integer> platesInFile = new HashMap<>();
+        Map<String, Integer> vinsInFile = new HashMap<>();
+        Map<String, Integer> enginesInFile = new HashMap<>();
+        int currentYear = Year.now().getValue();
+
+        List<ImportRow> validRows = new ArrayList<>();
+        List<VehicleImportResponse.RowError> errors = new ArrayList<>();
+        for (ImportRow row : rows) {
+            CreateVehicleRequest req = row.request;
+            for (ConstraintViolation<CreateVehicleRequest> violation : validator.validate(req)) {
+                row.errors.add(violation.getMessage());
+            }
+
+            String plate = trimToNull(req.getLicensePlate());
+            if (plate == null) {
+                row.errors.add("Biển số xe không được để trống.");
+            } else if (existingPlates.contains(normalizeKey(plate))) {
+                row.errors.add("Biển số xe '" + plate + "' đã tồn tại!");
+            } else {
+                checkDuplicateInFile(row, platesInFile, plate, "Biển số xe");
+            }
+
+            String vin = trimToNull(req.getVinNumber());
+            if (vin != null && existingVins.contains(normalizeKey(vin))) {
+                row.errors.add("Số khung (VIN) '" + vin + "' đã tồn tại trong hệ thống!");
+            } else if (vin != null) {
+                checkDuplicateInFile(row, vinsInFile, vin, "Số khung (VIN)");
+            }
+
+            String engine = trimToNull(req.getEngineNumber());
+            if (engine != null && existingEngines.contains(normalizeKey(engine))) {
+                row.errors.add("Số máy '" + engine + "' đã tồn tại trong hệ thống!");
+            } else if (engine != null) {
+                checkDuplicateInFile(row, enginesInFile, engine, "Số máy");
+            }
+
+            if (req.getBatteryLevel() == null || req.getBatteryLevel() < 0 || req.getBatteryLevel() > 100) {
+                row.errors.add("Mức pin phải từ 0 đến 100.");
+            }
+            if (req.getCurrentMileage() == null || req.getCurrentMileage() < 0) {
+                row.errors.add("Số km hiện tại không được để trống hoặc âm.");
+            }
+            if (req.getDepositAmount() == null || req.getDepositAmount() < 0) {
+                row.errors.add("Tiền cọc không được để trống hoặc âm.");
+            }
+            if (req.getManufacturingYear() != null && req.getManufacturingYear() > currentYear) {
+                row.errors.add("Năm sản xuất (" + req.getManufacturingYear() + ") không được lớn hơn năm hiện tại (" + currentYear + ")!");
+            }
+
+            row.model = req.getModelId() != null ? models.get(req.getModelId()) : null;
+            if (row.model == null) {
+                row.errors.add("Không tìm thấy mẫu xe với ID: " + req.getModelId());
+            }
+            row.station = req.getStationId() != null ? stations.get(req.getStationId()) : null;
+            if (row.station == null) {
+                row.errors.add("Không tìm thấy trạm với ID: " + req.getStationId());
+            }
+
+            row.status = parseEnum(VehicleStatus.class, req.getStatus(), VehicleStatus.AVAILABLE);
+            if (row.status == null) {
+                row.errors.add("Trạng thái xe không hợp lệ: " + req.getStatus());
+            }
+            row.condition = parseEnum(VehicleCondition.class, req.getCondition(), VehicleCondition.GOOD);
+            if (row.condition == null) {
+                row.errors.add("Tình trạng xe không hợp lệ: " + req.getCondition());
+            }
+
+            if (row.errors.isEmpty()) {
+                validRows.add(row);
+            } else {
+                errors.add(VehicleImportResponse.RowError.builder()
+                        .row(row.rowNumber)
+                        .licensePlate(plate)
+                        .messages(List.copyOf(row.errors))
+                        .build());
+            }
+        }
+
+        insertVehicles(validRows);
+        log.info("Nhập xe hàng loạt: {} dòng, thành công {}, lỗi {}", rows.size(), validRows.size(), errors.size());
+
+        return VehicleImportResponse.builder()
+                .totalRows(rows.size())
+                .importedCount(validRows.size())
+                .failedCount(errors.size())
+                .errors(errors)
+                .build();
+    }
+
+    private void insertVehicles(List<ImportRow> rows) {
+        if (rows.isEmpty()) {
+            return;
+        }
+        Timestamp createdAt = Timestamp.valueOf(LocalDateTime.now());
+        try {
+            jdbcTemplate.batchUpdate("""
+                    INSERT INTO vehicles (license_plate, battery_level, model_id, status, station_id, current_mileage, condition,
+                                          deposit_amount, vin_number, engine_number, manufacturing_year, created_at)
+                    VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)""", rows, INSERT_BATCH_SIZE, (ps, row) -> {
+                CreateVehicleRequest req = row.request;
+                ps.setString(1, req.getLicensePlate().trim());
+                ps.setInt(2, req.getBatteryLevel());
+                ps.setLong(3, row.model.getModelId());
+                ps.setString(4, row.status.name());
+                ps.setLong(5, row.station.getStationId());
+                ps.setDouble(6, req.getCurrentMileage());
+                ps.setString(7, row.condition.name());
+                ps.setDouble(8, req.getDepositAmount());
+                ps.setString(9, req.getVinNumber().trim());
+                ps.setString(10, req.getEngineNumber().trim());
+                ps.setInt(11, req.getManufacturingYear());
+                ps.setTimestamp(12, createdAt);
+            });
+            modelCatalog.rebuildAfterCommit();
+        } catch (DataIntegrityViolationException e) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT,
+                    "Dữ liệu xe bị trùng do có thao tác đồng thời. Vui lòng thử nhập lại.");
+        }
+    }
+
+    private List<ImportRow> parseCsv(MultipartFile file) throws IOException {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(file.getInputStream(), StandardCharsets.UTF_8))) {
+            String headerLine = reader.readLine();
+            if (headerLine == null) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "File CSV không có dòng tiêu đề.");
+            }
+            if (headerLine.startsWith("\uFEFF")) {
+                headerLine = headerLine.substring(1);
+            }
+            Map<String, Integer> columns = new HashMap<>();
+            List<String> header = splitCsvLine(headerLine);
+            for (int i = 0; i < header.size(); i++) {
+                columns.put(header.get(i).trim().toLowerCase(Locale.ROOT), i);
+            }
+            List<String> missing = REQUIRED_CSV_COLUMNS.stream()
+                    .filter(c -> !columns.containsKey(c.toLowerCase(Locale.ROOT)))
+                    .toList();
+            if (!missing.isEmpty()) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "File CSV thiếu cột: " + String.join(", ", missing));
+            }
+
+            List<ImportRow> rows = new ArrayList<>();
+            int rowNumber = 0;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                rowNumber++;
+                if (line.isBlank()) {
+                    continue;
+                }
+                CsvRecord record = new CsvRecord(splitCsvLine(line), columns);
+                ImportRow row = new ImportRow(rowNumber, new CreateVehicleRequest());
+                CreateVehicleRequest req = row.request;
+                req.setLicensePlate(record.text("licensePlate"));
+                req.setBatteryLevel(record.number("batteryLevel", Integer::valueOf, row.errors));
+                req.setModelId(record.number("modelId", Long::valueOf, row.errors));
+                req.setStationId(record.number("stationId", Long::valueOf, row.errors));
+                req.setCurrentMileage(record.number("currentMileage", Double::valueOf, row.errors));
+                req.setStatus(record.text("status"));
+                req.setCondition(record.text("condition"));
+                req.setDepositAmount(record.number("depositAmount", Double::valueOf, row.errors));
+                req.setVinNumber(record.text("vinNumber"));
+                req.setEngineNumber(record.text("engineNumber"));
+                req.setManufacturingYear(record.number("manufacturingYear", Integer::valueOf, row.errors));
+                rows.add(row);
+            }
+            if (rows.isEmpty()) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "File CSV không có dòng dữ liệu nào.");
+            }
+            return rows;
+        }
+    }
+
+    private static List<String> splitCsvLine(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    current.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    current.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(current.toString());
+                current.setLength(0);
+            } else {
+                current.append(c);
+            }
+        }
+        fields.add(current.toString());
+        return fields;
+    }
+
+    private Set<String> findExisting(Collection<String> values, Function<Collection<String>, List<String>> query) {
+        List<String> list = new ArrayList<>(values);
+        Set<String> existing = new HashSet<>();
+        for (int from = 0; from < list.size(); from += IN_CLAUSE_CHUNK) {
+            for (String value : query.apply(list.subList(from, Math.min(from + IN_CLAUSE_CHUNK, list.size())))) {
+                existing.add(normalizeKey(value));
+            }
+        }
+        return existing;
+    }
+
+    private static void checkDuplicateInFile(ImportRow row, Map<String, Integer> seen, String value, String label) {
+        Integer firstRow = seen.putIfAbsent(normalizeKey(value), row.rowNumber);
+        if (firstRow != null) {
+            row.errors.add(label + " '" + value + "' bị trùng với dòng " + firstRow + " trong file.");
+        }
+    }
+
+    /**
+     * Khóa so trùng cho biển số, VIN, số máy. Collation mặc định của SQL Server không phân biệt hoa thường,
+     * nên "51a-12345" và "51A-12345" vi phạm cùng một unique constraint và phải bị coi là trùng ngay khi kiểm tra.
+     */
+    private static String normalizeKey(String value) {
+        return value.toUpperCase(Locale.ROOT);
+    }
+
+    private static <T> Set<T> distinct(List<ImportRow> rows, Function<ImportRow, T> key) {
+        Set<T> values = new LinkedHashSet<>();
+        for (ImportRow row : rows) {
+            T value = key.apply(row);
+            if (value != null) {
+                values.add(value);
+            }
+        }
+        return values;
+    }
+
+    private static <E extends Enum<E>> E parseEnum(Class<E> type, String value, E defaultValue) {
+        String trimmed = trimToNull(value);
+        if (trimmed == null) {
+            return defaultValue;
+        }
+        try {
+            return Enum.valueOf(type, trimmed.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static String trimToNull(String value) {
+        return value == null || value.isBlank() ? null : value.trim();
+    }
+
+    private static final class ImportRow {
+        private final int rowNumber;
+        private final CreateVehicleRequest request;
+        private final List<String> errors = new ArrayList<>();
+        private Model model;
+        private Station station;
+        private VehicleStatus status;
+        private VehicleCondition condition;
+
+        private ImportRow(int rowNumber, CreateVehicleRequest request) {
+            this.rowNumber = rowNumber;
+            this.request = request;
+        }
+    }
+
+    private record CsvRecord(List<String> fields, Map<String, Integer> columns) {
+        String text(String column) {
+            Integer index = columns.get(column.toLowerCase(Locale.ROOT));
+            return index == null || index >= fields.size() ? null : trimToNull(fields.get(index));
+        }
+
+        <N> N number(String column, Function<String, N> parser, List<String> errors) {
+            String value = text(column);
+            if (value == null) {
+                return null;
+            }
+            try {
+                return parser.apply(value);
+            } catch (NumberFormatException e) {
+                errors.add("Cột " + column + " không phải là số hợp lệ: '" + value + "'");
+                return null;
+            }
+        }
+    }
+}
@@ -7,6 +7,10 @@ import com.fptu.evstation.rental.evrentalsystem.repository.*;
 import com.fptu.evstation.rental.evrentalsystem.service.ModelService;
 import com.fptu.evstation.rental.evrentalsystem.service.StationService;
 import com.fptu.evstation.rental.evrentalsystem.service.VehicleService;
+import com.fptu.evstation.rental.evrentalsystem.service.util.ArchiveWindow;
+import com.fptu.evstation.rental.evrentalsystem.service.util.ImageDerivativeService;
+import com.fptu.evstation.rental.evrentalsystem.service.util.ModelCatalog;
+import com.fptu.evstation.rental.evrentalsystem.service.util.VehicleHistoryWriter;
 import jakarta.persistence.criteria.Join;
 import jakarta.persistence.criteria.JoinType;
 import jakarta.persistence.criteria.Predicate;
@@ -37,12 +41,16 @@ public class VehicleServiceImpl implements VehicleService {
     private final VehicleRepository vehicleRepository;
     private final VehicleHistoryRepository historyRepository;
     private final BookingRepository bookingRepository;
-    private final UserRepository userRepository;
     private final ObjectMapper objectMapper;
     private final Path damageReportDir = Paths.get(System.getProperty("user.dir"), "uploads", "damage_reports");
 
     private final StationService stationService;
     private final ModelService modelService;
+    private final ImageDerivativeService imageDerivativeService;
+    private final ModelCatalog modelCatalog;
+    private final VehicleHistoryWriter vehicleHistoryWriter;
+    private final ArchivedVehicleHistoryRepository archivedHistoryRepository;
+    private final ArchiveWindow archiveWindow;
 
     @Override
     @Transactional
@@ -87,6 +95,7 @@ public class VehicleServiceImpl implements VehicleService {
                 .build();
 
         Vehicle savedVehicle = vehicleRepository.save(vehicle);
+        modelCatalog.indexVehicle(savedVehicle);
 
         return VehicleResponse.builder()
                 .vehicleId(savedVehicle.getVehicleId())
@@ -176,7 +185,9 @@ public class VehicleServiceImpl implements VehicleService {
             vehicle.setStation(station);
         }
 
-        return vehicleRepository.save(vehicle);
+        Vehicle saved = vehicleRepository.save(vehicle);
+        modelCatalog.indexVehicle(saved);
+        return saved;
     }
 
     @Override
@@ -190,6 +201,7 @@ public class VehicleServiceImpl implements VehicleService {
                     "Không thể xóa xe đang trong trạng thái 'RENTED'.");
         }
         vehicleRepository.delete(vehicle);
+        modelCatalog.removeVehicle(id);
     }
 
     @Override
@@ -216,7 +228,7 @@ public class VehicleServiceImpl implements VehicleService {
                     .rangeKm(model.getRangeKm())
                     .features(model.getFeatures())
                     .description(model.getDescription())
-                    .imagePaths(getModelImagePaths(model))
+                    .imagePaths(getModelThumbnailPaths(model))
                     .depositAmount(vehicle.getDepositAmount())
                     .vinNumber(vehicle.getVinNumber())
                     .engineNumber(vehicle.getEngineNumber())
@@ -314,7 +326,7 @@ public class VehicleServiceImpl implements VehicleService {
                     .rangeKm(model.getRangeKm())
                     .features(model.getFeatures())
                     .description(model.getDescription())
-                    .imagePaths(getModelImagePaths(model))
+                    .imagePaths(getModelThumbnailPaths(model))
                     .depositAmount(vehicle.getDepositAmount())
                     .vinNumber(vehicle.getVinNumber())
                     .engineNumber(vehicle.getEngineNumber())
@@ -434,19 +446,18 @@ public class VehicleServiceImpl implements VehicleService {
             String photoPathsJson = objectMapper.writeValueAsString(photoPaths);
             vehicle.setDamageReportPhotos(photoPathsJson);
 
-            recordVehicleAction(
-                    vehicleId,
-                    staff.getUserId(),
-                    null,
-                    staff.getStation().getStationId(),
-                    VehicleActionType.MAINTENANCE,
-                    request.getDescription(),
-                    lastKnownCondition,
-                    null,
-                    vehicle.getBatteryLevel(),
-                    vehicle.getCurrentMileage(),
-                    photoPathsJson
-            );
+            // Ghi cùng transaction với việc chuyển xe sang bảo trì
+            vehicleHistoryWriter.append(VehicleHistoryWriter.HistoryEntry.builder()
+                    .vehicleId(vehicleId)
+                    .staffId(staff.getUserId())
+                    .stationId(staff.getStation().getStationId())
+                    .actionType(VehicleActionType.MAINTENANCE)
+                    .note(request.getDescription())
+                    .conditionBefore(lastKnownCondition)
+                    .batteryLevel(vehicle.getBatteryLevel())
+                    .mileage(vehicle.getCurrentMileage())
+                    .photoPathsJson(photoPathsJson)
+                    .build(), VehicleHistoryWriter.Durability.IN_TRANSACTION);
         } catch (Exception e) {
             throw new RuntimeException("Lỗi khi lưu ảnh hoặc ghi lịch sử báo cáo hư hỏng.", e);
         }
@@ -479,36 +490,76 @@ public class VehicleServiceImpl implements VehicleService {
         }
     }
 
-    @Override
-    public VehicleHistory recordVehicleAction(Long vehicleId, Long staffId, Long renterId, Long stationId, VehicleActionType type, String note, String conditionBefore, String conditionAfter, Integer battery, Double mileage, String photoPathsJson) {
-
-        Vehicle vehicle = vehicleRepository.findById(vehicleId)
-                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Không tìm thấy xe"));
-        User staff = staffId != null ? userRepository.findById(staffId).orElse(null) : null;
-        User renter = renterId != null ? userRepository.findById(renterId).orElse(null) : null;
-        Station station = stationId != null ? stationService.getStationById(stationId) : null;
-
-        VehicleHistory history = VehicleHistory.builder()
-                .vehicle(vehicle)
-                .staff(staff)
-                .renter(renter)
-                .station(station)
-                .actionType(type)
-                .note(note)
-                .conditionBefore(conditionBefore)
-                .conditionAfter(conditionAfter)
-                .batteryLevel(battery)
-                .mileage(mileage)
-                .photoPaths(photoPathsJson)
-                .build();
-
-        return historyRepository.save(history);
-    }
     @Override
     public List<VehicleHistoryResponse> getVehicleHistory(Long stationId, LocalDate from, LocalDate to, VehicleType vehicleType, String licensePlate) {
         Sort sort = Sort.by(Sort.Direction.DESC, "actionTime");
 
-        Specification<VehicleHistory> spec = (root, query, cb) -> {
+        List<VehicleHistory> histories = historyRepository.findAll(
+                historySpec(stationId, from, to, vehicleType, licensePlate), sort);
+
+        List<VehicleHistoryResponse> responses = histories.stream()
+                .map(h -> {
+                    try {
+                        return VehicleHistoryResponse.builder()
+                                .historyId(h.getHistoryId())
+                                .vehicleType(h.getVehicle() != null ? h.getVehicle().getModel().getVehicleType() : null)
+                                .licensePlate(h.getVehicle() != null ? h.getVehicle().getLicensePlate() : null)
+                                .staffName(h.getStaff() != null ? h.getStaff().getFullName() : null)
+                                .renterName(h.getRenter() != null ? h.getRenter().getFullName() : null)
+                                .stationName(h.getStation() != null ? h.getStation().getName() : null)
+                                .actionType(h.getActionType().name())
+                                .note(h.getNote())
+                                .conditionBefore(h.getConditionBefore())
+                                .conditionAfter(h.getConditionAfter())
+                                .batteryLevel(h.getBatteryLevel())
+                                .mileage(h.getMileage())
+                                .photoPath(h.getPhotoPaths())
+                                .actionTime(h.getActionTime())
+                                .build();
+                    } catch (Exception e) {
+                        System.err.println("Error processing history record " + h.getHistoryId() + ": " + e.getMessage());
+                        return null;
+                    }
+                })
+                .filter(response -> response != null)
+                .collect(Collectors.toList());
+
+        // Khoảng thời gian vượt qua mốc lưu trữ: đọc thêm bảng lưu trữ với cùng điều kiện lọc
+        if (archiveWindow.reaches(from != null ? from.atStartOfDay() : null)) {
+            Specification<ArchivedVehicleHistory> archiveSpec = historySpec(stationId, from, to, vehicleType, licensePlate);
+            if (from != null) {
+                int toMonth = ArchiveWindow.monthOf(to != null ? to.atTime(LocalTime.MAX) : LocalDateTime.now());
+                archiveSpec = archiveSpec.and((root, query, cb) ->
+                        cb.between(root.get("archiveMonth"), ArchiveWindow.monthOf(from.atStartOfDay()), toMonth));
+            }
+            archivedHistoryRepository.findAll(archiveSpec, sort).stream()
+                    .map(h -> VehicleHistoryResponse.builder()
+                            .historyId(h.getHistoryId())
+                            .vehicleType(h.getVehicle() != null ? h.getVehicle().getModel().getVehicleType() : null)
+                            .licensePlate(h.getVehicle() != null ? h.getVehicle().getLicensePlate() : null)
+                            .staffName(h.getStaff() != null ? h.getStaff().getFullName() : null)
+                            .renterName(h.getRenter() != null ? h.getRenter().getFullName() : null)
+                            .stationName(h.getStation() != null ? h.getStation().getName() : null)
+                            .actionType(h.getActionType().name())
+                            .note(h.getNote())
+                            .conditionBefore(h.getConditionBefore())
+                            .conditionAfter(h.getConditionAfter())
+                            .batteryLevel(h.getBatteryLevel())
+                            .mileage(h.getMileage())
+                            .photoPath(h.getPhotoPaths())
+                            .actionTime(h.getActionTime())
+                            .build())
+                    .forEach(responses::add);
+            responses.sort(Comparator.comparing(VehicleHistoryResponse::getActionTime, Comparator.nullsLast(Comparator.reverseOrder())));
+        }
+        return responses;
+    }
+
+    /**
+     * Điều kiện lọc lịch sử xe, dùng chung cho bảng nóng và bảng lưu trữ (cùng tên thuộc tính).
+     */
+    private <T> Specification<T> historySpec(Long stationId, LocalDate from, LocalDate to, VehicleType vehicleType, String licensePlate) {
+        return (root, query, cb) -> {
             List<Predicate> predicates = new ArrayList<>();
 
             if (stationId != null) {
@@ -521,14 +572,14 @@ public class VehicleServiceImpl implements VehicleService {
                 predicates.add(cb.lessThanOrEqualTo(root.get("actionTime"), to.atTime(LocalTime.MAX)));
             }
             if (vehicleType != null) {
-                Join<VehicleHistory, Vehicle> vehicleJoin = root.join("vehicle", JoinType.INNER);
+                Join<T, Vehicle> vehicleJoin = root.join("vehicle", JoinType.INNER);
                 Join<Vehicle, Model> modelJoin = vehicleJoin.join("model", JoinType.INNER);
                 predicates.add(cb.equal(modelJoin.get("vehicleType"), vehicleType));
             }
             if (licensePlate != null && !licensePlate.isBlank()) {
-                Join<VehicleHistory, Vehicle> vehicleJoin = root.getJoins().stream()
+                Join<T, Vehicle> vehicleJoin = root.getJoins().stream()
                         .filter(j -> j.getAttribute().getName().equals("vehicle"))
-                        .map(j -> (Join<VehicleHistory, Vehicle>) j)
+                        .map(j -> (Join<T, Vehicle>) j)
                         .findFirst()
                         .orElseGet(() -> root.join("vehicle", JoinType.INNER));
 
@@ -544,35 +595,6 @@ public class VehicleServiceImpl implements VehicleService {
 
             return cb.and(predicates.toArray(new Predicate[0]));
         };
-
-        List<VehicleHistory> histories = historyRepository.findAll(spec, sort);
-
-        return histories.stream()
-                .map(h -> {
-                    try {
-                        return VehicleHistoryResponse.builder()
-                                .historyId(h.getHistoryId())
-                                .vehicleType(h.getVehicle() != null ? h.getVehicle().getModel().getVehicleType() : null)
-                                .licensePlate(h.getVehicle() != null ? h.getVehicle().getLicensePlate() : null)
-                                .staffName(h.getStaff() != null ? h.getStaff().getFullName() : null)
-                                .renterName(h.getRenter() != null ? h.getRenter().getFullName() : null)
-                                .stationName(h.getStation() != null ? h.getStation().getName() : null)
-                                .actionType(h.getActionType().name())
-                                .note(h.getNote())
-                                .conditionBefore(h.getConditionBefore())
-                                .conditionAfter(h.getConditionAfter())
-                                .batteryLevel(h.getBatteryLevel())
-                                .mileage(h.getMileage())
-                                .photoPath(h.getPhotoPaths())
-                                .actionTime(h.getActionTime())
-                                .build();
-                    } catch (Exception e) {
-                        System.err.println("Error processing history record " + h.getHistoryId() + ": " + e.getMessage());
-                        return null;
-                    }
-                })
-                .filter(response -> response != null)
-                .collect(Collectors.toList());
     }
 
     @Override
@@ -616,35 +638,24 @@ public class VehicleServiceImpl implements VehicleService {
                         .build())
                 .collect(Collectors.toList());
     }
-    @Override
-    public Map<String, Object> checkVehicleSchedule(Long vehicleId, LocalDateTime startTime, LocalDateTime endTime) {
-        Vehicle vehicle = getVehicleById(vehicleId);
 
-        if (vehicle.getStatus() != VehicleStatus.AVAILABLE) {
-            return Map.of("isAvailable", false, "message", "Xe này hiện không còn khả dụng.");
-        }
-
-        List<BookingStatus> excludedStatuses = List.of(BookingStatus.CANCELLED, BookingStatus.COMPLETED);
-        long conflicts = bookingRepository.countOverlappingBookingsForVehicle(
-                vehicle, startTime, endTime, excludedStatuses
-        );
-
-        if (conflicts > 0) {
-            return Map.of("isAvailable", false, "message", "Xe đã có lịch đặt trong khung giờ này.");
+    private List<String> getModelImagePaths(Model model) {
+        if (model == null || model.getImagePaths() == null || model.getImagePaths().isBlank()) {
+            return new ArrayList<>();
         }
+        return imageDerivativeService.largeUrls(List.of(model.getImagePaths().split(",")));
+    }
 
-        return Map.of("isAvailable", true, "message", "Xe khả dụng trong khung giờ này.");
-
-    private List<String> getModelImagePaths(Model model) {
+    private List<String> getModelThumbnailPaths(Model model) {
         if (model == null || model.getImagePaths() == null || model.getImagePaths().isBlank()) {
             return new ArrayList<>();
         }
-        return List.of(model.getImagePaths().split(","));
+        return imageDerivativeService.thumbnailUrls(List.of(model.getImagePaths().split(",")));
     }
 
     private VehicleResponse convertToResponse(Vehicle vehicle, Map<Long, BookingStatus> userActiveBookingMap) {
         Model model = vehicle.getModel();
-        List<String> paths = getModelImagePaths(model);
+        List<String> paths = getModelThumbnailPaths(model);
 
         boolean isReservedByMe = false;
         boolean isRentedByMe = false;
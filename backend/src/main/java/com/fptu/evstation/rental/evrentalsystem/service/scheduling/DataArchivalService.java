@@ -0,0 +1,216 @@
+package com.fptu.evstation.rental.evrentalsystem.service.scheduling;
+
+import com.fptu.evstation.rental.evrentalsystem.entity.ArchiveRun;
+import com.fptu.evstation.rental.evrentalsystem.entity.BookingStatus;
+import com.fptu.evstation.rental.evrentalsystem.entity.PaymentIntentStatus;
+import com.fptu.evstation.rental.evrentalsystem.repository.ArchiveRunRepository;
+import com.fptu.evstation.rental.evrentalsystem.repository.BookingRepository;
+import com.fptu.evstation.rental.evrentalsystem.service.util.ArchiveWindow;
+import io.micrometer.core.annotation.Timed;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManager;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Chuyển dữ liệu cũ sang các bảng *_Archive (phân vùng theo archiveMonth) để bảng nóng chỉ còn dòng gần đây:
+ * booking đã kết thúc (COMPLETED, CANCELLED, REFUNDED) cùng giao dịch, phí phạt và đường dẫn hợp đồng của nó,
+ * và lịch sử xe cũ hơn mốc lưu trữ (trừ bản ghi mới nhất của mỗi xe, dùng làm tình trạng gần nhất).
+ * Mỗi lô được chép bằng INSERT ... SELECT rồi xóa trong cùng một transaction.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class DataArchivalService {
+
+    private static final List<BookingStatus> TERMINAL_STATUSES =
+            List.of(BookingStatus.COMPLETED, BookingStatus.CANCELLED, BookingStatus.REFUNDED);
+
+    private final EntityManager entityManager;
+    private final TransactionTemplate transactionTemplate;
+    private final BookingRepository bookingRepository;
+    private final ArchiveRunRepository archiveRunRepository;
+    private final ArchiveWindow archiveWindow;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${archive.batch-size:500}")
+    private int batchSize;
+
+    @Scheduled(cron = "${archive.cron:0 15 3 * * ?}") // Mặc định 3h15 mỗi ngày
+    @Timed(value = "evrental.scheduled.job", extraTags = {"job", "data_archival"})
+    public void archive() {
+        archiveBefore(archiveWindow.cutoff());
+    }
+
+    public ArchiveRun archiveBefore(LocalDateTime cutoff) {
+        LocalDateTime startedAt = LocalDateTime.now();
+        long started = System.nanoTime();
+        long hotBefore = bookingRepository.count();
+        long probeBefore = probeRecentBookings();
+
+        long[] moved = new long[4];
+        List<Long> bookingIds;
+        while (!(bookingIds = findArchivableBookings(cutoff)).isEmpty()) {
+            List<Long> ids = bookingIds;
+            transactionTemplate.executeWithoutResult(status -> {
+                LocalDateTime now = LocalDateTime.now();
+                moved[1] += moveTransactions(ids, now);
+                moved[2] += moveTransactionDetails(ids, now);
+                moved[0] += moveBookings(ids, now);
+            });
+        }
+        List<Long> historyIds;
+        while (!(historyIds = findArchivableHistory(cutoff)).isEmpty()) {
+            List<Long> ids = historyIds;
+            transactionTemplate.executeWithoutResult(status -> moved[3] += moveHistory(ids, LocalDateTime.now()));
+        }
+
+        ArchiveRun run = archiveRunRepository.save(ArchiveRun.builder()
+                .startedAt(startedAt)
+                .cutoff(cutoff)
+                .bookingsMoved(moved[0])
+                .transactionsMoved(moved[1])
+                .transactionDetailsMoved(moved[2])
+                .vehicleHistoryMoved(moved[3])
+                .hotBookingsBefore(hotBefore)
+                .hotBookingsAfter(bookingRepository.count())
+                .probeMsBefore(probeBefore)
+                .probeMsAfter(probeRecentBookings())
+                .durationMs((System.nanoTime() - started) / 1_000_000)
+                .build());
+
+        meterRegistry.counter("evrental.archive.rows", "table", "bookings").increment(moved[0]);
+        meterRegistry.counter("evrental.archive.rows", "table", "transactions").increment(moved[1]);
+        meterRegistry.counter("evrental.archive.rows", "table", "transaction_details").increment(moved[2]);
+        meterRegistry.counter("evrental.archive.rows", "table", "vehicle_history").increment(moved[3]);
+        log.info("Lưu trữ dữ liệu trước {}: {} booking, {} giao dịch, {} phí phạt, {} lịch sử xe trong {} ms. " +
+                        "Booking nóng {} -> {}, truy vấn mẫu {} ms -> {} ms.",
+                cutoff, moved[0], moved[1], moved[2], moved[3], run.getDurationMs(),
+                run.getHotBookingsBefore(), run.getHotBookingsAfter(), run.getProbeMsBefore(), run.getProbeMsAfter());
+        return run;
+    }
+
+    // Truy vấn mẫu đại diện cho các màn hình chỉ xem dữ liệu gần đây, đo để thấy tác động của việc thu nhỏ bảng nóng
+    private long probeRecentBookings() {
+        LocalDateTime now = LocalDateTime.now();
+        long started = System.nanoTime();
+        bookingRepository.findAllByStartDateBetween(now.minusDays(30), now);
+        return (System.nanoTime() - started) / 1_000_000;
+    }
+
+    // Booking còn giao dịch sau mốc (ví dụ thanh toán trả xe muộn) chưa được chuyển để báo cáo theo ngày giao dịch vẫn đúng.
+    // Booking có khoản tiền chờ hoàn (intent REFUND_REQUIRED) cũng giữ lại, vì intent bị xóa khi chuyển booking.
+    private List<Long> findArchivableBookings(LocalDateTime cutoff) {
+        return entityManager.createQuery(
+                        "SELECT b.bookingId FROM Booking b " +
+                                "WHERE b.status IN :statuses AND b.endDate < :cutoff AND b.createdAt < :cutoff " +
+                                "AND NOT EXISTS (SELECT t FROM Transaction t WHERE t.booking = b AND t.transactionDate >= :cutoff) " +
+                                "AND NOT EXISTS (SELECT i FROM PaymentIntent i WHERE i.booking = b AND i.status = :refundRequired) " +
+                                "ORDER BY b.bookingId", Long.class)
+                .setParameter("statuses", TERMINAL_STATUSES)
+                .setParameter("cutoff", cutoff)
+                .setParameter("refundRequired", PaymentIntentStatus.REFUND_REQUIRED)
+                .setMaxResults(batchSize)
+                .getResultList();
+    }
+
+    private List<Long> findArchivableHistory(LocalDateTime cutoff) {
+        return entityManager.createQuery(
+                        "SELECT h.historyId FROM VehicleHistory h WHERE h.actionTime < :cutoff " +
+                                "AND EXISTS (SELECT n FROM VehicleHistory n WHERE n.vehicle = h.vehicle AND n.actionTime > h.actionTime) " +
+                                "ORDER BY h.historyId", Long.class)
+                .setParameter("cutoff", cutoff)
+                .setMaxResults(batchSize)
+                .getResultList();
+    }
+
+    private int moveTransactions(List<Long> bookingIds, LocalDateTime now) {
+        int moved = entityManager.createQuery(
+                        "INSERT INTO ArchivedTransaction (transactionId, archiveMonth, bookingId, stationId, amount, " +
+                                "paymentMethod, transactionDate, staffNote, staffId, archivedAt) " +
+                                "SELECT t.transactionId, YEAR(t.transactionDate) * 100 + MONTH(t.transactionDate), " +
+                                "b.bookingId, s.stationId, t.amount, t.paymentMethod, t.transactionDate, t.staffNote, " +
+                                "st.userId, :now " +
+                                "FROM Transaction t JOIN t.booking b LEFT JOIN b.vehicle v LEFT JOIN v.station s LEFT JOIN t.staff st " +
+                                "WHERE b.bookingId IN :ids")
+                .setParameter("ids", bookingIds)
+                .setParameter("now", now)
+                .executeUpdate();
+        entityManager.createQuery("DELETE FROM Transaction t WHERE t.booking.bookingId IN :ids")
+                .setParameter("ids", bookingIds)
+                .executeUpdate();
+        return moved;
+    }
+
+    private int moveTransactionDetails(List<Long> bookingIds, LocalDateTime now) {
+        int moved = entityManager.createQuery(
+                        "INSERT INTO ArchivedTransactionDetail (detailId, archiveMonth, bookingId, stationId, bookingCreatedAt, " +
+                                "feeId, appliedAmount, staffNote, adjustmentNote, photoPaths, archivedAt) " +
+                                "SELECT d.detailId, YEAR(b.createdAt) * 100 + MONTH(b.createdAt), b.bookingId, s.stationId, " +
+                                "b.createdAt, f.feeId, d.appliedAmount, d.staffNote, d.adjustmentNote, d.photoPaths, :now " +
+                                "FROM TransactionDetail d JOIN d.booking b LEFT JOIN b.vehicle v LEFT JOIN v.station s " +
+                                "LEFT JOIN d.penaltyFee f " +
+                                "WHERE b.bookingId IN :ids")
+                .setParameter("ids", bookingIds)
+                .setParameter("now", now)
+                .executeUpdate();
+        entityManager.createQuery("DELETE FROM TransactionDetail d WHERE d.booking.bookingId IN :ids")
+                .setParameter("ids", bookingIds)
+                .executeUpdate();
+        return moved;
+    }
+
+    private int moveBookings(List<Long> bookingIds, LocalDateTime now) {
+        int moved = entityManager.createQuery(
+                        "INSERT INTO ArchivedBooking (bookingId, archiveMonth, userId, vehicleId, stationId, startDate, endDate, " +
+                                "reservationDepositPaid, rentalDepositPaid, refund, refundNote, rentalDeposit, finalFee, status, " +
+                                "invoicePdfPath, contractPdfPath, checkInPhotoPaths, createdAt, archivedAt) " +
+                                "SELECT b.bookingId, YEAR(b.startDate) * 100 + MONTH(b.startDate), u.userId, v.vehicleId, " +
+                                "s.stationId, b.startDate, b.endDate, b.reservationDepositPaid, b.rentalDepositPaid, b.refund, " +
+                                "b.refundNote, b.rentalDeposit, b.finalFee, b.status, b.invoicePdfPath, c.contractPdfPath, " +
+                                "b.checkInPhotoPaths, b.createdAt, :now " +
+                                "FROM Booking b JOIN b.user u JOIN b.station s LEFT JOIN b.vehicle v " +
+                                "LEFT JOIN Contract c ON c.booking = b " +
+                                "WHERE b.bookingId IN :ids")
+                .setParameter("ids", bookingIds)
+                .setParameter("now", now)
+                .executeUpdate();
+        // Các bảng còn tham chiếu booking: hợp đồng đã chép đường dẫn PDF, intent và khóa idempotency đã hết hiệu lực
+        for (String entity : List.of("Contract", "PaymentIntent", "BookingIdempotencyKey")) {
+            entityManager.createQuery("DELETE FROM " + entity + " e WHERE e.booking.bookingId IN :ids")
+                    .setParameter("ids", bookingIds)
+                    .executeUpdate();
+        }
+        entityManager.createQuery("DELETE FROM Booking b WHERE b.bookingId IN :ids")
+                .setParameter("ids", bookingIds)
+                .executeUpdate();
+        return moved;
+    }
+
+    private int moveHistory(List<Long> historyIds, LocalDateTime now) {
+        int moved = entityManager.createQuery(
+                        "INSERT INTO ArchivedVehicleHistory (historyId, archiveMonth, vehicleId, staffId, renterId, stationId, " +
+                                "actionType, note, conditionBefore, conditionAfter, batteryLevel, mileage, photoPaths, " +
+                                "actionTime, archivedAt) " +
+                                "SELECT h.historyId, YEAR(h.actionTime) * 100 + MONTH(h.actionTime), v.vehicleId, st.userId, " +
+                                "r.userId, s.stationId, h.actionType, h.note, h.conditionBefore, h.conditionAfter, " +
+                                "h.batteryLevel, h.mileage, h.photoPaths, h.actionTime, :now " +
+                                "FROM VehicleHistory h LEFT JOIN h.vehicle v LEFT JOIN h.staff st LEFT JOIN h.renter r " +
+                                "LEFT JOIN h.station s " +
+                                "WHERE h.historyId IN :ids")
+                .setParameter("ids", historyIds)
+                .setParameter("now", now)
+                .executeUpdate();
+        entityManager.createQuery("DELETE FROM VehicleHistory h WHERE h.historyId IN :ids")
+                .setParameter("ids", historyIds)
+                .executeUpdate();
+        return moved;
+    }
+}
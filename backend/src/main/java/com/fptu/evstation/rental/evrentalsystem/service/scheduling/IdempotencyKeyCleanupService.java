@@ -0,0 +1,33 @@
+package com.fptu.evstation.rental.evrentalsystem.service.scheduling;
+
+import com.fptu.evstation.rental.evrentalsystem.repository.BookingIdempotencyKeyRepository;
+import io.micrometer.core.annotation.Timed;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class IdempotencyKeyCleanupService {
+    private final BookingIdempotencyKeyRepository idempotencyKeyRepository;
+
+    @Value("${booking.idempotency-ttl-hours:24}")
+    private long ttlHours;
+
+    /**
+     * Xóa Idempotency-Key của yêu cầu đặt xe đã quá hạn giữ
+     */
+    @Scheduled(cron = "0 30 * * * ?") // Chạy vào phút 30 mỗi giờ
+    @Timed(value = "evrental.scheduled.job", extraTags = {"job", "idempotency_key_cleanup"})
+    public void cleanupExpiredKeys() {
+        int deleted = idempotencyKeyRepository.deleteCreatedBefore(LocalDateTime.now().minusHours(ttlHours));
+        if (deleted > 0) {
+            log.info("Đã xóa {} Idempotency-Key đặt xe quá hạn.", deleted);
+        }
+    }
+}
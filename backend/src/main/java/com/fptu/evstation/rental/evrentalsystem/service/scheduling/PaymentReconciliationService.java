@@ -0,0 +1,129 @@
+package com.fptu.evstation.rental.evrentalsystem.service.scheduling;
+
+import com.fptu.evstation.rental.evrentalsystem.entity.PaymentIntent;
+import com.fptu.evstation.rental.evrentalsystem.entity.PaymentIntentStatus;
+import com.fptu.evstation.rental.evrentalsystem.repository.PaymentIntentRepository;
+import com.fptu.evstation.rental.evrentalsystem.service.PaymentIntentService;
+import com.fptu.evstation.rental.evrentalsystem.service.util.PayOSGateway;
+import io.micrometer.core.annotation.Timed;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import vn.payos.exception.NotFoundException;
+import vn.payos.model.v2.paymentRequests.PaymentLink;
+import vn.payos.model.v2.paymentRequests.PaymentLinkStatus;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Đối soát các orderCode còn PENDING với PayOS để bù cho webhook bị mất:
+ * link đã PAID thì xác nhận cọc, link đã hủy/hết hạn thì đóng intent.
+ * Trạng thái PayOS được hỏi theo lô, kết quả hủy/hết hạn ghi xuống DB bằng vài câu UPDATE gộp.
+ * Mỗi khoản PAID được xác nhận trong transaction riêng: một booking không xác nhận được (intent chuyển REFUND_REQUIRED)
+ * không làm rollback các khoản khác trong lô.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class PaymentReconciliationService {
+
+    private final PaymentIntentRepository paymentIntentRepository;
+    private final PaymentIntentService paymentIntentService;
+    private final PayOSGateway payOSGateway;
+
+    private static final int BATCH_SIZE = 100;
+
+    @Value("${payment.reconcile-stale-after-seconds:120}")
+    private long staleAfterSeconds;
+
+    @Value("${payment.reconcile-recheck-seconds:60}")
+    private long recheckSeconds;
+
+    @Value("${payment.reconcile-horizon-hours:24}")
+    private long horizonHours;
+
+    @Scheduled(fixedDelayString = "${payment.reconcile-interval-ms:60000}",
+            initialDelayString = "${payment.reconcile-interval-ms:60000}")
+    @Timed(value = "evrental.scheduled.job", extraTags = {"job", "payment_reconciliation"})
+    public void reconcile() {
+        if (!payOSGateway.isCallPermitted()) {
+            log.info("Cổng PayOS tạm ngắt, bỏ qua lượt đối soát thanh toán.");
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        List<PaymentIntent> stale = paymentIntentRepository.findStale(
+                PaymentIntentStatus.PENDING,
+                now.minusSeconds(staleAfterSeconds),
+                now.minusHours(horizonHours),
+                now.minusSeconds(recheckSeconds),
+                Limit.of(BATCH_SIZE));
+        if (stale.isEmpty()) {
+            return;
+        }
+
+        List<Long> checked = new ArrayList<>();
+        List<Long> cancelled = new ArrayList<>();
+        List<Long> expired = new ArrayList<>();
+        List<Long> paidOrderCodes = new ArrayList<>();
+        for (PaymentIntent intent : stale) {
+            PaymentLink link;
+            try {
+                link = payOSGateway.getPaymentLink(intent.getOrderCode());
+            } catch (NotFoundException e) {
+                // Lời gọi tạo link chưa tới được PayOS
+                checked.add(intent.getId());
+                cancelled.add(intent.getId());
+                continue;
+            } catch (PayOSGateway.GatewayUnavailableException e) {
+                log.warn("Dừng lượt đối soát: {}", e.getMessage());
+                break;
+            } catch (RuntimeException e) {
+                log.warn("Không hỏi được trạng thái orderCode {}: {}", intent.getOrderCode(), e.getMessage());
+                checked.add(intent.getId());
+                continue;
+            }
+            checked.add(intent.getId());
+            PaymentLinkStatus status = link.getStatus();
+            if (status == PaymentLinkStatus.PAID) {
+                paidOrderCodes.add(intent.getOrderCode());
+            } else if (status == PaymentLinkStatus.CANCELLED) {
+                cancelled.add(intent.getId());
+            } else if (status == PaymentLinkStatus.EXPIRED || status == PaymentLinkStatus.FAILED) {
+                expired.add(intent.getId());
+            }
+        }
+
+        if (!checked.isEmpty()) {
+            paymentIntentRepository.markChecked(checked, now);
+        }
+        if (!cancelled.isEmpty()) {
+            paymentIntentRepository.updateStatus(cancelled, PaymentIntentStatus.PENDING, PaymentIntentStatus.CANCELLED);
+        }
+        if (!expired.isEmpty()) {
+            paymentIntentRepository.updateStatus(expired, PaymentIntentStatus.PENDING, PaymentIntentStatus.EXPIRED);
+        }
+
+        int confirmed = 0;
+        int refundRequired = 0;
+        for (Long orderCode : paidOrderCodes) {
+            try {
+                PaymentIntent intent = paymentIntentService.confirmPaid(orderCode);
+                if (intent != null && intent.getStatus() == PaymentIntentStatus.REFUND_REQUIRED) {
+                    refundRequired++;
+                } else {
+                    confirmed++;
+                }
+            } catch (RuntimeException e) {
+                // Lỗi hạ tầng (ví dụ mất kết nối DB): intent vẫn PENDING, lượt sau sẽ thử lại
+                log.error("Đối soát: không xác nhận được thanh toán orderCode {}: {}", orderCode, e.getMessage());
+            }
+        }
+        log.info("Đối soát thanh toán: hỏi {} orderCode, xác nhận {}, cần hoàn tiền {}, hủy {}, hết hạn {}.",
+                checked.size(), confirmed, refundRequired, cancelled.size(), expired.size());
+    }
+}
@@ -6,6 +6,8 @@ import com.fptu.evstation.rental.evrentalsystem.entity.Vehicle;
 import com.fptu.evstation.rental.evrentalsystem.entity.VehicleStatus;
 import com.fptu.evstation.rental.evrentalsystem.repository.BookingRepository;
 import com.fptu.evstation.rental.evrentalsystem.repository.VehicleRepository;
+import com.fptu.evstation.rental.evrentalsystem.service.util.BookingStateMachine;
+import io.micrometer.core.annotation.Timed;
 import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -22,9 +24,11 @@ public class PendingBookingCleanupService {
 
     private final BookingRepository bookingRepository;
     private final VehicleRepository vehicleRepository;
+    private final BookingStateMachine bookingStateMachine;
     private static final int PAYMENT_TIMEOUT_MINUTES = 30;
 
     @Scheduled(cron = "0 */5 * * * ?")
+    @Timed(value = "evrental.scheduled.job", extraTags = {"job", "pending_booking_cleanup"})
     @Transactional
     public void cleanupPendingBookings() {
         log.info("Bắt đầu Job dọn dẹp booking PENDING quá hạn...");
@@ -41,8 +45,10 @@ public class PendingBookingCleanupService {
         log.warn("Tìm thấy {} booking PENDING quá hạn. Bắt đầu hủy...", expiredBookings.size());
 
         for (Booking booking : expiredBookings) {
-            booking.setStatus(BookingStatus.CANCELLED);
-            bookingRepository.save(booking);
+            // Webhook PayOS có thể vừa xác nhận cọc: khi đó booking không còn PENDING và không được hủy
+            if (!bookingStateMachine.transition(booking, BookingStatus.CANCELLED)) {
+                continue;
+            }
 
             Vehicle vehicle = booking.getVehicle();
             if (vehicle != null && vehicle.getStatus() == VehicleStatus.RESERVED) {
@@ -3,6 +3,8 @@ package com.fptu.evstation.rental.evrentalsystem.service.scheduling;
 import com.fptu.evstation.rental.evrentalsystem.entity.Booking;
 import com.fptu.evstation.rental.evrentalsystem.entity.BookingStatus;
 import com.fptu.evstation.rental.evrentalsystem.repository.BookingRepository;
+import com.fptu.evstation.rental.evrentalsystem.service.util.BookingStateMachine;
+import io.micrometer.core.annotation.Timed;
 import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -17,11 +19,13 @@ import java.util.List;
 @Slf4j
 public class ReservationCleanupService {
     private final BookingRepository bookingRepo;
+    private final BookingStateMachine bookingStateMachine;
 
     /**
      * Job chạy định kỳ để hủy các Booking đã quá hạn nhận xe (24 giờ sau CONFIRMED)
      */
     @Scheduled(cron = "0 0 * * * ?") // Chạy vào đầu mỗi giờ
+    @Timed(value = "evrental.scheduled.job", extraTags = {"job", "reservation_cleanup"})
     @Transactional
     public void cleanupExpiredReservations() {
         log.info("Bắt đầu Job kiểm tra Booking quá hạn...");
@@ -31,8 +35,9 @@ public class ReservationCleanupService {
         List<Booking> noShowBookings = bookingRepo.findByStatusAndStartDateBefore(BookingStatus.CONFIRMED, now);
 
         for (Booking booking : noShowBookings) {
-            booking.setStatus(BookingStatus.CANCELLED);
-            bookingRepo.save(booking);
+            if (!bookingStateMachine.transition(booking, BookingStatus.CANCELLED)) {
+                continue;
+            }
             log.warn("Booking ID {} bị hủy tự động do khách không đến nhận xe (No-show).", booking.getBookingId());
         }
     }
@@ -1,6 +1,7 @@
 package com.fptu.evstation.rental.evrentalsystem.service.scheduling;
 
 import com.fptu.evstation.rental.evrentalsystem.repository.AuthTokenRepository;
+import io.micrometer.core.annotation.Timed;
 import lombok.RequiredArgsConstructor;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
@@ -13,6 +14,7 @@ public class TokenCleanupService {
     private final AuthTokenRepository tokenRepo;
 
     @Scheduled(cron = "0 0 * * * ?")  // Chạy hàng giờ
+    @Timed(value = "evrental.scheduled.job", extraTags = {"job", "token_cleanup"})
     public void cleanupExpiredTokens() {
         tokenRepo.deleteExpiredBefore(LocalDateTime.now());
     }
@@ -0,0 +1,38 @@
+package com.fptu.evstation.rental.evrentalsystem.service.util;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+
+/**
+ * Ranh giới giữa bảng nóng và bảng lưu trữ: chỉ dòng cũ hơn archive.retention-days mới bị chuyển,
+ * nên truy vấn theo khoảng thời gian chỉ cần đọc thêm bảng lưu trữ khi khoảng đó vượt qua mốc này.
+ */
+@Component
+public class ArchiveWindow {
+
+    private final long retentionDays;
+
+    public ArchiveWindow(@Value("${archive.retention-days:365}") long retentionDays) {
+        this.retentionDays = retentionDays;
+    }
+
+    public LocalDateTime cutoff() {
+        return LocalDateTime.now().minusDays(retentionDays);
+    }
+
+    /**
+     * Khoảng [from, ...] có thể chứa dòng đã lưu trữ hay không; from null nghĩa là không giới hạn.
+     */
+    public boolean reaches(LocalDateTime from) {
+        return from == null || from.isBefore(cutoff());
+    }
+
+    /**
+     * Tháng phân vùng dạng yyyyMM.
+     */
+    public static int monthOf(LocalDateTime time) {
+        return time.getYear() * 100 + time.getMonthValue();
+    }
+}
@@ -0,0 +1,76 @@
+package com.fptu.evstation.rental.evrentalsystem.service.util;
+
+import com.fptu.evstation.rental.evrentalsystem.dto.BillResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Hóa đơn tạm (draft) theo booking, chỉ nằm trong bộ nhớ và hết hạn sau một thời gian ngắn.
+ * Nhân viên có thể tính lại nhiều lần mà không ghi DB; chỉ khi xác nhận thanh toán draft mới được lưu.
+ */
+@Service
+@Slf4j
+public class BillDraftCache {
+
+    public record FeeLine(Long feeId, double amount, String staffNote) {}
+
+    public record Photo(String originalFilename, byte[] content) {}
+
+    public record CustomFeeLine(String feeName, String description, double amount, List<Photo> photos) {}
+
+    public record Draft(BillResponse bill, double totalDebit, List<FeeLine> fees, CustomFeeLine customFee,
+                        LocalDateTime expiresAt) {
+
+        boolean isExpired(LocalDateTime now) {
+            return !expiresAt.isAfter(now);
+        }
+    }
+
+    private final Map<Long, Draft> drafts = new ConcurrentHashMap<>();
+    private final Duration ttl;
+
+    public BillDraftCache(@Value("${billing.draft-ttl-minutes:15}") long ttlMinutes) {
+        this.ttl = Duration.ofMinutes(ttlMinutes);
+    }
+
+    public Draft put(Long bookingId, BillResponse bill, double totalDebit, List<FeeLine> fees, CustomFeeLine customFee) {
+        Draft draft = new Draft(bill, totalDebit, List.copyOf(fees), customFee, LocalDateTime.now().plus(ttl));
+        drafts.put(bookingId, draft);
+        return draft;
+    }
+
+    /**
+     * Draft còn hạn của booking, hoặc null nếu chưa tính hoặc đã hết hạn.
+     */
+    public Draft get(Long bookingId) {
+        Draft draft = drafts.get(bookingId);
+        if (draft != null && draft.isExpired(LocalDateTime.now())) {
+            drafts.remove(bookingId, draft);
+            return null;
+        }
+        return draft;
+    }
+
+    public void remove(Long bookingId) {
+        drafts.remove(bookingId);
+    }
+
+    @Scheduled(fixedDelay = 60_000)
+    public void evictExpired() {
+        LocalDateTime now = LocalDateTime.now();
+        int before = drafts.size();
+        drafts.values().removeIf(draft -> draft.isExpired(now));
+        int evicted = before - drafts.size();
+        if (evicted > 0) {
+            log.debug("Đã xóa {} hóa đơn tạm hết hạn", evicted);
+        }
+    }
+}
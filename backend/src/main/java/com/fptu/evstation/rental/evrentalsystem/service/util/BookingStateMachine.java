@@ -0,0 +1,91 @@
+package com.fptu.evstation.rental.evrentalsystem.service.util;
+
+import com.fptu.evstation.rental.evrentalsystem.entity.Booking;
+import com.fptu.evstation.rental.evrentalsystem.entity.BookingStatus;
+import com.fptu.evstation.rental.evrentalsystem.event.BookingCancelledEvent;
+import com.fptu.evstation.rental.evrentalsystem.repository.BookingRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Nơi duy nhất đổi trạng thái booking. Mỗi bước chuyển là một câu UPDATE có điều kiện trên trạng thái cũ,
+ * nên khi hai luồng (webhook, job dọn dẹp, nhân viên, khách) cùng đổi một booking thì chỉ một luồng thắng.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class BookingStateMachine {
+
+    private static final Map<BookingStatus, Set<BookingStatus>> ALLOWED = new EnumMap<>(BookingStatus.class);
+
+    static {
+        ALLOWED.put(BookingStatus.PENDING, EnumSet.of(BookingStatus.CONFIRMED, BookingStatus.CANCELLED));
+        ALLOWED.put(BookingStatus.CONFIRMED, EnumSet.of(BookingStatus.RENTING, BookingStatus.CANCELLED, BookingStatus.CANCELLED_AWAIT_REFUND));
+        ALLOWED.put(BookingStatus.RENTING, EnumSet.of(BookingStatus.COMPLETED));
+        ALLOWED.put(BookingStatus.CANCELLED_AWAIT_REFUND, EnumSet.of(BookingStatus.REFUNDED));
+        ALLOWED.put(BookingStatus.COMPLETED, EnumSet.noneOf(BookingStatus.class));
+        ALLOWED.put(BookingStatus.CANCELLED, EnumSet.noneOf(BookingStatus.class));
+        ALLOWED.put(BookingStatus.REFUNDED, EnumSet.noneOf(BookingStatus.class));
+    }
+
+    private final BookingRepository bookingRepository;
+    private final ApplicationEventPublisher eventPublisher;
+
+    public static boolean isAllowed(BookingStatus from, BookingStatus to) {
+        return from != null && ALLOWED.get(from).contains(to);
+    }
+
+    public static Set<BookingStatus> allowedTargets(BookingStatus from) {
+        return Collections.unmodifiableSet(ALLOWED.get(from));
+    }
+
+    /**
+     * Chuyển booking từ trạng thái đang đọc được sang trạng thái mới.
+     * Trả về false nếu một luồng khác đã đổi trạng thái trước; khi thắng, entity cũng được cập nhật theo.
+     */
+    public boolean transition(Booking booking, BookingStatus to) {
+        BookingStatus from = booking.getStatus();
+        if (!isAllowed(from, to)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Không thể chuyển booking từ trạng thái " + from + " sang " + to + ".");
+        }
+        boolean won = bookingRepository.compareAndSetStatus(booking.getBookingId(), from, to) == 1;
+        if (won) {
+            booking.setStatus(to);
+            if (to == BookingStatus.CANCELLED || to == BookingStatus.CANCELLED_AWAIT_REFUND) {
+                eventPublisher.publishEvent(new BookingCancelledEvent(booking.getBookingId(), from, to));
+            }
+        } else {
+            log.warn("Booking {} không còn ở trạng thái {} khi chuyển sang {}; bỏ qua.", booking.getBookingId(), from, to);
+        }
+        return won;
+    }
+
+    /**
+     * Như transition nhưng báo lỗi CONFLICT khi thua, dùng cho các thao tác do người dùng gọi.
+     */
+    public void transitionOrThrow(Booking booking, BookingStatus to) {
+        if (!transition(booking, to)) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT,
+                    "Trạng thái booking vừa được thay đổi bởi thao tác khác. Vui lòng tải lại và thử lại.");
+        }
+    }
+
+    /**
+     * Trạng thái hiện tại trong DB, dùng sau khi thua để quyết định xử lý tiếp.
+     */
+    public BookingStatus currentStatus(Long bookingId) {
+        return bookingRepository.findStatusById(bookingId)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Không tìm thấy Booking."));
+    }
+}
@@ -4,11 +4,12 @@ import com.fptu.evstation.rental.evrentalsystem.entity.PasswordReset;
 import com.fptu.evstation.rental.evrentalsystem.entity.User;
 import com.fptu.evstation.rental.evrentalsystem.repository.PasswordResetRepository;
 import com.fptu.evstation.rental.evrentalsystem.repository.UserRepository;
+import io.micrometer.core.annotation.Timed;
 import jakarta.mail.MessagingException;
 import jakarta.mail.internet.MimeMessage;
 import jakarta.transaction.Transactional;
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
 import org.springframework.mail.SimpleMailMessage;
 import org.springframework.mail.javamail.JavaMailSender;
@@ -19,21 +20,40 @@ import org.springframework.web.server.ResponseStatusException;
 import java.io.File;
 import java.time.LocalDateTime;
 import java.util.Random;
+import java.util.concurrent.Semaphore;
 import java.util.regex.Pattern;
 
 @Service
-@RequiredArgsConstructor
 @Slf4j
 public class EmailService {
+    // Null khi không giới hạn số lần gửi đồng thời
+    private final Semaphore sendPermits;
     private final JavaMailSender mailSender;
     private final PasswordResetRepository tokenRepo;
     private final UserRepository userRepo;
 
+    public EmailService(JavaMailSender mailSender,
+                        PasswordResetRepository tokenRepo,
+                        UserRepository userRepo,
+                        @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads,
+                        @Value("${email.max-concurrent-sends:0}") int maxConcurrentSends) {
+        this.mailSender = mailSender;
+        this.tokenRepo = tokenRepo;
+        this.userRepo = userRepo;
+        // SMTPTransport.sendMessage là synchronized: trên virtual thread mỗi lần gửi sẽ ghim (pin) một carrier thread
+        // suốt phiên SMTP, nên mặc định giới hạn số lần gửi đồng thời dưới số carrier (xem docs/virtual-threads.md).
+        // Trên platform thread không cần giới hạn, trừ khi đặt email.max-concurrent-sends.
+        int limit = maxConcurrentSends > 0 ? maxConcurrentSends
+                : virtualThreads ? Math.max(1, Runtime.getRuntime().availableProcessors() / 2) : 0;
+        this.sendPermits = limit > 0 ? new Semaphore(limit) : null;
+    }
+
     private String generateOtp() {
         return String.valueOf(100000 + new Random().nextInt(900000));
     }
 
     @Transactional
+    @Timed(value = "evrental.email.send", extraTags = {"type", "password_reset_otp"})
     public String createPasswordResetToken(String email) {
         User user = userRepo.findByEmail(email)
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "User not found"));
@@ -69,7 +89,7 @@ public class EmailService {
                         "Đội ngũ EVolve"
         );
 
-        mailSender.send(message);
+        send(() -> mailSender.send(message));
 
         return otp;
     }
@@ -107,6 +127,7 @@ public class EmailService {
         tokenRepo.deleteByUser(user);
     }
 
+    @Timed(value = "evrental.email.send", extraTags = {"type", "invoice"})
     public void sendInvoiceWithAttachment(String toEmail, String customerName, String invoiceCode, File pdfFile) {
         try {
             MimeMessage message = mailSender.createMimeMessage();
@@ -125,7 +146,7 @@ public class EmailService {
             helper.setText(htmlContent, true);
             helper.addAttachment(pdfFile.getName(), pdfFile);
 
-            mailSender.send(message);
+            send(() -> mailSender.send(message));
             log.info("Đã gửi hóa đơn cho khách hàng {}", customerName);
 
         } catch (MessagingException e) {
@@ -133,5 +154,22 @@ public class EmailService {
             throw new RuntimeException("Lỗi khi gửi email hóa đơn: " + e.getMessage(), e);
         }
     }
-}
 
+    private void send(Runnable delivery) {
+        if (sendPermits == null) {
+            delivery.run();
+            return;
+        }
+        try {
+            sendPermits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Gửi email bị gián đoạn, vui lòng thử lại.");
+        }
+        try {
+            delivery.run();
+        } finally {
+            sendPermits.release();
+        }
+    }
+}
@@ -0,0 +1,286 @@
+package com.fptu.evstation.rental.evrentalsystem.service.util;
+
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sinh ảnh phái sinh (thumbnail cho trang danh sách, bản nén cho trang chi tiết) từ ảnh upload.
+ * Ảnh được sinh nền ngay sau khi upload, hoặc ở lần đầu được yêu cầu; khi chưa có thì trả về ảnh gốc.
+ * File phái sinh nằm ở uploads/derivatives/&lt;variant&gt;/&lt;đường dẫn gốc&gt;.jpg và được sinh lại khi ảnh gốc bị ghi đè.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class ImageDerivativeService {
+
+    private static final String UPLOADS_PREFIX = "/uploads/";
+    private static final String DERIVATIVES_DIR = "derivatives";
+
+    public enum Variant {
+        THUMB(320, 0.75f),
+        LARGE(1280, 0.82f);
+
+        private final int maxWidth;
+        private final float quality;
+
+        Variant(int maxWidth, float quality) {
+            this.maxWidth = maxWidth;
+            this.quality = quality;
+        }
+
+        private String dirName() {
+            return name().toLowerCase(Locale.ROOT);
+        }
+    }
+
+    private final UploadUrlService uploadUrlService;
+    private final Path uploadsDir = Paths.get(System.getProperty("user.dir"), "uploads").toAbsolutePath().normalize();
+
+    // Giải mã ảnh tốn CPU và bộ nhớ: giới hạn số luồng và hàng đợi, việc bị từ chối sẽ được thử lại ở lần yêu cầu sau
+    private final ThreadPoolExecutor executor = new ThreadPoolExecutor(
+            1, Math.max(1, Runtime.getRuntime().availableProcessors() / 2), 30, TimeUnit.SECONDS,
+            new ArrayBlockingQueue<>(256), runnable -> {
+                Thread thread = new Thread(runnable, "image-derivative");
+                thread.setDaemon(true);
+                return thread;
+            });
+    private final Set<String> inFlight = ConcurrentHashMap.newKeySet();
+    // Ảnh gốc không đọc được (ví dụ WebP, ImageIO không hỗ trợ) -> lastModified, để không thử lại liên tục
+    private final Map<Path, Long> unsupported = new ConcurrentHashMap<>();
+
+    public String thumbnailUrl(String relativePath) {
+        return derivativeUrl(relativePath, Variant.THUMB);
+    }
+
+    public List<String> thumbnailUrls(List<String> relativePaths) {
+        return relativePaths.stream().map(this::thumbnailUrl).toList();
+    }
+
+    public List<String> largeUrls(List<String> relativePaths) {
+        return relativePaths.stream().map(path -> derivativeUrl(path, Variant.LARGE)).toList();
+    }
+
+    /**
+     * URL (có hash) của ảnh phái sinh; nếu chưa sinh hoặc đã cũ thì xếp lịch sinh nền và trả về URL ảnh gốc.
+     */
+    public String derivativeUrl(String relativePath, Variant variant) {
+        Path original = resolveOriginal(relativePath);
+        if (original == null || !Files.isRegularFile(original)) {
+            return uploadUrlService.versioned(relativePath);
+        }
+        Path derivative = derivativePath(original, variant);
+        if (isFresh(original, derivative)) {
+            return uploadUrlService.versioned(toRelativePath(derivative));
+        }
+        if (!isUnsupported(original)) {
+            schedule(relativePath);
+        }
+        return uploadUrlService.versioned(relativePath);
+    }
+
+    public void generateAsync(String relativePath) {
+        if (relativePath != null) {
+            schedule(relativePath);
+        }
+    }
+
+    /**
+     * Sinh đồng bộ mọi variant còn thiếu của một ảnh. Trả về false nếu ảnh không tồn tại hoặc không đọc được.
+     */
+    public boolean generate(String relativePath) {
+        Path original = resolveOriginal(relativePath);
+        if (original == null || !Files.isRegularFile(original)) {
+            return false;
+        }
+        List<Variant> missing = Arrays.stream(Variant.values())
+                .filter(variant -> !isFresh(original, derivativePath(original, variant)))
+                .toList();
+        if (missing.isEmpty()) {
+            return true;
+        }
+        try {
+            int readWidth = missing.stream().mapToInt(variant -> variant.maxWidth).max().orElseThrow();
+            BufferedImage image = read(original, readWidth);
+            if (image == null) {
+                unsupported.put(original, Files.getLastModifiedTime(original).toMillis());
+                log.debug("Không đọc được ảnh {} để sinh ảnh phái sinh", relativePath);
+                return false;
+            }
+            for (Variant variant : missing) {
+                write(resize(image, variant.maxWidth), derivativePath(original, variant), variant.quality);
+            }
+            return true;
+        } catch (IOException | RuntimeException e) {
+            log.warn("Lỗi sinh ảnh phái sinh cho {}: {}", relativePath, e.getMessage());
+            return false;
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private void schedule(String relativePath) {
+        if (!inFlight.add(relativePath)) {
+            return;
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    generate(relativePath);
+                } finally {
+                    inFlight.remove(relativePath);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            inFlight.remove(relativePath);
+        }
+    }
+
+    private Path resolveOriginal(String relativePath) {
+        if (relativePath == null || !relativePath.startsWith(UPLOADS_PREFIX)) {
+            return null;
+        }
+        Path file = uploadsDir.resolve(relativePath.substring(UPLOADS_PREFIX.length())).normalize();
+        if (!file.startsWith(uploadsDir) || file.startsWith(uploadsDir.resolve(DERIVATIVES_DIR))) {
+            return null;
+        }
+        return file;
+    }
+
+    private Path derivativePath(Path original, Variant variant) {
+        Path relative = uploadsDir.relativize(original);
+        return uploadsDir.resolve(DERIVATIVES_DIR).resolve(variant.dirName())
+                .resolve(relative).resolveSibling(original.getFileName() + ".jpg");
+    }
+
+    private String toRelativePath(Path file) {
+        return UPLOADS_PREFIX + uploadsDir.relativize(file).toString().replace('\\', '/');
+    }
+
+    private boolean isFresh(Path original, Path derivative) {
+        try {
+            return Files.isRegularFile(derivative)
+                    && Files.getLastModifiedTime(derivative).compareTo(Files.getLastModifiedTime(original)) >= 0;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private boolean isUnsupported(Path original) {
+        Long lastModified = unsupported.get(original);
+        if (lastModified == null) {
+            return false;
+        }
+        try {
+            return lastModified == Files.getLastModifiedTime(original).toMillis();
+        } catch (IOException e) {
+            return true;
+        }
+    }
+
+    /**
+     * Đọc ảnh với subsampling khi ảnh gốc lớn hơn nhiều lần kích thước đích, tránh giải mã đủ độ phân giải
+     * (ảnh 20MB có thể chiếm hàng trăm MB heap).
+     */
+    private BufferedImage read(Path file, int targetWidth) throws IOException {
+        try (ImageInputStream input = ImageIO.createImageInputStream(file.toFile())) {
+            if (input == null) {
+                return null;
+            }
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+            if (!readers.hasNext()) {
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                ImageReadParam param = reader.getDefaultReadParam();
+                int subsampling = Math.max(1, reader.getWidth(0) / (targetWidth * 2));
+                param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+                return reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    private BufferedImage resize(BufferedImage source, int maxWidth) {
+        int width = Math.min(maxWidth, source.getWidth());
+        int height = Math.max(1, (int) Math.round((double) source.getHeight() * width / source.getWidth()));
+        BufferedImage current = source;
+        // Thu nhỏ từng nửa một để ảnh không bị răng cưa khi dùng nội suy bilinear
+        while (current.getWidth() / 2 >= width) {
+            current = draw(current, current.getWidth() / 2, Math.max(1, current.getHeight() / 2));
+        }
+        return draw(current, width, height);
+    }
+
+    private BufferedImage draw(BufferedImage source, int width, int height) {
+        BufferedImage target = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = target.createGraphics();
+        try {
+            // JPEG không có kênh alpha: nền trắng cho PNG/GIF trong suốt
+            g.setColor(Color.WHITE);
+            g.fillRect(0, 0, width, height);
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            g.drawImage(source, 0, 0, width, height, null);
+        } finally {
+            g.dispose();
+        }
+        return target;
+    }
+
+    private void write(BufferedImage image, Path target, float quality) throws IOException {
+        Files.createDirectories(target.getParent());
+        Path temp = Files.createTempFile(target.getParent(), target.getFileName().toString(), ".tmp");
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        try (ImageOutputStream output = ImageIO.createImageOutputStream(temp.toFile())) {
+            writer.setOutput(output);
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(quality);
+            param.setProgressiveMode(ImageWriteParam.MODE_DEFAULT);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        } finally {
+            writer.dispose();
+        }
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+}
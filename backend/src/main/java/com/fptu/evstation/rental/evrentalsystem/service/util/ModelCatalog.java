@@ -0,0 +1,272 @@
+package com.fptu.evstation.rental.evrentalsystem.service.util;
+
+import com.fptu.evstation.rental.evrentalsystem.entity.Model;
+import com.fptu.evstation.rental.evrentalsystem.entity.Vehicle;
+import com.fptu.evstation.rental.evrentalsystem.entity.VehicleType;
+import com.fptu.evstation.rental.evrentalsystem.repository.ModelRepository;
+import com.fptu.evstation.rental.evrentalsystem.repository.VehicleRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.*;
+
+/**
+ * Danh mục model theo trạm trong bộ nhớ để lọc và đếm facet (loại xe, số chỗ, khoảng giá).
+ * Mỗi giá trị facet và mỗi trạm là một BitSet theo số thứ tự model; lọc bằng phép AND các BitSet.
+ * Số đếm của một facet áp dụng mọi bộ lọc trừ chính facet đó, nên client biết còn bao nhiêu model nếu đổi lựa chọn.
+ * Model thuộc một trạm khi trạm có ít nhất một xe của model đó (mọi trạng thái, giống findDistinctModelIdsByStation).
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class ModelCatalog {
+
+    /**
+     * Khoảng giá thuê theo giờ (VNĐ), cận dưới tính vào khoảng.
+     */
+    public enum PriceBucket {
+        UNDER_10K(0, 10_000),
+        FROM_10K_TO_30K(10_000, 30_000),
+        FROM_30K_TO_60K(30_000, 60_000),
+        FROM_60K_TO_100K(60_000, 100_000),
+        FROM_100K(100_000, Double.MAX_VALUE);
+
+        private final double min;
+        private final double max;
+
+        PriceBucket(double min, double max) {
+            this.min = min;
+            this.max = max;
+        }
+
+        public double getMin() {
+            return min;
+        }
+
+        public double getMax() {
+            return max;
+        }
+
+        static PriceBucket of(double price) {
+            for (PriceBucket bucket : values()) {
+                if (price < bucket.max) {
+                    return bucket;
+                }
+            }
+            return FROM_100K;
+        }
+    }
+
+    public record Filter(VehicleType vehicleType, Integer seatCount, Double minPrice, Double maxPrice) {}
+
+    public record Result(List<Long> modelIds,
+                         Map<VehicleType, Integer> vehicleTypeCounts,
+                         Map<Integer, Integer> seatCountCounts,
+                         Map<PriceBucket, Integer> priceBucketCounts) {}
+
+    private record ModelFacets(Long modelId, VehicleType vehicleType, Integer seatCount, double price) {}
+
+    private record Placement(Long stationId, Long modelId) {}
+
+    private final ModelRepository modelRepository;
+    private final VehicleRepository vehicleRepository;
+
+    // Trạng thái gốc, chỉ sửa trong synchronized; reader dùng snapshot bất biến
+    private final Map<Long, ModelFacets> models = new HashMap<>();
+    private final Map<Long, Placement> vehicles = new HashMap<>();
+    private final Map<Long, Map<Long, Integer>> vehicleCounts = new HashMap<>();
+    private volatile Snapshot snapshot;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        List<Model> allModels = modelRepository.findAll();
+        List<Object[]> placements = vehicleRepository.findVehicleStationModelIds();
+        synchronized (this) {
+            models.clear();
+            vehicles.clear();
+            vehicleCounts.clear();
+            allModels.forEach(model -> models.put(model.getModelId(), toFacets(model)));
+            for (Object[] row : placements) {
+                place((Long) row[0], new Placement((Long) row[1], (Long) row[2]));
+            }
+            snapshot = Snapshot.of(models.values(), vehicleCounts);
+        }
+        log.info("Đã nạp danh mục facet: {} model, {} xe", allModels.size(), placements.size());
+    }
+
+    public Result search(Long stationId, Filter filter) {
+        Snapshot current = snapshot;
+        if (current == null) {
+            rebuild();
+            current = snapshot;
+        }
+        return current.search(stationId, filter);
+    }
+
+    public void indexModel(Model model) {
+        ModelFacets facets = toFacets(model);
+        afterCommit(() -> apply(() -> models.put(facets.modelId(), facets)));
+    }
+
+    public void removeModel(Long modelId) {
+        afterCommit(() -> apply(() -> models.remove(modelId)));
+    }
+
+    /**
+     * Ghi nhận xe được tạo, chuyển trạm hoặc đổi model. Chỉ tạo snapshot mới khi trạm/model thực sự thay đổi.
+     */
+    public void indexVehicle(Vehicle vehicle) {
+        Long vehicleId = vehicle.getVehicleId();
+        Placement placement = new Placement(vehicle.getStation().getStationId(), vehicle.getModel().getModelId());
+        afterCommit(() -> apply(() -> place(vehicleId, placement)));
+    }
+
+    public void removeVehicle(Long vehicleId) {
+        afterCommit(() -> apply(() -> place(vehicleId, null)));
+    }
+
+    /**
+     * Nạp lại toàn bộ sau khi transaction hiện tại commit (dùng cho ghi hàng loạt bằng JDBC).
+     */
+    public void rebuildAfterCommit() {
+        afterCommit(this::rebuild);
+    }
+
+    private synchronized void apply(Runnable change) {
+        if (snapshot == null) {
+            return;
+        }
+        change.run();
+        snapshot = Snapshot.of(models.values(), vehicleCounts);
+    }
+
+    private void place(Long vehicleId, Placement placement) {
+        Placement previous = placement != null ? vehicles.put(vehicleId, placement) : vehicles.remove(vehicleId);
+        if (Objects.equals(previous, placement)) {
+            return;
+        }
+        if (previous != null) {
+            Map<Long, Integer> counts = vehicleCounts.get(previous.stationId());
+            counts.computeIfPresent(previous.modelId(), (id, count) -> count > 1 ? count - 1 : null);
+        }
+        if (placement != null) {
+            vehicleCounts.computeIfAbsent(placement.stationId(), id -> new HashMap<>())
+                    .merge(placement.modelId(), 1, Integer::sum);
+        }
+    }
+
+    private void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    private static ModelFacets toFacets(Model model) {
+        return new ModelFacets(model.getModelId(), model.getVehicleType(), model.getSeatCount(),
+                model.getPricePerHour() != null ? model.getPricePerHour() : 0);
+    }
+
+    private record Snapshot(ModelFacets[] models,
+                            Map<Long, BitSet> byStation,
+                            Map<VehicleType, BitSet> byType,
+                            Map<Integer, BitSet> bySeats,
+                            Map<PriceBucket, BitSet> byPrice) {
+
+        static Snapshot of(Collection<ModelFacets> values, Map<Long, Map<Long, Integer>> vehicleCounts) {
+            ModelFacets[] models = values.stream()
+                    .sorted(Comparator.comparing(ModelFacets::modelId))
+                    .toArray(ModelFacets[]::new);
+            Map<Long, Integer> ordinals = new HashMap<>();
+            Map<VehicleType, BitSet> byType = new EnumMap<>(VehicleType.class);
+            Map<Integer, BitSet> bySeats = new TreeMap<>();
+            Map<PriceBucket, BitSet> byPrice = new EnumMap<>(PriceBucket.class);
+            for (int i = 0; i < models.length; i++) {
+                ModelFacets model = models[i];
+                ordinals.put(model.modelId(), i);
+                if (model.vehicleType() != null) {
+                    byType.computeIfAbsent(model.vehicleType(), k -> new BitSet()).set(i);
+                }
+                if (model.seatCount() != null) {
+                    bySeats.computeIfAbsent(model.seatCount(), k -> new BitSet()).set(i);
+                }
+                byPrice.computeIfAbsent(PriceBucket.of(model.price()), k -> new BitSet()).set(i);
+            }
+            Map<Long, BitSet> byStation = new HashMap<>();
+            vehicleCounts.forEach((stationId, counts) -> {
+                BitSet bits = new BitSet(models.length);
+                counts.keySet().forEach(modelId -> {
+                    Integer ordinal = ordinals.get(modelId);
+                    if (ordinal != null) {
+                        bits.set(ordinal);
+                    }
+                });
+                byStation.put(stationId, bits);
+            });
+            return new Snapshot(models, byStation, byType, bySeats, byPrice);
+        }
+
+        Result search(Long stationId, Filter filter) {
+            BitSet station = byStation.getOrDefault(stationId, new BitSet());
+            BitSet type = filter.vehicleType() != null ? byType.getOrDefault(filter.vehicleType(), new BitSet()) : null;
+            BitSet seats = filter.seatCount() != null ? bySeats.getOrDefault(filter.seatCount(), new BitSet()) : null;
+            BitSet price = priceRange(filter.minPrice(), filter.maxPrice());
+
+            BitSet matched = and(station, type, seats, price);
+            List<Long> modelIds = new ArrayList<>(matched.cardinality());
+            matched.stream().forEach(i -> modelIds.add(models[i].modelId()));
+
+            return new Result(modelIds,
+                    counts(byType, and(station, seats, price)),
+                    counts(bySeats, and(station, type, price)),
+                    counts(byPrice, and(station, type, seats)));
+        }
+
+        private BitSet priceRange(Double minPrice, Double maxPrice) {
+            if (minPrice == null && maxPrice == null) {
+                return null;
+            }
+            BitSet bits = new BitSet(models.length);
+            for (int i = 0; i < models.length; i++) {
+                double price = models[i].price();
+                if ((minPrice == null || price >= minPrice) && (maxPrice == null || price <= maxPrice)) {
+                    bits.set(i);
+                }
+            }
+            return bits;
+        }
+
+        private static BitSet and(BitSet base, BitSet... filters) {
+            BitSet result = (BitSet) base.clone();
+            for (BitSet filter : filters) {
+                if (filter != null) {
+                    result.and(filter);
+                }
+            }
+            return result;
+        }
+
+        private static <K> Map<K, Integer> counts(Map<K, BitSet> facet, BitSet scope) {
+            Map<K, Integer> counts = new LinkedHashMap<>();
+            facet.forEach((value, bits) -> {
+                BitSet intersection = (BitSet) bits.clone();
+                intersection.and(scope);
+                if (!intersection.isEmpty()) {
+                    counts.put(value, intersection.cardinality());
+                }
+            });
+            return counts;
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package com.fptu.evstation.rental.evrentalsystem.service.util;
+
+import com.fptu.evstation.rental.evrentalsystem.entity.Model;
+import com.fptu.evstation.rental.evrentalsystem.entity.VehicleActionType;
+import com.fptu.evstation.rental.evrentalsystem.repository.ModelRepository;
+import com.fptu.evstation.rental.evrentalsystem.repository.VehicleHistoryRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Đếm lượt thuê theo model. Mỗi lượt trả xe chỉ cộng vào LongAdder trong bộ nhớ; định kỳ phần chênh lệch được
+ * cộng vào Models.rental_count bằng một câu UPDATE nguyên tử cho mỗi model, nên không mất lượt khi trả xe đồng thời.
+ * Song song giữ số lượt theo ngày của 30 ngày gần nhất (nạp lại từ lịch sử RETURN khi khởi động) để xếp hạng 7/30 ngày.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class ModelPopularity {
+
+    public enum Window {
+        ALL_TIME(0),
+        LAST_7_DAYS(7),
+        LAST_30_DAYS(30);
+
+        private final int days;
+
+        Window(int days) {
+            this.days = days;
+        }
+    }
+
+    private static final int RETAINED_DAYS = 30;
+
+    private final ModelRepository modelRepository;
+    private final VehicleHistoryRepository historyRepository;
+
+    // Lượt thuê chưa ghi xuống DB
+    private final Map<Long, LongAdder> pending = new ConcurrentHashMap<>();
+    private final Map<LocalDate, Map<Long, LongAdder>> daily = new ConcurrentHashMap<>();
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadRecent() {
+        LocalDate since = LocalDate.now().minusDays(RETAINED_DAYS - 1);
+        List<Object[]> rows = historyRepository.countActionsByModelAndDay(VehicleActionType.RETURN, since.atStartOfDay());
+        daily.clear();
+        for (Object[] row : rows) {
+            dayCounts((LocalDate) row[1]).computeIfAbsent((Long) row[0], id -> new LongAdder()).add((Long) row[2]);
+        }
+        log.info("Đã nạp lượt thuê {} ngày gần nhất: {} dòng", RETAINED_DAYS, rows.size());
+    }
+
+    /**
+     * Ghi nhận một lượt thuê hoàn tất; chỉ tính sau khi transaction trả xe commit.
+     */
+    public void recordRental(Long modelId) {
+        Runnable record = () -> {
+            pending.computeIfAbsent(modelId, id -> new LongAdder()).increment();
+            dayCounts(LocalDate.now()).computeIfAbsent(modelId, id -> new LongAdder()).increment();
+        };
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    record.run();
+                }
+            });
+        } else {
+            record.run();
+        }
+    }
+
+    /**
+     * Số lượt thuê của model trong cửa sổ thời gian; ALL_TIME gồm cả phần chưa ghi xuống DB.
+     */
+    public long rentals(Model model, Window window) {
+        if (window == Window.ALL_TIME) {
+            long stored = model.getRentalCount() != null ? model.getRentalCount() : 0;
+            LongAdder unflushed = pending.get(model.getModelId());
+            return stored + (unflushed != null ? unflushed.sum() : 0);
+        }
+        LocalDate today = LocalDate.now();
+        long total = 0;
+        for (int i = 0; i < window.days; i++) {
+            Map<Long, LongAdder> counts = daily.get(today.minusDays(i));
+            LongAdder count = counts != null ? counts.get(model.getModelId()) : null;
+            if (count != null) {
+                total += count.sum();
+            }
+        }
+        return total;
+    }
+
+    @Scheduled(fixedDelayString = "${popularity.flush-interval-ms:30000}")
+    public void flush() {
+        pending.forEach((modelId, adder) -> {
+            long delta = adder.sumThenReset();
+            if (delta == 0) {
+                return;
+            }
+            try {
+                modelRepository.addRentalCount(modelId, delta);
+            } catch (Exception e) {
+                // Trả lại phần chưa ghi, lần flush sau thử lại
+                adder.add(delta);
+                log.warn("Không thể cập nhật rentalCount cho model {}: {}", modelId, e.getMessage());
+            }
+        });
+        LocalDate oldest = LocalDate.now().minusDays(RETAINED_DAYS - 1);
+        daily.keySet().removeIf(day -> day.isBefore(oldest));
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        flush();
+    }
+
+    private Map<Long, LongAdder> dayCounts(LocalDate day) {
+        return daily.computeIfAbsent(day, d -> new ConcurrentHashMap<>());
+    }
+}
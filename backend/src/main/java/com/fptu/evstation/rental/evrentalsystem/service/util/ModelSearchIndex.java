@@ -0,0 +1,213 @@
+package com.fptu.evstation.rental.evrentalsystem.service.util;
+
+import com.fptu.evstation.rental.evrentalsystem.entity.Model;
+import com.fptu.evstation.rental.evrentalsystem.repository.ModelRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.text.Normalizer;
+import java.util.*;
+import java.util.function.Consumer;
+
+/**
+ * Chỉ mục trigram trong bộ nhớ cho tìm kiếm model theo tên và tính năng.
+ * Chuỗi được chuẩn hóa (chữ thường, bỏ dấu tiếng Việt, bỏ khoảng trắng và ký tự đặc biệt) nên "vinfast vf8",
+ * "VF 8" hay "dong co manh" đều khớp; sai chính tả nhẹ vẫn khớp nhờ tỷ lệ trigram trùng.
+ * Chỉ mục được nạp khi ứng dụng khởi động và cập nhật sau khi transaction tạo/sửa/xóa model commit.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class ModelSearchIndex {
+
+    private static final int GRAM = 3;
+    // Tỷ lệ trigram của từ khóa phải có trong tên/tính năng để được coi là khớp gần đúng
+    private static final double MIN_SIMILARITY = 0.5;
+    private static final double FEATURE_WEIGHT = 0.6;
+
+    private final ModelRepository modelRepository;
+
+    private final Map<Long, Entry> entries = new HashMap<>();
+    private volatile Snapshot snapshot;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        List<Model> models = modelRepository.findAll();
+        synchronized (this) {
+            entries.clear();
+            models.forEach(model -> entries.put(model.getModelId(), toEntry(model)));
+            snapshot = Snapshot.of(entries.values());
+        }
+        log.info("Đã nạp chỉ mục tìm kiếm cho {} model", models.size());
+    }
+
+    /**
+     * Id các model khớp từ khóa, xếp theo độ khớp giảm dần.
+     */
+    public List<Long> search(String keyword) {
+        String query = normalize(keyword);
+        if (query.isEmpty()) {
+            return List.of();
+        }
+        Snapshot current = snapshot;
+        if (current == null) {
+            rebuild();
+            current = snapshot;
+        }
+        return current.search(query);
+    }
+
+    /**
+     * Cập nhật model vào chỉ mục; trong transaction thì chỉ áp dụng sau khi commit.
+     */
+    public void index(Model model) {
+        Entry entry = toEntry(model);
+        afterCommit(() -> apply(entries -> entries.put(entry.modelId(), entry)));
+    }
+
+    public void remove(Long modelId) {
+        afterCommit(() -> apply(entries -> entries.remove(modelId)));
+    }
+
+    static String normalize(String text) {
+        if (text == null) {
+            return "";
+        }
+        String decomposed = Normalizer.normalize(text.toLowerCase(Locale.ROOT), Normalizer.Form.NFD);
+        StringBuilder normalized = new StringBuilder(decomposed.length());
+        for (int i = 0; i < decomposed.length(); i++) {
+            char c = decomposed.charAt(i);
+            if (c == 'đ') {
+                normalized.append('d');
+            } else if (Character.getType(c) != Character.NON_SPACING_MARK && Character.isLetterOrDigit(c)) {
+                normalized.append(c);
+            }
+        }
+        return normalized.toString();
+    }
+
+    private synchronized void apply(Consumer<Map<Long, Entry>> change) {
+        if (snapshot == null) {
+            // Chưa nạp lần nào: lần tìm kiếm đầu tiên sẽ nạp toàn bộ từ DB
+            return;
+        }
+        change.accept(entries);
+        snapshot = Snapshot.of(entries.values());
+    }
+
+    private void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    private static Entry toEntry(Model model) {
+        return new Entry(model.getModelId(), model.getModelName(), normalize(model.getModelName()), normalize(model.getFeatures()));
+    }
+
+    private static Set<String> grams(String text) {
+        Set<String> grams = new HashSet<>();
+        for (int i = 0; i + GRAM <= text.length(); i++) {
+            grams.add(text.substring(i, i + GRAM));
+        }
+        return grams;
+    }
+
+    private record Entry(Long modelId, String modelName, String name, String features) {}
+
+    /**
+     * Ảnh chụp bất biến của chỉ mục: đọc không cần khóa, mỗi lần thay đổi tạo ảnh chụp mới (số model nhỏ).
+     */
+    private record Snapshot(Entry[] entries, Map<String, int[]> nameGrams, Map<String, int[]> featureGrams) {
+
+        static Snapshot of(Collection<Entry> values) {
+            Entry[] entries = values.stream()
+                    .sorted(Comparator.comparing(Entry::modelName, Comparator.nullsLast(Comparator.naturalOrder())))
+                    .toArray(Entry[]::new);
+            return new Snapshot(entries, postings(entries, true), postings(entries, false));
+        }
+
+        private static Map<String, int[]> postings(Entry[] entries, boolean name) {
+            Map<String, List<Integer>> lists = new HashMap<>();
+            for (int i = 0; i < entries.length; i++) {
+                for (String gram : grams(name ? entries[i].name() : entries[i].features())) {
+                    lists.computeIfAbsent(gram, k -> new ArrayList<>()).add(i);
+                }
+            }
+            Map<String, int[]> postings = new HashMap<>(lists.size() * 2);
+            lists.forEach((gram, ids) -> postings.put(gram, ids.stream().mapToInt(Integer::intValue).toArray()));
+            return postings;
+        }
+
+        List<Long> search(String query) {
+            double[] scores = new double[entries.length];
+            Set<String> queryGrams = grams(query);
+            if (queryGrams.isEmpty()) {
+                // Từ khóa ngắn hơn một trigram: chỉ so khớp chuỗi con
+                for (int i = 0; i < entries.length; i++) {
+                    scores[i] = containmentBonus(entries[i], query);
+                }
+            } else {
+                int[] nameHits = count(nameGrams, queryGrams);
+                int[] featureHits = count(featureGrams, queryGrams);
+                for (int i = 0; i < entries.length; i++) {
+                    double name = (double) nameHits[i] / queryGrams.size();
+                    double features = (double) featureHits[i] / queryGrams.size();
+                    if (Math.max(name, features) >= MIN_SIMILARITY) {
+                        scores[i] = Math.max(name, features * FEATURE_WEIGHT);
+                        // Chỉ kiểm tra chứa nguyên từ khóa khi đủ mọi trigram
+                        if (nameHits[i] == queryGrams.size() || featureHits[i] == queryGrams.size()) {
+                            scores[i] += containmentBonus(entries[i], query);
+                        }
+                    }
+                }
+            }
+            Integer[] order = new Integer[entries.length];
+            for (int i = 0; i < order.length; i++) {
+                order[i] = i;
+            }
+            Arrays.sort(order, (a, b) -> Double.compare(scores[b], scores[a]));
+            List<Long> result = new ArrayList<>();
+            for (int i : order) {
+                if (scores[i] <= 0) {
+                    break;
+                }
+                result.add(entries[i].modelId());
+            }
+            return result;
+        }
+
+        // Chứa nguyên từ khóa luôn xếp trên khớp gần đúng, khớp trong tên xếp trên khớp trong tính năng
+        private static double containmentBonus(Entry entry, String query) {
+            if (entry.name().contains(query)) {
+                return 2;
+            }
+            return entry.features().contains(query) ? 1 : 0;
+        }
+
+        private int[] count(Map<String, int[]> postings, Set<String> queryGrams) {
+            int[] hits = new int[entries.length];
+            for (String gram : queryGrams) {
+                int[] ids = postings.get(gram);
+                if (ids != null) {
+                    for (int id : ids) {
+                        hits[id]++;
+                    }
+                }
+            }
+            return hits;
+        }
+    }
+}
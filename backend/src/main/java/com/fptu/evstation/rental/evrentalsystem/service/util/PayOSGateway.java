@@ -0,0 +1,284 @@
+package com.fptu.evstation.rental.evrentalsystem.service.util;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import vn.payos.PayOS;
+import vn.payos.exception.BadRequestException;
+import vn.payos.exception.ForbiddenException;
+import vn.payos.exception.NotFoundException;
+import vn.payos.exception.UnauthorizedException;
+import vn.payos.model.v2.paymentRequests.CreatePaymentLinkRequest;
+import vn.payos.model.v2.paymentRequests.CreatePaymentLinkResponse;
+import vn.payos.model.v2.paymentRequests.PaymentLink;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Mọi lời gọi mạng tới PayOS đi qua đây:
+ * - bulkhead: tối đa payos.bulkhead.max-concurrent-calls lời gọi cùng lúc, vượt quá thì từ chối ngay;
+ * - timeout: mỗi lời gọi có hạn chót payos.call-timeout-ms, luồng request không phải chờ PayOS lâu hơn;
+ * - circuit breaker: tỉ lệ lỗi trong cửa sổ gần nhất vượt ngưỡng thì mở mạch, sau payos.circuit.open-seconds
+ *   cho một số lời gọi thăm dò (half-open); thăm dò thành công thì đóng mạch, thất bại thì mở lại.
+ * Khi bị từ chối hoặc quá hạn sẽ ném {@link GatewayUnavailableException} để nơi gọi trả lời khách thử lại sau.
+ */
+@Service
+@Slf4j
+public class PayOSGateway {
+
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    public static class GatewayUnavailableException extends RuntimeException {
+        public GatewayUnavailableException(String message) {
+            super(message);
+        }
+    }
+
+    private final PayOS payOS;
+    private final MeterRegistry meterRegistry;
+    private final ThreadPoolExecutor executor;
+    // Số lời gọi đang chạy thật sự; permit chỉ trả khi lời gọi PayOS kết thúc, kể cả sau khi đã quá hạn
+    private final Semaphore bulkhead;
+    private final long callTimeoutMs;
+    private final int slidingWindow;
+    private final int minimumCalls;
+    private final double failureRateThreshold;
+    private final Duration openDuration;
+    private final int halfOpenProbes;
+
+    // Quyền gọi đã cấp; generation tăng mỗi lần đổi trạng thái để bỏ qua kết quả của lời gọi thuộc giai đoạn cũ
+    private record Permit(boolean probe, long generation) {}
+
+    // Trạng thái mạch, truy cập trong synchronized(this)
+    private State state = State.CLOSED;
+    private long generation;
+    private final Deque<Boolean> outcomes = new ArrayDeque<>();
+    private long openedAtNanos;
+    private int probesInFlight;
+    private int probesSucceeded;
+
+    public PayOSGateway(PayOS payOS,
+                        MeterRegistry meterRegistry,
+                        @Value("${payos.bulkhead.max-concurrent-calls:10}") int maxConcurrentCalls,
+                        @Value("${payos.call-timeout-ms:8000}") long callTimeoutMs,
+                        @Value("${payos.circuit.sliding-window:20}") int slidingWindow,
+                        @Value("${payos.circuit.minimum-calls:10}") int minimumCalls,
+                        @Value("${payos.circuit.failure-rate-threshold:50}") double failureRateThreshold,
+                        @Value("${payos.circuit.open-seconds:30}") long openSeconds,
+                        @Value("${payos.circuit.half-open-probes:2}") int halfOpenProbes) {
+        this.payOS = payOS;
+        this.meterRegistry = meterRegistry;
+        this.callTimeoutMs = callTimeoutMs;
+        this.slidingWindow = slidingWindow;
+        this.minimumCalls = minimumCalls;
+        this.failureRateThreshold = failureRateThreshold;
+        this.openDuration = Duration.ofSeconds(openSeconds);
+        this.halfOpenProbes = halfOpenProbes;
+
+        AtomicInteger threadIndex = new AtomicInteger();
+        this.bulkhead = new Semaphore(maxConcurrentCalls);
+        this.executor = new ThreadPoolExecutor(maxConcurrentCalls, maxConcurrentCalls, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "payos-" + threadIndex.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        this.executor.allowCoreThreadTimeOut(true);
+        Gauge.builder("evrental.payos.circuit.state", this, gateway -> gateway.getState().ordinal())
+                .description("0 = CLOSED, 1 = OPEN, 2 = HALF_OPEN")
+                .register(meterRegistry);
+    }
+
+    public CreatePaymentLinkResponse createPaymentLink(CreatePaymentLinkRequest paymentData) {
+        return execute("create_payment_link", () -> payOS.paymentRequests().create(paymentData));
+    }
+
+    /**
+     * Trạng thái hiện tại của link trên PayOS; orderCode chưa từng được tạo sẽ ném NotFoundException.
+     */
+    public PaymentLink getPaymentLink(long orderCode) {
+        return execute("get_payment_link", () -> payOS.paymentRequests().get(orderCode));
+    }
+
+    /**
+     * Mạch đang cho phép gọi (đóng, hoặc đã hết thời gian mở).
+     */
+    public synchronized boolean isCallPermitted() {
+        return state != State.OPEN || openDurationElapsed();
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    private <T> T execute(String operation, Callable<T> call) {
+        Permit permit = acquirePermission();
+        if (permit == null) {
+            recordTimer(operation, "REJECTED", 0);
+            throw new GatewayUnavailableException("Cổng thanh toán PayOS tạm ngắt (circuit breaker đang mở).");
+        }
+
+        if (!bulkhead.tryAcquire()) {
+            releasePermission(permit);
+            recordTimer(operation, "REJECTED", 0);
+            throw new GatewayUnavailableException("Cổng thanh toán PayOS đang quá tải (vượt giới hạn lời gọi đồng thời).");
+        }
+
+        long start = System.nanoTime();
+        Future<T> future;
+        try {
+            future = executor.submit(() -> {
+                try {
+                    return call.call();
+                } finally {
+                    bulkhead.release();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            bulkhead.release();
+            releasePermission(permit);
+            throw new GatewayUnavailableException("Cổng thanh toán PayOS đã dừng.");
+        }
+
+        try {
+            T result = future.get(callTimeoutMs, TimeUnit.MILLISECONDS);
+            onSuccess(permit);
+            recordTimer(operation, "SUCCESS", start);
+            return result;
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            onFailure(permit);
+            recordTimer(operation, "TIMEOUT", start);
+            throw new GatewayUnavailableException("PayOS không phản hồi trong " + callTimeoutMs + " ms.");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (isClientError(cause)) {
+                // Lỗi do dữ liệu gửi lên, không phản ánh tình trạng của cổng thanh toán
+                releasePermission(permit);
+            } else {
+                onFailure(permit);
+            }
+            recordTimer(operation, "ERROR", start);
+            if (cause instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new IllegalStateException(cause);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            future.cancel(true);
+            releasePermission(permit);
+            throw new GatewayUnavailableException("Lời gọi PayOS bị gián đoạn.");
+        }
+    }
+
+    private synchronized Permit acquirePermission() {
+        if (state == State.OPEN) {
+            if (!openDurationElapsed()) {
+                return null;
+            }
+            transitionTo(State.HALF_OPEN);
+        }
+        if (state == State.HALF_OPEN) {
+            if (probesInFlight + probesSucceeded >= halfOpenProbes) {
+                return null;
+            }
+            probesInFlight++;
+            return new Permit(true, generation);
+        }
+        return new Permit(false, generation);
+    }
+
+    private synchronized void releasePermission(Permit permit) {
+        if (isCurrentProbe(permit)) {
+            probesInFlight--;
+        }
+    }
+
+    private synchronized void onSuccess(Permit permit) {
+        if (isCurrentProbe(permit)) {
+            probesInFlight--;
+            probesSucceeded++;
+            if (probesSucceeded >= halfOpenProbes) {
+                transitionTo(State.CLOSED);
+            }
+        } else if (state == State.CLOSED && permit.generation() == generation) {
+            record(true);
+        }
+    }
+
+    private synchronized void onFailure(Permit permit) {
+        if (isCurrentProbe(permit)) {
+            transitionTo(State.OPEN);
+            return;
+        }
+        if (state != State.CLOSED || permit.generation() != generation) {
+            return;
+        }
+        record(false);
+        if (outcomes.size() >= minimumCalls) {
+            long failures = outcomes.stream().filter(success -> !success).count();
+            if (failures * 100.0 / outcomes.size() >= failureRateThreshold) {
+                transitionTo(State.OPEN);
+            }
+        }
+    }
+
+    private boolean isCurrentProbe(Permit permit) {
+        return permit.probe() && permit.generation() == generation && state == State.HALF_OPEN;
+    }
+
+    private void record(boolean success) {
+        outcomes.addLast(success);
+        while (outcomes.size() > slidingWindow) {
+            outcomes.removeFirst();
+        }
+    }
+
+    private void transitionTo(State next) {
+        log.warn("Circuit breaker PayOS: {} -> {}", state, next);
+        state = next;
+        generation++;
+        probesInFlight = 0;
+        probesSucceeded = 0;
+        if (next == State.OPEN) {
+            openedAtNanos = System.nanoTime();
+        }
+        if (next == State.CLOSED) {
+            outcomes.clear();
+        }
+    }
+
+    private boolean openDurationElapsed() {
+        return System.nanoTime() - openedAtNanos >= openDuration.toNanos();
+    }
+
+    private static boolean isClientError(Throwable error) {
+        return error instanceof BadRequestException
+                || error instanceof UnauthorizedException
+                || error instanceof ForbiddenException
+                || error instanceof NotFoundException;
+    }
+
+    private void recordTimer(String operation, String outcome, long startNanos) {
+        long elapsed = startNanos == 0 ? 0 : System.nanoTime() - startNanos;
+        Timer.builder("evrental.payos.request")
+                .tag("operation", operation)
+                .tag("outcome", outcome)
+                .register(meterRegistry)
+                .record(elapsed, TimeUnit.NANOSECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
@@ -13,6 +13,7 @@ import com.itextpdf.layout.Document;
 import com.itextpdf.layout.element.*;
 import com.itextpdf.layout.properties.TextAlignment;
 import com.itextpdf.layout.properties.UnitValue;
+import io.micrometer.core.annotation.Timed;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
@@ -39,6 +40,7 @@ public class PdfGenerationService {
         this.bookingRepository = bookingRepository;
     }
 
+    @Timed(value = "evrental.pdf.render", extraTags = {"document", "contract"})
     public void generateContractPdf(Path filePath, Booking booking, User staff) {
         try {
             PdfWriter writer = new PdfWriter(filePath.toString());
@@ -159,6 +161,7 @@ public class PdfGenerationService {
         }
     }
 
+    @Timed(value = "evrental.pdf.render", extraTags = {"document", "invoice"})
     public void generateInvoicePdf(Path filePath, BillResponse billDetails) {
         try {
             PdfWriter writer = new PdfWriter(filePath.toString());
@@ -0,0 +1,68 @@
+package com.fptu.evstation.rental.evrentalsystem.service.util;
+
+import com.fptu.evstation.rental.evrentalsystem.repository.UserRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Khóa theo khách quanh bước nhận đơn đặt xe, giữ tới khi transaction commit/rollback để lần kiểm tra
+ * "mỗi khách một đơn đang hoạt động" của yêu cầu sau luôn thấy đơn của yêu cầu trước.
+ * Trong một node dùng ReentrantLock chia sọc theo userId; khi chạy nhiều node bật booking.admission.db-lock
+ * để khóa thêm dòng Users tương ứng trong DB.
+ */
+@Service
+@Slf4j
+public class RenterAdmissionLock {
+
+    private static final int STRIPES = 64;
+    private static final long WAIT_SECONDS = 10;
+
+    private final ReentrantLock[] stripes = new ReentrantLock[STRIPES];
+    private final UserRepository userRepository;
+    private final boolean databaseLock;
+
+    public RenterAdmissionLock(UserRepository userRepository,
+                               @Value("${booking.admission.db-lock:false}") boolean databaseLock) {
+        this.userRepository = userRepository;
+        this.databaseLock = databaseLock;
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+    }
+
+    /**
+     * Khóa khách tới hết transaction hiện tại; phải được gọi bên trong một transaction.
+     */
+    public void lockUntilTransactionEnds(Long userId) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            throw new IllegalStateException("Khóa nhận đơn phải được lấy bên trong transaction.");
+        }
+        ReentrantLock lock = stripes[Math.floorMod(Long.hashCode(userId), STRIPES)];
+        try {
+            if (!lock.tryLock(WAIT_SECONDS, TimeUnit.SECONDS)) {
+                log.warn("Hết thời gian chờ khóa nhận đơn của khách {}", userId);
+                throw new ResponseStatusException(HttpStatus.TOO_MANY_REQUESTS, "Yêu cầu đặt xe trước đó của bạn đang được xử lý. Vui lòng thử lại sau.");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Yêu cầu đặt xe bị gián đoạn.");
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                lock.unlock();
+            }
+        });
+        if (databaseLock) {
+            userRepository.lockById(userId);
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package com.fptu.evstation.rental.evrentalsystem.service.util;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Mã hóa chuỗi điểm telemetry đã lấy mẫu theo kiểu delta + varint (zigzag cho giá trị có thể âm):
+ * điểm đầu ghi giá trị tuyệt đối, các điểm sau chỉ ghi chênh lệch thời gian (giây), pin (%) và odometer (0,1 km).
+ * Mỗi điểm thường chỉ tốn 4-5 byte thay vì ~24 byte nếu lưu thẳng.
+ */
+public final class TelemetryCodec {
+
+    public record Point(long epochSecond, int battery, long odometerTenths) {
+    }
+
+    private TelemetryCodec() {
+    }
+
+    public static byte[] encode(List<Point> points) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(points.size() * 5 + 16);
+        Point previous = null;
+        for (Point point : points) {
+            if (previous == null) {
+                writeVarLong(out, zigzag(point.epochSecond()));
+                writeVarLong(out, zigzag(point.battery()));
+                writeVarLong(out, zigzag(point.odometerTenths()));
+            } else {
+                writeVarLong(out, zigzag(point.epochSecond() - previous.epochSecond()));
+                writeVarLong(out, zigzag(point.battery() - previous.battery()));
+                writeVarLong(out, zigzag(point.odometerTenths() - previous.odometerTenths()));
+            }
+            previous = point;
+        }
+        return out.toByteArray();
+    }
+
+    public static List<Point> decode(byte[] data, int count) {
+        List<Point> points = new ArrayList<>(count);
+        int[] position = {0};
+        long time = 0;
+        long battery = 0;
+        long odometer = 0;
+        for (int i = 0; i < count; i++) {
+            time += unzigzag(readVarLong(data, position));
+            battery += unzigzag(readVarLong(data, position));
+            odometer += unzigzag(readVarLong(data, position));
+            points.add(new Point(time, (int) battery, odometer));
+        }
+        return points;
+    }
+
+    private static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static void writeVarLong(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    private static long readVarLong(byte[] data, int[] position) {
+        long result = 0;
+        int shift = 0;
+        while (true) {
+            if (position[0] >= data.length) {
+                throw new IllegalArgumentException("Dữ liệu telemetry bị cắt cụt");
+            }
+            byte b = data[position[0]++];
+            result |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return result;
+            }
+            shift += 7;
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.fptu.evstation.rental.evrentalsystem.service.util;
+
+import com.fptu.evstation.rental.evrentalsystem.config.UploadVersionStrategy;
+import lombok.RequiredArgsConstructor;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.stereotype.Service;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+
+/**
+ * Đổi đường dẫn /uploads/... lưu trong DB thành URL có hash nội dung để trình duyệt cache vĩnh viễn.
+ */
+@Service
+@RequiredArgsConstructor
+public class UploadUrlService {
+
+    private static final String UPLOADS_PREFIX = "/uploads/";
+
+    private final UploadVersionStrategy versionStrategy;
+    private final Path uploadsDir = Paths.get(System.getProperty("user.dir"), "uploads").toAbsolutePath().normalize();
+
+    public String versioned(String relativePath) {
+        if (relativePath == null || !relativePath.startsWith(UPLOADS_PREFIX)) {
+            return relativePath;
+        }
+        Path file = uploadsDir.resolve(relativePath.substring(UPLOADS_PREFIX.length())).normalize();
+        if (!file.startsWith(uploadsDir) || !Files.isRegularFile(file)) {
+            return relativePath;
+        }
+        String version = versionStrategy.getResourceVersion(new FileSystemResource(file));
+        return version != null ? versionStrategy.addVersion(relativePath, version) : relativePath;
+    }
+
+    public List<String> versioned(List<String> relativePaths) {
+        return relativePaths.stream().map(this::versioned).toList();
+    }
+}
@@ -0,0 +1,173 @@
+package com.fptu.evstation.rental.evrentalsystem.service.util;
+
+import com.fptu.evstation.rental.evrentalsystem.entity.VehicleActionType;
+import com.fptu.evstation.rental.evrentalsystem.entity.VehicleHistory;
+import com.fptu.evstation.rental.evrentalsystem.repository.StationRepository;
+import com.fptu.evstation.rental.evrentalsystem.repository.UserRepository;
+import com.fptu.evstation.rental.evrentalsystem.repository.VehicleRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManager;
+import lombok.Builder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Ghi lịch sử xe kiểu chỉ thêm: nhận bản ghi chỉ gồm ID (khóa ngoại lấy bằng getReferenceById, không SELECT),
+ * gom vào hàng đợi có giới hạn và insert theo lô JDBC (hibernate.jdbc.batch_size).
+ * BUFFERED: trả về ngay, lô được ghi định kỳ hoặc khi hàng đợi đầy (luồng gọi tự ghi một lô).
+ * IN_TRANSACTION: ghi ngay trong transaction của nơi gọi, commit/rollback cùng thay đổi nghiệp vụ.
+ */
+@Service
+@Slf4j
+public class VehicleHistoryWriter {
+
+    public enum Durability { BUFFERED, IN_TRANSACTION }
+
+    @Builder
+    public record HistoryEntry(Long vehicleId,
+                               Long staffId,
+                               Long renterId,
+                               Long stationId,
+                               VehicleActionType actionType,
+                               String note,
+                               String conditionBefore,
+                               String conditionAfter,
+                               Integer batteryLevel,
+                               Double mileage,
+                               String photoPathsJson,
+                               LocalDateTime actionTime) {
+    }
+
+    private final BlockingQueue<HistoryEntry> queue;
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private final int batchSize;
+    private final EntityManager entityManager;
+    private final TransactionTemplate transactionTemplate;
+    private final VehicleRepository vehicleRepository;
+    private final UserRepository userRepository;
+    private final StationRepository stationRepository;
+
+    public VehicleHistoryWriter(EntityManager entityManager,
+                                PlatformTransactionManager transactionManager,
+                                VehicleRepository vehicleRepository,
+                                UserRepository userRepository,
+                                StationRepository stationRepository,
+                                MeterRegistry meterRegistry,
+                                @Value("${vehicle-history.queue-capacity:5000}") int queueCapacity,
+                                @Value("${vehicle-history.batch-size:50}") int batchSize) {
+        this.entityManager = entityManager;
+        // Lô có thể được ghi từ callback after-commit của transaction khác: luôn mở transaction mới
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.vehicleRepository = vehicleRepository;
+        this.userRepository = userRepository;
+        this.stationRepository = stationRepository;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.batchSize = batchSize;
+        Gauge.builder("evrental.vehicle_history.queue", queue, BlockingQueue::size).register(meterRegistry);
+    }
+
+    public void append(HistoryEntry entry, Durability durability) {
+        HistoryEntry stamped = entry.actionTime() != null ? entry : withActionTime(entry, LocalDateTime.now());
+        if (durability == Durability.IN_TRANSACTION) {
+            if (TransactionSynchronizationManager.isActualTransactionActive()) {
+                entityManager.persist(toEntity(stamped));
+            } else {
+                transactionTemplate.executeWithoutResult(status -> entityManager.persist(toEntity(stamped)));
+            }
+            return;
+        }
+        while (!queue.offer(stamped)) {
+            // Hàng đợi đầy: luồng gọi ghi bớt một lô rồi thử lại
+            flushBatch();
+        }
+    }
+
+    /**
+     * Ghi toàn bộ bản ghi đang chờ; job định kỳ và lúc tắt ứng dụng gọi hàm này.
+     */
+    @Scheduled(fixedDelayString = "${vehicle-history.flush-interval-ms:1000}")
+    public void flush() {
+        while (flushBatch() > 0) {
+            // tiếp tục tới khi hàng đợi rỗng
+        }
+    }
+
+    public int pending() {
+        return queue.size();
+    }
+
+    private int flushBatch() {
+        flushLock.lock();
+        try {
+            List<HistoryEntry> batch = new ArrayList<>(batchSize);
+            queue.drainTo(batch, batchSize);
+            if (batch.isEmpty()) {
+                return 0;
+            }
+            try {
+                transactionTemplate.executeWithoutResult(status -> batch.forEach(e -> entityManager.persist(toEntity(e))));
+            } catch (RuntimeException e) {
+                log.warn("Ghi lô {} lịch sử xe thất bại, ghi lại từng bản ghi: {}", batch.size(), e.getMessage());
+                writeOneByOne(batch);
+            }
+            return batch.size();
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    // Bản ghi lỗi (ví dụ xe đã bị xóa) không được chặn các bản ghi còn lại của lô
+    private void writeOneByOne(List<HistoryEntry> batch) {
+        for (HistoryEntry entry : batch) {
+            try {
+                transactionTemplate.executeWithoutResult(status -> entityManager.persist(toEntity(entry)));
+            } catch (RuntimeException e) {
+                log.error("Bỏ bản ghi lịch sử xe {} ({}): {}", entry.vehicleId(), entry.actionType(), e.getMessage());
+            }
+        }
+    }
+
+    private VehicleHistory toEntity(HistoryEntry entry) {
+        return VehicleHistory.builder()
+                .vehicle(vehicleRepository.getReferenceById(entry.vehicleId()))
+                .staff(entry.staffId() != null ? userRepository.getReferenceById(entry.staffId()) : null)
+                .renter(entry.renterId() != null ? userRepository.getReferenceById(entry.renterId()) : null)
+                .station(entry.stationId() != null ? stationRepository.getReferenceById(entry.stationId()) : null)
+                .actionType(entry.actionType())
+                .note(entry.note())
+                .conditionBefore(entry.conditionBefore())
+                .conditionAfter(entry.conditionAfter())
+                .batteryLevel(entry.batteryLevel())
+                .mileage(entry.mileage())
+                .photoPaths(entry.photoPathsJson())
+                .actionTime(entry.actionTime())
+                .build();
+    }
+
+    private static HistoryEntry withActionTime(HistoryEntry entry, LocalDateTime actionTime) {
+        return new HistoryEntry(entry.vehicleId(), entry.staffId(), entry.renterId(), entry.stationId(), entry.actionType(),
+                entry.note(), entry.conditionBefore(), entry.conditionAfter(), entry.batteryLevel(), entry.mileage(),
+                entry.photoPathsJson(), actionTime);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+}
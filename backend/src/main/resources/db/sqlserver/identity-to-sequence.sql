@@ -0,0 +1,142 @@
+-- Chuyển khóa chính IDENTITY sang sequence (pooled, INCREMENT BY 50 = allocationSize trên entity)
+-- cho bookings, transactions, transaction_details, vehicle_history.
+--
+-- Cách chạy (SQL Server 2017+):
+--   1. Dừng ứng dụng, sao lưu database.
+--   2. Chạy script này một lần. Script bỏ qua bảng đã được chuyển nên chạy lại không sao.
+--   3. Khởi động lại ứng dụng. Script tự dựng lại mọi ràng buộc nên không cần ddl-auto=update.
+--
+-- SQL Server không cho ALTER bỏ IDENTITY, nên mỗi bảng được chép sang bảng mới (ISNULL(CAST(id)) làm mất thuộc tính
+-- IDENTITY nhưng giữ NOT NULL), rồi đổi tên lại. Sequence bắt đầu ở MAX(id) + 50: pooled optimizer của Hibernate
+-- coi mỗi giá trị v là khối (v - 49 .. v), nên id đầu tiên được cấp là MAX(id) + 1.
+--
+-- SELECT INTO chỉ chép cột, dữ liệu và NULL/NOT NULL. Vì vậy trước khi DROP, script đọc sys.* và sinh lại DDL cho:
+--   - khóa chính (giữ tên cũ);
+--   - unique constraint và mọi index không phải PK (kể cả unique index có WHERE mà Hibernate tạo cho cột nullable);
+--   - DEFAULT (kể cả cột @ColumnDefault) và CHECK constraint (Hibernate tạo cho cột enum);
+--   - khóa ngoại đi ra từ bảng (vd. bookings -> users, stations, vehicles) và khóa ngoại trỏ vào bảng,
+--     giữ nguyên ON DELETE/ON UPDATE (vd. payment_intents ON DELETE CASCADE).
+-- Không được chép: trigger, quyền GRANT/DENY riêng trên bảng, extended property và thống kê tạo tay.
+-- Ứng dụng không dùng các thứ này; nếu database có thêm, hãy sao lưu định nghĩa và tạo lại sau khi chạy.
+
+SET XACT_ABORT ON;
+BEGIN TRANSACTION;
+
+DECLARE @tables TABLE (ord INT, table_name SYSNAME, id_column SYSNAME, sequence_name SYSNAME);
+INSERT INTO @tables VALUES
+    (1, N'bookings', N'booking_id', N'bookings_seq'),
+    (2, N'transactions', N'transaction_id', N'transactions_seq'),
+    (3, N'transaction_details', N'detail_id', N'transaction_details_seq'),
+    (4, N'vehicle_history', N'history_id', N'vehicle_history_seq');
+
+DECLARE @ord INT = 1;
+DECLARE @table SYSNAME, @id SYSNAME, @seq SYSNAME, @tmp SYSNAME;
+DECLARE @sql NVARCHAR(MAX), @columns NVARCHAR(MAX), @start BIGINT;
+DECLARE @pk SYSNAME, @restore NVARCHAR(MAX), @fks NVARCHAR(MAX);
+
+WHILE @ord <= (SELECT MAX(ord) FROM @tables)
+BEGIN
+    SELECT @table = table_name, @id = id_column, @seq = sequence_name FROM @tables WHERE ord = @ord;
+    SET @tmp = @table + N'_migrating';
+
+    IF COLUMNPROPERTY(OBJECT_ID(@table), @id, 'IsIdentity') = 1
+    BEGIN
+        -- 1. Sinh DDL dựng lại PK, index, unique, DEFAULT, CHECK và khóa ngoại trước khi bảng cũ bị xóa
+        SELECT @pk = ISNULL((SELECT name FROM sys.key_constraints
+                             WHERE parent_object_id = OBJECT_ID(@table) AND type = 'PK'), N'PK_' + @table);
+
+        SET @restore = N'';
+        SELECT @restore += CASE
+                WHEN i.is_unique_constraint = 1
+                    THEN N'ALTER TABLE ' + QUOTENAME(@table) + N' ADD CONSTRAINT ' + QUOTENAME(i.name)
+                         + N' UNIQUE ' + i.type_desc COLLATE DATABASE_DEFAULT + N' (' + k.keys + N');'
+                ELSE N'CREATE ' + CASE WHEN i.is_unique = 1 THEN N'UNIQUE ' ELSE N'' END + i.type_desc COLLATE DATABASE_DEFAULT
+                     + N' INDEX ' + QUOTENAME(i.name) + N' ON ' + QUOTENAME(@table) + N' (' + k.keys + N')'
+                     + ISNULL(N' INCLUDE (' + inc.cols + N')', N'')
+                     + ISNULL(N' WHERE ' + i.filter_definition, N'') + N';'
+            END
+        FROM sys.indexes i
+        CROSS APPLY (SELECT STRING_AGG(CAST(QUOTENAME(c.name)
+                                + CASE WHEN ic.is_descending_key = 1 THEN N' DESC' ELSE N' ASC' END AS NVARCHAR(MAX)), N', ')
+                            WITHIN GROUP (ORDER BY ic.key_ordinal) AS keys
+                     FROM sys.index_columns ic
+                     JOIN sys.columns c ON c.object_id = ic.object_id AND c.column_id = ic.column_id
+                     WHERE ic.object_id = i.object_id AND ic.index_id = i.index_id AND ic.is_included_column = 0) k
+        CROSS APPLY (SELECT STRING_AGG(CAST(QUOTENAME(c.name) AS NVARCHAR(MAX)), N', ')
+                            WITHIN GROUP (ORDER BY ic.index_column_id) AS cols
+                     FROM sys.index_columns ic
+                     JOIN sys.columns c ON c.object_id = ic.object_id AND c.column_id = ic.column_id
+                     WHERE ic.object_id = i.object_id AND ic.index_id = i.index_id AND ic.is_included_column = 1) inc
+        WHERE i.object_id = OBJECT_ID(@table) AND i.is_primary_key = 0 AND i.type IN (1, 2);
+
+        SELECT @restore += N'ALTER TABLE ' + QUOTENAME(@table) + N' ADD CONSTRAINT ' + QUOTENAME(dc.name)
+                           + N' DEFAULT ' + dc.definition + N' FOR ' + QUOTENAME(COL_NAME(dc.parent_object_id, dc.parent_column_id)) + N';'
+        FROM sys.default_constraints dc
+        WHERE dc.parent_object_id = OBJECT_ID(@table);
+
+        SELECT @restore += N'ALTER TABLE ' + QUOTENAME(@table) + N' WITH CHECK ADD CONSTRAINT ' + QUOTENAME(cc.name)
+                           + N' CHECK ' + cc.definition + N';'
+        FROM sys.check_constraints cc
+        WHERE cc.parent_object_id = OBJECT_ID(@table);
+
+        -- Khóa ngoại đi ra và đi vào (khóa tự tham chiếu chỉ xuất hiện một lần)
+        SET @fks = N'';
+        SELECT @fks += N'ALTER TABLE ' + QUOTENAME(OBJECT_SCHEMA_NAME(fk.parent_object_id)) + N'.' + QUOTENAME(OBJECT_NAME(fk.parent_object_id))
+                       + N' WITH ' + CASE WHEN fk.is_not_trusted = 1 THEN N'NOCHECK' ELSE N'CHECK' END
+                       + N' ADD CONSTRAINT ' + QUOTENAME(fk.name) + N' FOREIGN KEY (' + cols.parent_cols + N') REFERENCES '
+                       + QUOTENAME(OBJECT_SCHEMA_NAME(fk.referenced_object_id)) + N'.' + QUOTENAME(OBJECT_NAME(fk.referenced_object_id))
+                       + N' (' + cols.referenced_cols + N')'
+                       + N' ON DELETE ' + REPLACE(fk.delete_referential_action_desc COLLATE DATABASE_DEFAULT, N'_', N' ')
+                       + N' ON UPDATE ' + REPLACE(fk.update_referential_action_desc COLLATE DATABASE_DEFAULT, N'_', N' ') + N';'
+        FROM sys.foreign_keys fk
+        CROSS APPLY (SELECT STRING_AGG(CAST(QUOTENAME(COL_NAME(fkc.parent_object_id, fkc.parent_column_id)) AS NVARCHAR(MAX)), N', ')
+                                WITHIN GROUP (ORDER BY fkc.constraint_column_id) AS parent_cols,
+                            STRING_AGG(CAST(QUOTENAME(COL_NAME(fkc.referenced_object_id, fkc.referenced_column_id)) AS NVARCHAR(MAX)), N', ')
+                                WITHIN GROUP (ORDER BY fkc.constraint_column_id) AS referenced_cols
+                     FROM sys.foreign_key_columns fkc
+                     WHERE fkc.constraint_object_id = fk.object_id) cols
+        WHERE fk.parent_object_id = OBJECT_ID(@table) OR fk.referenced_object_id = OBJECT_ID(@table);
+
+        -- Gỡ các khóa ngoại đang trỏ vào bảng (khóa đi ra mất theo DROP TABLE)
+        SET @sql = N'';
+        SELECT @sql += N'ALTER TABLE ' + QUOTENAME(OBJECT_SCHEMA_NAME(fk.parent_object_id)) + N'.'
+                       + QUOTENAME(OBJECT_NAME(fk.parent_object_id)) + N' DROP CONSTRAINT ' + QUOTENAME(fk.name) + N';'
+        FROM sys.foreign_keys fk
+        WHERE fk.referenced_object_id = OBJECT_ID(@table) AND fk.parent_object_id <> OBJECT_ID(@table);
+        EXEC sp_executesql @sql;
+
+        -- 2. Chép dữ liệu sang bảng không có IDENTITY rồi thay thế bảng cũ
+        SELECT @columns = STRING_AGG(CAST(CASE WHEN c.name = @id
+                    THEN N'ISNULL(CAST(' + QUOTENAME(c.name) + N' AS BIGINT), 0) AS ' + QUOTENAME(c.name)
+                    ELSE QUOTENAME(c.name) END AS NVARCHAR(MAX)), N', ') WITHIN GROUP (ORDER BY c.column_id)
+        FROM sys.columns c
+        WHERE c.object_id = OBJECT_ID(@table);
+
+        SET @sql = N'SELECT ' + @columns + N' INTO ' + QUOTENAME(@tmp) + N' FROM ' + QUOTENAME(@table) + N' WITH (TABLOCKX);'
+                 + N'DROP TABLE ' + QUOTENAME(@table) + N';';
+        EXEC sp_executesql @sql;
+        EXEC sp_rename @tmp, @table;
+
+        -- 3. Dựng lại PK, rồi index/unique/DEFAULT/CHECK, cuối cùng là khóa ngoại (cần PK của bảng đích)
+        SET @sql = N'ALTER TABLE ' + QUOTENAME(@table) + N' ADD CONSTRAINT ' + QUOTENAME(@pk)
+                 + N' PRIMARY KEY (' + QUOTENAME(@id) + N');';
+        EXEC sp_executesql @sql;
+        EXEC sp_executesql @restore;
+        EXEC sp_executesql @fks;
+    END
+
+    -- 4. Tạo sequence nối tiếp id hiện có
+    IF OBJECT_ID(@seq, 'SO') IS NULL
+    BEGIN
+        SET @sql = N'SELECT @start = ISNULL(MAX(' + QUOTENAME(@id) + N'), 0) + 50 FROM ' + QUOTENAME(@table) + N';';
+        EXEC sp_executesql @sql, N'@start BIGINT OUTPUT', @start = @start OUTPUT;
+
+        SET @sql = N'CREATE SEQUENCE ' + QUOTENAME(@seq) + N' AS BIGINT START WITH '
+                 + CAST(@start AS NVARCHAR(20)) + N' INCREMENT BY 50;';
+        EXEC sp_executesql @sql;
+    END
+
+    SET @ord += 1;
+END
+
+COMMIT TRANSACTION;
@@ -0,0 +1,34 @@
+-- Tính lại tổng hợp đánh giá trên Stations (rating, rating_count, rating_sum, số đánh giá theo sao) từ bảng ratings.
+--
+-- Cách chạy (SQL Server):
+--   1. Khởi động ứng dụng một lần với spring.jpa.hibernate.ddl-auto=update để Hibernate thêm các cột mới (mặc định 0).
+--   2. Chạy script này. Có thể chạy lại bất cứ lúc nào để đối soát: kết quả luôn khớp với bảng ratings.
+-- Từ đó ứng dụng tự cộng dồn khi có đánh giá mới (RatingRepository.addToStationAggregate).
+
+SET XACT_ABORT ON;
+BEGIN TRANSACTION;
+
+UPDATE s
+SET rating_count     = ISNULL(r.cnt, 0),
+    rating_sum       = ISNULL(r.total, 0),
+    rating           = CASE WHEN r.cnt > 0 THEN CAST(r.total AS FLOAT) / r.cnt END,
+    one_star_count   = ISNULL(r.s1, 0),
+    two_star_count   = ISNULL(r.s2, 0),
+    three_star_count = ISNULL(r.s3, 0),
+    four_star_count  = ISNULL(r.s4, 0),
+    five_star_count  = ISNULL(r.s5, 0)
+FROM stations s WITH (UPDLOCK, HOLDLOCK)
+LEFT JOIN (
+    SELECT station_id,
+           COUNT(*)                                   AS cnt,
+           SUM(CAST(stars AS BIGINT))                 AS total,
+           SUM(CASE WHEN stars = 1 THEN 1 ELSE 0 END) AS s1,
+           SUM(CASE WHEN stars = 2 THEN 1 ELSE 0 END) AS s2,
+           SUM(CASE WHEN stars = 3 THEN 1 ELSE 0 END) AS s3,
+           SUM(CASE WHEN stars = 4 THEN 1 ELSE 0 END) AS s4,
+           SUM(CASE WHEN stars = 5 THEN 1 ELSE 0 END) AS s5
+    FROM ratings WITH (HOLDLOCK)
+    GROUP BY station_id
+) r ON r.station_id = s.station_id;
+
+COMMIT TRANSACTION;
@@ -0,0 +1,170 @@
+package com.fptu.evstation.rental.evrentalsystem;
+
+import com.fptu.evstation.rental.evrentalsystem.dto.BillResponse;
+import com.fptu.evstation.rental.evrentalsystem.dto.PaymentConfirmationRequest;
+import com.fptu.evstation.rental.evrentalsystem.dto.PenaltyCalculationRequest;
+import com.fptu.evstation.rental.evrentalsystem.entity.*;
+import com.fptu.evstation.rental.evrentalsystem.repository.*;
+import com.fptu.evstation.rental.evrentalsystem.service.PaymentService;
+import com.fptu.evstation.rental.evrentalsystem.service.util.BillDraftCache;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.util.FileSystemUtils;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+
+import static com.fptu.evstation.rental.evrentalsystem.QueryCountAssertions.assertMaxQueries;
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+class BillDraftTests {
+
+    @Autowired
+    private PaymentService paymentService;
+
+    @Autowired
+    private BookingRepository bookingRepository;
+
+    @Autowired
+    private TransactionDetailRepository transactionDetailRepository;
+
+    @Autowired
+    private PenaltyFeeRepository penaltyFeeRepository;
+
+    @Autowired
+    private BillDraftCache billDraftCache;
+
+    @Autowired
+    private TestFixtures fixtures;
+
+    private User staff;
+    private User renter;
+    private Booking booking;
+
+    @BeforeEach
+    void createRentingBooking() {
+        staff = fixtures.user("STATION_STAFF", user -> user.station(fixtures.station()));
+        renter = fixtures.renter();
+        Vehicle vehicle = fixtures.vehicle(v -> v
+                .batteryLevel(80)
+                .currentMileage(100.0)
+                .status(VehicleStatus.RENTED));
+        // Cọc lớn hơn tổng phí để không phải tải ảnh QR từ bên ngoài
+        booking = fixtures.booking(renter, vehicle, b -> b
+                .startDate(LocalDateTime.now().minusHours(3))
+                .endDate(LocalDateTime.now().plusHours(1))
+                .reservationDepositPaid(true)
+                .rentalDepositPaid(true)
+                .rentalDeposit(10_000_000.0)
+                .status(BookingStatus.RENTING));
+    }
+
+    @AfterEach
+    void deleteUploads() throws Exception {
+        Path uploads = Paths.get(System.getProperty("user.dir"), "uploads");
+        // Chờ hóa đơn đang được tạo sau commit (nếu có) để không để lại file sau khi dọn
+        String invoicePath = bookingRepository.findById(booking.getBookingId()).orElseThrow().getInvoicePdfPath();
+        if (invoicePath != null) {
+            awaitUntil(() -> Files.exists(Paths.get(System.getProperty("user.dir"), invoicePath.substring(1))));
+        }
+        FileSystemUtils.deleteRecursively(uploads.resolve("adjustments").resolve("booking_" + booking.getBookingId()));
+        FileSystemUtils.deleteRecursively(uploads.resolve("handover_photos").resolve("booking_" + booking.getBookingId()));
+        FileSystemUtils.deleteRecursively(uploads.resolve("invoices").resolve("user_" + renter.getUserId()));
+    }
+
+    @Test
+    void previewComputesBillWithoutWritingAnything() {
+        BillResponse bill = paymentService.previewFinalBill(staff, booking.getBookingId(), feesRequest());
+
+        assertEquals(2, bill.getFeeItems().size());
+        assertEquals(50_000.0, bill.getTotalDiscount());
+        assertNull(bill.getInvoicePdfPath());
+        assertNull(bill.getQrCodeUrl());
+
+        Booking reloaded = bookingRepository.findById(booking.getBookingId()).orElseThrow();
+        assertNull(reloaded.getFinalFee());
+        assertNull(reloaded.getInvoicePdfPath());
+        assertTrue(transactionDetailRepository.findByBooking(reloaded).isEmpty());
+        assertFalse(Files.exists(Paths.get(System.getProperty("user.dir"), "uploads", "adjustments", "booking_" + booking.getBookingId())));
+    }
+
+    @Test
+    void confirmPersistsLatestDraft() throws Exception {
+        paymentService.previewFinalBill(staff, booking.getBookingId(), new PenaltyCalculationRequest());
+        BillResponse bill = paymentService.calculateFinalBill(staff, booking.getBookingId(), feesRequest());
+        assertNotSame(bill, billDraftCache.get(booking.getBookingId()).bill());
+
+        paymentService.confirmFinalPayment(booking.getBookingId(), confirmRequest(), staff);
+
+        Booking reloaded = bookingRepository.findById(booking.getBookingId()).orElseThrow();
+        assertEquals(BookingStatus.COMPLETED, reloaded.getStatus());
+        assertEquals(bill.getBaseRentalFee() + bill.getTotalPenaltyFee(), reloaded.getFinalFee(), 1e-6);
+        assertNotNull(reloaded.getInvoicePdfPath());
+
+        List<TransactionDetail> details = transactionDetailRepository.findByBooking(reloaded);
+        assertEquals(2, details.size());
+        TransactionDetail adjustment = details.stream().filter(d -> d.getAppliedAmount() < 0).findFirst().orElseThrow();
+        assertTrue(adjustment.getPhotoPaths().contains("/uploads/adjustments/booking_" + booking.getBookingId() + "/adjustment-1.jpg"));
+        // PDF hóa đơn được tạo bởi bus sự kiện sau khi commit
+        Path invoice = Paths.get(System.getProperty("user.dir"), reloaded.getInvoicePdfPath().substring(1));
+        awaitUntil(() -> Files.exists(invoice));
+        assertTrue(Files.exists(invoice));
+    }
+
+    private static void awaitUntil(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (!condition.getAsBoolean() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+    }
+
+    @Test
+    void checkoutStaysWithinQueryBudget() {
+        paymentService.calculateFinalBill(staff, booking.getBookingId(), feesRequest());
+        PaymentConfirmationRequest req = confirmRequest();
+
+        // 4 câu đọc (booking kèm khách/xe/model/trạm, lịch sử check-in, chi tiết phí cũ, loại phí điều chỉnh),
+        // 7 câu ghi (kể cả lịch sử RETURN ghi trước commit), còn lại là lấy giá trị sequence.
+        // Ảnh, PDF và email chạy sau commit, không chạm DB.
+        assertMaxQueries(12, () -> paymentService.confirmFinalPayment(booking.getBookingId(), req, staff));
+    }
+
+    @Test
+    void confirmWithoutDraftIsRejected() {
+        ResponseStatusException ex = assertThrows(ResponseStatusException.class,
+                () -> paymentService.confirmFinalPayment(booking.getBookingId(), confirmRequest(), staff));
+        assertEquals(HttpStatus.BAD_REQUEST, ex.getStatusCode());
+        assertEquals(BookingStatus.RENTING, bookingRepository.findById(booking.getBookingId()).orElseThrow().getStatus());
+    }
+
+    private PenaltyCalculationRequest feesRequest() {
+        PenaltyFee fee = penaltyFeeRepository.findAll().stream()
+                .filter(f -> !Boolean.TRUE.equals(f.getIsAdjustment()))
+                .findFirst().orElseThrow();
+        MockMultipartFile photo = new MockMultipartFile("photo", "tray-xuoc.jpg", "image/jpeg", new byte[]{1, 2, 3});
+        return new PenaltyCalculationRequest(
+                List.of(new PenaltyCalculationRequest.SelectedFee(fee.getFeeId(), 2)),
+                new PenaltyCalculationRequest.CustomFee("Giảm giá", "Khách thân thiết", -50_000.0, List.of(photo)));
+    }
+
+    private PaymentConfirmationRequest confirmRequest() {
+        PaymentConfirmationRequest req = new PaymentConfirmationRequest();
+        req.setPaymentMethod(PaymentMethod.CASH);
+        req.setConditionAfter("Bình thường");
+        req.setBattery(60);
+        req.setMileage(150.0);
+        req.setConfirmPhotos(List.of(new MockMultipartFile("photo", "checkout.jpg", "image/jpeg", new byte[]{4, 5, 6})));
+        return req;
+    }
+}
@@ -0,0 +1,158 @@
+package com.fptu.evstation.rental.evrentalsystem;
+
+import com.fptu.evstation.rental.evrentalsystem.dto.BookingRequest;
+import com.fptu.evstation.rental.evrentalsystem.entity.*;
+import com.fptu.evstation.rental.evrentalsystem.repository.*;
+import com.fptu.evstation.rental.evrentalsystem.service.BookingService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Answers;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.web.server.ResponseStatusException;
+import vn.payos.PayOS;
+import vn.payos.model.v2.paymentRequests.CreatePaymentLinkResponse;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@SpringBootTest
+class BookingAdmissionTests {
+
+    private static final int CLIENTS = 8;
+
+    @MockitoBean(answers = Answers.RETURNS_DEEP_STUBS)
+    private PayOS payOS;
+
+    @Autowired
+    private BookingService bookingService;
+
+    @Autowired
+    private BookingRepository bookingRepository;
+
+    @Autowired
+    private BookingIdempotencyKeyRepository idempotencyKeyRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private VehicleRepository vehicleRepository;
+
+    @Autowired
+    private TestFixtures fixtures;
+
+    private User renter;
+    private Vehicle vehicle;
+
+    @BeforeEach
+    void createRenterAndVehicle() throws Exception {
+        renter = fixtures.renter();
+        vehicle = fixtures.vehicle();
+
+        AtomicInteger links = new AtomicInteger();
+        when(payOS.paymentRequests().create(any())).thenAnswer(invocation -> {
+            CreatePaymentLinkResponse response = new CreatePaymentLinkResponse();
+            response.setCheckoutUrl("https://pay.test/checkout/" + links.incrementAndGet());
+            return response;
+        });
+    }
+
+    @AfterEach
+    void deleteFixtures() {
+        List<Booking> bookings = bookingRepository.findByUserAndStatusIn(renter, List.of(BookingStatus.values()));
+        idempotencyKeyRepository.deleteAll(idempotencyKeyRepository.findAll().stream()
+                .filter(k -> bookings.stream().anyMatch(b -> b.getBookingId().equals(k.getBooking().getBookingId())))
+                .toList());
+        bookingRepository.deleteAll(bookings);
+        vehicleRepository.delete(vehicle);
+        userRepository.delete(renter);
+    }
+
+    @Test
+    void concurrentRequestsAdmitOnlyOneActiveBooking() throws Exception {
+        List<Object> outcomes = race(() -> bookingService.createBooking(renter, request(), null));
+
+        long created = outcomes.stream().filter(Map.class::isInstance).count();
+        assertEquals(1, created);
+        outcomes.stream().filter(o -> !(o instanceof Map)).forEach(o ->
+                assertEquals(HttpStatus.BAD_REQUEST, ((ResponseStatusException) o).getStatusCode()));
+        assertEquals(1, bookingRepository.countByUserAndStatusIn(renter, List.of(BookingStatus.PENDING)));
+        verify(payOS.paymentRequests(), times(1)).create(any());
+    }
+
+    @Test
+    void retriesWithSameKeyReturnOriginalBooking() throws Exception {
+        String key = "dat-xe-" + TestFixtures.uniqueTag();
+        List<Object> outcomes = race(() -> bookingService.createBooking(renter, request(), key));
+
+        Map<?, ?> first = (Map<?, ?>) outcomes.get(0);
+        Booking booking = bookingRepository.findById((Long) first.get("bookingId")).orElseThrow();
+        for (Object outcome : outcomes) {
+            Map<?, ?> response = assertInstanceOf(Map.class, outcome);
+            assertEquals(booking.getBookingId(), response.get("bookingId"));
+            // Yêu cầu lặp lại trong lúc link PayOS đang được tạo nhận paymentUrl null (PENDING_LINK)
+            if (response.get("paymentUrl") != null) {
+                assertEquals(booking.getPaymentUrl(), response.get("paymentUrl"));
+            }
+        }
+        assertEquals(PaymentLinkStatus.READY, booking.getPaymentLinkStatus());
+        assertEquals(1, bookingRepository.countByUserAndStatusIn(renter, List.of(BookingStatus.PENDING)));
+        verify(payOS.paymentRequests(), times(1)).create(any());
+    }
+
+    @Test
+    void reusingKeyForDifferentRequestIsRejected() {
+        String key = "dat-xe-" + TestFixtures.uniqueTag();
+        bookingService.createBooking(renter, request(), key);
+
+        BookingRequest other = request();
+        other.setEndTime(other.getEndTime().plusHours(1));
+        ResponseStatusException ex = assertThrows(ResponseStatusException.class,
+                () -> bookingService.createBooking(renter, other, key));
+        assertEquals(HttpStatus.UNPROCESSABLE_ENTITY, ex.getStatusCode());
+    }
+
+    private List<Object> race(Callable<Map<String, Object>> call) throws Exception {
+        CyclicBarrier barrier = new CyclicBarrier(CLIENTS);
+        List<Future<Object>> futures = new ArrayList<>();
+        try (ExecutorService pool = Executors.newFixedThreadPool(CLIENTS)) {
+            for (int i = 0; i < CLIENTS; i++) {
+                futures.add(pool.submit(() -> {
+                    barrier.await();
+                    try {
+                        return call.call();
+                    } catch (ResponseStatusException e) {
+                        return e;
+                    }
+                }));
+            }
+        }
+        List<Object> outcomes = new ArrayList<>();
+        for (Future<Object> future : futures) {
+            outcomes.add(future.get());
+        }
+        return outcomes;
+    }
+
+    private BookingRequest request() {
+        LocalDateTime start = LocalDateTime.now().plusHours(3).withNano(0);
+        return BookingRequest.builder()
+                .vehicleId(vehicle.getVehicleId())
+                .startTime(start.withMinute(0).withSecond(0))
+                .endTime(start.withMinute(0).withSecond(0).plusHours(4))
+                .agreedToTerms(true)
+                .build();
+    }
+}
@@ -0,0 +1,133 @@
+package com.fptu.evstation.rental.evrentalsystem;
+
+import com.fptu.evstation.rental.evrentalsystem.entity.*;
+import com.fptu.evstation.rental.evrentalsystem.repository.*;
+import com.fptu.evstation.rental.evrentalsystem.service.util.BookingStateMachine;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+class BookingStateMachineTests {
+
+    private static final int ROUNDS = 5;
+
+    @Autowired
+    private BookingStateMachine bookingStateMachine;
+
+    @Autowired
+    private BookingRepository bookingRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private VehicleRepository vehicleRepository;
+
+    @Autowired
+    private TestFixtures fixtures;
+
+    private final List<Booking> created = new ArrayList<>();
+    private User renter;
+    private Vehicle vehicle;
+
+    @BeforeEach
+    void createRenterAndVehicle() {
+        renter = fixtures.renter();
+        vehicle = fixtures.vehicle(v -> v.batteryLevel(90).status(VehicleStatus.UNAVAILABLE));
+    }
+
+    @AfterEach
+    void deleteFixtures() {
+        bookingRepository.deleteAll(created);
+        vehicleRepository.delete(vehicle);
+        userRepository.delete(renter);
+    }
+
+    @Test
+    void racingTransitionsFromSameStateHaveExactlyOneWinner() throws Exception {
+        try (ExecutorService pool = Executors.newFixedThreadPool(2)) {
+            for (BookingStatus from : BookingStatus.values()) {
+                List<BookingStatus> targets = List.copyOf(BookingStateMachine.allowedTargets(from));
+                for (int i = 0; i < targets.size(); i++) {
+                    for (int j = i; j < targets.size(); j++) {
+                        for (int round = 0; round < ROUNDS; round++) {
+                            race(pool, from, targets.get(i), targets.get(j));
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    void losingTransitionLeavesEntityUntouched() {
+        Booking booking = newBooking(BookingStatus.PENDING);
+        Booking stale = bookingRepository.findById(booking.getBookingId()).orElseThrow();
+
+        assertTrue(bookingStateMachine.transition(booking, BookingStatus.CONFIRMED));
+        assertFalse(bookingStateMachine.transition(stale, BookingStatus.CANCELLED));
+
+        assertEquals(BookingStatus.PENDING, stale.getStatus());
+        assertEquals(BookingStatus.CONFIRMED, bookingStateMachine.currentStatus(booking.getBookingId()));
+        ResponseStatusException ex = assertThrows(ResponseStatusException.class,
+                () -> bookingStateMachine.transitionOrThrow(stale, BookingStatus.CANCELLED));
+        assertEquals(HttpStatus.CONFLICT, ex.getStatusCode());
+    }
+
+    @Test
+    void transitionsOutsideTableAreRejected() {
+        Booking booking = newBooking(BookingStatus.COMPLETED);
+
+        ResponseStatusException ex = assertThrows(ResponseStatusException.class,
+                () -> bookingStateMachine.transition(booking, BookingStatus.RENTING));
+        assertEquals(HttpStatus.BAD_REQUEST, ex.getStatusCode());
+        assertFalse(BookingStateMachine.isAllowed(BookingStatus.PENDING, BookingStatus.RENTING));
+        assertFalse(BookingStateMachine.isAllowed(BookingStatus.REFUNDED, BookingStatus.CANCELLED));
+        assertEquals(BookingStatus.COMPLETED, bookingStateMachine.currentStatus(booking.getBookingId()));
+    }
+
+    private void race(ExecutorService pool, BookingStatus from, BookingStatus first, BookingStatus second) throws Exception {
+        Long bookingId = newBooking(from).getBookingId();
+        CyclicBarrier barrier = new CyclicBarrier(2);
+        Future<Boolean> a = pool.submit(() -> {
+            Booking copy = bookingRepository.findById(bookingId).orElseThrow();
+            barrier.await();
+            return bookingStateMachine.transition(copy, first);
+        });
+        Future<Boolean> b = pool.submit(() -> {
+            Booking copy = bookingRepository.findById(bookingId).orElseThrow();
+            barrier.await();
+            return bookingStateMachine.transition(copy, second);
+        });
+        boolean aWon = a.get();
+        boolean bWon = b.get();
+
+        String race = from + " -> " + first + " / " + second;
+        assertTrue(aWon ^ bWon, "Phải có đúng một bên thắng: " + race);
+        assertEquals(aWon ? first : second, bookingStateMachine.currentStatus(bookingId), race);
+    }
+
+    private Booking newBooking(BookingStatus status) {
+        Booking booking = fixtures.booking(renter, vehicle, b -> b
+                .startDate(LocalDateTime.now().plusDays(1))
+                .endDate(LocalDateTime.now().plusDays(2))
+                .status(status));
+        created.add(booking);
+        return booking;
+    }
+}
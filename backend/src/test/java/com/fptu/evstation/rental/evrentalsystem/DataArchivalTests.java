@@ -0,0 +1,203 @@
+package com.fptu.evstation.rental.evrentalsystem;
+
+import com.fptu.evstation.rental.evrentalsystem.dto.ReportResponse;
+import com.fptu.evstation.rental.evrentalsystem.dto.VehicleHistoryResponse;
+import com.fptu.evstation.rental.evrentalsystem.entity.*;
+import com.fptu.evstation.rental.evrentalsystem.repository.*;
+import com.fptu.evstation.rental.evrentalsystem.service.BookingService;
+import com.fptu.evstation.rental.evrentalsystem.service.ReportService;
+import com.fptu.evstation.rental.evrentalsystem.service.VehicleService;
+import com.fptu.evstation.rental.evrentalsystem.service.scheduling.DataArchivalService;
+import com.fptu.evstation.rental.evrentalsystem.service.util.ArchiveWindow;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+class DataArchivalTests {
+
+    @Autowired
+    private DataArchivalService dataArchivalService;
+
+    @Autowired
+    private ReportService reportService;
+
+    @Autowired
+    private BookingService bookingService;
+
+    @Autowired
+    private VehicleService vehicleService;
+
+    @Autowired
+    private BookingRepository bookingRepository;
+
+    @Autowired
+    private ArchivedBookingRepository archivedBookingRepository;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private ArchivedTransactionRepository archivedTransactionRepository;
+
+    @Autowired
+    private TransactionDetailRepository transactionDetailRepository;
+
+    @Autowired
+    private ArchivedTransactionDetailRepository archivedTransactionDetailRepository;
+
+    @Autowired
+    private VehicleHistoryRepository historyRepository;
+
+    @Autowired
+    private ArchivedVehicleHistoryRepository archivedHistoryRepository;
+
+    @Autowired
+    private ContractRepository contractRepository;
+
+    @Autowired
+    private PenaltyFeeRepository penaltyFeeRepository;
+
+    @Autowired
+    private PaymentIntentRepository paymentIntentRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private VehicleRepository vehicleRepository;
+
+    @Autowired
+    private TestFixtures fixtures;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private User renter;
+    private Vehicle vehicle;
+    private Booking oldBooking;
+    private Booking recentBooking;
+    private Booking refundBooking;
+    private LocalDateTime oldStart;
+
+    @BeforeEach
+    void createFixtures() {
+        Station station = fixtures.station();
+        renter = fixtures.renter();
+        vehicle = fixtures.vehicle(v -> v.batteryLevel(90).currentMileage(100.0));
+
+        oldStart = LocalDateTime.now().minusYears(2).withHour(8).withMinute(0).withSecond(0).withNano(0);
+        oldBooking = completedBooking(oldStart);
+        recentBooking = completedBooking(LocalDateTime.now().minusDays(3).withNano(0));
+        refundBooking = completedBooking(oldStart.plusDays(1));
+        paymentIntentRepository.save(PaymentIntent.builder()
+                .orderCode(Long.parseLong("9" + TestFixtures.uniqueTag()))
+                .booking(refundBooking)
+                .type(PaymentIntentType.RESERVATION_DEPOSIT)
+                .amount(500_000L)
+                .status(PaymentIntentStatus.REFUND_REQUIRED)
+                .build());
+
+        transactionRepository.save(Transaction.builder()
+                .booking(oldBooking)
+                .amount(1_200_000.0)
+                .paymentMethod(PaymentMethod.CASH)
+                .transactionDate(oldStart.plusHours(5))
+                .build());
+        transactionDetailRepository.save(TransactionDetail.builder()
+                .booking(oldBooking)
+                .penaltyFee(penaltyFeeRepository.findAll().get(0))
+                .appliedAmount(300_000.0)
+                .build());
+        contractRepository.save(Contract.builder()
+                .booking(oldBooking)
+                .contractPdfPath("/uploads/contracts/archive-" + TestFixtures.uniqueTag() + ".pdf")
+                .signedDate(oldStart)
+                .build());
+
+        historyRepository.save(VehicleHistory.builder()
+                .vehicle(vehicle).station(station).actionType(VehicleActionType.DELIVERY)
+                .actionTime(oldStart).build());
+        historyRepository.save(VehicleHistory.builder()
+                .vehicle(vehicle).station(station).actionType(VehicleActionType.RETURN)
+                .actionTime(oldStart.plusHours(4)).build());
+    }
+
+    @AfterEach
+    void deleteFixtures() {
+        archivedTransactionRepository.deleteAll(archivedTransactionRepository.findAll().stream()
+                .filter(t -> t.getBookingId().equals(oldBooking.getBookingId())).toList());
+        archivedTransactionDetailRepository.deleteAll(archivedTransactionDetailRepository.findAll().stream()
+                .filter(d -> d.getBookingId().equals(oldBooking.getBookingId())).toList());
+        archivedBookingRepository.deleteAllById(List.of(oldBooking.getBookingId()));
+        archivedHistoryRepository.deleteAll(archivedHistoryRepository.findAll().stream()
+                .filter(h -> vehicle.getVehicleId().equals(h.getVehicleId())).toList());
+        historyRepository.deleteAll(historyRepository.findByVehicle_VehicleIdOrderByActionTimeDesc(vehicle.getVehicleId()));
+        List<Booking> bookings = bookingRepository.findByUserAndStatusIn(renter, List.of(BookingStatus.values()));
+        bookings.forEach(b -> {
+            transactionDetailRepository.deleteAll(transactionDetailRepository.findByBooking(b));
+            transactionRepository.deleteAll(transactionRepository.findByBooking(b));
+            contractRepository.findByBooking(b).ifPresent(contractRepository::delete);
+        });
+        bookingRepository.deleteAll(bookings);
+        vehicleRepository.delete(vehicle);
+        userRepository.delete(renter);
+    }
+
+    @Test
+    void terminalRowsMoveToArchiveAndRangeReadsStayTheSame() {
+        LocalDate from = oldStart.toLocalDate().minusDays(1);
+        LocalDate to = oldStart.toLocalDate().plusDays(1);
+        ReportResponse reportBefore = reportService.getRevenueByStation(1L, from, to);
+        Map<String, Object> peakBefore = bookingService.getPeakHourStatistics(1L, from, to);
+        List<VehicleHistoryResponse> historyBefore = vehicleService.getVehicleHistory(1L, from, to, null, vehicle.getLicensePlate());
+        assertEquals(1_200_000.0, reportBefore.getTotalBookingRevenue());
+        assertEquals(2, historyBefore.size());
+
+        ArchiveRun run = dataArchivalService.archiveBefore(LocalDateTime.now().minusYears(1));
+
+        assertTrue(run.getBookingsMoved() >= 1);
+        assertTrue(bookingRepository.findById(oldBooking.getBookingId()).isEmpty());
+        assertTrue(bookingRepository.findById(recentBooking.getBookingId()).isPresent(), "Booking gần đây vẫn ở bảng nóng");
+        assertTrue(bookingRepository.findById(refundBooking.getBookingId()).isPresent(), "Booking còn khoản chờ hoàn tiền không được chuyển");
+        ArchivedBooking archived = archivedBookingRepository.findById(oldBooking.getBookingId()).orElseThrow();
+        assertEquals(ArchiveWindow.monthOf(oldStart), archived.getArchiveMonth());
+        assertNotNull(archived.getContractPdfPath());
+        assertEquals(1L, archivedTransactionRepository.findAll().stream()
+                .filter(t -> t.getBookingId().equals(oldBooking.getBookingId()) && Long.valueOf(1L).equals(t.getStationId()))
+                .count());
+        // Bản ghi lịch sử mới nhất của xe được giữ lại làm tình trạng gần nhất
+        List<VehicleHistory> hotHistory = historyRepository.findByVehicle_VehicleIdOrderByActionTimeDesc(vehicle.getVehicleId());
+        assertEquals(1, hotHistory.size());
+        assertEquals(VehicleActionType.RETURN, hotHistory.get(0).getActionType());
+
+        ReportResponse reportAfter = reportService.getRevenueByStation(1L, from, to);
+        assertEquals(reportBefore.getTotalBookingRevenue(), reportAfter.getTotalBookingRevenue());
+        assertEquals(reportBefore.getTotalPenaltyRevenue(), reportAfter.getTotalPenaltyRevenue());
+        assertEquals(reportBefore.getTotalTransactions(), reportAfter.getTotalTransactions());
+        assertEquals(peakBefore.get("totalRentals"), bookingService.getPeakHourStatistics(1L, from, to).get("totalRentals"));
+        List<VehicleHistoryResponse> historyAfter = vehicleService.getVehicleHistory(1L, from, to, null, vehicle.getLicensePlate());
+        assertEquals(historyBefore.stream().map(VehicleHistoryResponse::getHistoryId).toList(),
+                historyAfter.stream().map(VehicleHistoryResponse::getHistoryId).toList());
+    }
+
+    private Booking completedBooking(LocalDateTime start) {
+        Booking booking = fixtures.booking(renter, vehicle, b -> b
+                .startDate(start)
+                .endDate(start.plusHours(4))
+                .status(BookingStatus.COMPLETED));
+        jdbcTemplate.update("UPDATE bookings SET created_at = ? WHERE booking_id = ?",
+                start.minusDays(1), booking.getBookingId());
+        return booking;
+    }
+}
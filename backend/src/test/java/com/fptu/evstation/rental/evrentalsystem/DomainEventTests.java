@@ -0,0 +1,100 @@
+package com.fptu.evstation.rental.evrentalsystem;
+
+import com.fptu.evstation.rental.evrentalsystem.entity.BookingStatus;
+import com.fptu.evstation.rental.evrentalsystem.event.BookingCancelledEvent;
+import com.fptu.evstation.rental.evrentalsystem.event.DomainEventExecutor;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+class DomainEventTests {
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Test
+    void eventsAreDeliveredOnlyAfterCommit() {
+        double before = cancelledEvents();
+
+        transactionTemplate.executeWithoutResult(status -> {
+            eventPublisher.publishEvent(new BookingCancelledEvent(-1L, BookingStatus.PENDING, BookingStatus.CANCELLED));
+            assertEquals(before, cancelledEvents(), "Sự kiện không được xử lý trước khi commit");
+            status.setRollbackOnly();
+        });
+        assertEquals(before, cancelledEvents(), "Transaction rollback thì sự kiện bị bỏ");
+
+        transactionTemplate.executeWithoutResult(status ->
+                eventPublisher.publishEvent(new BookingCancelledEvent(-1L, BookingStatus.PENDING, BookingStatus.CANCELLED)));
+        assertEquals(before + 1, cancelledEvents());
+    }
+
+    @Test
+    void failingHandlerIsRetriedOnWorkerThread() throws Exception {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        DomainEventExecutor executor = new DomainEventExecutor(registry, 2, 10, 3, 10);
+        try {
+            AtomicInteger attempts = new AtomicInteger();
+            AtomicReference<String> thread = new AtomicReference<>();
+            CountDownLatch done = new CountDownLatch(1);
+            executor.submit("flaky", () -> {
+                thread.set(Thread.currentThread().getName());
+                if (attempts.incrementAndGet() < 3) {
+                    throw new IllegalStateException("SMTP chưa sẵn sàng");
+                }
+                done.countDown();
+            });
+
+            assertTrue(done.await(5, TimeUnit.SECONDS));
+            assertEquals(3, attempts.get());
+            assertTrue(thread.get().startsWith("domain-event-"));
+            assertEquals(2.0, registry.counter("evrental.domain_event", "handler", "flaky", "outcome", "RETRY").count());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void handlerIsAbandonedAfterMaxAttempts() throws Exception {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        DomainEventExecutor executor = new DomainEventExecutor(registry, 1, 10, 2, 10);
+        try {
+            AtomicInteger attempts = new AtomicInteger();
+            executor.submit("broken", () -> {
+                attempts.incrementAndGet();
+                throw new IllegalStateException("Lỗi cố định");
+            });
+
+            long deadline = System.currentTimeMillis() + 5_000;
+            while (registry.counter("evrental.domain_event", "handler", "broken", "outcome", "FAILED").count() == 0
+                    && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            assertEquals(1.0, registry.counter("evrental.domain_event", "handler", "broken", "outcome", "FAILED").count());
+            assertEquals(2, attempts.get());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private double cancelledEvents() {
+        return meterRegistry.counter("evrental.booking.events", "type", "BookingCancelledEvent").count();
+    }
+}
@@ -0,0 +1,92 @@
+package com.fptu.evstation.rental.evrentalsystem;
+
+import com.fptu.evstation.rental.evrentalsystem.service.util.ImageDerivativeService;
+import com.fptu.evstation.rental.evrentalsystem.service.util.UploadUrlService;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.util.FileSystemUtils;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+class ImageDerivativeTests {
+
+    private static final Path UPLOADS = Paths.get(System.getProperty("user.dir"), "uploads");
+    private static final Path TEST_DIR = UPLOADS.resolve("test_image_derivatives");
+    private static final String IMAGE = "/uploads/test_image_derivatives/xe.png";
+    private static final String BROKEN = "/uploads/test_image_derivatives/hong.jpg";
+
+    @Autowired
+    private ImageDerivativeService imageDerivativeService;
+
+    @Autowired
+    private UploadUrlService uploadUrlService;
+
+    @BeforeAll
+    static void createFiles() throws IOException {
+        Files.createDirectories(TEST_DIR);
+        Random random = new Random(11);
+        BufferedImage image = new BufferedImage(2400, 1600, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < image.getHeight(); y++) {
+            for (int x = 0; x < image.getWidth(); x++) {
+                image.setRGB(x, y, random.nextInt(0xFFFFFF));
+            }
+        }
+        ImageIO.write(image, "png", TEST_DIR.resolve("xe.png").toFile());
+        byte[] garbage = new byte[4096];
+        random.nextBytes(garbage);
+        Files.write(TEST_DIR.resolve("hong.jpg"), garbage);
+    }
+
+    @AfterAll
+    static void deleteFiles() throws IOException {
+        FileSystemUtils.deleteRecursively(TEST_DIR);
+        FileSystemUtils.deleteRecursively(UPLOADS.resolve("derivatives/thumb/test_image_derivatives"));
+        FileSystemUtils.deleteRecursively(UPLOADS.resolve("derivatives/large/test_image_derivatives"));
+    }
+
+    @Test
+    void thumbnailsAreResizedJpegsAndRegeneratedWhenOriginalChanges() throws Exception {
+        assertTrue(imageDerivativeService.generate(IMAGE));
+
+        String thumbnail = imageDerivativeService.thumbnailUrl(IMAGE);
+        assertThat(thumbnail).matches("/uploads/derivatives/thumb/test_image_derivatives/xe\\.png-[0-9a-f]{32}\\.jpg");
+
+        Path thumbFile = UPLOADS.resolve("derivatives/thumb/test_image_derivatives/xe.png.jpg");
+        BufferedImage thumb = ImageIO.read(thumbFile.toFile());
+        assertEquals(320, thumb.getWidth());
+        assertEquals(213, thumb.getHeight());
+        assertThat(Files.size(thumbFile)).isLessThan(Files.size(TEST_DIR.resolve("xe.png")) / 10);
+
+        BufferedImage large = ImageIO.read(UPLOADS.resolve("derivatives/large/test_image_derivatives/xe.png.jpg").toFile());
+        assertEquals(1280, large.getWidth());
+
+        // Ảnh gốc bị ghi đè thì thumbnail cũ không còn dùng, trả về ảnh gốc cho đến khi sinh lại
+        Files.setLastModifiedTime(thumbFile, FileTime.fromMillis(Files.getLastModifiedTime(TEST_DIR.resolve("xe.png")).toMillis() - 5000));
+        assertEquals(uploadUrlService.versioned(IMAGE), imageDerivativeService.thumbnailUrl(IMAGE));
+        assertTrue(imageDerivativeService.generate(IMAGE));
+        assertThat(imageDerivativeService.thumbnailUrl(IMAGE)).contains("/derivatives/thumb/");
+    }
+
+    @Test
+    void unreadableImagesFallBackToOriginal() {
+        assertFalse(imageDerivativeService.generate(BROKEN));
+        assertEquals(uploadUrlService.versioned(BROKEN), imageDerivativeService.thumbnailUrl(BROKEN));
+        assertEquals("/uploads/../secret.png", imageDerivativeService.thumbnailUrl("/uploads/../secret.png"));
+    }
+}
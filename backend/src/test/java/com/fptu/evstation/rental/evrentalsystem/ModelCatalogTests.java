@@ -0,0 +1,95 @@
+package com.fptu.evstation.rental.evrentalsystem;
+
+import com.fptu.evstation.rental.evrentalsystem.dto.*;
+import com.fptu.evstation.rental.evrentalsystem.entity.Model;
+import com.fptu.evstation.rental.evrentalsystem.entity.VehicleType;
+import com.fptu.evstation.rental.evrentalsystem.service.ModelService;
+import com.fptu.evstation.rental.evrentalsystem.service.VehicleService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@SpringBootTest
+class ModelCatalogTests {
+
+    @Autowired
+    private ModelService modelService;
+
+    @Autowired
+    private VehicleService vehicleService;
+
+    @Test
+    void facetCountsIgnoreTheirOwnFilter() {
+        ModelCatalogResponse all = catalog(ModelSearchRequest.builder().stationId(1L).build());
+        int total = all.getModels().size();
+        assertThat(total).isPositive();
+        assertEquals(total, all.getVehicleTypeCounts().values().stream().mapToInt(Integer::intValue).sum());
+        assertEquals(total, all.getPriceBucketCounts().stream().mapToInt(ModelCatalogResponse.PriceBucketCount::getCount).sum());
+
+        ModelCatalogResponse motorbikes = catalog(ModelSearchRequest.builder()
+                .stationId(1L)
+                .vehicleType(VehicleType.MOTORBIKE)
+                .build());
+        assertThat(motorbikes.getModels()).isNotEmpty()
+                .allMatch(m -> m.getVehicleType() == VehicleType.MOTORBIKE);
+        // Facet loại xe không bị chính bộ lọc loại xe thu hẹp
+        assertEquals(all.getVehicleTypeCounts(), motorbikes.getVehicleTypeCounts());
+        assertEquals(List.of(2), List.copyOf(motorbikes.getSeatCountCounts().keySet()));
+        assertEquals(motorbikes.getModels().size(), motorbikes.getSeatCountCounts().get(2));
+
+        ModelCatalogResponse cheapCars = catalog(ModelSearchRequest.builder()
+                .stationId(1L)
+                .vehicleType(VehicleType.CAR)
+                .maxPrice(40_000.0)
+                .build());
+        assertThat(cheapCars.getModels()).allMatch(m -> m.getVehicleType() == VehicleType.CAR && m.getPricePerHour() <= 40_000);
+    }
+
+    @Test
+    void catalogFollowsModelAndVehicleChanges() {
+        Model model = modelService.createModel(CreateModelRequest.builder()
+                .modelName("Catalog Test 9 Seats")
+                .vehicleType("CAR")
+                .seatCount(9)
+                .pricePerHour(120_000.0)
+                .build(), null);
+        VehicleResponse vehicle = null;
+        try {
+            assertThat(catalog(ModelSearchRequest.builder().stationId(1L).build()).getSeatCountCounts()).doesNotContainKey(9);
+
+            vehicle = vehicleService.createVehicle(CreateVehicleRequest.builder()
+                    .licensePlate("51Z-999.01")
+                    .batteryLevel(90)
+                    .modelId(model.getModelId())
+                    .stationId(1L)
+                    .currentMileage(10.0)
+                    .status("AVAILABLE")
+                    .condition("GOOD")
+                    .depositAmount(5_000_000.0)
+                    .vinNumber("LYVCT9AA1P0999901")
+                    .engineNumber("CT9-M-2024-999901")
+                    .manufacturingYear(2024)
+                    .build());
+
+            ModelCatalogResponse nineSeats = catalog(ModelSearchRequest.builder().stationId(1L).seatCount(9).build());
+            assertEquals(List.of(model.getModelId()), nineSeats.getModels().stream().map(ModelWithAvailabilityResponse::getModelId).toList());
+            assertThat(nineSeats.getPriceBucketCounts()).extracting(ModelCatalogResponse.PriceBucketCount::getBucket)
+                    .containsExactly("FROM_100K");
+        } finally {
+            if (vehicle != null) {
+                vehicleService.deleteVehicle(vehicle.getVehicleId());
+            }
+            modelService.deleteModel(model.getModelId());
+        }
+        assertThat(catalog(ModelSearchRequest.builder().stationId(1L).build()).getSeatCountCounts()).doesNotContainKey(9);
+    }
+
+    private ModelCatalogResponse catalog(ModelSearchRequest request) {
+        return modelService.getModelCatalog(request);
+    }
+}
@@ -0,0 +1,106 @@
+package com.fptu.evstation.rental.evrentalsystem;
+
+import com.fptu.evstation.rental.evrentalsystem.dto.ModelResponse;
+import com.fptu.evstation.rental.evrentalsystem.entity.*;
+import com.fptu.evstation.rental.evrentalsystem.repository.ModelRepository;
+import com.fptu.evstation.rental.evrentalsystem.repository.VehicleHistoryRepository;
+import com.fptu.evstation.rental.evrentalsystem.repository.VehicleRepository;
+import com.fptu.evstation.rental.evrentalsystem.service.ModelService;
+import com.fptu.evstation.rental.evrentalsystem.service.util.ModelPopularity;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@SpringBootTest
+class ModelPopularityTests {
+
+    @Autowired
+    private ModelPopularity modelPopularity;
+
+    @Autowired
+    private ModelService modelService;
+
+    @Autowired
+    private ModelRepository modelRepository;
+
+    @Autowired
+    private VehicleRepository vehicleRepository;
+
+    @Autowired
+    private VehicleHistoryRepository historyRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void concurrentRentalsAreFlushedWithoutLostUpdates() throws Exception {
+        Long modelId = modelRepository.findAll().get(1).getModelId();
+        long before = modelPopularity.rentals(modelRepository.findById(modelId).orElseThrow(), ModelPopularity.Window.ALL_TIME);
+
+        try (ExecutorService pool = Executors.newFixedThreadPool(8)) {
+            IntStream.range(0, 200).forEach(i -> pool.submit(() -> modelPopularity.recordRental(modelId)));
+        }
+        modelPopularity.flush();
+
+        Model reloaded = modelRepository.findById(modelId).orElseThrow();
+        assertEquals(before + 200, reloaded.getRentalCount().longValue());
+        assertEquals(before + 200, modelPopularity.rentals(reloaded, ModelPopularity.Window.ALL_TIME));
+    }
+
+    @Test
+    void stationModelsCanBeSortedByRecentPopularity() {
+        List<Vehicle> stationVehicles = vehicleRepository.findAll().stream()
+                .filter(v -> v.getStation().getStationId().equals(1L))
+                .toList();
+        Long firstModelId = modelRepository.findAll().get(0).getModelId();
+        List<Vehicle> candidates = stationVehicles.stream()
+                .filter(v -> !v.getModel().getModelId().equals(firstModelId))
+                .toList();
+        Vehicle olderFavourite = candidates.get(0);
+        Long recentModelId = candidates.stream()
+                .map(v -> v.getModel().getModelId())
+                .filter(id -> !id.equals(olderFavourite.getModel().getModelId()))
+                .findFirst().orElseThrow();
+
+        // 20 lượt trả xe cách đây 10 ngày: chỉ tính vào cửa sổ 30 ngày
+        List<VehicleHistory> oldReturns = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            oldReturns.add(VehicleHistory.builder()
+                    .vehicle(olderFavourite)
+                    .station(olderFavourite.getStation())
+                    .actionType(VehicleActionType.RETURN)
+                    .build());
+        }
+        oldReturns = historyRepository.saveAll(oldReturns);
+        List<Long> oldIds = oldReturns.stream().map(VehicleHistory::getHistoryId).toList();
+        try {
+            oldIds.forEach(id -> jdbcTemplate.update("UPDATE vehicle_history SET action_time = ? WHERE history_id = ?",
+                    LocalDateTime.now().minusDays(10), id));
+            modelPopularity.loadRecent();
+            for (int i = 0; i < 10; i++) {
+                modelPopularity.recordRental(recentModelId);
+            }
+
+            assertEquals(recentModelId, firstModelId(ModelPopularity.Window.LAST_7_DAYS));
+            assertEquals(olderFavourite.getModel().getModelId(), firstModelId(ModelPopularity.Window.LAST_30_DAYS));
+        } finally {
+            historyRepository.deleteAllById(oldIds);
+            modelPopularity.loadRecent();
+        }
+    }
+
+    private Long firstModelId(ModelPopularity.Window window) {
+        List<ModelResponse> models = modelService.getModelsByStation(1L, null, null, window);
+        return models.get(0).getModelId();
+    }
+}
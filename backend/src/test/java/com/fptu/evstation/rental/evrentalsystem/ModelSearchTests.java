@@ -0,0 +1,64 @@
+package com.fptu.evstation.rental.evrentalsystem;
+
+import com.fptu.evstation.rental.evrentalsystem.dto.CreateModelRequest;
+import com.fptu.evstation.rental.evrentalsystem.dto.ModelResponse;
+import com.fptu.evstation.rental.evrentalsystem.dto.UpdateModelRequest;
+import com.fptu.evstation.rental.evrentalsystem.entity.Model;
+import com.fptu.evstation.rental.evrentalsystem.service.ModelService;
+import com.fptu.evstation.rental.evrentalsystem.service.util.ModelSearchIndex;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@SpringBootTest
+class ModelSearchTests {
+
+    @Autowired
+    private ModelService modelService;
+
+    @Autowired
+    private ModelSearchIndex modelSearchIndex;
+
+    @Test
+    void searchIgnoresDiacriticsSpacesAndSmallTypos() {
+        assertEquals("VinFast VF 8", names("vinfast vf8").get(0));
+        assertEquals("VinFast VF 8", names("VF 8").get(0));
+        assertThat(names("VÌNFẢST")).hasSize(7).allMatch(name -> name.startsWith("VinFast"));
+        assertEquals(List.of("VinFast VF 9"), names("vinfsat vf 9"));
+        // Khớp theo tính năng: "Động cơ mạnh, pin bền, thiết kế thể thao."
+        assertEquals("Dat Bike Quantum S", names("dong co manh").get(0));
+        assertThat(names("xyzxyz")).isEmpty();
+    }
+
+    @Test
+    void indexFollowsCreateUpdateAndDelete() {
+        Model model = modelService.createModel(CreateModelRequest.builder()
+                .modelName("Yadea Ódora S")
+                .vehicleType("MOTORBIKE")
+                .seatCount(2)
+                .pricePerHour(6_000.0)
+                .features("Phanh đĩa, chống trộm")
+                .build(), null);
+        try {
+            assertEquals(List.of(model.getModelId()), modelSearchIndex.search("yadea odora"));
+
+            UpdateModelRequest update = new UpdateModelRequest();
+            update.setModelName("Yadea Voltguard");
+            modelService.updateModel(model.getModelId(), update, null);
+            assertThat(modelSearchIndex.search("odora")).isEmpty();
+            assertEquals(List.of(model.getModelId()), modelSearchIndex.search("voltguard"));
+        } finally {
+            modelService.deleteModel(model.getModelId());
+        }
+        assertThat(modelSearchIndex.search("voltguard")).isEmpty();
+    }
+
+    private List<String> names(String keyword) {
+        return modelService.getAllModels(keyword).stream().map(ModelResponse::getModelName).toList();
+    }
+}
@@ -0,0 +1,151 @@
+package com.fptu.evstation.rental.evrentalsystem;
+
+import com.fptu.evstation.rental.evrentalsystem.service.util.PayOSGateway;
+import com.fptu.evstation.rental.evrentalsystem.service.util.PayOSGateway.GatewayUnavailableException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.mockito.Answers;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import vn.payos.PayOS;
+import vn.payos.exception.InternalServerException;
+import vn.payos.model.v2.paymentRequests.CreatePaymentLinkRequest;
+import vn.payos.model.v2.paymentRequests.CreatePaymentLinkResponse;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@SpringBootTest(properties = {
+        "payos.bulkhead.max-concurrent-calls=3",
+        "payos.call-timeout-ms=200",
+        "payos.circuit.sliding-window=6",
+        "payos.circuit.minimum-calls=4",
+        "payos.circuit.failure-rate-threshold=50",
+        "payos.circuit.open-seconds=1",
+        "payos.circuit.half-open-probes=1"
+})
+class PayOSGatewayTests {
+
+    private static final int BULKHEAD = 3;
+    private static final long CALL_TIMEOUT_MS = 200;
+    private static final int CLIENTS = 12;
+
+    @MockitoBean(answers = Answers.RETURNS_DEEP_STUBS)
+    private PayOS payOS;
+
+    @Autowired
+    private PayOSGateway gateway;
+
+    @Test
+    void chaoticPayOSStaysWithinBulkheadAndTimeout() throws Exception {
+        Random random = new Random(42);
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+        // PayOS giả lập hỗn loạn: độ trễ 0-600 ms, 30% lời gọi lỗi 500
+        when(payOS.paymentRequests().create(any())).thenAnswer(invocation -> {
+            int now = inFlight.incrementAndGet();
+            maxInFlight.accumulateAndGet(now, Math::max);
+            try {
+                long latency;
+                boolean fail;
+                synchronized (random) {
+                    latency = random.nextInt(600);
+                    fail = random.nextInt(10) < 3;
+                }
+                Thread.sleep(latency);
+                if (fail) {
+                    throw new InternalServerException("PayOS lỗi");
+                }
+                return link();
+            } finally {
+                inFlight.decrementAndGet();
+            }
+        });
+
+        List<Callable<Object>> calls = new ArrayList<>();
+        for (int i = 0; i < CLIENTS * 4; i++) {
+            calls.add(() -> {
+                long start = System.nanoTime();
+                try {
+                    gateway.createPaymentLink(request());
+                    return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+                } catch (RuntimeException e) {
+                    long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+                    assertTrue(elapsed <= CALL_TIMEOUT_MS + 150, "Lời gọi bị lỗi vẫn chờ quá lâu: " + elapsed + " ms");
+                    return e;
+                }
+            });
+        }
+
+        List<Object> outcomes = new ArrayList<>();
+        try (ExecutorService clients = Executors.newFixedThreadPool(CLIENTS)) {
+            for (Future<Object> future : clients.invokeAll(calls)) {
+                outcomes.add(future.get());
+            }
+        }
+
+        assertTrue(maxInFlight.get() <= BULKHEAD, "Số lời gọi PayOS đồng thời: " + maxInFlight.get());
+        for (Object outcome : outcomes) {
+            if (outcome instanceof Long elapsed) {
+                assertTrue(elapsed <= CALL_TIMEOUT_MS + 150, "Lời gọi thành công chờ quá lâu: " + elapsed + " ms");
+            }
+        }
+        assertTrue(outcomes.stream().anyMatch(GatewayUnavailableException.class::isInstance),
+                "Phải có lời gọi bị bulkhead/circuit breaker từ chối hoặc quá hạn");
+    }
+
+    @Test
+    void circuitOpensOnFailuresAndClosesAfterSuccessfulProbe() throws Exception {
+        // Gateway riêng để cửa sổ lỗi không bị ảnh hưởng bởi test hỗn loạn
+        PayOSGateway breaker = new PayOSGateway(payOS, new SimpleMeterRegistry(), BULKHEAD, 2_000, 6, 4, 50, 1, 1);
+        try {
+            reset(payOS.paymentRequests());
+            when(payOS.paymentRequests().create(any())).thenThrow(new InternalServerException("PayOS lỗi"));
+
+            for (int i = 0; i < 4; i++) {
+                assertThrows(InternalServerException.class, () -> breaker.createPaymentLink(request()));
+            }
+            assertEquals(PayOSGateway.State.OPEN, breaker.getState());
+            assertFalse(breaker.isCallPermitted());
+
+            // Mạch mở: từ chối ngay, không gọi PayOS
+            long start = System.nanoTime();
+            assertThrows(GatewayUnavailableException.class, () -> breaker.createPaymentLink(request()));
+            assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 50);
+            verify(payOS.paymentRequests(), times(4)).create(any());
+
+            reset(payOS.paymentRequests());
+            when(payOS.paymentRequests().create(any())).thenReturn(link());
+            Thread.sleep(1100);
+            assertTrue(breaker.isCallPermitted());
+            assertNotNull(breaker.createPaymentLink(request()));
+            assertEquals(PayOSGateway.State.CLOSED, breaker.getState());
+        } finally {
+            breaker.shutdown();
+        }
+    }
+
+    private static CreatePaymentLinkRequest request() {
+        return CreatePaymentLinkRequest.builder()
+                .orderCode(System.nanoTime() % 1_000_000_000L)
+                .amount(2000L)
+                .description("Kiểm thử gateway")
+                .returnUrl("http://localhost/ok")
+                .cancelUrl("http://localhost/cancel")
+                .build();
+    }
+
+    private static CreatePaymentLinkResponse link() {
+        CreatePaymentLinkResponse response = new CreatePaymentLinkResponse();
+        response.setCheckoutUrl("https://pay.test/gateway");
+        return response;
+    }
+}
@@ -0,0 +1,167 @@
+package com.fptu.evstation.rental.evrentalsystem;
+
+import com.fptu.evstation.rental.evrentalsystem.dto.BookingRequest;
+import com.fptu.evstation.rental.evrentalsystem.entity.*;
+import com.fptu.evstation.rental.evrentalsystem.repository.*;
+import com.fptu.evstation.rental.evrentalsystem.service.BookingService;
+import com.fptu.evstation.rental.evrentalsystem.service.PaymentLinkService;
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Answers;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import vn.payos.PayOS;
+import vn.payos.model.v2.paymentRequests.CreatePaymentLinkResponse;
+
+import javax.sql.DataSource;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+@SpringBootTest
+class PaymentLinkTests {
+
+    private static final int CLIENTS = 6;
+
+    @MockitoBean(answers = Answers.RETURNS_DEEP_STUBS)
+    private PayOS payOS;
+
+    @Autowired
+    private BookingService bookingService;
+
+    @Autowired
+    private PaymentLinkService paymentLinkService;
+
+    @Autowired
+    private BookingRepository bookingRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private VehicleRepository vehicleRepository;
+
+    @Autowired
+    private TestFixtures fixtures;
+
+    @Autowired
+    private DataSource dataSource;
+
+    private final List<User> renters = new ArrayList<>();
+    private final List<Vehicle> vehicles = new ArrayList<>();
+
+    @AfterEach
+    void deleteFixtures() {
+        for (User renter : renters) {
+            bookingRepository.deleteAll(bookingRepository.findByUserAndStatusIn(renter, List.of(BookingStatus.values())));
+        }
+        vehicleRepository.deleteAll(vehicles);
+        userRepository.deleteAll(renters);
+    }
+
+    @Test
+    void slowPayOSDoesNotHoldPooledConnections() throws Exception {
+        HikariDataSource pool = dataSource.unwrap(HikariDataSource.class);
+        CyclicBarrier allInsidePayOS = new CyclicBarrier(CLIENTS);
+        List<Integer> activeDuringPayOS = new CopyOnWriteArrayList<>();
+        // PayOS giả lập chậm: chờ tới khi cả 6 yêu cầu cùng đang gọi PayOS rồi mới đo số connection đang mượn
+        when(payOS.paymentRequests().create(any())).thenAnswer(invocation -> {
+            allInsidePayOS.await(10, TimeUnit.SECONDS);
+            activeDuringPayOS.add(pool.getHikariPoolMXBean().getActiveConnections());
+            Thread.sleep(300);
+            return link("https://pay.test/slow");
+        });
+
+        List<Callable<Map<String, Object>>> calls = new ArrayList<>();
+        for (int i = 0; i < CLIENTS; i++) {
+            User renter = newRenter();
+            BookingRequest req = request(newVehicle());
+            calls.add(() -> bookingService.createBooking(renter, req, null));
+        }
+        try (ExecutorService executor = Executors.newFixedThreadPool(CLIENTS)) {
+            for (Future<Map<String, Object>> future : executor.invokeAll(calls)) {
+                assertEquals("https://pay.test/slow", future.get().get("paymentUrl"));
+            }
+        }
+
+        assertEquals(CLIENTS, activeDuringPayOS.size());
+        // Trước đây mỗi yêu cầu giữ một connection suốt lời gọi PayOS (6 connection); cho phép 1 cho job nền
+        assertTrue(activeDuringPayOS.stream().allMatch(active -> active <= 1),
+                "Connection đang mượn trong lúc gọi PayOS: " + activeDuringPayOS);
+    }
+
+    @Test
+    void failedLinkStaysPendingAndIsRetried() {
+        when(payOS.paymentRequests().create(any()))
+                .thenThrow(new IllegalStateException("PayOS không phản hồi"))
+                .thenReturn(link("https://pay.test/retry"));
+
+        Map<String, Object> response = bookingService.createBooking(newRenter(), request(newVehicle()), null);
+
+        assertNull(response.get("paymentUrl"));
+        assertEquals(PaymentLinkStatus.PENDING_LINK, response.get("paymentLinkStatus"));
+        Booking booking = bookingRepository.findById((Long) response.get("bookingId")).orElseThrow();
+        assertEquals(BookingStatus.PENDING, booking.getStatus());
+        assertEquals(PaymentLinkStatus.PENDING_LINK, booking.getPaymentLinkStatus());
+        assertEquals(1, booking.getPaymentLinkAttempts());
+
+        booking.setPaymentLinkAttemptAt(LocalDateTime.now().minusMinutes(5));
+        bookingRepository.save(booking);
+        paymentLinkService.retryPendingLinks();
+
+        Booking retried = bookingRepository.findById(booking.getBookingId()).orElseThrow();
+        assertEquals(PaymentLinkStatus.READY, retried.getPaymentLinkStatus());
+        assertEquals("https://pay.test/retry", retried.getPaymentUrl());
+        assertEquals(2, retried.getPaymentLinkAttempts());
+    }
+
+    @Test
+    void linkIsMarkedFailedAfterMaxAttempts() {
+        when(payOS.paymentRequests().create(any())).thenThrow(new IllegalStateException("PayOS không phản hồi"));
+
+        Long bookingId = (Long) bookingService.createBooking(newRenter(), request(newVehicle()), null).get("bookingId");
+        for (int i = 0; i < 10; i++) {
+            paymentLinkService.requestLink(bookingRepository.findById(bookingId).orElseThrow());
+        }
+
+        Booking booking = bookingRepository.findById(bookingId).orElseThrow();
+        assertEquals(PaymentLinkStatus.FAILED, booking.getPaymentLinkStatus());
+        assertEquals(5, booking.getPaymentLinkAttempts());
+    }
+
+    private static CreatePaymentLinkResponse link(String url) {
+        CreatePaymentLinkResponse response = new CreatePaymentLinkResponse();
+        response.setCheckoutUrl(url);
+        return response;
+    }
+
+    private User newRenter() {
+        User renter = fixtures.renter();
+        renters.add(renter);
+        return renter;
+    }
+
+    private Vehicle newVehicle() {
+        Vehicle vehicle = fixtures.vehicle();
+        vehicles.add(vehicle);
+        return vehicle;
+    }
+
+    private BookingRequest request(Vehicle vehicle) {
+        LocalDateTime start = LocalDateTime.now().plusHours(3).withMinute(0).withSecond(0).withNano(0);
+        return BookingRequest.builder()
+                .vehicleId(vehicle.getVehicleId())
+                .startTime(start)
+                .endTime(start.plusHours(4))
+                .agreedToTerms(true)
+                .build();
+    }
+}
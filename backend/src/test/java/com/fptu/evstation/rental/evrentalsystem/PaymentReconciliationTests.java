@@ -0,0 +1,175 @@
+package com.fptu.evstation.rental.evrentalsystem;
+
+import com.fptu.evstation.rental.evrentalsystem.dto.BookingRequest;
+import com.fptu.evstation.rental.evrentalsystem.entity.*;
+import com.fptu.evstation.rental.evrentalsystem.repository.*;
+import com.fptu.evstation.rental.evrentalsystem.service.BookingService;
+import com.fptu.evstation.rental.evrentalsystem.service.PaymentIntentService;
+import com.fptu.evstation.rental.evrentalsystem.service.scheduling.PaymentReconciliationService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Answers;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import vn.payos.PayOS;
+import vn.payos.exception.NotFoundException;
+import vn.payos.model.v2.paymentRequests.CreatePaymentLinkResponse;
+import vn.payos.model.v2.paymentRequests.PaymentLink;
+import vn.payos.model.v2.paymentRequests.PaymentLinkStatus;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+@SpringBootTest(properties = {
+        "payment.reconcile-stale-after-seconds=0",
+        "payment.reconcile-interval-ms=3600000"
+})
+class PaymentReconciliationTests {
+
+    @MockitoBean(answers = Answers.RETURNS_DEEP_STUBS)
+    private PayOS payOS;
+
+    @Autowired
+    private BookingService bookingService;
+
+    @Autowired
+    private PaymentReconciliationService reconciliationService;
+
+    @Autowired
+    private PaymentIntentService paymentIntentService;
+
+    @Autowired
+    private PaymentIntentRepository paymentIntentRepository;
+
+    @Autowired
+    private BookingRepository bookingRepository;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private VehicleRepository vehicleRepository;
+
+    @Autowired
+    private TestFixtures fixtures;
+
+    private User renter;
+    private Vehicle vehicle;
+
+    @BeforeEach
+    void createRenterAndVehicle() {
+        renter = fixtures.renter();
+        vehicle = fixtures.vehicle();
+
+        CreatePaymentLinkResponse response = new CreatePaymentLinkResponse();
+        response.setCheckoutUrl("https://pay.test/reconcile");
+        when(payOS.paymentRequests().create(any())).thenReturn(response);
+    }
+
+    @AfterEach
+    void deleteFixtures() {
+        List<Booking> bookings = bookingRepository.findByUserAndStatusIn(renter, List.of(BookingStatus.values()));
+        bookings.forEach(b -> transactionRepository.deleteAll(transactionRepository.findByBooking(b)));
+        bookingRepository.deleteAll(bookings);
+        vehicleRepository.delete(vehicle);
+        userRepository.delete(renter);
+    }
+
+    @Test
+    void lostWebhookIsRecoveredByReconciliation() {
+        Booking booking = createBooking();
+        PaymentIntent intent = intentOf(booking);
+        assertEquals(PaymentIntentStatus.PENDING, intent.getStatus());
+        assertEquals(PaymentIntentType.RESERVATION_DEPOSIT, intent.getType());
+
+        when(payOS.paymentRequests().get(anyLong())).thenAnswer(invocation -> {
+            PaymentLink link = new PaymentLink();
+            link.setOrderCode(invocation.getArgument(0));
+            link.setStatus(PaymentLinkStatus.PAID);
+            return link;
+        });
+        reconciliationService.reconcile();
+
+        Booking confirmed = bookingRepository.findById(booking.getBookingId()).orElseThrow();
+        assertEquals(BookingStatus.CONFIRMED, confirmed.getStatus());
+        assertTrue(confirmed.isReservationDepositPaid());
+        assertEquals(PaymentIntentStatus.PAID, paymentIntentRepository.findById(intent.getId()).orElseThrow().getStatus());
+        assertEquals(1, transactionRepository.findByBooking(confirmed).size());
+
+        // Webhook tới muộn sau khi đã đối soát: không ghi nhận lần hai
+        paymentIntentService.confirmPaid(intent.getOrderCode());
+        assertEquals(1, transactionRepository.findByBooking(confirmed).size());
+    }
+
+    @Test
+    void paymentForBookingThatCanNoLongerBeConfirmedIsKeptForRefund() {
+        Booking booking = createBooking();
+        PaymentIntent intent = intentOf(booking);
+        booking.setStatus(BookingStatus.CANCELLED);
+        bookingRepository.save(booking);
+        when(payOS.paymentRequests().get(anyLong())).thenAnswer(invocation -> {
+            PaymentLink link = new PaymentLink();
+            link.setOrderCode(invocation.getArgument(0));
+            link.setStatus(PaymentLinkStatus.PAID);
+            return link;
+        });
+
+        reconciliationService.reconcile();
+
+        PaymentIntent flagged = paymentIntentRepository.findById(intent.getId()).orElseThrow();
+        assertEquals(PaymentIntentStatus.REFUND_REQUIRED, flagged.getStatus());
+        assertNotNull(flagged.getPaidAt());
+        assertNotNull(flagged.getReviewNote());
+        Booking cancelled = bookingRepository.findById(booking.getBookingId()).orElseThrow();
+        assertEquals(BookingStatus.CANCELLED, cancelled.getStatus());
+        assertTrue(transactionRepository.findByBooking(cancelled).isEmpty());
+
+        // Không còn PENDING nên lượt đối soát sau không hỏi lại PayOS
+        reconciliationService.reconcile();
+        verify(payOS.paymentRequests(), times(1)).get(anyLong());
+    }
+
+    @Test
+    void linkUnknownToGatewayIsClosed() {
+        Booking booking = createBooking();
+        PaymentIntent intent = intentOf(booking);
+        when(payOS.paymentRequests().get(anyLong())).thenThrow(new NotFoundException("Không tìm thấy link"));
+
+        reconciliationService.reconcile();
+
+        PaymentIntent closed = paymentIntentRepository.findById(intent.getId()).orElseThrow();
+        assertEquals(PaymentIntentStatus.CANCELLED, closed.getStatus());
+        assertNotNull(closed.getLastCheckedAt());
+        assertEquals(BookingStatus.PENDING, bookingRepository.findById(booking.getBookingId()).orElseThrow().getStatus());
+    }
+
+    private Booking createBooking() {
+        LocalDateTime start = LocalDateTime.now().plusHours(3).withMinute(0).withSecond(0).withNano(0);
+        BookingRequest request = BookingRequest.builder()
+                .vehicleId(vehicle.getVehicleId())
+                .startTime(start)
+                .endTime(start.plusHours(4))
+                .agreedToTerms(true)
+                .build();
+        Long bookingId = (Long) bookingService.createBooking(renter, request, null).get("bookingId");
+        return bookingRepository.findById(bookingId).orElseThrow();
+    }
+
+    private PaymentIntent intentOf(Booking booking) {
+        List<PaymentIntent> intents = paymentIntentRepository.findAll().stream()
+                .filter(i -> i.getBooking().getBookingId().equals(booking.getBookingId()))
+                .toList();
+        assertEquals(1, intents.size());
+        return intents.get(0);
+    }
+}
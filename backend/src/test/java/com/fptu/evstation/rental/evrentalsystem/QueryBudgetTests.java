@@ -0,0 +1,39 @@
+package com.fptu.evstation.rental.evrentalsystem;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static com.fptu.evstation.rental.evrentalsystem.QueryCountAssertions.maxQueries;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class QueryBudgetTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Test
+    void stationEndpointsStayWithinQueryBudget() throws Exception {
+        mockMvc.perform(get("/api/stations")).andExpect(status().isOk()).andExpect(maxQueries(1));
+        mockMvc.perform(get("/api/stations/1")).andExpect(status().isOk()).andExpect(maxQueries(1));
+        mockMvc.perform(get("/api/stations/rating/1")).andExpect(status().isOk()).andExpect(maxQueries(2));
+    }
+
+    @Test
+    void modelEndpointsStayWithinQueryBudget() throws Exception {
+        mockMvc.perform(get("/api/stations/1/models")).andExpect(status().isOk()).andExpect(maxQueries(3));
+        mockMvc.perform(get("/api/stations/1/models/1/vehicles")).andExpect(status().isOk()).andExpect(maxQueries(3));
+        // 1 truy vấn đếm xe khả dụng cho mỗi model (10 model mặc định)
+        mockMvc.perform(get("/api/stations/1/models/search")).andExpect(status().isOk()).andExpect(maxQueries(13));
+    }
+
+    @Test
+    void vehicleStatsStayWithinQueryBudget() throws Exception {
+        mockMvc.perform(get("/api/vehicles/station/1/stats")).andExpect(status().isOk()).andExpect(maxQueries(2));
+    }
+}
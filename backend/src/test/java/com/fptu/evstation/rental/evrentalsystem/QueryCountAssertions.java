@@ -0,0 +1,43 @@
+package com.fptu.evstation.rental.evrentalsystem;
+
+import com.fptu.evstation.rental.evrentalsystem.config.QueryCounter;
+import com.fptu.evstation.rental.evrentalsystem.filter.QueryBudgetFilter;
+import org.springframework.test.web.servlet.ResultMatcher;
+
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Kiểm tra số câu SQL tối đa cho một request MockMvc hoặc một đoạn code, để bắt lỗi N+1 sớm.
+ */
+public final class QueryCountAssertions {
+
+    private QueryCountAssertions() {
+    }
+
+    public static ResultMatcher maxQueries(long max) {
+        return result -> {
+            Object count = result.getRequest().getAttribute(QueryBudgetFilter.QUERY_COUNT_ATTRIBUTE);
+            assertNotNull(count, "QueryBudgetFilter không chạy cho request này");
+            assertTrue((Long) count <= max, () -> String.format("%s %s thực thi %d câu SQL, tối đa cho phép %d",
+                    result.getRequest().getMethod(), result.getRequest().getRequestURI(), (Long) count, max));
+        };
+    }
+
+    public static <T> T assertMaxQueries(long max, Supplier<T> work) {
+        boolean owner = QueryCounter.start();
+        long before = QueryCounter.current();
+        try {
+            T result = work.get();
+            long queries = QueryCounter.current() - before;
+            assertTrue(queries <= max, () -> String.format("Thực thi %d câu SQL, tối đa cho phép %d", queries, max));
+            return result;
+        } finally {
+            if (owner) {
+                QueryCounter.stop();
+            }
+        }
+    }
+}
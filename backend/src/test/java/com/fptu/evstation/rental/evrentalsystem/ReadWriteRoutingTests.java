@@ -0,0 +1,72 @@
+package com.fptu.evstation.rental.evrentalsystem;
+
+import com.fptu.evstation.rental.evrentalsystem.repository.StationRepository;
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// Replica trỏ cùng DB H2 in-memory qua một pool riêng (mô phỏng replica đồng bộ) để kiểm tra việc định tuyến connection.
+@SpringBootTest(properties = {
+        "spring.datasource.replica.url=jdbc:h2:mem:evrental;MODE=MSSQLServer;DATABASE_TO_UPPER=false;CASE_INSENSITIVE_IDENTIFIERS=TRUE;DB_CLOSE_DELAY=-1",
+        "spring.datasource.replica.hikari.maximum-pool-size=2"
+})
+class ReadWriteRoutingTests {
+
+    @Autowired
+    @Qualifier("primaryDataSource")
+    private HikariDataSource primaryDataSource;
+
+    @Autowired
+    @Qualifier("replicaDataSource")
+    private HikariDataSource replicaDataSource;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private StationRepository stationRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void readOnlyTransactionsUseReplicaPool() {
+        TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+
+        readOnly.executeWithoutResult(status -> {
+            stationRepository.findAll();
+            assertEquals("replica-pool", currentPoolWithActiveConnection());
+        });
+    }
+
+    @Test
+    void readWriteTransactionsUsePrimaryPool() {
+        TransactionTemplate readWrite = new TransactionTemplate(transactionManager);
+
+        readWrite.executeWithoutResult(status -> {
+            jdbcTemplate.queryForObject("SELECT COUNT(*) FROM stations", Long.class);
+            assertEquals("primary-pool", currentPoolWithActiveConnection());
+        });
+    }
+
+    private String currentPoolWithActiveConnection() {
+        int primaryActive = primaryDataSource.getHikariPoolMXBean().getActiveConnections();
+        int replicaActive = replicaDataSource.getHikariPoolMXBean() != null
+                ? replicaDataSource.getHikariPoolMXBean().getActiveConnections() : 0;
+        if (primaryActive > 0 && replicaActive == 0) {
+            return primaryDataSource.getPoolName();
+        }
+        if (replicaActive > 0 && primaryActive == 0) {
+            return replicaDataSource.getPoolName();
+        }
+        return "primary=" + primaryActive + ", replica=" + replicaActive;
+    }
+}
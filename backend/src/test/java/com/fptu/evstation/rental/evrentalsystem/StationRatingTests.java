@@ -0,0 +1,102 @@
+package com.fptu.evstation.rental.evrentalsystem;
+
+import com.fptu.evstation.rental.evrentalsystem.dto.RatingPageResponse;
+import com.fptu.evstation.rental.evrentalsystem.entity.Rating;
+import com.fptu.evstation.rental.evrentalsystem.entity.Station;
+import com.fptu.evstation.rental.evrentalsystem.entity.StationStatus;
+import com.fptu.evstation.rental.evrentalsystem.entity.User;
+import com.fptu.evstation.rental.evrentalsystem.repository.RatingRepository;
+import com.fptu.evstation.rental.evrentalsystem.repository.StationRepository;
+import com.fptu.evstation.rental.evrentalsystem.service.RatingService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static com.fptu.evstation.rental.evrentalsystem.QueryCountAssertions.assertMaxQueries;
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+class StationRatingTests {
+
+    @Autowired
+    private RatingService ratingService;
+
+    @Autowired
+    private RatingRepository ratingRepository;
+
+    @Autowired
+    private StationRepository stationRepository;
+
+    private Station station;
+
+    @BeforeEach
+    void createStation() {
+        station = stationRepository.save(Station.builder()
+                .name("Trạm kiểm thử đánh giá")
+                .address("Số 1 Đường Kiểm Thử")
+                .latitude(10.0)
+                .longitude(106.0)
+                .status(StationStatus.ACTIVE)
+                .build());
+    }
+
+    @AfterEach
+    void deleteStation() {
+        ratingRepository.deleteAll(ratingRepository.findByStation(station));
+        stationRepository.delete(station);
+    }
+
+    @Test
+    void concurrentRatingsKeepAggregatesExact() throws Exception {
+        int[] stars = {5, 4, 5, 3, 1, 5, 4, 2, 5, 4, 3, 5, 5, 4, 1, 2, 5, 3, 4, 5};
+        User user = new User();
+        user.setUserId(1L);
+
+        List<Callable<Rating>> tasks = new ArrayList<>();
+        for (int star : stars) {
+            tasks.add(() -> ratingService.saveRating(station.getStationId(), star, "Đánh giá " + star, user));
+        }
+        try (ExecutorService pool = Executors.newFixedThreadPool(8)) {
+            for (var future : pool.invokeAll(tasks)) {
+                future.get();
+            }
+        }
+
+        Station reloaded = stationRepository.findById(station.getStationId()).orElseThrow();
+        assertEquals(20, reloaded.getRatingCount());
+        assertEquals(75L, reloaded.getRatingSum());
+        assertEquals(75 / 20.0, reloaded.getRating(), 1e-9);
+        assertEquals(2, reloaded.getOneStarCount());
+        assertEquals(2, reloaded.getTwoStarCount());
+        assertEquals(3, reloaded.getThreeStarCount());
+        assertEquals(5, reloaded.getFourStarCount());
+        assertEquals(8, reloaded.getFiveStarCount());
+
+        // Điểm trung bình đọc từ trạm, không còn AVG trên bảng ratings
+        assertEquals(75 / 20.0, assertMaxQueries(1, () -> ratingService.getAverageRating(station.getStationId())), 1e-9);
+
+        RatingPageResponse page = assertMaxQueries(2, () -> ratingService.getRatingPage(station.getStationId(), 1, 8));
+        assertEquals(8, page.getRatings().size());
+        assertEquals(20, page.getTotalElements());
+        assertEquals(3, page.getTotalPages());
+        assertEquals(8, page.getStarCounts().get(5));
+        assertEquals(4, ratingService.getRatingPage(station.getStationId(), 2, 8).getRatings().size());
+    }
+
+    @Test
+    void rejectsStarsOutsideOneToFive() {
+        User user = new User();
+        user.setUserId(1L);
+        assertThrows(ResponseStatusException.class, () -> ratingService.saveRating(station.getStationId(), 6, null, user));
+        assertEquals(0, stationRepository.findById(station.getStationId()).orElseThrow().getRatingCount());
+    }
+}
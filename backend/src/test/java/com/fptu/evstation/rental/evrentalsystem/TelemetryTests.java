@@ -0,0 +1,170 @@
+package com.fptu.evstation.rental.evrentalsystem;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fptu.evstation.rental.evrentalsystem.dto.TelemetryIngestResponse;
+import com.fptu.evstation.rental.evrentalsystem.dto.TelemetryPointResponse;
+import com.fptu.evstation.rental.evrentalsystem.dto.TelemetryReading;
+import com.fptu.evstation.rental.evrentalsystem.entity.*;
+import com.fptu.evstation.rental.evrentalsystem.repository.TelemetryChunkRepository;
+import com.fptu.evstation.rental.evrentalsystem.repository.VehicleRepository;
+import com.fptu.evstation.rental.evrentalsystem.service.TelemetryService;
+import com.fptu.evstation.rental.evrentalsystem.service.impl.TelemetryServiceImpl;
+import com.fptu.evstation.rental.evrentalsystem.service.util.TelemetryCodec;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.nio.ByteBuffer;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {
+        "telemetry.chunk-max-age-seconds=0",
+        "telemetry.flush-interval-ms=3600000"
+})
+@AutoConfigureMockMvc
+class TelemetryTests {
+
+    private static final String KEY = "test-telemetry-key";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private TelemetryService telemetryService;
+
+    @Autowired
+    private TelemetryChunkRepository chunkRepository;
+
+    @Autowired
+    private VehicleRepository vehicleRepository;
+
+    @Autowired
+    private TestFixtures fixtures;
+
+    private Vehicle vehicle;
+
+    @BeforeEach
+    void createVehicle() {
+        vehicle = fixtures.vehicle(v -> v.batteryLevel(50).currentMileage(1_000.0));
+    }
+
+    @AfterEach
+    void deleteVehicle() {
+        chunkRepository.deleteAll(chunkRepository.findAll().stream()
+                .filter(c -> c.getVehicleId().equals(vehicle.getVehicleId()))
+                .toList());
+        vehicleRepository.delete(vehicle);
+    }
+
+    @Test
+    void codecRoundTripsCompactly() {
+        List<TelemetryCodec.Point> points = IntStream.range(0, 48)
+                .mapToObj(i -> new TelemetryCodec.Point(1_760_000_000L + i * 300L, 95 - i / 2, 123_456L + i * 25L))
+                .toList();
+
+        byte[] data = TelemetryCodec.encode(points);
+
+        assertEquals(points, TelemetryCodec.decode(data, points.size()));
+        assertTrue(data.length <= points.size() * 5, "Mỗi điểm tốn tối đa 5 byte, thực tế " + data.length + " byte");
+    }
+
+    @Test
+    void readingsAreDownsampledPersistedAndQueryable() throws Exception {
+        long start = System.currentTimeMillis() - 50 * 60_000L;
+        List<TelemetryReading> readings = new ArrayList<>();
+        for (int i = 0; i < 80; i++) {
+            readings.add(TelemetryReading.builder()
+                    .vehicleId(vehicle.getVehicleId())
+                    .timestamp(start + i * 30_000L)
+                    .battery(100 - i / 4)
+                    .odometer(1_000.0 + i * 0.25)
+                    .build());
+        }
+
+        mockMvc.perform(post("/api/telemetry/ingest")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(readings)))
+                .andExpect(status().isUnauthorized());
+
+        mockMvc.perform(post("/api/telemetry/ingest")
+                        .header("X-Telemetry-Key", KEY)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(readings.subList(0, 40))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.accepted").value(40));
+        mockMvc.perform(post("/api/telemetry/ingest")
+                        .header("X-Telemetry-Key", KEY)
+                        .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                        .content(frames(readings.subList(40, 80))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.accepted").value(40));
+
+        TelemetryReading last = readings.get(79);
+        assertEquals(last.getBattery(), telemetryService.getLatest(vehicle.getVehicleId()).getBattery());
+
+        telemetryService.flush();
+
+        long buckets = readings.stream().mapToLong(r -> Math.floorDiv(r.getTimestamp() / 1000, 300)).distinct().count();
+        List<TelemetryPointResponse> series = telemetryService.getSeries(vehicle.getVehicleId(),
+                LocalDateTime.now().minusHours(1), LocalDateTime.now());
+        assertEquals(buckets, series.size());
+        assertEquals(last.getBattery(), series.get(series.size() - 1).getBattery());
+        // Odometer lưu với độ phân giải 0,1 km
+        assertEquals(last.getOdometer(), series.get(series.size() - 1).getOdometer(), 0.05);
+        assertFalse(chunkRepository.findOverlapping(vehicle.getVehicleId(),
+                LocalDateTime.now().minusHours(1), LocalDateTime.now()).isEmpty());
+        assertEquals(last.getBattery(), vehicleRepository.findById(vehicle.getVehicleId()).orElseThrow().getBatteryLevel());
+
+        // Bản tin thuộc khung đã ghi xuống DB thì không được ghi lại
+        assertEquals(1, telemetryService.ingest(List.of(readings.get(0))).getLate());
+        // Xe không tồn tại bị từ chối
+        assertEquals(1, telemetryService.ingest(List.of(TelemetryReading.builder()
+                .vehicleId(-1L).timestamp(System.currentTimeMillis()).battery(90).odometer(1.0).build())).getRejected());
+    }
+
+    @Test
+    void readingOlderThanOpenBucketIsCountedLate() {
+        long bucketMillis = 300_000L;
+        long open = Math.floorDiv(System.currentTimeMillis(), bucketMillis) * bucketMillis;
+        TelemetryReading current = TelemetryReading.builder()
+                .vehicleId(vehicle.getVehicleId()).timestamp(open + 1_000).battery(80).odometer(1_010.0).build();
+        // Bản tin gửi bù cho một khung giữa khung đã đóng và khung đang mở
+        TelemetryReading backfill = TelemetryReading.builder()
+                .vehicleId(vehicle.getVehicleId()).timestamp(open - 3 * bucketMillis).battery(85).odometer(1_005.0).build();
+
+        assertEquals(1, telemetryService.ingest(List.of(current)).getAccepted());
+        TelemetryIngestResponse response = telemetryService.ingest(List.of(backfill));
+
+        assertEquals(0, response.getAccepted());
+        assertEquals(1, response.getLate());
+        assertEquals(1, telemetryService.getSeries(vehicle.getVehicleId(),
+                LocalDateTime.now().minusHours(1), LocalDateTime.now().plusMinutes(5)).size());
+    }
+
+    private static byte[] frames(List<TelemetryReading> readings) {
+        ByteBuffer buffer = ByteBuffer.allocate(readings.size() * TelemetryServiceImpl.FRAME_BYTES);
+        for (TelemetryReading reading : readings) {
+            buffer.putLong(reading.getVehicleId())
+                    .putLong(reading.getTimestamp())
+                    .put(reading.getBattery().byteValue())
+                    .putDouble(reading.getOdometer());
+        }
+        return buffer.array();
+    }
+}
@@ -0,0 +1,98 @@
+package com.fptu.evstation.rental.evrentalsystem;
+
+import com.fptu.evstation.rental.evrentalsystem.entity.*;
+import com.fptu.evstation.rental.evrentalsystem.repository.*;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Dữ liệu kiểm thử dùng chung cho các test @SpringBootTest: người dùng, xe và booking dựng sẵn,
+ * các cột duy nhất (email, SĐT, CCCD, GPLX, biển số, VIN, số máy) lấy từ một bộ đếm chung
+ * nên các lớp test dùng chung DB H2 không đụng nhau. Mỗi test tự dọn dữ liệu mình tạo.
+ */
+@Component
+@RequiredArgsConstructor
+public class TestFixtures {
+
+    private static final AtomicLong SEQUENCE = new AtomicLong(System.nanoTime() % 50_000_000);
+
+    private final UserRepository userRepository;
+    private final RoleRepository roleRepository;
+    private final StationRepository stationRepository;
+    private final ModelRepository modelRepository;
+    private final VehicleRepository vehicleRepository;
+    private final BookingRepository bookingRepository;
+
+    /**
+     * Chuỗi 8 chữ số không lặp lại trong cùng JVM.
+     */
+    public static String uniqueTag() {
+        return String.format("%08d", SEQUENCE.incrementAndGet() % 100_000_000);
+    }
+
+    // Trạm 1 luôn có trong dữ liệu khởi tạo
+    public Station station() {
+        return stationRepository.findById(1L).orElseThrow();
+    }
+
+    public User renter() {
+        return user("EV_RENTER", user -> user.verificationStatus(VerificationStatus.APPROVED));
+    }
+
+    public User user(String roleName, Consumer<User.UserBuilder> customizer) {
+        String tag = uniqueTag();
+        User.UserBuilder builder = User.builder()
+                .fullName("Người dùng kiểm thử " + tag)
+                .email("user-" + tag + "@test.vn")
+                .phone("09" + tag)
+                .cccd("0790" + tag)
+                .gplx("7900" + tag)
+                .password("x")
+                .role(roleRepository.findByRoleName(roleName).orElseThrow())
+                .status(AccountStatus.ACTIVE)
+                .cancellationCount(0);
+        customizer.accept(builder);
+        return userRepository.save(builder.build());
+    }
+
+    public Vehicle vehicle() {
+        return vehicle(vehicle -> {
+        });
+    }
+
+    /**
+     * Xe AVAILABLE, pin 95%, thuộc trạm 1; customizer ghi đè các giá trị mặc định.
+     */
+    public Vehicle vehicle(Consumer<Vehicle.VehicleBuilder> customizer) {
+        String tag = uniqueTag();
+        Vehicle.VehicleBuilder builder = Vehicle.builder()
+                .licensePlate("51T-" + tag)
+                .batteryLevel(95)
+                .model(modelRepository.findAll().get(0))
+                .station(station())
+                .currentMileage(10.0)
+                .status(VehicleStatus.AVAILABLE)
+                .condition(VehicleCondition.GOOD)
+                .depositAmount(5_000_000.0)
+                .vinNumber("TESTVIN0" + tag)
+                .engineNumber("TEST-" + tag)
+                .manufacturingYear(2024);
+        customizer.accept(builder);
+        return vehicleRepository.save(builder.build());
+    }
+
+    /**
+     * Booking của renter cho xe, tại trạm của xe; trạng thái, thời gian và cọc do customizer đặt.
+     */
+    public Booking booking(User renter, Vehicle vehicle, Consumer<Booking.BookingBuilder> customizer) {
+        Booking.BookingBuilder builder = Booking.builder()
+                .user(renter)
+                .vehicle(vehicle)
+                .station(vehicle.getStation());
+        customizer.accept(builder);
+        return bookingRepository.save(builder.build());
+    }
+}
@@ -0,0 +1,112 @@
+package com.fptu.evstation.rental.evrentalsystem;
+
+import com.fptu.evstation.rental.evrentalsystem.service.util.UploadUrlService;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@AutoConfigureMockMvc
+class UploadCachingTests {
+
+    private static final Path TEST_DIR = Paths.get(System.getProperty("user.dir"), "uploads", "test_upload_caching");
+    private static final String IMAGE = "/uploads/test_upload_caching/anh.jpg";
+    private static final String PDF = "/uploads/test_upload_caching/hoa_don.pdf";
+    private static byte[] pdfBytes;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private UploadUrlService uploadUrlService;
+
+    @LocalServerPort
+    private int port;
+
+    @BeforeAll
+    static void createFiles() throws IOException {
+        Files.createDirectories(TEST_DIR);
+        Files.writeString(TEST_DIR.resolve("anh.jpg"), "noi-dung-anh");
+        pdfBytes = new byte[200 * 1024];
+        new Random(7).nextBytes(pdfBytes);
+        Files.write(TEST_DIR.resolve("hoa_don.pdf"), pdfBytes);
+    }
+
+    @AfterAll
+    static void deleteFiles() throws IOException {
+        FileSystemUtils.deleteRecursively(TEST_DIR);
+    }
+
+    @Test
+    void versionedUrlIsImmutable() throws Exception {
+        String versioned = uploadUrlService.versioned(IMAGE);
+        assertThat(versioned).matches("/uploads/test_upload_caching/anh-[0-9a-f]{32}\\.jpg");
+
+        mockMvc.perform(get(versioned))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, containsString("immutable")))
+                .andExpect(header().string(HttpHeaders.ETAG, containsString(versioned.substring(versioned.lastIndexOf('-') + 1, versioned.lastIndexOf('.')))))
+                .andExpect(content().string("noi-dung-anh"));
+
+        // Hash không khớp nội dung hiện tại thì không phục vụ
+        mockMvc.perform(get("/uploads/test_upload_caching/anh-00000000000000000000000000000000.jpg"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void plainUrlRevalidatesWithEtag() throws Exception {
+        String etag = mockMvc.perform(get(IMAGE))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "no-cache"))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        mockMvc.perform(get(IMAGE).header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified());
+    }
+
+    @Test
+    void rangeRequestReturnsPartialContent() throws Exception {
+        byte[] body = mockMvc.perform(get(PDF).header(HttpHeaders.RANGE, "bytes=100-199"))
+                .andExpect(status().isPartialContent())
+                .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes 100-199/" + pdfBytes.length))
+                .andReturn().getResponse().getContentAsByteArray();
+        assertEquals(100, body.length);
+        assertEquals(pdfBytes[100], body[0]);
+    }
+
+    @Test
+    void largeFileIsServedIntactOverRealConnector() throws Exception {
+        try (HttpClient client = HttpClient.newHttpClient()) {
+            HttpResponse<byte[]> response = client.send(
+                    HttpRequest.newBuilder(URI.create("http://localhost:" + port + PDF)).build(),
+                    HttpResponse.BodyHandlers.ofByteArray());
+            assertEquals(200, response.statusCode());
+            assertEquals(String.valueOf(pdfBytes.length), response.headers().firstValue(HttpHeaders.CONTENT_LENGTH).orElseThrow());
+            assertArrayEquals(pdfBytes, response.body());
+        }
+    }
+}
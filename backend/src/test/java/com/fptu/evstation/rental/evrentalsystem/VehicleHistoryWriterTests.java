@@ -0,0 +1,120 @@
+package com.fptu.evstation.rental.evrentalsystem;
+
+import com.fptu.evstation.rental.evrentalsystem.entity.Vehicle;
+import com.fptu.evstation.rental.evrentalsystem.entity.VehicleActionType;
+import com.fptu.evstation.rental.evrentalsystem.entity.VehicleHistory;
+import com.fptu.evstation.rental.evrentalsystem.repository.VehicleHistoryRepository;
+import com.fptu.evstation.rental.evrentalsystem.repository.VehicleRepository;
+import com.fptu.evstation.rental.evrentalsystem.service.util.VehicleHistoryWriter;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static com.fptu.evstation.rental.evrentalsystem.QueryCountAssertions.assertMaxQueries;
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = "vehicle-history.flush-interval-ms=3600000")
+class VehicleHistoryWriterTests {
+
+    @Autowired
+    private VehicleHistoryWriter historyWriter;
+
+    @Autowired
+    private VehicleHistoryRepository historyRepository;
+
+    @Autowired
+    private VehicleRepository vehicleRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private Vehicle vehicle;
+    private String tag;
+
+    @BeforeEach
+    void pickVehicle() {
+        vehicle = vehicleRepository.findAll().get(0);
+        tag = "history-" + System.nanoTime();
+    }
+
+    @AfterEach
+    void deleteHistory() {
+        historyRepository.deleteAll(written());
+    }
+
+    @Test
+    void bufferedEntriesAreInsertedInBatchesOnFlush() {
+        LocalDateTime eventTime = LocalDateTime.now().minusMinutes(5).truncatedTo(ChronoUnit.SECONDS);
+        IntStream.range(0, 120).forEach(i -> historyWriter.append(entry(eventTime), VehicleHistoryWriter.Durability.BUFFERED));
+        assertTrue(written().isEmpty(), "Bản ghi BUFFERED chỉ được ghi khi xả lô");
+
+        // 120 bản ghi = 3 lô, mỗi lô một câu INSERT theo batch cộng vài câu lấy sequence
+        assertMaxQueries(12, () -> {
+            historyWriter.flush();
+            return null;
+        });
+
+        List<VehicleHistory> histories = written();
+        assertEquals(120, histories.size());
+        assertEquals(0, historyWriter.pending());
+        assertTrue(histories.stream().allMatch(h -> h.getActionTime().equals(eventTime)),
+                "Thời điểm xảy ra được giữ nguyên dù ghi muộn");
+    }
+
+    @Test
+    void inTransactionEntryRollsBackWithCaller() {
+        transactionTemplate.executeWithoutResult(status -> {
+            historyWriter.append(entry(null), VehicleHistoryWriter.Durability.IN_TRANSACTION);
+            status.setRollbackOnly();
+        });
+        assertTrue(written().isEmpty());
+
+        transactionTemplate.executeWithoutResult(status ->
+                historyWriter.append(entry(null), VehicleHistoryWriter.Durability.IN_TRANSACTION));
+        List<VehicleHistory> histories = written();
+        assertEquals(1, histories.size());
+        assertNotNull(histories.get(0).getActionTime());
+    }
+
+    @Test
+    void poisonedEntryDoesNotDropTheRestOfTheBatch() {
+        historyWriter.append(entry(null), VehicleHistoryWriter.Durability.BUFFERED);
+        historyWriter.append(VehicleHistoryWriter.HistoryEntry.builder()
+                .vehicleId(-1L)
+                .actionType(VehicleActionType.MAINTENANCE)
+                .note(tag)
+                .build(), VehicleHistoryWriter.Durability.BUFFERED);
+        historyWriter.append(entry(null), VehicleHistoryWriter.Durability.BUFFERED);
+
+        historyWriter.flush();
+
+        assertEquals(2, written().size());
+        assertEquals(0, historyWriter.pending());
+    }
+
+    private VehicleHistoryWriter.HistoryEntry entry(LocalDateTime actionTime) {
+        return VehicleHistoryWriter.HistoryEntry.builder()
+                .vehicleId(vehicle.getVehicleId())
+                .stationId(vehicle.getStation().getStationId())
+                .actionType(VehicleActionType.MAINTENANCE)
+                .note(tag)
+                .batteryLevel(vehicle.getBatteryLevel())
+                .mileage(vehicle.getCurrentMileage())
+                .actionTime(actionTime)
+                .build();
+    }
+
+    private List<VehicleHistory> written() {
+        return historyRepository.findAll().stream()
+                .filter(h -> tag.equals(h.getNote()))
+                .toList();
+    }
+}
@@ -0,0 +1,93 @@
+package com.fptu.evstation.rental.evrentalsystem;
+
+import com.fptu.evstation.rental.evrentalsystem.dto.VehicleImportResponse;
+import com.fptu.evstation.rental.evrentalsystem.repository.VehicleRepository;
+import com.fptu.evstation.rental.evrentalsystem.service.VehicleImportService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static com.fptu.evstation.rental.evrentalsystem.QueryCountAssertions.assertMaxQueries;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+@Transactional
+class VehicleImportTests {
+
+    private static final String HEADER = "licensePlate,batteryLevel,modelId,stationId,currentMileage,status,condition,"
+            + "depositAmount,vinNumber,engineNumber,manufacturingYear\n";
+
+    @Autowired
+    private VehicleImportService vehicleImportService;
+
+    @Autowired
+    private VehicleRepository vehicleRepository;
+
+    @Test
+    void importsValidRowsAndReportsErrorsPerRow() {
+        long before = vehicleRepository.count();
+        String csv = HEADER
+                + row(1) + "\n"
+                + row(2) + "\n"
+                // trùng VIN với dòng 1
+                + "IMP-DUP,90,1,1,100,AVAILABLE,GOOD,5000000,LYVTB300000000001,IMP-ENG-DUP,2024\n"
+                + "IMP-BAD,abc,999,1,100,FLYING,GOOD,5000000,LYVTB300000000099,IMP-ENG-099,2024\n";
+
+        VehicleImportResponse response = vehicleImportService.importVehicles(csvFile(csv));
+
+        assertEquals(4, response.getTotalRows());
+        assertEquals(2, response.getImportedCount());
+        assertEquals(2, response.getFailedCount());
+        assertEquals(3, response.getErrors().get(0).getRow());
+        assertTrue(response.getErrors().get(0).getMessages().get(0).contains("dòng 1"));
+        assertEquals(4, response.getErrors().get(1).getRow());
+        assertEquals(4, response.getErrors().get(1).getMessages().size());
+        assertEquals(before + 2, vehicleRepository.count());
+    }
+
+    @Test
+    void duplicatesDifferingOnlyInCaseAreReportedPerRow() {
+        long before = vehicleRepository.count();
+        String csv = HEADER
+                + row(1) + "\n"
+                // VIN và số máy bắt buộc viết hoa nên chỉ biển số có thể trùng khác hoa thường
+                + row(2).replace("IMP-000002", "imp-000001") + "\n";
+
+        VehicleImportResponse response = vehicleImportService.importVehicles(csvFile(csv));
+
+        assertEquals(1, response.getImportedCount());
+        assertEquals(1, response.getFailedCount());
+        VehicleImportResponse.RowError error = response.getErrors().get(0);
+        assertEquals(2, error.getRow());
+        assertEquals(List.of("Biển số xe 'imp-000001' bị trùng với dòng 1 trong file."), error.getMessages());
+        assertEquals(before + 1, vehicleRepository.count());
+    }
+
+    @Test
+    void largeImportUsesConstantNumberOfLookups() {
+        StringBuilder csv = new StringBuilder(HEADER);
+        for (int i = 1; i <= 1500; i++) {
+            csv.append(row(i)).append('\n');
+        }
+
+        // mẫu xe + trạm + 3 truy vấn IN (mỗi truy vấn chia 2 lô vì 1500 > 1000); insert đi bằng JDBC batch
+        VehicleImportResponse response = assertMaxQueries(8, () -> vehicleImportService.importVehicles(csvFile(csv.toString())));
+
+        assertEquals(1500, response.getImportedCount());
+        assertEquals(0, response.getFailedCount());
+    }
+
+    private static String row(int i) {
+        return String.format("IMP-%06d,90,1,1,100,AVAILABLE,GOOD,5000000,LYVTB3%011d,IMP-ENG-%06d,2024", i, i, i);
+    }
+
+    private static MockMultipartFile csvFile(String content) {
+        return new MockMultipartFile("file", "vehicles.csv", "text/csv", content.getBytes(StandardCharsets.UTF_8));
+    }
+}